@@ -23,6 +23,7 @@ import software.amazon.awscdk.services.dynamodb.Attribute;
 import software.amazon.awscdk.services.dynamodb.AttributeType;
 import software.amazon.awscdk.services.dynamodb.GlobalSecondaryIndexProps;
 import software.amazon.awscdk.services.dynamodb.ProjectionType;
+import software.amazon.awscdk.services.dynamodb.StreamViewType;
 import software.amazon.awscdk.services.dynamodb.Table;
 import software.amazon.awscdk.services.dynamodb.TableProps;
 import software.amazon.awscdk.services.iam.Effect;
@@ -31,6 +32,14 @@ import software.amazon.awscdk.services.lambda.Code;
 import software.amazon.awscdk.services.lambda.Function;
 import software.amazon.awscdk.services.lambda.FunctionProps;
 import software.amazon.awscdk.services.lambda.Runtime;
+import software.amazon.awscdk.services.lambda.StartingPosition;
+import software.amazon.awscdk.services.lambda.eventsources.DynamoEventSource;
+import software.amazon.awscdk.services.lambda.eventsources.DynamoEventSourceProps;
+import software.amazon.awscdk.services.lambda.eventsources.SqsEventSource;
+import software.amazon.awscdk.services.lambda.eventsources.SqsEventSourceProps;
+import software.amazon.awscdk.services.sqs.DeadLetterQueue;
+import software.amazon.awscdk.services.sqs.Queue;
+import software.amazon.awscdk.services.sqs.QueueProps;
 import software.constructs.Construct;
 
 import java.util.List;
@@ -39,12 +48,25 @@ import java.util.Objects;
 
 public class SoccermanagerCdkStack extends Stack {
 
+    /* Name prefix, partition key and sort key of the Offer search indexes; the Sort partition key is a number, the others strings */
+    private static final String[][] OFFER_INDEX_KEYS = {
+            {"Sort-Discount", "sort_partition", "discount"},
+            {"Sort-Price", "sort_partition", "price"},
+            {"Country-Discount", "country", "discount"},
+            {"Country-Price", "country", "price"},
+            {"Position-Discount", "position", "discount"},
+            {"Position-Price", "position", "price"},
+            {"CountryPosition-Discount", "country_position", "discount"},
+            {"CountryPosition-Price", "country_position", "price"}
+    };
+
     public SoccermanagerCdkStack(final Construct scope, final String id, final StackProps props) {
         super(scope, id, props);
 
         Objects.requireNonNull(props.getEnv());
         String region = props.getEnv().getRegion();
         String account = props.getEnv().getAccount();
+        boolean nativeImage = "true".equals(getNode().tryGetContext("native")); // cdk deploy -c native=true, after mvn -Pnative verify
 
         UserPool cognitoUserPool = new UserPool(this, "SoccerManagerUsers", UserPoolProps.builder()
                 .userPoolName("SoccerManagerUsers")
@@ -99,149 +121,127 @@ public class SoccermanagerCdkStack extends Stack {
                         .name("id")
                         .type(AttributeType.STRING)
                         .build())
+                .stream(StreamViewType.NEW_AND_OLD_IMAGES) // renames are told apart from other writes and copied by PlayerDetailsFunction
                 .build());
 
-        Table teamTable = new Table(this, "TeamTable", TableProps.builder()
-                .tableName("Team")
-                .partitionKey(Attribute.builder()
-                        .name("id")
-                        .type(AttributeType.STRING)
-                        .build())
-                .build());
-
-        Table offerTable = new Table(this, "OfferTable", TableProps.builder()
-                .tableName("Offer")
+        playerTable.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
+                .indexName("TeamId-index") // a team's roster, read by GET /team
                 .partitionKey(Attribute.builder()
-                        .name("id")
+                        .name("teamId")
                         .type(AttributeType.STRING)
                         .build())
-                .build());
-
-        offerTable.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
-                .indexName("Sort-Discount-index")
-                .partitionKey(Attribute.builder()
-                        .name("sort_partition")
-                        .type(AttributeType.NUMBER)
-                        .build())
-                .sortKey(Attribute.builder()
-                        .name("discount")
-                        .type(AttributeType.NUMBER)
-                        .build())
-                .projectionType(ProjectionType.KEYS_ONLY)
-                .build());
-
-        offerTable.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
-                .indexName("Sort-Price-index")
-                .partitionKey(Attribute.builder()
-                        .name("sort_partition")
-                        .type(AttributeType.NUMBER)
-                        .build())
                 .sortKey(Attribute.builder()
-                        .name("price")
-                        .type(AttributeType.NUMBER)
-                        .build())
-                .projectionType(ProjectionType.KEYS_ONLY)
-                .build());
-
-        offerTable.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
-                .indexName("Country-Discount-index")
-                .partitionKey(Attribute.builder()
-                        .name("country")
+                        .name("id")
                         .type(AttributeType.STRING)
                         .build())
-                .sortKey(Attribute.builder()
-                        .name("discount")
-                        .type(AttributeType.NUMBER)
-                        .build())
-                .projectionType(ProjectionType.KEYS_ONLY)
+                .projectionType(ProjectionType.ALL)
                 .build());
 
-        offerTable.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
-                .indexName("Country-Price-index")
+        Table teamTable = new Table(this, "TeamTable", TableProps.builder()
+                .tableName("Team")
                 .partitionKey(Attribute.builder()
-                        .name("country")
+                        .name("id")
                         .type(AttributeType.STRING)
                         .build())
-                .sortKey(Attribute.builder()
-                        .name("price")
-                        .type(AttributeType.NUMBER)
-                        .build())
-                .projectionType(ProjectionType.KEYS_ONLY)
+                .stream(StreamViewType.KEYS_ONLY) // the team view is rendered again from the table, only the changed keys are needed
                 .build());
 
-        offerTable.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
-                .indexName("Position-Discount-index")
+        Table teamViewTable = new Table(this, "TeamViewTable", TableProps.builder()
+                .tableName("TeamView")
                 .partitionKey(Attribute.builder()
-                        .name("position")
-                        .type(AttributeType.STRING)
-                        .build())
-                .sortKey(Attribute.builder()
-                        .name("discount")
-                        .type(AttributeType.NUMBER)
-                        .build())
-                .projectionType(ProjectionType.KEYS_ONLY)
-                .build());
-
-        offerTable.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
-                .indexName("Position-Price-index")
-                .partitionKey(Attribute.builder()
-                        .name("position")
+                        .name("id")
                         .type(AttributeType.STRING)
                         .build())
-                .sortKey(Attribute.builder()
-                        .name("price")
-                        .type(AttributeType.NUMBER)
-                        .build())
-                .projectionType(ProjectionType.KEYS_ONLY)
                 .build());
 
-        offerTable.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
-                .indexName("CountryPosition-Discount-index")
+        Table marketVersionTable = new Table(this, "MarketVersionTable", TableProps.builder()
+                .tableName("MarketVersion")
                 .partitionKey(Attribute.builder()
-                        .name("country_position")
+                        .name("id")
                         .type(AttributeType.STRING)
                         .build())
-                .sortKey(Attribute.builder()
-                        .name("discount")
-                        .type(AttributeType.NUMBER)
-                        .build())
-                .projectionType(ProjectionType.KEYS_ONLY)
                 .build());
 
-        offerTable.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
-                .indexName("CountryPosition-Price-index")
+        Table offerTable = new Table(this, "OfferTable", TableProps.builder()
+                .tableName("Offer")
                 .partitionKey(Attribute.builder()
-                        .name("country_position")
+                        .name("id")
                         .type(AttributeType.STRING)
                         .build())
-                .sortKey(Attribute.builder()
-                        .name("price")
-                        .type(AttributeType.NUMBER)
+                .stream(StreamViewType.NEW_IMAGE) // for MarketSnapshotWriter, which isn't deployed; SearchOffers reads the indexes without SEARCH_SNAPSHOT_PATH
+                .build());
+
+        /*
+         * Searches read whole offers from the -v2 indexes, which replaced the key-only ones. A stack deployed with the key-only
+         * indexes is moved over one index per deploy, as CloudFormation creates or deletes only one per update (see README).
+         */
+        int offerIndexesV2 = intContext("offerIndexesV2", OFFER_INDEX_KEYS.length);
+        int legacyOfferIndexes = intContext("legacyOfferIndexes", 0);
+        if (legacyOfferIndexes < OFFER_INDEX_KEYS.length && offerIndexesV2 < OFFER_INDEX_KEYS.length) {
+            throw new IllegalArgumentException("The key-only Offer indexes are read until every -v2 index exists");
+        }
+        for (int i = 0; i < OFFER_INDEX_KEYS.length; i++) {
+            String[] keys = OFFER_INDEX_KEYS[i];
+            if (i < legacyOfferIndexes) {
+                offerTable.addGlobalSecondaryIndex(offerIndex(keys[0] + "-index", keys[1], keys[2], ProjectionType.KEYS_ONLY));
+            }
+            if (i < offerIndexesV2) {
+                offerTable.addGlobalSecondaryIndex(offerIndex(keys[0] + "-v2-index", keys[1], keys[2], ProjectionType.ALL));
+            }
+        }
+
+        Queue teamProvisioningDeadLetterQueue = new Queue(this, "TeamProvisioningDeadLetterQueue", QueueProps.builder()
+                .queueName("TeamProvisioningDeadLetterQueue")
+                .retentionPeriod(Duration.days(14))
+                .build());
+
+        Queue teamProvisioningQueue = new Queue(this, "TeamProvisioningQueue", QueueProps.builder()
+                .queueName("TeamProvisioningQueue")
+                .visibilityTimeout(Duration.minutes(6)) // at least 6x the worker's timeout, as recommended for Lambda event sources
+                .deadLetterQueue(DeadLetterQueue.builder()
+                        .queue(teamProvisioningDeadLetterQueue)
+                        .maxReceiveCount(5)
                         .build())
-                .projectionType(ProjectionType.KEYS_ONLY)
                 .build());
 
         Function createUserFunction = new Function(this, "CreateUserFunction", FunctionProps.builder()
                 .functionName("CreateUserFunction")
-                .environment(Map.of("COGNITO_USER_POOL_ID", userPoolId))
-                .runtime(Runtime.JAVA_11)
-                .code(Code.fromAsset("../soccermanager-lambdas/createUserLambda/target/createuserlambda.jar"))
+                .environment(Map.of(
+                        "COGNITO_USER_POOL_ID", userPoolId,
+                        "PROVISIONING_QUEUE_URL", teamProvisioningQueue.getQueueUrl()))
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "createUserLambda", "createuserlambda"))
                 .handler("com.luisguadagnin.soccermanager.CreateUserHandler")
                 .memorySize(512)
                 .timeout(Duration.minutes(1))
                 .build());
 
         createUserFunction.addToRolePolicy(cognitoAllowCreateUserPolicy);
-        playerTable.grantWriteData(createUserFunction);
-        teamTable.grantWriteData(createUserFunction);
+        teamProvisioningQueue.grantSendMessages(createUserFunction);
+
+        Function provisionTeamFunction = new Function(this, "ProvisionTeamFunction", FunctionProps.builder()
+                .functionName("ProvisionTeamFunction")
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "createUserLambda", "createuserlambda"))
+                .handler("com.luisguadagnin.soccermanager.ProvisionTeamHandler")
+                .memorySize(512)
+                .timeout(Duration.minutes(1))
+                .build());
+
+        provisionTeamFunction.addEventSource(new SqsEventSource(teamProvisioningQueue, SqsEventSourceProps.builder()
+                .batchSize(10)
+                .reportBatchItemFailures(true)
+                .build()));
+        playerTable.grantWriteData(provisionTeamFunction);
+        teamTable.grantReadWriteData(provisionTeamFunction);
 
         Function loginFunction = new Function(this, "LoginFunction", FunctionProps.builder()
                 .functionName("LoginFunction")
                 .environment(Map.of(
                         "COGNITO_USER_POOL_ID", userPoolId,
                         "COGNITO_USER_POOL_CLIENT_ID", userPoolClientId))
-                .runtime(Runtime.JAVA_11)
-                .code(Code.fromAsset("../soccermanager-lambdas/loginLambda/target/loginlambda.jar"))
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "loginLambda", "loginlambda"))
                 .handler("com.luisguadagnin.soccermanager.LoginHandler")
                 .memorySize(512)
                 .timeout(Duration.minutes(1))
@@ -251,8 +251,8 @@ public class SoccermanagerCdkStack extends Stack {
 
         Function getTeamFunction = new Function(this, "GetTeamFunction", FunctionProps.builder()
                 .functionName("GetTeamFunction")
-                .runtime(Runtime.JAVA_11)
-                .code(Code.fromAsset("../soccermanager-lambdas/getTeamLambda/target/getteamlambda.jar"))
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "getTeamLambda", "getteamlambda"))
                 .handler("com.luisguadagnin.soccermanager.GetTeamHandler")
                 .memorySize(512)
                 .timeout(Duration.minutes(1))
@@ -260,59 +260,105 @@ public class SoccermanagerCdkStack extends Stack {
 
         playerTable.grantReadData(getTeamFunction);
         teamTable.grantReadData(getTeamFunction);
+        teamViewTable.grantReadData(getTeamFunction);
+
+        Function teamViewFunction = new Function(this, "TeamViewFunction", FunctionProps.builder()
+                .functionName("TeamViewFunction")
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "getTeamLambda", "getteamlambda"))
+                .handler("com.luisguadagnin.soccermanager.TeamViewHandler")
+                .memorySize(512)
+                .timeout(Duration.minutes(1))
+                .build());
+
+        teamViewFunction.addEventSource(new DynamoEventSource(teamTable, DynamoEventSourceProps.builder()
+                .startingPosition(StartingPosition.TRIM_HORIZON)
+                .batchSize(100)
+                .reportBatchItemFailures(true)
+                .retryAttempts(10) // a roster behind the index is retried, and TeamViewRebuild catches up on what's given up
+                .build()));
+        playerTable.grantReadData(teamViewFunction);
+        teamTable.grantReadData(teamViewFunction);
+        teamViewTable.grantWriteData(teamViewFunction);
 
         Function updateTeamFunction = new Function(this, "UpdateTeamFunction", FunctionProps.builder()
                 .functionName("UpdateTeamFunction")
-                .runtime(Runtime.JAVA_11)
-                .code(Code.fromAsset("../soccermanager-lambdas/updateTeamLambda/target/updateteamlambda.jar"))
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "updateTeamLambda", "updateteamlambda"))
                 .handler("com.luisguadagnin.soccermanager.UpdateTeamHandler")
                 .memorySize(512)
                 .timeout(Duration.minutes(1))
                 .build());
 
-        teamTable.grantReadWriteData(updateTeamFunction);
+        teamTable.grantWriteData(updateTeamFunction);
 
         Function updatePlayerFunction = new Function(this, "UpdatePlayerFunction", FunctionProps.builder()
                 .functionName("UpdatePlayerFunction")
-                .runtime(Runtime.JAVA_11)
-                .code(Code.fromAsset("../soccermanager-lambdas/updatePlayerLambda/target/updateplayerlambda.jar"))
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "updatePlayerLambda", "updateplayerlambda"))
                 .handler("com.luisguadagnin.soccermanager.UpdatePlayerHandler")
                 .memorySize(512)
                 .timeout(Duration.minutes(1))
                 .build());
 
-        teamTable.grantReadData(updatePlayerFunction);
         playerTable.grantReadWriteData(updatePlayerFunction);
 
+        Function playerDetailsFunction = new Function(this, "PlayerDetailsFunction", FunctionProps.builder()
+                .functionName("PlayerDetailsFunction")
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "updatePlayerLambda", "updateplayerlambda"))
+                .handler("com.luisguadagnin.soccermanager.PlayerDetailsHandler")
+                .memorySize(512)
+                .timeout(Duration.minutes(1))
+                .build());
+
+        playerDetailsFunction.addEventSource(new DynamoEventSource(playerTable, DynamoEventSourceProps.builder()
+                .startingPosition(StartingPosition.LATEST)
+                .batchSize(100)
+                .reportBatchItemFailures(true)
+                .retryAttempts(10)
+                .build()));
+        offerTable.grantWriteData(playerDetailsFunction);
+        teamTable.grantWriteData(playerDetailsFunction);
+        marketVersionTable.grantWriteData(playerDetailsFunction);
+
+        String offerSortPartitions = "4"; // shards of the Sort-* indexes, shared by writers and readers; may grow, never shrink
+
         Function createOfferFunction = new Function(this, "CreateOfferFunction", FunctionProps.builder()
                 .functionName("CreateOfferFunction")
-                .runtime(Runtime.JAVA_11)
-                .code(Code.fromAsset("../soccermanager-lambdas/createOfferLambda/target/createofferlambda.jar"))
+                .environment(Map.of("OFFER_SORT_PARTITIONS", offerSortPartitions))
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "createOfferLambda", "createofferlambda"))
                 .handler("com.luisguadagnin.soccermanager.CreateOfferHandler")
                 .memorySize(512)
                 .timeout(Duration.minutes(1))
                 .build());
 
-        teamTable.grantReadData(createOfferFunction);
         playerTable.grantReadData(createOfferFunction);
-        offerTable.grantReadWriteData(createOfferFunction);
+        offerTable.grantWriteData(createOfferFunction);
+        marketVersionTable.grantWriteData(createOfferFunction);
 
         Function searchOffersFunction = new Function(this, "SearchOffersFunction", FunctionProps.builder()
                 .functionName("SearchOffersFunction")
-                .runtime(Runtime.JAVA_11)
-                .code(Code.fromAsset("../soccermanager-lambdas/searchOffersLambda/target/searchofferslambda.jar"))
+                .environment(offerIndexesV2 == OFFER_INDEX_KEYS.length
+                        ? Map.of("OFFER_SORT_PARTITIONS", offerSortPartitions, "OFFER_INDEX_VERSION", "v2")
+                        : Map.of("OFFER_SORT_PARTITIONS", offerSortPartitions))
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "searchOffersLambda", "searchofferslambda"))
                 .handler("com.luisguadagnin.soccermanager.SearchOffersHandler")
                 .memorySize(512)
                 .timeout(Duration.minutes(1))
                 .build());
 
-        playerTable.grantReadData(searchOffersFunction);
+        playerTable.grantReadData(searchOffersFunction); // hydrates offers listed without a player summary
         offerTable.grantReadData(searchOffersFunction);
+        marketVersionTable.grantReadData(searchOffersFunction);
+        searchOffersFunction.getNode().addDependency(offerTable); // moves to the -v2 indexes once the last one is built
 
         Function purchasePlayerFunction = new Function(this, "PurchasePlayerFunction", FunctionProps.builder()
                 .functionName("PurchasePlayerFunction")
-                .runtime(Runtime.JAVA_11)
-                .code(Code.fromAsset("../soccermanager-lambdas/purchasePlayerLambda/target/purchaseplayerlambda.jar"))
+                .runtime(nativeImage ? Runtime.PROVIDED_AL2 : Runtime.JAVA_11)
+                .code(lambdaCode(nativeImage, "purchasePlayerLambda", "purchaseplayerlambda"))
                 .handler("com.luisguadagnin.soccermanager.PurchasePlayerHandler")
                 .memorySize(512)
                 .timeout(Duration.minutes(1))
@@ -321,6 +367,7 @@ public class SoccermanagerCdkStack extends Stack {
         playerTable.grantReadWriteData(purchasePlayerFunction);
         teamTable.grantReadWriteData(purchasePlayerFunction);
         offerTable.grantReadWriteData(purchasePlayerFunction);
+        marketVersionTable.grantWriteData(purchasePlayerFunction);
 
         HttpApi httpApi = new HttpApi(this, "soccer-manager-api", HttpApiProps.builder()
                 .apiName("soccer-manager-api")
@@ -392,4 +439,29 @@ public class SoccermanagerCdkStack extends Stack {
                 .value(httpApi.getApiEndpoint())
                 .build());
     }
+
+    private int intContext(String key, int defaultValue) {
+        Object value = getNode().tryGetContext(key);
+        return value == null ? defaultValue : Integer.parseInt(value.toString());
+    }
+
+    private static GlobalSecondaryIndexProps offerIndex(String indexName, String partitionKey, String sortKey, ProjectionType projectionType) {
+        return GlobalSecondaryIndexProps.builder()
+                .indexName(indexName)
+                .partitionKey(Attribute.builder()
+                        .name(partitionKey)
+                        .type("sort_partition".equals(partitionKey) ? AttributeType.NUMBER : AttributeType.STRING)
+                        .build())
+                .sortKey(Attribute.builder()
+                        .name(sortKey)
+                        .type(AttributeType.NUMBER)
+                        .build())
+                .projectionType(projectionType)
+                .build();
+    }
+
+    private static Code lambdaCode(boolean nativeImage, String module, String jarName) {
+        String target = "../soccermanager-lambdas/" + module + "/target/";
+        return Code.fromAsset(nativeImage ? target + module + "-1.0-native.zip" : target + jarName + ".jar");
+    }
 }
@@ -1,86 +1,112 @@
 package com.luisguadagnin.soccermanager;
 
 import com.amazonaws.services.lambda.runtime.Context;
-import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.amazonaws.util.StringUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.dto.CreateOfferRequest;
 import com.luisguadagnin.soccermanager.exception.BadRequestException;
+import com.luisguadagnin.soccermanager.exception.ConflictException;
 import com.luisguadagnin.soccermanager.exception.ForbiddenException;
 import com.luisguadagnin.soccermanager.exception.NotFoundException;
+import com.luisguadagnin.soccermanager.http.HttpApiHandler;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
 import com.luisguadagnin.soccermanager.model.Offer;
 import com.luisguadagnin.soccermanager.model.Player;
-import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.priming.Priming;
+import com.luisguadagnin.soccermanager.priming.PrimingDynamoDB;
 import com.luisguadagnin.soccermanager.repository.OfferRepository;
 import com.luisguadagnin.soccermanager.repository.PlayerRepository;
-import com.luisguadagnin.soccermanager.repository.TeamRepository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Map;
 
-public class CreateOfferHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+public class CreateOfferHandler extends HttpApiHandler {
 
     private final ObjectMapper objectMapper;
-    private final TeamRepository teamRepository;
     private final PlayerRepository playerRepository;
     private final OfferRepository offerRepository;
 
     public CreateOfferHandler() {
         objectMapper = new ObjectMapper();
-        teamRepository = new TeamRepository();
         playerRepository = new PlayerRepository();
         offerRepository = new OfferRepository();
+        Priming.register(this::prime, AWSConfiguration::refresh);
     }
 
-    CreateOfferHandler(TeamRepository teamRepository, PlayerRepository playerRepository, OfferRepository offerRepository) {
-        this.objectMapper = new ObjectMapper();
-        this.teamRepository = teamRepository;
+    CreateOfferHandler(PlayerRepository playerRepository, OfferRepository offerRepository) {
+        this(new ObjectMapper(), playerRepository, offerRepository);
+    }
+
+    private CreateOfferHandler(ObjectMapper objectMapper, PlayerRepository playerRepository, OfferRepository offerRepository) {
+        this.objectMapper = objectMapper;
         this.playerRepository = playerRepository;
         this.offerRepository = offerRepository;
     }
 
+    /* Lists a stub player through this handler's ObjectMapper, so its deserializers are cached in the snapshot too */
+    void prime() {
+        PrimingDynamoDB primingDynamoDB = new PrimingDynamoDB();
+        CreateOfferHandler primingHandler = new CreateOfferHandler(objectMapper, new PlayerRepository(primingDynamoDB), new OfferRepository(primingDynamoDB));
+
+        HttpApiResponse response = primingHandler.invoke(
+                buildPrimingRequest("{ \"playerId\": \"" + PrimingDynamoDB.PLAYER_ID + "\", \"price\": \"900000.00\" }"));
+
+        Priming.checkStatusCode(200, response.getStatusCode());
+    }
+
+    private static HttpApiRequest buildPrimingRequest(String body) {
+        return new HttpApiRequest()
+                .withBody(body)
+                .withUsername(PrimingDynamoDB.TEAM_ID);
+    }
+
     @Override
-    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent, Context context) {
+    public HttpApiResponse handleRequest(HttpApiRequest request, Context context) {
         try {
-            createOffer(apiGatewayProxyRequestEvent);
+            createOffer(request);
         } catch (BadRequestException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse(ex.getMessage()))
                     .withStatusCode(400);
         } catch (ArithmeticException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse("\"price\" field is invalid"))
                     .withStatusCode(400);
         } catch(ForbiddenException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse(ex.getMessage()))
                     .withStatusCode(403);
         } catch(NotFoundException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse(ex.getMessage()))
                     .withStatusCode(404);
+        } catch (ConflictException ex) {
+            return new HttpApiResponse()
+                    .withHeaders(Map.of("Content-Type", "application/json"))
+                    .withBody(buildErrorResponse(ex.getMessage()))
+                    .withStatusCode(409);
         } catch (Exception ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse("Internal server error"))
                     .withStatusCode(500);
         }
 
-        return new APIGatewayProxyResponseEvent()
+        return new HttpApiResponse()
                 .withStatusCode(200);
     }
 
-    private void createOffer(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) {
-        String username = extractUsername(apiGatewayProxyRequestEvent);
-        CreateOfferRequest createOfferRequest = convertInput(apiGatewayProxyRequestEvent.getBody());
+    private void createOffer(HttpApiRequest request) {
+        String username = extractUsername(request);
+        CreateOfferRequest createOfferRequest = convertInput(request.getBody());
 
         validateCreateOfferRequest(createOfferRequest);
         String playerId = createOfferRequest.getPlayerId();
@@ -88,16 +114,22 @@ public class CreateOfferHandler implements RequestHandler<APIGatewayProxyRequest
         BigDecimal decimalPrice = new BigDecimal(createOfferRequest.getPrice());
         long priceLong = decimalPrice.multiply(new BigDecimal("100")).longValueExact(); // removes fractional part
 
+        try {
+            listPlayer(username, playerId, decimalPrice, priceLong);
+        } catch (ForbiddenException | ConflictException ex) {
+            // the player may have come stale from the cache, so it's read again once before giving up
+            playerRepository.evict(playerId);
+            listPlayer(username, playerId, decimalPrice, priceLong);
+        }
+    }
+
+    private void listPlayer(String username, String playerId, BigDecimal decimalPrice, long priceLong) {
         Player player = playerRepository.findById(playerId);
         if (player == null) throw new NotFoundException("Player doesn't exist");
 
-        Team team = teamRepository.findById(username);
-        if (!team.getPlayersId().contains(playerId)) throw new ForbiddenException("Player doesn't belong to logged user's team");
-
-        Offer existingOffer = offerRepository.findById(playerId);
-        validate(existingOffer == null, "An offer for this player already exists");
+        if (!username.equals(player.getTeamId())) throw new ForbiddenException("Player doesn't belong to logged user's team");
 
-        BigDecimal decimalValue = new BigDecimal(player.getValue());
+        BigDecimal decimalValue = player.getValue().toBigDecimal();
         BigDecimal decimalDiscount = BigDecimal.ONE.subtract(decimalPrice.divide(decimalValue, 4, RoundingMode.HALF_DOWN));
         int discountInt = decimalDiscount.multiply(new BigDecimal("10000")).intValue(); // turns into % and removes fractional part
 
@@ -107,21 +139,18 @@ public class CreateOfferHandler implements RequestHandler<APIGatewayProxyRequest
                 .discount(discountInt)
                 .price(priceLong)
                 .position(player.getPosition())
+                .firstName(player.getFirstName())
+                .lastName(player.getLastName())
+                .age(player.getAge())
+                .value(player.getValue())
                 .build();
 
-        offerRepository.save(newOffer);
+        validate(offerRepository.create(newOffer, player), "An offer for this player already exists");
     }
 
-    @SuppressWarnings("unchecked")
-    private String extractUsername(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) {
-        try {
-            Map<String, Object> authorizer = apiGatewayProxyRequestEvent.getRequestContext().getAuthorizer();
-            Map<String, Object> jwt = (Map<String, Object>) authorizer.get("jwt");
-            Map<String, Object> claims = (Map<String, Object>) jwt.get("claims");
-            return (String) claims.get("username");
-        } catch (ClassCastException ex) {
-            throw new RuntimeException("Unable to process authorization token", ex);
-        }
+    private String extractUsername(HttpApiRequest request) {
+        if (request.getUsername() == null) throw new RuntimeException("Unable to process authorization token");
+        return request.getUsername();
     }
 
     private CreateOfferRequest convertInput(String body) {
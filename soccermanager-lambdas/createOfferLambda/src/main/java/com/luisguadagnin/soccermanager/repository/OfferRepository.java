@@ -1,23 +1,106 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.ConditionCheck;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.luisguadagnin.soccermanager.cache.MarketVersion;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.exception.ConflictException;
 import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class OfferRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    private static final int OFFER_ITEM = 0;
+    private static final int PLAYER_ITEM = 1;
+    private static final List<String> CHECKED_ATTRIBUTES = List.of("teamId", "value", "firstName", "lastName", "country");
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final MarketVersion marketVersion;
 
     public OfferRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        this(AWSConfiguration.getAmazonDynamoDB());
+    }
+
+    public OfferRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.marketVersion = new MarketVersion(amazonDynamoDB);
+    }
+
+    /**
+     * Saves a new offer, returning false when there's already an offer for the same player.
+     * Fails with {@link ConflictException} if the player changed team, value, name or country since it was read.
+     */
+    public boolean create(Offer offer, Player player) {
+        Put putOffer = new Put()
+                .withTableName(OfferSchema.TABLE_NAME)
+                .withItem(OfferSchema.toItem(offer))
+                .withConditionExpression("attribute_not_exists(id)");
+
+        try {
+            amazonDynamoDB.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(List.of(
+                    new TransactWriteItem().withPut(putOffer),
+                    new TransactWriteItem().withConditionCheck(checkPlayer(player)))));
+        } catch (TransactionCanceledException ex) {
+            List<String> reasons = reasonCodes(ex);
+            if (failed(reasons, PLAYER_ITEM) || reasons.contains("TransactionConflict")) {
+                throw new ConflictException("Player was changed by another request, please try again");
+            }
+            if (failed(reasons, OFFER_ITEM)) {
+                return false;
+            }
+            throw ex;
+        }
+        marketVersion.bump();
+        return true;
+    }
+
+    /* Every player attribute the offer copies and a player update may change must still be the one that was read */
+    private static ConditionCheck checkPlayer(Player player) {
+        Map<String, AttributeValue> item = PlayerSchema.toItem(player);
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> conditions = new ArrayList<>();
+        for (String attribute : CHECKED_ATTRIBUTES) {
+            names.put("#" + attribute, attribute);
+            AttributeValue value = item.get(attribute);
+            if (value == null) {
+                conditions.add("attribute_not_exists(#" + attribute + ")");
+            } else {
+                values.put(":" + attribute, value);
+                conditions.add("#" + attribute + " = :" + attribute);
+            }
+        }
+        return new ConditionCheck()
+                .withTableName(PlayerSchema.TABLE_NAME)
+                .withKey(PlayerSchema.key(player.getId()))
+                .withConditionExpression(String.join(" AND ", conditions))
+                .withExpressionAttributeNames(names)
+                .withExpressionAttributeValues(values.isEmpty() ? null : values);
     }
 
-    public Offer findById(String offerId) {
-        return dynamoDBMapper.load(Offer.class, offerId);
+    private List<String> reasonCodes(TransactionCanceledException ex) {
+        return Optional.ofNullable(ex.getCancellationReasons()).orElse(List.of()).stream()
+                .map(CancellationReason::getCode)
+                .collect(Collectors.toList());
     }
 
-    public void save(Offer offer) {
-        dynamoDBMapper.save(offer);
+    private boolean failed(List<String> reasons, int item) {
+        return reasons.size() > item && "ConditionalCheckFailed".equals(reasons.get(item));
     }
 
 }
@@ -1,23 +1,62 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.luisguadagnin.soccermanager.cache.ReadThroughCache;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+
+import java.time.Duration;
+import java.util.Optional;
 
 public class PlayerRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    private static final Duration CACHE_TTL = Duration.ofSeconds(Optional.ofNullable(System.getenv("PLAYER_CACHE_TTL_SECONDS"))
+            .map(Long::parseLong)
+            .orElse(30L));
+    private static final long CACHE_MAX_BYTES = Optional.ofNullable(System.getenv("PLAYER_CACHE_MAX_BYTES"))
+            .map(Long::parseLong)
+            .orElse(4L * 1024 * 1024);
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final ReadThroughCache<String, Player> cache;
 
     public PlayerRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        this(AWSConfiguration.getAmazonDynamoDB(), new ReadThroughCache<>("Player", CACHE_TTL, CACHE_MAX_BYTES, PlayerRepository::estimateSize));
+    }
+
+    public PlayerRepository(AmazonDynamoDB amazonDynamoDB) {
+        this(amazonDynamoDB, null);
+    }
+
+    public PlayerRepository(AmazonDynamoDB amazonDynamoDB, ReadThroughCache<String, Player> cache) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.cache = cache;
     }
 
+    /**
+     * May return a player up to the cache TTL old, writes depending on it must be conditioned on the attributes they rely on
+     */
     public Player findById(String playerId) {
-        return dynamoDBMapper.load(Player.class, playerId);
+        return cache == null ? load(playerId) : cache.get(playerId, this::load);
+    }
+
+    public void evict(String playerId) {
+        if (cache != null) cache.invalidate(playerId);
+    }
+
+    private Player load(String playerId) {
+        return PlayerSchema.fromItem(amazonDynamoDB.getItem(PlayerSchema.TABLE_NAME, PlayerSchema.key(playerId)).getItem());
+    }
+
+    /* Rough heap footprint: the player, its Money and the map entry, plus two bytes per char of its strings */
+    private static long estimateSize(Player player) {
+        return 200 + 2L * (length(player.getId()) + length(player.getFirstName()) + length(player.getLastName())
+                + length(player.getCountry()) + length(player.getTeamId()));
     }
 
-    public void save(Player player) {
-        dynamoDBMapper.save(player);
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
     }
 
 }
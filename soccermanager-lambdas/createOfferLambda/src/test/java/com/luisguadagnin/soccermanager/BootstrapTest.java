@@ -0,0 +1,89 @@
+package com.luisguadagnin.soccermanager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.OfferRepository;
+import com.luisguadagnin.soccermanager.repository.PlayerRepository;
+import com.luisguadagnin.soccermanager.runtime.BootstrapHarness;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serves HTTP API events through {@link BootstrapHarness}, on the JVM and, under mvn -Pnative verify,
+ * from the native executable.
+ */
+public class BootstrapTest {
+
+    private final BootstrapHarness bootstrapHarness;
+    private final PlayerRepository playerRepository;
+    private final OfferRepository offerRepository;
+
+    public BootstrapTest() throws IOException {
+        this.bootstrapHarness = new BootstrapHarness();
+        this.playerRepository = mock(PlayerRepository.class);
+        this.offerRepository = mock(OfferRepository.class);
+    }
+
+    @AfterEach
+    public void closeHarness() {
+        bootstrapHarness.close();
+    }
+
+    @Test
+    public void shouldCreateOfferThroughRuntimeApi() throws Exception {
+        String username = "luis@guadagnin.com";
+        String playerId = "player-uuid";
+        Player player = Player.builder()
+                .id(playerId)
+                .teamId(username)
+                .value(Money.parse("100000.00"))
+                .country("Brazil")
+                .position(PlayerPosition.ATTACKER)
+                .firstName("Romario")
+                .lastName("Faria")
+                .age(28)
+                .build();
+
+        when(playerRepository.findById(playerId))
+                .thenReturn(player);
+        when(offerRepository.create(any(), any()))
+                .thenReturn(true);
+
+        JsonNode response = bootstrapHarness.serve(new CreateOfferHandler(playerRepository, offerRepository),
+                LambdaEvents.httpApi("POST", "/offer", username, null, null,
+                        "{\"playerId\": \"" + playerId + "\", \"price\": \"50000.00\"}"));
+
+        assertAll(
+                () -> assertEquals(200, response.get("statusCode").asInt()),
+                () -> verify(offerRepository).create(any(), any())
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.executable", matches = ".+")
+    public void shouldAnswerFromNativeExecutable() throws Exception {
+        // the body is read into CreateOfferRequest, then rejected before reaching DynamoDB
+        JsonNode response = bootstrapHarness.serveNative(CreateOfferHandler.class,
+                LambdaEvents.httpApi("POST", "/offer", "luis@guadagnin.com", null, null,
+                        "{\"playerId\": \"player-uuid\"}"));
+
+        assertAll(
+                () -> assertEquals(400, response.get("statusCode").asInt()),
+                () -> assertEquals("{ \"message\": \"\"price\" field is empty\" }", response.get("body").asText())
+        );
+    }
+
+}
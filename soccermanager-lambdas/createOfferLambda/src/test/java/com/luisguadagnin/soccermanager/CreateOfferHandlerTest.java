@@ -1,39 +1,38 @@
 package com.luisguadagnin.soccermanager;
 
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.exception.ConflictException;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.model.Money;
 import com.luisguadagnin.soccermanager.model.Offer;
 import com.luisguadagnin.soccermanager.model.Player;
-import com.luisguadagnin.soccermanager.model.Team;
 import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
 import com.luisguadagnin.soccermanager.repository.OfferRepository;
 import com.luisguadagnin.soccermanager.repository.PlayerRepository;
-import com.luisguadagnin.soccermanager.repository.TeamRepository;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
-import java.util.Map;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CreateOfferHandlerTest {
 
     private final CreateOfferHandler createOfferHandler;
-    private final TeamRepository teamRepository;
     private final PlayerRepository playerRepository;
     private final OfferRepository offerRepository;
 
     public CreateOfferHandlerTest() {
-        this.teamRepository = Mockito.mock(TeamRepository.class);
         this.playerRepository = Mockito.mock(PlayerRepository.class);
         this.offerRepository = Mockito.mock(OfferRepository.class);
-        this.createOfferHandler = new CreateOfferHandler(teamRepository, playerRepository, offerRepository);
+        this.createOfferHandler = new CreateOfferHandler(playerRepository, offerRepository);
     }
 
     @Test
@@ -41,30 +40,27 @@ public class CreateOfferHandlerTest {
         String username = "username-test";
         String playerId = "uuid-test";
         String price = "50000.00";
-        APIGatewayProxyRequestEvent input = createInput(username, "{" +
+        HttpApiRequest input = createInput(username, "{" +
                 "  \"playerId\": \"" + playerId + "\"," +
                 "  \"price\": \"" + price + "\"" +
                 "}");
         Player player = Player.builder()
                 .id(playerId)
                 .teamId(username)
-                .value("100000.00")
+                .value(Money.parse("100000.00"))
                 .country("Brazil")
                 .position(PlayerPosition.ATTACKER)
-                .build();
-        Team team = Team.builder()
-                .id(username)
-                .playersId(Set.of(player.getId()))
+                .firstName("Romario")
+                .lastName("Faria")
+                .age(28)
                 .build();
 
         when(playerRepository.findById(playerId))
                 .thenReturn(player);
-        when(teamRepository.findById(username))
-                .thenReturn(team);
-        when(offerRepository.findById(playerId))
-                .thenReturn(null);
+        when(offerRepository.create(any(), any()))
+                .thenReturn(true);
 
-        APIGatewayProxyResponseEvent output = createOfferHandler.handleRequest(input, null);
+        HttpApiResponse output = createOfferHandler.handleRequest(input, null);
 
         Offer expectedOffer = Offer.builder()
                 .id(playerId)
@@ -72,26 +68,30 @@ public class CreateOfferHandlerTest {
                 .country(player.getCountry())
                 .price(5000000L)
                 .discount(5000)
+                .firstName("Romario")
+                .lastName("Faria")
+                .age(28)
+                .value(Money.parse("100000.00"))
                 .build();
 
         assertAll(
                 () -> assertEquals(200, output.getStatusCode()),
-                () -> verify(offerRepository).save(expectedOffer)
+                () -> verify(offerRepository).create(eq(expectedOffer), any())
         );
     }
 
     @Test
     public void shouldNotCreateOfferWhenRequestBodyIsInvalid() {
         String username = "username-test";
-        APIGatewayProxyRequestEvent input = createInput(username, "{" +
+        HttpApiRequest input = createInput(username, "{" +
                 "  \"anyAttribute\": \"anyValue\"" +
                 "}");
 
-        APIGatewayProxyResponseEvent output = createOfferHandler.handleRequest(input, null);
+        HttpApiResponse output = createOfferHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(offerRepository, never()).save(any())
+                () -> verify(offerRepository, never()).create(any(), any())
         );
     }
 
@@ -100,7 +100,7 @@ public class CreateOfferHandlerTest {
         String username = "username-test";
         String playerId = "uuid-test";
         String price = "50000.00";
-        APIGatewayProxyRequestEvent input = createInput(username, "{" +
+        HttpApiRequest input = createInput(username, "{" +
                 "  \"playerId\": \"" + playerId + "\"," +
                 "  \"price\": \"" + price + "\"" +
                 "}");
@@ -108,26 +108,26 @@ public class CreateOfferHandlerTest {
         when(playerRepository.findById(playerId))
                 .thenReturn(null);
 
-        APIGatewayProxyResponseEvent output = createOfferHandler.handleRequest(input, null);
+        HttpApiResponse output = createOfferHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(404, output.getStatusCode()),
-                () -> verify(offerRepository, never()).save(any())
+                () -> verify(offerRepository, never()).create(any(), any())
         );
     }
 
     @Test
     public void shouldNotCreateOfferWhenPlayerDoesNotExist() {
         String username = "username-test";
-        APIGatewayProxyRequestEvent input = createInput(username, "{" +
+        HttpApiRequest input = createInput(username, "{" +
                 "  \"playerId\": \"any-player-uuid\"" +
                 "}");
 
-        APIGatewayProxyResponseEvent output = createOfferHandler.handleRequest(input, null);
+        HttpApiResponse output = createOfferHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(offerRepository, never()).save(any())
+                () -> verify(offerRepository, never()).create(any(), any())
         );
     }
 
@@ -136,32 +136,26 @@ public class CreateOfferHandlerTest {
         String username = "username-test";
         String playerId = "uuid-test";
         String price = "50000.00";
-        APIGatewayProxyRequestEvent input = createInput(username, "{" +
+        HttpApiRequest input = createInput(username, "{" +
                 "  \"playerId\": \"" + playerId + "\"," +
                 "  \"price\": \"" + price + "\"" +
                 "}");
         Player player = Player.builder()
                 .id(playerId)
-                .teamId(username)
-                .value("100000.00")
+                .teamId("other-team-uuid")
+                .value(Money.parse("100000.00"))
                 .country("Brazil")
                 .position(PlayerPosition.ATTACKER)
                 .build();
-        Team team = Team.builder()
-                .id(username)
-                .playersId(Set.of("other-players-uuid"))
-                .build();
 
         when(playerRepository.findById(playerId))
                 .thenReturn(player);
-        when(teamRepository.findById(username))
-                .thenReturn(team);
 
-        APIGatewayProxyResponseEvent output = createOfferHandler.handleRequest(input, null);
+        HttpApiResponse output = createOfferHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(403, output.getStatusCode()),
-                () -> verify(offerRepository, never()).save(any())
+                () -> verify(offerRepository, never()).create(any(), any())
         );
     }
 
@@ -170,46 +164,127 @@ public class CreateOfferHandlerTest {
         String username = "username-test";
         String playerId = "uuid-test";
         String price = "50000.00";
-        APIGatewayProxyRequestEvent input = createInput(username, "{" +
+        HttpApiRequest input = createInput(username, "{" +
                 "  \"playerId\": \"" + playerId + "\"," +
                 "  \"price\": \"" + price + "\"" +
                 "}");
         Player player = Player.builder()
                 .id(playerId)
                 .teamId(username)
-                .value("100000.00")
+                .value(Money.parse("100000.00"))
                 .country("Brazil")
                 .position(PlayerPosition.ATTACKER)
                 .build();
-        Team team = Team.builder()
-                .id(username)
-                .playersId(Set.of(player.getId()))
-                .build();
-        Offer offer = Offer.builder()
+        when(playerRepository.findById(playerId))
+                .thenReturn(player);
+        when(offerRepository.create(any(), any()))
+                .thenReturn(false);
+
+        HttpApiResponse output = createOfferHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(400, output.getStatusCode()),
+                () -> verify(offerRepository).create(any(), any())
+        );
+    }
+
+    @Test
+    public void shouldCreateOfferOnFreshReadWhenCachedPlayerIsFromAnotherTeam() {
+        String username = "username-test";
+        String playerId = "uuid-test";
+        HttpApiRequest input = createInput(username, "{" +
+                "  \"playerId\": \"" + playerId + "\"," +
+                "  \"price\": \"50000.00\"" +
+                "}");
+        Player.PlayerBuilder player = Player.builder()
+                .id(playerId)
+                .value(Money.parse("100000.00"))
+                .country("Brazil")
+                .position(PlayerPosition.ATTACKER);
+
+        when(playerRepository.findById(playerId))
+                .thenReturn(player.teamId("former-team-uuid").build())
+                .thenReturn(player.teamId(username).build());
+        when(offerRepository.create(any(), any()))
+                .thenReturn(true);
+
+        HttpApiResponse output = createOfferHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> verify(playerRepository).evict(playerId),
+                () -> verify(offerRepository).create(any(), eq(player.teamId(username).build()))
+        );
+    }
+
+    @Test
+    public void shouldAnswerConflictWhenPlayerKeepsChangingWhileListed() {
+        String username = "username-test";
+        String playerId = "uuid-test";
+        HttpApiRequest input = createInput(username, "{" +
+                "  \"playerId\": \"" + playerId + "\"," +
+                "  \"price\": \"50000.00\"" +
+                "}");
+        Player player = Player.builder()
                 .id(playerId)
+                .teamId(username)
+                .value(Money.parse("100000.00"))
+                .country("Brazil")
+                .position(PlayerPosition.ATTACKER)
                 .build();
 
         when(playerRepository.findById(playerId))
                 .thenReturn(player);
-        when(teamRepository.findById(username))
-                .thenReturn(team);
-        when(offerRepository.findById(playerId))
-                .thenReturn(offer);
+        when(offerRepository.create(any(), any()))
+                .thenThrow(new ConflictException("Player was changed by another request, please try again"));
 
-        APIGatewayProxyResponseEvent output = createOfferHandler.handleRequest(input, null);
+        HttpApiResponse output = createOfferHandler.handleRequest(input, null);
 
         assertAll(
-                () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(offerRepository, never()).save(any())
+                () -> assertEquals(409, output.getStatusCode()),
+                () -> verify(playerRepository).evict(playerId),
+                () -> verify(offerRepository, times(2)).create(any(), any())
         );
     }
 
-    private APIGatewayProxyRequestEvent createInput(String username, String body) {
-        APIGatewayProxyRequestEvent.ProxyRequestContext context = new APIGatewayProxyRequestEvent.ProxyRequestContext();
-        context.setAuthorizer(Map.of("jwt", Map.of("claims", Map.of("username", username))));
+    @Test
+    public void shouldCreateOfferThroughItsOwnRepositoriesAfterPrimingAndRestore() {
+        String username = "username-test";
+        String playerId = "uuid-test";
+        HttpApiRequest input = createInput(username, "{" +
+                "  \"playerId\": \"" + playerId + "\"," +
+                "  \"price\": \"50000.00\"" +
+                "}");
+        Player player = Player.builder()
+                .id(playerId)
+                .teamId(username)
+                .value(Money.parse("100000.00"))
+                .country("Brazil")
+                .position(PlayerPosition.ATTACKER)
+                .firstName("Romario")
+                .lastName("Faria")
+                .age(28)
+                .build();
+
+        when(playerRepository.findById(playerId))
+                .thenReturn(player);
+        when(offerRepository.create(any(), any()))
+                .thenReturn(true);
+
+        createOfferHandler.prime();
+        AWSConfiguration.refresh();
+        HttpApiResponse output = createOfferHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> verify(playerRepository).findById(playerId),
+                () -> verify(offerRepository).create(any(), any())
+        );
+    }
 
-        return new APIGatewayProxyRequestEvent()
+    private HttpApiRequest createInput(String username, String body) {
+        return new HttpApiRequest()
                 .withBody(body)
-                .withRequestContext(context);
+                .withUsername(username);
     }
 }
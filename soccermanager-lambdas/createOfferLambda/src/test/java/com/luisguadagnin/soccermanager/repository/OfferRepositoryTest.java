@@ -0,0 +1,87 @@
+package com.luisguadagnin.soccermanager.repository;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.ConditionCheck;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.luisguadagnin.soccermanager.exception.ConflictException;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OfferRepositoryTest {
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final OfferRepository offerRepository;
+
+    public OfferRepositoryTest() {
+        this.amazonDynamoDB = mock(AmazonDynamoDB.class);
+        this.offerRepository = new OfferRepository(amazonDynamoDB);
+    }
+
+    @Test
+    public void shouldListPlayerOnlyIfEveryAttributeCopiedToTheOfferIsUnchanged() {
+        Player player = buildPlayer();
+
+        offerRepository.create(Offer.builder().id(player.getId()).price(5000000L).build(), player);
+
+        ArgumentCaptor<TransactWriteItemsRequest> requestCaptor = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(amazonDynamoDB).transactWriteItems(requestCaptor.capture());
+        ConditionCheck checkPlayer = requestCaptor.getValue().getTransactItems().get(1).getConditionCheck();
+
+        assertAll(
+                () -> assertEquals("#teamId = :teamId AND #value = :value AND #firstName = :firstName AND #lastName = :lastName "
+                        + "AND attribute_not_exists(#country)", checkPlayer.getConditionExpression()),
+                () -> assertEquals(Map.of(
+                        ":teamId", new AttributeValue().withS("team-uuid"),
+                        ":value", new AttributeValue().withN("10000000"),
+                        ":firstName", new AttributeValue().withS("Romario"),
+                        ":lastName", new AttributeValue().withS("Faria")), checkPlayer.getExpressionAttributeValues())
+        );
+    }
+
+    @Test
+    public void shouldFailWithConflictWhenThePlayerChangedSinceItWasRead() {
+        Player player = buildPlayer();
+        TransactionCanceledException canceled = new TransactionCanceledException("Transaction cancelled");
+        canceled.setCancellationReasons(List.of(new CancellationReason().withCode("None"),
+                new CancellationReason().withCode("ConditionalCheckFailed")));
+        when(amazonDynamoDB.transactWriteItems(any())).thenThrow(canceled);
+
+        ConflictException ex = assertThrows(ConflictException.class,
+                () -> offerRepository.create(Offer.builder().id(player.getId()).price(5000000L).build(), player));
+
+        assertTrue(ex.getMessage().startsWith("Player was changed"));
+    }
+
+    /* Without a country, so the check also covers an attribute the player lacks */
+    private Player buildPlayer() {
+        return Player.builder()
+                .id("player-uuid")
+                .teamId("team-uuid")
+                .value(Money.parse("100000.00"))
+                .position(PlayerPosition.ATTACKER)
+                .firstName("Romario")
+                .lastName("Faria")
+                .age(28)
+                .build();
+    }
+
+}
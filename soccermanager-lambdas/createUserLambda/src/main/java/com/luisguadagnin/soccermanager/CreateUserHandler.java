@@ -1,96 +1,127 @@
 package com.luisguadagnin.soccermanager;
 
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidp.AbstractAWSCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidp.model.AdminCreateUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminCreateUserResult;
+import com.amazonaws.services.cognitoidp.model.AdminGetUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminGetUserResult;
+import com.amazonaws.services.cognitoidp.model.AdminSetUserPasswordRequest;
+import com.amazonaws.services.cognitoidp.model.AdminSetUserPasswordResult;
+import com.amazonaws.services.cognitoidp.model.UserNotFoundException;
 import com.amazonaws.services.lambda.runtime.Context;
-import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.amazonaws.util.StringUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.javafaker.Faker;
 import com.luisguadagnin.soccermanager.clients.CognitoClient;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.dto.CreateUserRequest;
 import com.luisguadagnin.soccermanager.exception.BadRequestException;
 import com.luisguadagnin.soccermanager.exception.UserAlreadyExistsException;
-import com.luisguadagnin.soccermanager.model.Player;
-import com.luisguadagnin.soccermanager.model.Team;
-import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
-import com.luisguadagnin.soccermanager.repository.PlayerRepository;
-import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.http.HttpApiHandler;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.priming.Priming;
+import com.luisguadagnin.soccermanager.provisioning.ProvisioningQueue;
 import com.luisguadagnin.soccermanager.util.EmailValidator;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
-public class CreateUserHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+public class CreateUserHandler extends HttpApiHandler {
 
     private final ObjectMapper objectMapper;
     private final CognitoClient cognitoClient;
-    private final Faker faker;
-    private final TeamRepository teamRepository;
-    private final PlayerRepository playerRepository;
+    private final ProvisioningQueue provisioningQueue;
 
     public CreateUserHandler() {
         objectMapper = new ObjectMapper();
         cognitoClient = new CognitoClient();
-        faker = new Faker();
-        teamRepository = new TeamRepository();
-        playerRepository = new PlayerRepository();
+        provisioningQueue = AWSConfiguration.getProvisioningQueue();
+        Priming.register(this::prime, AWSConfiguration::refresh);
     }
 
-    CreateUserHandler(CognitoClient cognitoClient, TeamRepository teamRepository, PlayerRepository playerRepository) {
-        this.objectMapper = new ObjectMapper();
-        this.faker = new Faker();
+    CreateUserHandler(CognitoClient cognitoClient, ProvisioningQueue provisioningQueue) {
+        this(new ObjectMapper(), cognitoClient, provisioningQueue);
+    }
+
+    private CreateUserHandler(ObjectMapper objectMapper, CognitoClient cognitoClient, ProvisioningQueue provisioningQueue) {
+        this.objectMapper = objectMapper;
 
         this.cognitoClient = cognitoClient;
-        this.teamRepository = teamRepository;
-        this.playerRepository = playerRepository;
+        this.provisioningQueue = provisioningQueue;
+    }
+
+    /* Signs up against a stub user pool through this handler's ObjectMapper, so its deserializers are cached in the snapshot too */
+    void prime() {
+        AWSCognitoIdentityProvider primingCognito = new AbstractAWSCognitoIdentityProvider() {
+            @Override
+            public AdminGetUserResult adminGetUser(AdminGetUserRequest request) {
+                throw new UserNotFoundException("User does not exist.");
+            }
+
+            @Override
+            public AdminCreateUserResult adminCreateUser(AdminCreateUserRequest request) {
+                return new AdminCreateUserResult();
+            }
+
+            @Override
+            public AdminSetUserPasswordResult adminSetUserPassword(AdminSetUserPasswordRequest request) {
+                return new AdminSetUserPasswordResult();
+            }
+        };
+        CreateUserHandler primingHandler = new CreateUserHandler(objectMapper, new CognitoClient(primingCognito), email -> {});
+
+        HttpApiResponse response = primingHandler.invoke(new HttpApiRequest()
+                .withBody("{ \"email\": \"priming@soccermanager.local\", \"password\": \"priming\" }"));
+
+        Priming.checkStatusCode(200, response.getStatusCode());
     }
 
     @Override
-    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent, Context context) {
+    public HttpApiResponse handleRequest(HttpApiRequest request, Context context) {
         try {
 
-            createUser(apiGatewayProxyRequestEvent);
+            createUser(request);
 
         } catch (BadRequestException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse(ex.getMessage()))
                     .withStatusCode(400);
         } catch (UserAlreadyExistsException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse("User already exists"))
                     .withStatusCode(400);
         } catch (Exception ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse("Internal server error"))
                     .withStatusCode(500);
         }
 
-        return new APIGatewayProxyResponseEvent()
+        return new HttpApiResponse()
                 .withStatusCode(200);
     }
 
-    public void createUser(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) {
-        CreateUserRequest createUserRequest = convertInput(apiGatewayProxyRequestEvent.getBody());
+    public void createUser(HttpApiRequest request) {
+        CreateUserRequest createUserRequest = convertInput(request.getBody());
 
         validateCreateUserRequest(createUserRequest);
 
-        cognitoClient.createUser(createUserRequest.getEmail(), createUserRequest.getPassword());
-
-        Team team = buildTeam(createUserRequest.getEmail());
-        List<Player> players = buildPlayers(team);
+        /*
+         * The team is generated by ProvisionTeamHandler, enqueued once the user exists so a signup Cognito rejects provisions nothing.
+         * Provisioning is idempotent per e-mail, so a signup answered with "User already exists" re-enqueues harmlessly, which also
+         * provisions the team of a user whose enqueue failed or whose message was lost.
+         */
+        try {
+            cognitoClient.createUser(createUserRequest.getEmail(), createUserRequest.getPassword());
+        } catch (UserAlreadyExistsException ex) {
+            provisioningQueue.enqueue(createUserRequest.getEmail());
+            throw ex;
+        }
 
-        teamRepository.save(team);
-        players.forEach(playerRepository::save);
+        provisioningQueue.enqueue(createUserRequest.getEmail());
     }
 
     private CreateUserRequest convertInput(String body) {
@@ -118,53 +149,6 @@ public class CreateUserHandler implements RequestHandler<APIGatewayProxyRequestE
         }
     }
 
-    private Team buildTeam(String userEmail) {
-        return Team.builder()
-                .id(userEmail)
-                .country(faker.country().name())
-                .name(faker.team().name())
-                .budget("5000000.00")
-                .value("20000000.00")
-                .playersId(new HashSet<>())
-                .build();
-    }
-
-    private List<Player> buildPlayers(Team team) {
-        List<Player> players = new ArrayList<>();
-        players.addAll(buildPlayers(team, PlayerPosition.GOALKEEPER, 3));
-        players.addAll(buildPlayers(team, PlayerPosition.DEFENDER, 6));
-        players.addAll(buildPlayers(team, PlayerPosition.MIDFIELDER, 6));
-        players.addAll(buildPlayers(team, PlayerPosition.ATTACKER, 5));
-        team.getPlayersId().addAll(players.stream().map(Player::getId).collect(Collectors.toList()));
-        return players;
-    }
-
-    private List<Player> buildPlayers(Team team, PlayerPosition position, int amount) {
-        List<Player> players = new ArrayList<>();
-        for(int i = 0; i < amount; i++) {
-            players.add(buildPlayer(team, position));
-        }
-        return players;
-    }
-
-    private Player buildPlayer(Team team, PlayerPosition position) {
-        return Player.builder()
-                .id(UUID.randomUUID().toString())
-                .age(generateRandomNumberBetween(18, 40))
-                .teamId(team.getId())
-                .firstName(faker.name().firstName())
-                .lastName(faker.name().lastName())
-                .position(position)
-                .country(team.getCountry())
-                .value("1000000.00")
-                .build();
-    }
-
-    private int generateRandomNumberBetween(int min, int max) {
-        Random random = new Random();
-        return random.nextInt(max - min + 1) + min;
-    }
-
     private String buildErrorResponse(String message) {
         return "{ \"message\": \"" + message + "\" }";
     }
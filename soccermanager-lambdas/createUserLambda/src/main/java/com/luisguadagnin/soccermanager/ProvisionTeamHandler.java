@@ -0,0 +1,74 @@
+package com.luisguadagnin.soccermanager;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.dto.ProvisionTeamMessage;
+import com.luisguadagnin.soccermanager.priming.Priming;
+import com.luisguadagnin.soccermanager.priming.PrimingDynamoDB;
+import com.luisguadagnin.soccermanager.provisioning.TeamProvisioner;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumes the provisioning queue filled by {@link CreateUserHandler}. Failed messages are reported back
+ * so only they are redelivered (and eventually moved to the dead-letter queue).
+ */
+public class ProvisionTeamHandler implements RequestHandler<SQSEvent, SQSBatchResponse> {
+
+    private final ObjectMapper objectMapper;
+    private final TeamProvisioner teamProvisioner;
+    private final AtomicLong primingSignups = new AtomicLong();
+
+    public ProvisionTeamHandler() {
+        objectMapper = new ObjectMapper();
+        teamProvisioner = new TeamProvisioner();
+        Priming.register(this::prime, AWSConfiguration::refresh);
+    }
+
+    ProvisionTeamHandler(TeamProvisioner teamProvisioner) {
+        this(new ObjectMapper(), teamProvisioner);
+    }
+
+    private ProvisionTeamHandler(ObjectMapper objectMapper, TeamProvisioner teamProvisioner) {
+        this.objectMapper = objectMapper;
+        this.teamProvisioner = teamProvisioner;
+    }
+
+    /* Generates and saves a team in a stub table, each round for a new e-mail, so the whole generation runs every time */
+    void prime() {
+        TeamRepository primingRepository = new TeamRepository(new PrimingDynamoDB(), AWSConfiguration.getExecutorService());
+        ProvisionTeamHandler primingHandler = new ProvisionTeamHandler(objectMapper, new TeamProvisioner(primingRepository));
+
+        SQSEvent.SQSMessage message = new SQSEvent.SQSMessage();
+        message.setMessageId("priming");
+        message.setBody("{ \"email\": \"priming-" + primingSignups.incrementAndGet() + "@soccermanager.local\" }");
+        SQSEvent sqsEvent = new SQSEvent();
+        sqsEvent.setRecords(List.of(message));
+
+        if (!primingHandler.handleRequest(sqsEvent, null).getBatchItemFailures().isEmpty()) {
+            throw new IllegalStateException("Priming message failed to be provisioned");
+        }
+    }
+
+    @Override
+    public SQSBatchResponse handleRequest(SQSEvent sqsEvent, Context context) {
+        List<SQSBatchResponse.BatchItemFailure> failures = new ArrayList<>();
+        for (SQSEvent.SQSMessage message : sqsEvent.getRecords()) {
+            try {
+                ProvisionTeamMessage provisionTeamMessage = objectMapper.readValue(message.getBody(), ProvisionTeamMessage.class);
+                teamProvisioner.provision(provisionTeamMessage.getEmail());
+            } catch (Exception ex) {
+                failures.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+            }
+        }
+        return new SQSBatchResponse(failures);
+    }
+
+}
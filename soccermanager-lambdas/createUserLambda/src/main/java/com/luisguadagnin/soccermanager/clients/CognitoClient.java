@@ -20,6 +20,10 @@ public class CognitoClient {
                 .build();
     }
 
+    public CognitoClient(AWSCognitoIdentityProvider awsCognitoIdentityProvider) {
+        this.awsCognitoIdentityProvider = awsCognitoIdentityProvider;
+    }
+
     private boolean existsUserByEmail(String email) {
         AdminGetUserRequest adminGetUserRequest = new AdminGetUserRequest()
                 .withUserPoolId(AWSConfiguration.getCognitoUserPoolId())
@@ -2,14 +2,21 @@ package com.luisguadagnin.soccermanager.configuration;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicSessionCredentials;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.luisguadagnin.soccermanager.provisioning.ProvisioningQueue;
+import com.luisguadagnin.soccermanager.provisioning.SqsProvisioningQueue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AWSConfiguration {
 
+    private static final int EXECUTOR_THREADS = 4;
+
     private static String awsAccessKeyId;
     private static String awsSecretKey;
     private static String awsRegion;
@@ -17,8 +24,11 @@ public class AWSConfiguration {
     private static AWSCredentials awsCredentials;
     private static AWSCredentialsProvider awsCredentialsProvider;
     private static String cognitoUserPoolId;
+    private static String provisioningQueueUrl;
     private static AmazonDynamoDB amazonDynamoDB;
-    private static DynamoDBMapper dynamoDBMapper;
+    private static ExecutorService executorService;
+    private static AmazonSQS amazonSQS;
+    private static ProvisioningQueue provisioningQueue;
 
     private AWSConfiguration() {}
 
@@ -57,13 +67,37 @@ public class AWSConfiguration {
         return awsCredentials;
     }
 
+    /**
+     * Clients keep this provider, so credentials dropped by {@link #refresh()} are read again on their next request
+     */
     public static AWSCredentialsProvider getAwsCredentialsProvider() {
         if (awsCredentialsProvider == null) {
-            awsCredentialsProvider = new AWSStaticCredentialsProvider(getAwsCredentials());
+            awsCredentialsProvider = new AWSCredentialsProvider() {
+                @Override
+                public AWSCredentials getCredentials() {
+                    return getAwsCredentials();
+                }
+
+                @Override
+                public void refresh() {
+                    AWSConfiguration.refresh();
+                }
+            };
         }
         return awsCredentialsProvider;
     }
 
+    /**
+     * Drops the credentials read from the environment, which belong to the environment that took a snapshot
+     * and must be read again once it is restored
+     */
+    public static void refresh() {
+        awsAccessKeyId = null;
+        awsSecretKey = null;
+        awsSessionToken = null;
+        awsCredentials = null;
+    }
+
     public static String getCognitoUserPoolId() {
         if (cognitoUserPoolId == null) {
             cognitoUserPoolId = System.getenv("COGNITO_USER_POOL_ID");
@@ -71,6 +105,13 @@ public class AWSConfiguration {
         return cognitoUserPoolId;
     }
 
+    public static String getProvisioningQueueUrl() {
+        if (provisioningQueueUrl == null) {
+            provisioningQueueUrl = System.getenv("PROVISIONING_QUEUE_URL");
+        }
+        return provisioningQueueUrl;
+    }
+
     public static AmazonDynamoDB getAmazonDynamoDB() {
         if (amazonDynamoDB == null) {
             amazonDynamoDB = AmazonDynamoDBClient.builder()
@@ -81,11 +122,36 @@ public class AWSConfiguration {
         return amazonDynamoDB;
     }
 
-    public static DynamoDBMapper getDynamoDBMapper() {
-        if (dynamoDBMapper == null) {
-            dynamoDBMapper = new DynamoDBMapper(getAmazonDynamoDB());
+    public static ExecutorService getExecutorService() {
+        if (executorService == null) {
+            executorService = Executors.newFixedThreadPool(EXECUTOR_THREADS, runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executorService;
+    }
+
+    public static AmazonSQS getAmazonSQS() {
+        if (amazonSQS == null) {
+            amazonSQS = AmazonSQSClient.builder()
+                    .withCredentials(getAwsCredentialsProvider())
+                    .withRegion(getAwsRegion())
+                    .build();
+        }
+        return amazonSQS;
+    }
+
+    public static ProvisioningQueue getProvisioningQueue() {
+        if (provisioningQueue == null) {
+            if (getProvisioningQueueUrl() == null) {
+                // a signup without a queue would never get its team
+                throw new IllegalStateException("PROVISIONING_QUEUE_URL must be set");
+            }
+            provisioningQueue = new SqsProvisioningQueue(getAmazonSQS(), getProvisioningQueueUrl());
         }
-        return dynamoDBMapper;
+        return provisioningQueue;
     }
 
 }
@@ -0,0 +1,14 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProvisionTeamMessage {
+
+    private String email;
+
+}
@@ -0,0 +1,10 @@
+package com.luisguadagnin.soccermanager.provisioning;
+
+/**
+ * Receives the e-mails of new users whose teams still have to be generated by a {@link TeamProvisioner}
+ */
+public interface ProvisioningQueue {
+
+    void enqueue(String email);
+
+}
@@ -0,0 +1,29 @@
+package com.luisguadagnin.soccermanager.provisioning;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luisguadagnin.soccermanager.dto.ProvisionTeamMessage;
+
+public class SqsProvisioningQueue implements ProvisioningQueue {
+
+    private final ObjectMapper objectMapper;
+    private final AmazonSQS amazonSQS;
+    private final String queueUrl;
+
+    public SqsProvisioningQueue(AmazonSQS amazonSQS, String queueUrl) {
+        this.objectMapper = new ObjectMapper();
+        this.amazonSQS = amazonSQS;
+        this.queueUrl = queueUrl;
+    }
+
+    @Override
+    public void enqueue(String email) {
+        try {
+            amazonSQS.sendMessage(queueUrl, objectMapper.writeValueAsString(new ProvisionTeamMessage(email)));
+        } catch (JsonProcessingException ex) {
+            throw new RuntimeException("Unable to build provisioning message", ex);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.luisguadagnin.soccermanager.provisioning;
+
+import com.luisguadagnin.soccermanager.generator.NameGenerator;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Generates and saves the team of a new user. Queues deliver at least once, so this may run more than once for the same e-mail:
+ * generation is seeded by the e-mail, making every run build the same team and players, and nothing is written once the team exists.
+ */
+public class TeamProvisioner {
+
+    private final TeamRepository teamRepository;
+
+    public TeamProvisioner() {
+        this(new TeamRepository());
+    }
+
+    public TeamProvisioner(TeamRepository teamRepository) {
+        this.teamRepository = teamRepository;
+    }
+
+    public void provision(String email) {
+        if (teamRepository.exists(email)) {
+            return;
+        }
+
+        SplittableRandom random = new SplittableRandom(UUID.nameUUIDFromBytes(email.getBytes(StandardCharsets.UTF_8)).getMostSignificantBits());
+        NameGenerator nameGenerator = new NameGenerator(random);
+        Team team = buildTeam(email, nameGenerator);
+        List<Player> players = buildPlayers(team, random, nameGenerator);
+
+        teamRepository.save(team, players);
+    }
+
+    private Team buildTeam(String userEmail, NameGenerator nameGenerator) {
+        return Team.builder()
+                .id(userEmail)
+                .country(nameGenerator.country())
+                .name(nameGenerator.teamName())
+                .budget(Money.parse("5000000.00"))
+                .value(Money.parse("20000000.00"))
+                .build();
+    }
+
+    private List<Player> buildPlayers(Team team, SplittableRandom random, NameGenerator nameGenerator) {
+        List<Player> players = new ArrayList<>();
+        players.addAll(buildPlayers(team, PlayerPosition.GOALKEEPER, 3, players.size(), random, nameGenerator));
+        players.addAll(buildPlayers(team, PlayerPosition.DEFENDER, 6, players.size(), random, nameGenerator));
+        players.addAll(buildPlayers(team, PlayerPosition.MIDFIELDER, 6, players.size(), random, nameGenerator));
+        players.addAll(buildPlayers(team, PlayerPosition.ATTACKER, 5, players.size(), random, nameGenerator));
+        team.setPlayerCount(players.size());
+        return players;
+    }
+
+    private List<Player> buildPlayers(Team team, PlayerPosition position, int amount, int firstNumber,
+                                      SplittableRandom random, NameGenerator nameGenerator) {
+        List<Player> players = new ArrayList<>();
+        for(int i = 0; i < amount; i++) {
+            players.add(buildPlayer(team, position, firstNumber + i, random, nameGenerator));
+        }
+        return players;
+    }
+
+    private Player buildPlayer(Team team, PlayerPosition position, int number, SplittableRandom random, NameGenerator nameGenerator) {
+        return Player.builder()
+                .id(UUID.nameUUIDFromBytes((team.getId() + "/" + number).getBytes(StandardCharsets.UTF_8)).toString())
+                .age(random.nextInt(18, 41))
+                .teamId(team.getId())
+                .firstName(nameGenerator.firstName())
+                .lastName(nameGenerator.lastName())
+                .position(position)
+                .country(team.getCountry())
+                .value(Money.parse("1000000.00"))
+                .build();
+    }
+
+}
@@ -1,19 +1,141 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
 import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 public class TeamRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    private static final int MAX_ITEMS_PER_BATCH = 25;
+    private static final int PARALLEL_BATCHES = 3;
+    private static final int MAX_RETRIES = 5;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final ExecutorService executorService;
 
     public TeamRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        this(AWSConfiguration.getAmazonDynamoDB(), AWSConfiguration.getExecutorService());
+    }
+
+    public TeamRepository(AmazonDynamoDB amazonDynamoDB, ExecutorService executorService) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.executorService = executorService;
+    }
+
+    public boolean exists(String id) {
+        GetItemRequest getItemRequest = new GetItemRequest()
+                .withTableName(TeamSchema.TABLE_NAME)
+                .withKey(TeamSchema.key(id))
+                .withProjectionExpression("id")
+                .withConsistentRead(true);
+        return amazonDynamoDB.getItem(getItemRequest).getItem() != null;
+    }
+
+    /**
+     * Writes the players of a new team with BatchWriteItem, spreading them over a few concurrent requests, and then the team itself.
+     * The team goes last, so it only exists once all of its players do, and only if there's no team with the same id yet.
+     */
+    public void save(Team team, List<Player> players) {
+        List<Item> items = new ArrayList<>();
+        players.forEach(player -> items.add(new Item(PlayerSchema.TABLE_NAME, PlayerSchema.toItem(player))));
+
+        List<List<Item>> chunks = partition(items);
+        if (chunks.size() == 1) {
+            writeChunk(chunks.get(0));
+        } else if (chunks.size() > 1) {
+            List<CompletableFuture<Void>> futures = chunks.stream()
+                    .map(chunk -> CompletableFuture.runAsync(() -> writeChunk(chunk), executorService))
+                    .collect(Collectors.toList());
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+
+        try {
+            amazonDynamoDB.putItem(new PutItemRequest()
+                    .withTableName(TeamSchema.TABLE_NAME)
+                    .withItem(TeamSchema.toItem(team))
+                    .withConditionExpression("attribute_not_exists(id)"));
+        } catch (ConditionalCheckFailedException ex) {
+            // provisioned by a duplicate delivery in the meantime
+        }
+    }
+
+    private void writeChunk(List<Item> chunk) {
+        Map<String, List<WriteRequest>> requestItems = chunk.stream()
+                .collect(Collectors.groupingBy(Item::getTableName,
+                        Collectors.mapping(item -> new WriteRequest(new PutRequest(item.getAttributes())), Collectors.toList())));
+
+        int attempt = 0;
+        while (requestItems != null && !requestItems.isEmpty()) {
+            if (attempt > MAX_RETRIES) {
+                throw new RuntimeException("Unable to save team: unprocessed items remained after " + MAX_RETRIES + " retries");
+            }
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+            BatchWriteItemResult result = amazonDynamoDB.batchWriteItem(new BatchWriteItemRequest().withRequestItems(requestItems));
+            requestItems = result.getUnprocessedItems();
+            attempt++;
+        }
+    }
+
+    private void backoff(int attempt) {
+        long maxDelay = BASE_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxDelay / 2, maxDelay + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving team", ex);
+        }
+    }
+
+    /* Even chunks, e.g. 20 players -> 3 requests of 7, 7 and 6, so no single request carries most of the team */
+    private List<List<Item>> partition(List<Item> items) {
+        int chunkSize = Math.min(MAX_ITEMS_PER_BATCH, Math.max(1, (items.size() + PARALLEL_BATCHES - 1) / PARALLEL_BATCHES));
+        List<List<Item>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += chunkSize) {
+            chunks.add(items.subList(i, Math.min(i + chunkSize, items.size())));
+        }
+        return chunks;
     }
 
-    public void save(Team team) {
-        dynamoDBMapper.save(team);
+    private static class Item {
+
+        private final String tableName;
+        private final Map<String, AttributeValue> attributes;
+
+        private Item(String tableName, Map<String, AttributeValue> attributes) {
+            this.tableName = tableName;
+            this.attributes = attributes;
+        }
+
+        private String getTableName() {
+            return tableName;
+        }
+
+        private Map<String, AttributeValue> getAttributes() {
+            return attributes;
+        }
+
     }
 
 }
@@ -0,0 +1,96 @@
+package com.luisguadagnin.soccermanager;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.luisguadagnin.soccermanager.clients.CognitoClient;
+import com.luisguadagnin.soccermanager.provisioning.ProvisioningQueue;
+import com.luisguadagnin.soccermanager.provisioning.TeamProvisioner;
+import com.luisguadagnin.soccermanager.runtime.BootstrapHarness;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Serves HTTP API and SQS events through {@link BootstrapHarness}, on the JVM and, under mvn -Pnative verify,
+ * from the native executable.
+ */
+public class BootstrapTest {
+
+    private final BootstrapHarness bootstrapHarness;
+    private final CognitoClient cognitoClient;
+    private final ProvisioningQueue provisioningQueue;
+    private final TeamProvisioner teamProvisioner;
+
+    public BootstrapTest() throws IOException {
+        this.bootstrapHarness = new BootstrapHarness();
+        this.cognitoClient = mock(CognitoClient.class);
+        this.provisioningQueue = mock(ProvisioningQueue.class);
+        this.teamProvisioner = mock(TeamProvisioner.class);
+    }
+
+    @AfterEach
+    public void closeHarness() {
+        bootstrapHarness.close();
+    }
+
+    @Test
+    public void shouldCreateUserThroughRuntimeApi() throws Exception {
+        String email = "luis@guadagnin.com";
+        String password = "123456";
+
+        JsonNode response = bootstrapHarness.serve(new CreateUserHandler(cognitoClient, provisioningQueue),
+                LambdaEvents.httpApi("POST", "/user", null, null, null,
+                        "{\"email\": \"" + email + "\", \"password\": \"" + password + "\"}"));
+
+        assertAll(
+                () -> assertEquals(200, response.get("statusCode").asInt()),
+                () -> verify(cognitoClient).createUser(email, password),
+                () -> verify(provisioningQueue).enqueue(email)
+        );
+    }
+
+    @Test
+    public void shouldProvisionTeamThroughRuntimeApi() throws Exception {
+        JsonNode response = bootstrapHarness.serve(new ProvisionTeamHandler(teamProvisioner), SQSEvent.class,
+                LambdaEvents.sqs("{\"email\":\"luis@guadagnin.com\"}"));
+
+        assertAll(
+                () -> assertEquals(0, response.get("batchItemFailures").size()),
+                () -> verify(teamProvisioner).provision("luis@guadagnin.com")
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.executable", matches = ".+")
+    public void shouldAnswerFromNativeExecutable() throws Exception {
+        // the body is read into CreateUserRequest, then rejected before reaching Cognito
+        JsonNode response = bootstrapHarness.serveNative(CreateUserHandler.class,
+                Map.of("PROVISIONING_QUEUE_URL", "https://sqs.us-east-1.amazonaws.com/000000000000/emulated"),
+                LambdaEvents.httpApi("POST", "/user", null, null, null,
+                        "{\"email\": \"luis.guadagnin.com\", \"password\": \"123456\"}"));
+
+        assertAll(
+                () -> assertEquals(400, response.get("statusCode").asInt()),
+                () -> assertEquals("{ \"message\": \"E-mail address is not valid\" }", response.get("body").asText())
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.executable", matches = ".+")
+    public void shouldReportFailedMessageFromNativeExecutable() throws Exception {
+        // an unreadable message is reported back before reaching DynamoDB
+        JsonNode response = bootstrapHarness.serveNative(ProvisionTeamHandler.class, LambdaEvents.sqs("not json"));
+
+        assertEquals(1, response.get("batchItemFailures").size());
+    }
+
+}
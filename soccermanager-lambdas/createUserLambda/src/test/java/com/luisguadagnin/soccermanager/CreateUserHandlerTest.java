@@ -1,13 +1,11 @@
 package com.luisguadagnin.soccermanager;
 
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.luisguadagnin.soccermanager.clients.CognitoClient;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.exception.UserAlreadyExistsException;
-import com.luisguadagnin.soccermanager.model.Player;
-import com.luisguadagnin.soccermanager.model.Team;
-import com.luisguadagnin.soccermanager.repository.PlayerRepository;
-import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.provisioning.ProvisioningQueue;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
@@ -16,55 +14,50 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class CreateUserHandlerTest {
 
     private final CreateUserHandler createUserHandler;
     private final CognitoClient cognitoClient;
-    private final TeamRepository teamRepository;
-    private final PlayerRepository playerRepository;
+    private final ProvisioningQueue provisioningQueue;
 
     public CreateUserHandlerTest() {
         this.cognitoClient = mock(CognitoClient.class);
-        this.teamRepository = mock(TeamRepository.class);
-        this.playerRepository = mock(PlayerRepository.class);
-        this.createUserHandler = new CreateUserHandler(cognitoClient, teamRepository, playerRepository);
+        this.provisioningQueue = mock(ProvisioningQueue.class);
+        this.createUserHandler = new CreateUserHandler(cognitoClient, provisioningQueue);
     }
 
     @Test
     public void shouldCreateUserSuccessfully() {
         String email = "luis@guadagnin.com";
         String password = "123456";
-        APIGatewayProxyRequestEvent input = createInput("{" +
+        HttpApiRequest input = createInput("{" +
                 "  \"email\": \"" + email + "\"," +
                 "  \"password\": \"" + password + "\"" +
                 "}");
 
-        APIGatewayProxyResponseEvent output = createUserHandler.handleRequest(input, null);
+        HttpApiResponse output = createUserHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(200, output.getStatusCode()),
                 () -> verify(cognitoClient).createUser(email, password),
-                () -> verify(teamRepository).save(any(Team.class)),
-                () -> verify(playerRepository, times(20)).save(any(Player.class))
+                () -> verify(provisioningQueue).enqueue(email)
         );
     }
 
     @Test
     public void shouldNotCreateUserWhenRequestBodyIsInvalid() {
-        APIGatewayProxyRequestEvent input = createInput("{" +
+        HttpApiRequest input = createInput("{" +
                 "  \"anyAttribute\": \"anyValue\"" +
                 "}");
 
-        APIGatewayProxyResponseEvent output = createUserHandler.handleRequest(input, null);
+        HttpApiResponse output = createUserHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
                 () -> verify(cognitoClient, never()).createUser(any(), any()),
-                () -> verify(teamRepository, never()).save(any()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(provisioningQueue, never()).enqueue(any())
         );
     }
 
@@ -72,18 +65,57 @@ public class CreateUserHandlerTest {
     public void shouldNotCreateUserWhenPasswordIsInvalid() {
         String email = "luis@guadagnin.com";
         String password = "12";
-        APIGatewayProxyRequestEvent input = createInput("{" +
+        HttpApiRequest input = createInput("{" +
                 "  \"email\": \"" + email + "\"," +
                 "  \"password\": \"" + password + "\"" +
                 "}");
 
-        APIGatewayProxyResponseEvent output = createUserHandler.handleRequest(input, null);
+        HttpApiResponse output = createUserHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
                 () -> verify(cognitoClient, never()).createUser(any(), any()),
-                () -> verify(teamRepository, never()).save(any()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(provisioningQueue, never()).enqueue(any())
+        );
+    }
+
+    @Test
+    public void shouldNotEnqueueTeamWhenCognitoRejectsUser() {
+        String email = "luis@guadagnin.com";
+        String password = "123456";
+        HttpApiRequest input = createInput("{" +
+                "  \"email\": \"" + email + "\"," +
+                "  \"password\": \"" + password + "\"" +
+                "}");
+
+        doThrow(new RuntimeException("Password does not conform to policy"))
+                .when(cognitoClient).createUser(email, password);
+
+        HttpApiResponse output = createUserHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(500, output.getStatusCode()),
+                () -> verify(provisioningQueue, never()).enqueue(any())
+        );
+    }
+
+    @Test
+    public void shouldAnswerServerErrorWhenTeamCanNotBeEnqueued() {
+        String email = "luis@guadagnin.com";
+        String password = "123456";
+        HttpApiRequest input = createInput("{" +
+                "  \"email\": \"" + email + "\"," +
+                "  \"password\": \"" + password + "\"" +
+                "}");
+
+        doThrow(new RuntimeException("Queue unavailable"))
+                .when(provisioningQueue).enqueue(email);
+
+        HttpApiResponse output = createUserHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(500, output.getStatusCode()),
+                () -> verify(cognitoClient).createUser(email, password) // signing up again answers "User already exists" and re-enqueues
         );
     }
 
@@ -91,7 +123,7 @@ public class CreateUserHandlerTest {
     public void shouldNotCreateUserWhenUserAlreadyExists() {
         String email = "luis@guadagnin.com";
         String password = "123456";
-        APIGatewayProxyRequestEvent input = createInput("{" +
+        HttpApiRequest input = createInput("{" +
                 "  \"email\": \"" + email + "\"," +
                 "  \"password\": \"" + password + "\"" +
                 "}");
@@ -99,18 +131,37 @@ public class CreateUserHandlerTest {
         doThrow(new UserAlreadyExistsException())
                 .when(cognitoClient).createUser(email, password);
 
-        APIGatewayProxyResponseEvent output = createUserHandler.handleRequest(input, null);
+        HttpApiResponse output = createUserHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
                 () -> verify(cognitoClient).createUser(email, password),
-                () -> verify(teamRepository, never()).save(any()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(provisioningQueue).enqueue(email) // provisions the team if an earlier signup's enqueue failed or its message was lost
+        );
+    }
+
+    @Test
+    public void shouldCreateUserThroughItsOwnClientsAfterPrimingAndRestore() {
+        String email = "luis@guadagnin.com";
+        String password = "123456";
+        HttpApiRequest input = createInput("{" +
+                "  \"email\": \"" + email + "\"," +
+                "  \"password\": \"" + password + "\"" +
+                "}");
+
+        createUserHandler.prime();
+        AWSConfiguration.refresh();
+        HttpApiResponse output = createUserHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> verify(cognitoClient).createUser(email, password),
+                () -> verify(provisioningQueue).enqueue(email)
         );
     }
 
-    private APIGatewayProxyRequestEvent createInput(String body) {
-        return new APIGatewayProxyRequestEvent()
+    private HttpApiRequest createInput(String body) {
+        return new HttpApiRequest()
                 .withBody(body);
     }
 }
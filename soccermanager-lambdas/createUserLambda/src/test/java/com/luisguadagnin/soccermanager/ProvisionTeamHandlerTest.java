@@ -0,0 +1,97 @@
+package com.luisguadagnin.soccermanager;
+
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.provisioning.TeamProvisioner;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ProvisionTeamHandlerTest {
+
+    private final ProvisionTeamHandler provisionTeamHandler;
+    private final TeamProvisioner teamProvisioner;
+
+    public ProvisionTeamHandlerTest() {
+        this.teamProvisioner = mock(TeamProvisioner.class);
+        this.provisionTeamHandler = new ProvisionTeamHandler(teamProvisioner);
+    }
+
+    @Test
+    public void shouldProvisionTeamSuccessfully() {
+        SQSEvent input = createInput(createMessage("message-1", "{\"email\":\"luis@guadagnin.com\"}"));
+
+        SQSBatchResponse output = provisionTeamHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> verify(teamProvisioner).provision("luis@guadagnin.com"),
+                () -> assertEquals(List.of(), output.getBatchItemFailures())
+        );
+    }
+
+    @Test
+    public void shouldReportOnlyTheFailedMessages() {
+        SQSEvent input = createInput(
+                createMessage("message-1", "{\"email\":\"luis@guadagnin.com\"}"),
+                createMessage("message-2", "{\"email\":\"other@guadagnin.com\"}"));
+
+        doThrow(new RuntimeException("DynamoDB is down"))
+                .when(teamProvisioner).provision("other@guadagnin.com");
+
+        SQSBatchResponse output = provisionTeamHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> verify(teamProvisioner).provision("luis@guadagnin.com"),
+                () -> assertEquals(1, output.getBatchItemFailures().size()),
+                () -> assertEquals("message-2", output.getBatchItemFailures().get(0).getItemIdentifier())
+        );
+    }
+
+    @Test
+    public void shouldReportMessageWhenBodyIsInvalid() {
+        SQSEvent input = createInput(createMessage("message-1", "not json"));
+
+        SQSBatchResponse output = provisionTeamHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> verify(teamProvisioner, never()).provision(any()),
+                () -> assertEquals("message-1", output.getBatchItemFailures().get(0).getItemIdentifier())
+        );
+    }
+
+    @Test
+    public void shouldProvisionThroughItsOwnProvisionerAfterPrimingAndRestore() {
+        SQSEvent input = createInput(createMessage("message-1", "{\"email\":\"luis@guadagnin.com\"}"));
+
+        provisionTeamHandler.prime();
+        AWSConfiguration.refresh();
+        SQSBatchResponse output = provisionTeamHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> verify(teamProvisioner).provision("luis@guadagnin.com"),
+                () -> assertEquals(List.of(), output.getBatchItemFailures())
+        );
+    }
+
+    private SQSEvent.SQSMessage createMessage(String messageId, String body) {
+        SQSEvent.SQSMessage message = new SQSEvent.SQSMessage();
+        message.setMessageId(messageId);
+        message.setBody(body);
+        return message;
+    }
+
+    private SQSEvent createInput(SQSEvent.SQSMessage... messages) {
+        SQSEvent sqsEvent = new SQSEvent();
+        sqsEvent.setRecords(List.of(messages));
+        return sqsEvent;
+    }
+}
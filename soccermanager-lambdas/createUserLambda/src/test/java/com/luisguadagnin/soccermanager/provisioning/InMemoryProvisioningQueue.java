@@ -0,0 +1,25 @@
+package com.luisguadagnin.soccermanager.provisioning;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Hands every e-mail straight to a consumer on the given executor, so tests can provision teams without SQS.
+ * Nothing is retried and pending work is lost with the process.
+ */
+public class InMemoryProvisioningQueue implements ProvisioningQueue {
+
+    private final Consumer<String> consumer;
+    private final Executor executor;
+
+    public InMemoryProvisioningQueue(Consumer<String> consumer, Executor executor) {
+        this.consumer = consumer;
+        this.executor = executor;
+    }
+
+    @Override
+    public void enqueue(String email) {
+        executor.execute(() -> consumer.accept(email));
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.luisguadagnin.soccermanager.provisioning;
+
+import com.github.javafaker.Faker;
+import com.luisguadagnin.soccermanager.generator.NameGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Faker against {@link NameGenerator}: the first name drawn in a fresh JVM, which is what a cold start pays, and the names
+ * and age of one player once warm. Run through {@link NameGeneratorBenchmarkTest}.
+ */
+public class NameGeneratorBenchmark {
+
+    @State(Scope.Thread)
+    public static class WarmFaker {
+        private final Random random = new Random(42);
+        private final Faker faker = new Faker(random);
+    }
+
+    @State(Scope.Thread)
+    public static class WarmNameGenerator {
+        private final SplittableRandom random = new SplittableRandom(42);
+        private final NameGenerator nameGenerator = new NameGenerator(random);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public String fakerInit() {
+        return new Faker(new Random(42)).name().firstName();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public String nameGeneratorInit() {
+        return new NameGenerator(new SplittableRandom(42)).firstName();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public void fakerPlayer(WarmFaker warm, Blackhole blackhole) {
+        blackhole.consume(warm.faker.name().firstName());
+        blackhole.consume(warm.faker.name().lastName());
+        blackhole.consume(warm.random.nextInt(23) + 18);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public void nameGeneratorPlayer(WarmNameGenerator warm, Blackhole blackhole) {
+        blackhole.consume(warm.nameGenerator.firstName());
+        blackhole.consume(warm.nameGenerator.lastName());
+        blackhole.consume(warm.random.nextInt(18, 41));
+    }
+
+}
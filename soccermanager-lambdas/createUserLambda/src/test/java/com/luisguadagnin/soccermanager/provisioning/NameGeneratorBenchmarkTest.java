@@ -0,0 +1,30 @@
+package com.luisguadagnin.soccermanager.provisioning;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link NameGeneratorBenchmark} with JMH. Run with RUN_BENCHMARKS=true mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+public class NameGeneratorBenchmarkTest {
+
+    @Test
+    public void reportNameGenerationTime() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(NameGeneratorBenchmark.class.getName())
+                .build())
+                .run();
+
+        assertEquals(4, results.size());
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.luisguadagnin.soccermanager.provisioning;
+
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TeamProvisionerTest {
+
+    private final TeamRepository teamRepository;
+    private final TeamProvisioner teamProvisioner;
+
+    public TeamProvisionerTest() {
+        this.teamRepository = mock(TeamRepository.class);
+        this.teamProvisioner = new TeamProvisioner(teamRepository);
+    }
+
+    @Test
+    public void shouldProvisionTeamWithTwentyPlayers() {
+        String email = "luis@guadagnin.com";
+
+        teamProvisioner.provision(email);
+
+        ArgumentCaptor<Team> teamCaptor = ArgumentCaptor.forClass(Team.class);
+        ArgumentCaptor<List<Player>> playersCaptor = playersCaptor();
+        verify(teamRepository).save(teamCaptor.capture(), playersCaptor.capture());
+        Team team = teamCaptor.getValue();
+        List<Player> players = playersCaptor.getValue();
+        Map<PlayerPosition, Long> positions = players.stream()
+                .collect(Collectors.groupingBy(Player::getPosition, Collectors.counting()));
+
+        assertAll(
+                () -> assertEquals(email, team.getId()),
+                () -> assertEquals("5000000.00", team.getBudget().toString()),
+                () -> assertEquals(players.size(), team.getPlayerCount()),
+                () -> assertEquals(Map.of(PlayerPosition.GOALKEEPER, 3L, PlayerPosition.DEFENDER, 6L,
+                        PlayerPosition.MIDFIELDER, 6L, PlayerPosition.ATTACKER, 5L), positions),
+                () -> players.forEach(player -> assertEquals(email, player.getTeamId()))
+        );
+    }
+
+    @Test
+    public void shouldGenerateTheSameTeamForTheSameEmail() {
+        teamProvisioner.provision("luis@guadagnin.com");
+        teamProvisioner.provision("other@guadagnin.com");
+        new TeamProvisioner(teamRepository).provision("luis@guadagnin.com");
+
+        ArgumentCaptor<Team> teamCaptor = ArgumentCaptor.forClass(Team.class);
+        ArgumentCaptor<List<Player>> playersCaptor = playersCaptor();
+        verify(teamRepository, times(3)).save(teamCaptor.capture(), playersCaptor.capture());
+        List<Team> teams = teamCaptor.getAllValues();
+        List<List<Player>> players = playersCaptor.getAllValues();
+
+        assertAll(
+                () -> assertEquals(teams.get(0), teams.get(2)),
+                () -> assertEquals(players.get(0), players.get(2)),
+                () -> assertNotEquals(players.get(0), players.get(1))
+        );
+    }
+
+    @Test
+    public void shouldNotProvisionTeamTwice() {
+        String email = "luis@guadagnin.com";
+
+        when(teamRepository.exists(email))
+                .thenReturn(true);
+
+        teamProvisioner.provision(email);
+
+        verify(teamRepository, never()).save(any(), any());
+    }
+
+    @Test
+    public void shouldProvisionTeamsEnqueuedInMemory() {
+        ProvisioningQueue provisioningQueue = new InMemoryProvisioningQueue(teamProvisioner::provision, Runnable::run);
+
+        provisioningQueue.enqueue("luis@guadagnin.com");
+
+        verify(teamRepository).save(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Player>> playersCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
@@ -0,0 +1,157 @@
+package com.luisguadagnin.soccermanager.repository;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ResourceInUseException;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamSchema;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Compares the signup writes (one team plus 20 players) done one PutItem at a time with {@link TeamRepository#save}.
+ * Runs against DynamoDB Local, e.g. DYNAMODB_LOCAL_ENDPOINT=http://localhost:8000
+ */
+@EnabledIfEnvironmentVariable(named = "DYNAMODB_LOCAL_ENDPOINT", matches = ".+")
+public class TeamRepositoryBenchmarkTest {
+
+    private static final int WARMUP_SIGNUPS = 20;
+    private static final int MEASURED_SIGNUPS = 100;
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final ExecutorService executorService;
+    private final TeamRepository teamRepository;
+
+    public TeamRepositoryBenchmarkTest() {
+        this.amazonDynamoDB = AmazonDynamoDBClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(System.getenv("DYNAMODB_LOCAL_ENDPOINT"), "us-east-1"))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("local", "local")))
+                .build();
+        this.executorService = Executors.newFixedThreadPool(4);
+        this.teamRepository = new TeamRepository(amazonDynamoDB, executorService);
+        List.of("Team", "Player").forEach(this::createTable);
+    }
+
+    @Test
+    public void shouldWriteWholeSquad() {
+        Team team = buildTeam();
+        List<Player> players = buildPlayers(team);
+
+        teamRepository.save(team, players);
+
+        assertNotNull(getItem("Team", team.getId()));
+        for (Player player : players) {
+            Map<String, AttributeValue> item = getItem("Player", player.getId());
+            assertEquals(team.getId(), item.get("teamId").getS());
+            assertEquals("100000000", item.get("value").getN());
+        }
+    }
+
+    @Test
+    public void reportSignupLatency() {
+        long[] sequential = measure((team, players) -> {
+            amazonDynamoDB.putItem(TeamSchema.TABLE_NAME, TeamSchema.toItem(team));
+            players.forEach(player -> amazonDynamoDB.putItem(PlayerSchema.TABLE_NAME, PlayerSchema.toItem(player)));
+        });
+        long[] batched = measure(teamRepository::save);
+        executorService.shutdown();
+
+        System.out.printf("Signup writes over %d runs (ms)  p50  p95  max%n", MEASURED_SIGNUPS);
+        System.out.printf("  sequential PutItem             %5.1f %5.1f %5.1f%n", percentile(sequential, 50), percentile(sequential, 95), percentile(sequential, 100));
+        System.out.printf("  parallel BatchWriteItem        %5.1f %5.1f %5.1f%n", percentile(batched, 50), percentile(batched, 95), percentile(batched, 100));
+    }
+
+    private long[] measure(BiConsumer<Team, List<Player>> signup) {
+        for (int i = 0; i < WARMUP_SIGNUPS; i++) {
+            Team team = buildTeam();
+            signup.accept(team, buildPlayers(team));
+        }
+        long[] nanos = new long[MEASURED_SIGNUPS];
+        for (int i = 0; i < MEASURED_SIGNUPS; i++) {
+            Team team = buildTeam();
+            List<Player> players = buildPlayers(team);
+            long start = System.nanoTime();
+            signup.accept(team, players);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int index = Math.max(0, (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1);
+        return sortedNanos[index] / 1_000_000.0;
+    }
+
+    private Team buildTeam() {
+        return Team.builder()
+                .id(UUID.randomUUID() + "@benchmark.com")
+                .name("Benchmark FC")
+                .country("Brazil")
+                .budget(Money.parse("5000000.00"))
+                .value(Money.parse("20000000.00"))
+                .playerCount(20)
+                .build();
+    }
+
+    private List<Player> buildPlayers(Team team) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Player player = Player.builder()
+                    .id(UUID.randomUUID().toString())
+                    .teamId(team.getId())
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .age(18 + i)
+                    .country(team.getCountry())
+                    .position(PlayerPosition.values()[i % PlayerPosition.values().length])
+                    .value(Money.parse("1000000.00"))
+                    .build();
+            players.add(player);
+        }
+        return players;
+    }
+
+    private void createTable(String tableName) {
+        try {
+            amazonDynamoDB.createTable(new CreateTableRequest()
+                    .withTableName(tableName)
+                    .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+                    .withAttributeDefinitions(new AttributeDefinition("id", ScalarAttributeType.S))
+                    .withBillingMode(BillingMode.PAY_PER_REQUEST));
+        } catch (ResourceInUseException ex) {
+            // created by a previous run
+        }
+    }
+
+    private Map<String, AttributeValue> getItem(String tableName, String id) {
+        return amazonDynamoDB.getItem(tableName, Map.of("id", new AttributeValue().withS(id))).getItem();
+    }
+
+}
@@ -1,101 +1,164 @@
 package com.luisguadagnin.soccermanager;
 
 import com.amazonaws.services.lambda.runtime.Context;
-import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.luisguadagnin.soccermanager.dto.PlayerResponse;
-import com.luisguadagnin.soccermanager.dto.TeamResponse;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.dto.TeamResponseWriter;
+import com.luisguadagnin.soccermanager.exception.TeamProvisioningException;
+import com.luisguadagnin.soccermanager.http.HttpApiHandler;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
 import com.luisguadagnin.soccermanager.model.Player;
 import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamView;
+import com.luisguadagnin.soccermanager.priming.Priming;
+import com.luisguadagnin.soccermanager.priming.PrimingDynamoDB;
 import com.luisguadagnin.soccermanager.repository.PlayerRepository;
 import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.repository.TeamViewRepository;
+import com.luisguadagnin.soccermanager.view.TeamViewProjector;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
-public class GetTeamHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+public class GetTeamHandler extends HttpApiHandler {
 
-    private final ObjectMapper objectMapper;
+    private final TeamResponseWriter teamResponseWriter = new TeamResponseWriter();
+    private final TeamViewRepository teamViewRepository;
     private final TeamRepository teamRepository;
     private final PlayerRepository playerRepository;
 
     public GetTeamHandler() {
-        objectMapper = new ObjectMapper();
+        teamViewRepository = new TeamViewRepository();
         teamRepository = new TeamRepository();
         playerRepository = new PlayerRepository();
+        Priming.register(this::prime, AWSConfiguration::refresh);
     }
 
-    GetTeamHandler(TeamRepository teamRepository, PlayerRepository playerRepository) {
-        objectMapper = new ObjectMapper();
+    GetTeamHandler(TeamViewRepository teamViewRepository, TeamRepository teamRepository, PlayerRepository playerRepository) {
+        this.teamViewRepository = teamViewRepository;
         this.teamRepository = teamRepository;
         this.playerRepository = playerRepository;
     }
 
+    /* Serves the stub team before and after rendering its view, so the code paths of both are loaded in the snapshot too */
+    void prime() {
+        PrimingDynamoDB primingDynamoDB = new PrimingDynamoDB();
+        TeamViewRepository primingViewRepository = new TeamViewRepository(primingDynamoDB);
+        TeamRepository primingTeamRepository = new TeamRepository(primingDynamoDB);
+        PlayerRepository primingPlayerRepository = new PlayerRepository(primingDynamoDB);
+        GetTeamHandler primingHandler = new GetTeamHandler(primingViewRepository, primingTeamRepository, primingPlayerRepository);
+
+        HttpApiResponse assembled = primingHandler.invoke(new HttpApiRequest().withUsername(PrimingDynamoDB.TEAM_ID));
+        Priming.checkStatusCode(200, assembled.getStatusCode());
+
+        try {
+            new TeamViewProjector(primingTeamRepository, primingPlayerRepository, primingViewRepository).project(PrimingDynamoDB.TEAM_ID);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        HttpApiResponse response = primingHandler.invoke(new HttpApiRequest().withUsername(PrimingDynamoDB.TEAM_ID));
+        Priming.checkStatusCode(200, response.getStatusCode());
+
+        HttpApiResponse revalidation = primingHandler.invoke(new HttpApiRequest()
+                .withUsername(PrimingDynamoDB.TEAM_ID)
+                .withIfNoneMatch(response.getHeaders().get("ETag")));
+        Priming.checkStatusCode(304, revalidation.getStatusCode());
+    }
+
     @Override
-    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent, Context context) {
-        String response;
+    public HttpApiResponse handleRequest(HttpApiRequest request, Context context) {
         try {
-            response = createTeam(apiGatewayProxyRequestEvent);
-        }  catch (Exception ex) {
-            return new APIGatewayProxyResponseEvent()
+            return getTeam(request);
+        } catch (TeamProvisioningException ex) {
+            return new HttpApiResponse()
+                    .withHeaders(Map.of("Content-Type", "application/json"))
+                    .withBody("{ \"status\": \"PROVISIONING\" }")
+                    .withStatusCode(202);
+        } catch (Exception ex) {
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse("Internal server error"))
                     .withStatusCode(500);
         }
-
-        return new APIGatewayProxyResponseEvent()
-                .withBody(response)
-                .withHeaders(Map.of("Content-Type", "application/json"))
-                .withStatusCode(200);
     }
 
-    private String createTeam(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) throws JsonProcessingException {
-        String username = extractUsername(apiGatewayProxyRequestEvent);
+    private HttpApiResponse getTeam(HttpApiRequest request) throws IOException {
+        String username = extractUsername(request);
+
+        /* A single read of the body rendered when the team last changed, revalidated reading the view's version only */
+        TeamView teamView = null;
+        if (request.getIfNoneMatch() != null) {
+            Long viewVersion = teamViewRepository.findVersionById(username);
+            if (viewVersion != null && matches(request.getIfNoneMatch(), buildETag(viewVersion))) {
+                return new HttpApiResponse()
+                        .withHeaders(Map.of("ETag", buildETag(viewVersion)))
+                        .withStatusCode(304);
+            }
+            if (viewVersion != null) teamView = teamViewRepository.findById(username);
+        } else {
+            teamView = teamViewRepository.findById(username);
+        }
+        if (teamView != null) {
+            String etag = buildETag(teamView.getVersion());
+            return new HttpApiResponse()
+                    .withBody(teamView.getBody())
+                    .withHeaders(Map.of("Content-Type", "application/json", "ETag", etag))
+                    .withStatusCode(200);
+        }
+
+        /* Not rendered yet, e.g. right after provisioning: assembled from the team and its players, revalidated reading the version only */
+        if (request.getIfNoneMatch() != null) {
+            Long version = teamRepository.findVersionById(username);
+            if (version != null && matches(request.getIfNoneMatch(), buildETag(version))) {
+                return new HttpApiResponse()
+                        .withHeaders(Map.of("ETag", buildETag(version)))
+                        .withStatusCode(304);
+            }
+        }
 
         Team team = teamRepository.findById(username);
-        List<Player> players = playerRepository.findById(team.getPlayersId());
+        if (team == null) throw new TeamProvisioningException(); // written last by the provisioning worker, after all players
+        List<Player> players = playerRepository.findByTeamId(team.getId());
+        if (!isRosterCaughtUp(team, players)) {
+            players = playerRepository.findByTeamId(team.getId()); // the TeamId-index may still miss a player who just joined, read once more
+        }
 
-        TeamResponse teamResponse = buildTeamResponse(team, players);
-        return objectMapper.writeValueAsString(teamResponse);
+        if (!isRosterCaughtUp(team, players)) {
+            /* The roster is behind the team's version, so it's not tagged with it nor kept by caches */
+            return new HttpApiResponse()
+                    .withBody(teamResponseWriter.write(team, players))
+                    .withHeaders(Map.of("Content-Type", "application/json", "Cache-Control", "no-store"))
+                    .withStatusCode(200);
+        }
+        return new HttpApiResponse()
+                .withBody(teamResponseWriter.write(team, players))
+                .withHeaders(Map.of("Content-Type", "application/json", "ETag", buildETag(team.getVersion())))
+                .withStatusCode(200);
     }
 
-    @SuppressWarnings("unchecked")
-    private String extractUsername(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) {
-        try {
-            Map<String, Object> authorizer = apiGatewayProxyRequestEvent.getRequestContext().getAuthorizer();
-            Map<String, Object> jwt = (Map<String, Object>) authorizer.get("jwt");
-            Map<String, Object> claims = (Map<String, Object>) jwt.get("claims");
-            return (String) claims.get("username");
-        } catch (ClassCastException ex) {
-            throw new RuntimeException("Unable to process authorization token", ex);
-        }
+    /* As checked by TeamViewProjector before rendering a view */
+    private boolean isRosterCaughtUp(Team team, List<Player> players) {
+        return team.getPlayerCount() == null || team.getPlayerCount() == players.size();
     }
 
-    private TeamResponse buildTeamResponse(Team team, List<Player> players) {
-        return TeamResponse.builder()
-                .id(team.getId())
-                .budget(team.getBudget())
-                .country(team.getCountry())
-                .name(team.getName())
-                .value(team.getValue())
-                .players(players.stream().map(this::buildPlayerResponse).collect(Collectors.toList()))
-                .build();
+    private String buildETag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /* If-None-Match may list several tags or be *, and a tag sent back as weak (W/) still matches */
+    private boolean matches(String ifNoneMatch, String etag) {
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) return true;
+        }
+        return false;
     }
 
-    private PlayerResponse buildPlayerResponse(Player player) {
-        return PlayerResponse.builder()
-                .id(player.getId())
-                .position(player.getPosition().toString())
-                .age(player.getAge())
-                .country(player.getCountry())
-                .firstName(player.getFirstName())
-                .lastName(player.getLastName())
-                .value(player.getValue())
-                .build();
+    private String extractUsername(HttpApiRequest request) {
+        if (request.getUsername() == null) throw new RuntimeException("Unable to process authorization token");
+        return request.getUsername();
     }
 
     private String buildErrorResponse(String message) {
@@ -0,0 +1,75 @@
+package com.luisguadagnin.soccermanager;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.priming.Priming;
+import com.luisguadagnin.soccermanager.priming.PrimingDynamoDB;
+import com.luisguadagnin.soccermanager.repository.PlayerRepository;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.repository.TeamViewRepository;
+import com.luisguadagnin.soccermanager.view.TeamViewProjector;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consumes the Team table's stream, rendering the view GET /team answers with again for every changed team. Every write
+ * to a team's players also bumps the team's version, so the Team table's stream alone covers them.
+ * <p>
+ * A failed team is reported back with its record's sequence number, so the batch is retried from there and later changes
+ * aren't rendered before it.
+ */
+public class TeamViewHandler implements RequestHandler<DynamodbEvent, StreamsEventResponse> {
+
+    private final TeamViewProjector teamViewProjector;
+
+    public TeamViewHandler() {
+        teamViewProjector = new TeamViewProjector();
+        Priming.register(this::prime, AWSConfiguration::refresh);
+    }
+
+    TeamViewHandler(TeamViewProjector teamViewProjector) {
+        this.teamViewProjector = teamViewProjector;
+    }
+
+    /* Renders the stub team into a stub table, so the projector's code paths are loaded in the snapshot too */
+    void prime() {
+        PrimingDynamoDB primingDynamoDB = new PrimingDynamoDB();
+        TeamViewHandler primingHandler = new TeamViewHandler(new TeamViewProjector(
+                new TeamRepository(primingDynamoDB), new PlayerRepository(primingDynamoDB), new TeamViewRepository(primingDynamoDB)));
+
+        DynamodbEvent.DynamodbStreamRecord record = new DynamodbEvent.DynamodbStreamRecord();
+        record.setDynamodb(new StreamRecord()
+                .withKeys(Map.of("id", new AttributeValue().withS(PrimingDynamoDB.TEAM_ID)))
+                .withSequenceNumber("priming"));
+        DynamodbEvent dynamodbEvent = new DynamodbEvent();
+        dynamodbEvent.setRecords(List.of(record));
+
+        if (!primingHandler.handleRequest(dynamodbEvent, null).getBatchItemFailures().isEmpty()) {
+            throw new IllegalStateException("Priming team failed to be rendered");
+        }
+    }
+
+    @Override
+    public StreamsEventResponse handleRequest(DynamodbEvent dynamodbEvent, Context context) {
+        Set<String> rendered = new HashSet<>();
+        for (DynamodbEvent.DynamodbStreamRecord record : dynamodbEvent.getRecords()) {
+            String teamId = record.getDynamodb().getKeys().get("id").getS();
+            if (!rendered.add(teamId)) continue; // rendered for an earlier record of the batch, so already after this change
+            try {
+                teamViewProjector.project(teamId);
+            } catch (Exception ex) {
+                return new StreamsEventResponse(List.of(new StreamsEventResponse.BatchItemFailure(record.getDynamodb().getSequenceNumber())));
+            }
+        }
+        return new StreamsEventResponse(List.of());
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.luisguadagnin.soccermanager.http.JsonBody;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.Team;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the GET /team response straight from the entities, field by field as they used to be serialized from the
+ * TeamResponse and PlayerResponse DTOs
+ */
+public class TeamResponseWriter {
+
+    private final JsonBody jsonBody = new JsonBody();
+
+    public JsonBody write(Team team, List<Player> players) throws IOException {
+        try (JsonGenerator generator = jsonBody.start()) {
+            generator.writeStartObject();
+            generator.writeStringField("id", team.getId());
+            generator.writeStringField("name", team.getName());
+            generator.writeStringField("country", team.getCountry());
+            jsonBody.writeHundredthsField(generator, "value", team.getValue().getCents());
+            jsonBody.writeHundredthsField(generator, "budget", team.getBudget().getCents());
+            generator.writeArrayFieldStart("players");
+            for (Player player : players) {
+                writePlayer(generator, player);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return jsonBody;
+    }
+
+    private void writePlayer(JsonGenerator generator, Player player) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", player.getId());
+        generator.writeStringField("firstName", player.getFirstName());
+        generator.writeStringField("lastName", player.getLastName());
+        generator.writeStringField("country", player.getCountry());
+        generator.writeNumberField("age", player.getAge());
+        jsonBody.writeHundredthsField(generator, "value", player.getValue().getCents());
+        generator.writeStringField("position", player.getPosition().name());
+        generator.writeEndObject();
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.luisguadagnin.soccermanager.exception;
+
+/**
+ * The user exists but the team generated after signup hasn't been saved yet
+ */
+public class TeamProvisioningException extends RuntimeException {
+
+    public TeamProvisioningException() {
+        super("Team is still being provisioned");
+    }
+
+}
@@ -1,32 +1,103 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 public class PlayerRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    private static final String TEAM_INDEX = "TeamId-index";
+    private static final int MAX_KEYS_PER_BATCH = 100;
+    private static final int MAX_RETRIES = 5;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+
+    private final AmazonDynamoDB amazonDynamoDB;
 
     public PlayerRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        amazonDynamoDB = AWSConfiguration.getAmazonDynamoDB();
+    }
+
+    public PlayerRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
     }
 
-    public List<Player> findById(Collection<String> playersId) {
-        List<Player> emptyPlayers = playersId.stream().map(playerId -> {
-            Player player = new Player();
-            player.setId(playerId);
-            return player;
-        }).collect(Collectors.toList());
-        Map<String, List<Object>> result = dynamoDBMapper.batchLoad(emptyPlayers);
-        return result.get("Player").stream()
-                .map(obj -> (Player) obj)
+    /**
+     * Reads a team's roster, ordered by id. Only the ids come from the TeamId-index, which is updated asynchronously; the
+     * players themselves are read consistently, so they're at least as recent as the team version already read, and a
+     * player the index still lists after a purchase moved it away is left out. A player that just joined the team may
+     * still be missing from the index, which the team's playerCount tells.
+     */
+    public List<Player> findByTeamId(String teamId) {
+        List<Map<String, AttributeValue>> keys = findKeysByTeamId(teamId);
+
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i += MAX_KEYS_PER_BATCH) {
+            players.addAll(PlayerSchema.fromItems(loadChunk(keys.subList(i, Math.min(i + MAX_KEYS_PER_BATCH, keys.size())))));
+        }
+        return players.stream()
+                .filter(player -> teamId.equals(player.getTeamId()))
+                .sorted(Comparator.comparing(Player::getId))
                 .collect(Collectors.toList());
     }
 
+    private List<Map<String, AttributeValue>> findKeysByTeamId(String teamId) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResult result = amazonDynamoDB.query(new QueryRequest()
+                    .withTableName(PlayerSchema.TABLE_NAME)
+                    .withIndexName(TEAM_INDEX)
+                    .withKeyConditionExpression("teamId = :teamId")
+                    .withProjectionExpression("id")
+                    .withExpressionAttributeValues(Map.of(":teamId", new AttributeValue().withS(teamId)))
+                    .withExclusiveStartKey(exclusiveStartKey));
+            result.getItems().forEach(item -> keys.add(PlayerSchema.key(item.get("id").getS())));
+            exclusiveStartKey = result.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+        return keys;
+    }
+
+    private List<Map<String, AttributeValue>> loadChunk(List<Map<String, AttributeValue>> keys) {
+        Map<String, KeysAndAttributes> requestItems = Map.of(PlayerSchema.TABLE_NAME, new KeysAndAttributes().withKeys(keys).withConsistentRead(true));
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        int attempt = 0;
+        while (requestItems != null && !requestItems.isEmpty()) {
+            if (attempt > MAX_RETRIES) {
+                throw new RuntimeException("Unable to load players: unprocessed keys remained after " + MAX_RETRIES + " retries");
+            }
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+            BatchGetItemResult result = amazonDynamoDB.batchGetItem(new BatchGetItemRequest().withRequestItems(requestItems));
+            items.addAll(result.getResponses().getOrDefault(PlayerSchema.TABLE_NAME, List.of()));
+            requestItems = result.getUnprocessedKeys();
+            attempt++;
+        }
+        return items;
+    }
+
+    private void backoff(int attempt) {
+        long maxDelay = BASE_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxDelay / 2, maxDelay + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading players", ex);
+        }
+    }
+
 }
@@ -1,19 +1,50 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamSchema;
+
+import java.util.Map;
 
 public class TeamRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    private final AmazonDynamoDB amazonDynamoDB;
 
     public TeamRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        amazonDynamoDB = AWSConfiguration.getAmazonDynamoDB();
+    }
+
+    public TeamRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
     }
 
+    /**
+     * Reads the team consistently, so a view rendered for a change of the team includes that change
+     */
     public Team findById(String id) {
-        return dynamoDBMapper.load(Team.class, id);
+        return TeamSchema.fromItem(amazonDynamoDB.getItem(new GetItemRequest()
+                        .withTableName(TeamSchema.TABLE_NAME)
+                        .withKey(TeamSchema.key(id))
+                        .withConsistentRead(true))
+                .getItem());
+    }
+
+    /**
+     * Reads only the team's version, returning null when there's no team with the given id
+     */
+    public Long findVersionById(String id) {
+        Map<String, AttributeValue> item = amazonDynamoDB.getItem(new GetItemRequest()
+                        .withTableName(TeamSchema.TABLE_NAME)
+                        .withKey(TeamSchema.key(id))
+                        .withProjectionExpression("id, #version")
+                        .withExpressionAttributeNames(Map.of("#version", "version")))
+                .getItem();
+        if (item == null) return null;
+        AttributeValue version = item.get("version");
+        return version == null ? 0 : Long.parseLong(version.getN());
     }
 
 }
@@ -0,0 +1,61 @@
+package com.luisguadagnin.soccermanager.repository;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.model.TeamView;
+import com.luisguadagnin.soccermanager.model.TeamViewSchema;
+
+import java.util.Map;
+
+public class TeamViewRepository {
+
+    private final AmazonDynamoDB amazonDynamoDB;
+
+    public TeamViewRepository() {
+        amazonDynamoDB = AWSConfiguration.getAmazonDynamoDB();
+    }
+
+    public TeamViewRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
+    }
+
+    public TeamView findById(String id) {
+        return TeamViewSchema.fromItem(amazonDynamoDB.getItem(TeamViewSchema.TABLE_NAME, TeamViewSchema.key(id)).getItem());
+    }
+
+    /**
+     * Reads only the view's version, leaving its body out, returning null when the team has no view yet
+     */
+    public Long findVersionById(String id) {
+        Map<String, AttributeValue> item = amazonDynamoDB.getItem(new GetItemRequest()
+                        .withTableName(TeamViewSchema.TABLE_NAME)
+                        .withKey(TeamViewSchema.key(id))
+                        .withProjectionExpression("id, #version")
+                        .withExpressionAttributeNames(Map.of("#version", "version")))
+                .getItem();
+        if (item == null) return null;
+        return Long.parseLong(item.get("version").getN());
+    }
+
+    /**
+     * Saves the view unless a more recent version of it is already stored, returning false in that case
+     */
+    public boolean save(TeamView teamView) {
+        try {
+            amazonDynamoDB.putItem(new PutItemRequest()
+                    .withTableName(TeamViewSchema.TABLE_NAME)
+                    .withItem(TeamViewSchema.toItem(teamView))
+                    .withConditionExpression("attribute_not_exists(id) OR #version <= :version")
+                    .withExpressionAttributeNames(Map.of("#version", "version"))
+                    .withExpressionAttributeValues(Map.of(":version", new AttributeValue().withN(Long.toString(teamView.getVersion())))));
+            return true;
+        } catch (ConditionalCheckFailedException ex) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.luisguadagnin.soccermanager.view;
+
+import com.luisguadagnin.soccermanager.dto.TeamResponseWriter;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamView;
+import com.luisguadagnin.soccermanager.repository.PlayerRepository;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.repository.TeamViewRepository;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Renders a team the way GET /team answers it and stores it as the team's view. The team and its players are read
+ * consistently, so the view is at least as recent as the write that triggered it, and the roster is only rendered once
+ * the TeamId-index, which only tells the players' ids, has caught up with the team's player count.
+ */
+public class TeamViewProjector {
+
+    private final TeamResponseWriter teamResponseWriter = new TeamResponseWriter();
+    private final TeamRepository teamRepository;
+    private final PlayerRepository playerRepository;
+    private final TeamViewRepository teamViewRepository;
+
+    public TeamViewProjector() {
+        this(new TeamRepository(), new PlayerRepository(), new TeamViewRepository());
+    }
+
+    public TeamViewProjector(TeamRepository teamRepository, PlayerRepository playerRepository, TeamViewRepository teamViewRepository) {
+        this.teamRepository = teamRepository;
+        this.playerRepository = playerRepository;
+        this.teamViewRepository = teamViewRepository;
+    }
+
+    /**
+     * Renders the team as it is now, returning null when there's no team with the given id
+     */
+    public TeamView render(String teamId) throws IOException {
+        Team team = teamRepository.findById(teamId);
+        if (team == null) return null;
+        List<Player> players = playerRepository.findByTeamId(teamId);
+        if (team.getPlayerCount() != null && team.getPlayerCount() != players.size()) {
+            throw new IllegalStateException("Roster of " + teamId + " is behind its player count, to be rendered again");
+        }
+        return new TeamView(team.getId(), team.getVersion(), teamResponseWriter.write(team, players).toString());
+    }
+
+    /**
+     * Renders and stores the team's view, returning false when there's no team or a more recent view was stored meanwhile
+     */
+    public boolean project(String teamId) throws IOException {
+        TeamView teamView = render(teamId);
+        return teamView != null && teamViewRepository.save(teamView);
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.luisguadagnin.soccermanager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.PlayerRepository;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.repository.TeamViewRepository;
+import com.luisguadagnin.soccermanager.runtime.BootstrapHarness;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serves HTTP API events through {@link BootstrapHarness}, on the JVM and, under mvn -Pnative verify,
+ * from the native executable.
+ */
+public class BootstrapTest {
+
+    private final BootstrapHarness bootstrapHarness;
+    private final TeamViewRepository teamViewRepository;
+    private final TeamRepository teamRepository;
+    private final PlayerRepository playerRepository;
+
+    public BootstrapTest() throws IOException {
+        this.bootstrapHarness = new BootstrapHarness();
+        this.teamViewRepository = mock(TeamViewRepository.class);
+        this.teamRepository = mock(TeamRepository.class);
+        this.playerRepository = mock(PlayerRepository.class);
+    }
+
+    @AfterEach
+    public void closeHarness() {
+        bootstrapHarness.close();
+    }
+
+    @Test
+    public void shouldGetTeamThroughRuntimeApi() throws Exception {
+        String username = "luis@guadagnin.com";
+        Team team = Team.builder()
+                .id(username)
+                .playerCount(1)
+                .value(Money.parse("1000000.00"))
+                .budget(Money.parse("5000000.00"))
+                .country("Brazil")
+                .name("The Avengers")
+                .build();
+        Player player = Player.builder()
+                .id("player-uuid-1")
+                .position(PlayerPosition.ATTACKER)
+                .country("Brazil")
+                .teamId(username)
+                .value(Money.parse("1000000.00"))
+                .firstName("John")
+                .lastName("Cena")
+                .age(23)
+                .build();
+
+        when(teamRepository.findById(username))
+                .thenReturn(team);
+        when(playerRepository.findByTeamId(username))
+                .thenReturn(List.of(player));
+
+        JsonNode response = bootstrapHarness.serve(new GetTeamHandler(teamViewRepository, teamRepository, playerRepository),
+                LambdaEvents.httpApi("GET", "/team", username, null, null, null));
+
+        JsonNode body = bootstrapHarness.body(response);
+        assertAll(
+                () -> assertEquals(200, response.get("statusCode").asInt()),
+                () -> assertEquals(username, body.get("id").asText()),
+                () -> assertEquals("Cena", body.get("players").get(0).get("lastName").asText())
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.executable", matches = ".+")
+    public void shouldAnswerFromNativeExecutable() throws Exception {
+        // without the authorizer's claims it's answered before reaching DynamoDB
+        JsonNode response = bootstrapHarness.serveNative(GetTeamHandler.class,
+                LambdaEvents.httpApi("GET", "/team", null, null, null, null));
+
+        assertEquals(500, response.get("statusCode").asInt());
+    }
+
+}
@@ -1,47 +1,112 @@
 package com.luisguadagnin.soccermanager;
 
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.model.Money;
 import com.luisguadagnin.soccermanager.model.Player;
 import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamView;
 import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
 import com.luisguadagnin.soccermanager.repository.PlayerRepository;
 import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.repository.TeamViewRepository;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class GetTeamHandlerTest {
 
+    private final TeamViewRepository teamViewRepository;
     private final TeamRepository teamRepository;
     private final PlayerRepository playerRepository;
     private final GetTeamHandler getTeamHandler;
 
     public GetTeamHandlerTest() {
+        this.teamViewRepository = mock(TeamViewRepository.class);
         this.teamRepository = mock(TeamRepository.class);
         this.playerRepository = mock(PlayerRepository.class);
-        this.getTeamHandler = new GetTeamHandler(teamRepository, playerRepository);
+        this.getTeamHandler = new GetTeamHandler(teamViewRepository, teamRepository, playerRepository);
+    }
+
+    @Test
+    public void shouldGetTeamFromItsView() {
+        String username = "username-test";
+        String body = "{\"id\":\"username-test\",\"name\":\"The Avengers\",\"country\":\"Brazil\",\"value\":\"0.00\",\"budget\":\"5000000.00\",\"players\":[]}";
+
+        when(teamViewRepository.findById(username))
+                .thenReturn(new TeamView(username, 3, body));
+
+        HttpApiResponse output = getTeamHandler.handleRequest(createInput(username), null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals(body, output.getBody()),
+                () -> assertEquals("\"3\"", output.getHeaders().get("ETag")),
+                () -> verify(teamRepository, never()).findById(any()),
+                () -> verify(playerRepository, never()).findByTeamId(any())
+        );
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedWhenTeamViewVersionMatches() {
+        String username = "username-test";
+        HttpApiRequest input = createInput(username).withIfNoneMatch("\"3\"");
+
+        when(teamViewRepository.findVersionById(username))
+                .thenReturn(3L);
+
+        HttpApiResponse output = getTeamHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(304, output.getStatusCode()),
+                () -> assertEquals("\"3\"", output.getHeaders().get("ETag")),
+                () -> assertNull(output.getBody()),
+                () -> verify(teamViewRepository, never()).findById(any()),
+                () -> verify(teamRepository, never()).findVersionById(any())
+        );
+    }
+
+    @Test
+    public void shouldGetTeamFromItsViewWhenTeamViewVersionChanged() {
+        String username = "username-test";
+        HttpApiRequest input = createInput(username).withIfNoneMatch("\"3\"");
+
+        when(teamViewRepository.findVersionById(username))
+                .thenReturn(4L);
+        when(teamViewRepository.findById(username))
+                .thenReturn(new TeamView(username, 4, "{}"));
+
+        HttpApiResponse output = getTeamHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals("{}", output.getBody()),
+                () -> assertEquals("\"4\"", output.getHeaders().get("ETag")),
+                () -> verify(teamRepository, never()).findVersionById(any())
+        );
     }
 
     @Test
     public void shouldGetTeamSuccessfully() {
         String username = "username-test";
-        APIGatewayProxyRequestEvent input = createInput(username);
+        HttpApiRequest input = createInput(username);
 
-        Set<String> playersIds = Set.of("player-uuid-1", "player-uuid-2", "player-uuid-3");
         Team team = Team.builder()
                 .id(username)
-                .playersId(playersIds)
-                .value("3000000.00")
-                .budget("5000000.00")
+                .playerCount(3)
+                .value(Money.parse("3000000.00"))
+                .budget(Money.parse("5000000.00"))
                 .country("Brazil")
                 .name("The Avengers")
                 .build();
@@ -51,7 +116,7 @@ public class GetTeamHandlerTest {
                         .position(PlayerPosition.ATTACKER)
                         .country("Brazil")
                         .teamId(username)
-                        .value("1000000.00")
+                        .value(Money.parse("1000000.00"))
                         .firstName("John")
                         .lastName("Cena")
                         .age(23)
@@ -61,7 +126,7 @@ public class GetTeamHandlerTest {
                         .position(PlayerPosition.ATTACKER)
                         .country("Brazil")
                         .teamId(username)
-                        .value("1000000.00")
+                        .value(Money.parse("1000000.00"))
                         .firstName("Johnny")
                         .lastName("Rotten")
                         .age(24)
@@ -71,7 +136,7 @@ public class GetTeamHandlerTest {
                         .position(PlayerPosition.ATTACKER)
                         .country("Brazil")
                         .teamId(username)
-                        .value("1000000.00")
+                        .value(Money.parse("1000000.00"))
                         .firstName("James")
                         .lastName("Hetfield")
                         .age(25)
@@ -80,10 +145,10 @@ public class GetTeamHandlerTest {
 
         when(teamRepository.findById(username))
                 .thenReturn(team);
-        when(playerRepository.findById(playersIds))
+        when(playerRepository.findByTeamId(username))
                 .thenReturn(players);
 
-        APIGatewayProxyResponseEvent output = getTeamHandler.handleRequest(input, null);
+        HttpApiResponse output = getTeamHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(200, output.getStatusCode()),
@@ -92,17 +157,177 @@ public class GetTeamHandlerTest {
                                 "{\"id\":\"player-uuid-2\",\"firstName\":\"Johnny\",\"lastName\":\"Rotten\",\"country\":\"Brazil\",\"age\":24,\"value\":\"1000000.00\",\"position\":\"ATTACKER\"}," +
                                 "{\"id\":\"player-uuid-3\",\"firstName\":\"James\",\"lastName\":\"Hetfield\",\"country\":\"Brazil\",\"age\":25,\"value\":\"1000000.00\",\"position\":\"ATTACKER\"}]}",
                         output.getBody()),
+                () -> assertEquals("\"0\"", output.getHeaders().get("ETag")),
                 () -> verify(teamRepository).findById(username),
-                () -> verify(playerRepository).findById(playersIds)
+                () -> verify(playerRepository).findByTeamId(username)
+        );
+
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedWhenTeamVersionMatches() {
+        String username = "username-test";
+        HttpApiRequest input = createInput(username).withIfNoneMatch("W/\"6\", \"7\"");
+
+        when(teamViewRepository.findVersionById(username))
+                .thenReturn(null);
+        when(teamRepository.findVersionById(username))
+                .thenReturn(7L);
+
+        HttpApiResponse output = getTeamHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(304, output.getStatusCode()),
+                () -> assertEquals("\"7\"", output.getHeaders().get("ETag")),
+                () -> assertNull(output.getBody()),
+                () -> verify(teamViewRepository, never()).findById(any()),
+                () -> verify(teamRepository, never()).findById(any()),
+                () -> verify(playerRepository, never()).findByTeamId(any())
+        );
+    }
+
+    @Test
+    public void shouldGetTeamWhenTeamVersionChanged() {
+        String username = "username-test";
+        HttpApiRequest input = createInput(username).withIfNoneMatch("\"7\"");
+        Team team = Team.builder()
+                .id(username)
+                .value(Money.parse("0.00"))
+                .budget(Money.parse("5000000.00"))
+                .country("Brazil")
+                .name("The Avengers")
+                .version(8)
+                .build();
+
+        when(teamViewRepository.findVersionById(username))
+                .thenReturn(null);
+        when(teamRepository.findVersionById(username))
+                .thenReturn(8L);
+        when(teamRepository.findById(username))
+                .thenReturn(team);
+        when(playerRepository.findByTeamId(username))
+                .thenReturn(List.of());
+
+        HttpApiResponse output = getTeamHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals("\"8\"", output.getHeaders().get("ETag"))
+        );
+    }
+
+    @Test
+    public void shouldReadRosterAgainWhenBehindPlayerCount() {
+        String username = "username-test";
+        Team team = buildTeamWithPlayerCount(username, 2);
+
+        when(teamRepository.findById(username))
+                .thenReturn(team);
+        when(playerRepository.findByTeamId(username))
+                .thenReturn(List.of(buildPlayer("player-1", username)))
+                .thenReturn(List.of(buildPlayer("player-1", username), buildPlayer("player-2", username)));
+
+        HttpApiResponse output = getTeamHandler.handleRequest(createInput(username), null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals("\"8\"", output.getHeaders().get("ETag")),
+                () -> verify(playerRepository, times(2)).findByTeamId(username)
+        );
+    }
+
+    @Test
+    public void shouldNotTagRosterStillBehindPlayerCount() {
+        String username = "username-test";
+        Team team = buildTeamWithPlayerCount(username, 2);
+
+        when(teamRepository.findById(username))
+                .thenReturn(team);
+        when(playerRepository.findByTeamId(username))
+                .thenReturn(List.of(buildPlayer("player-1", username)));
+
+        HttpApiResponse output = getTeamHandler.handleRequest(createInput(username), null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertNull(output.getHeaders().get("ETag")),
+                () -> assertEquals("no-store", output.getHeaders().get("Cache-Control")),
+                () -> verify(playerRepository, times(2)).findByTeamId(username)
+        );
+    }
+
+    @Test
+    public void shouldAnswerProvisioningWhenTeamIsNotSavedYet() {
+        String username = "username-test";
+        HttpApiRequest input = createInput(username);
+
+        when(teamRepository.findById(username))
+                .thenReturn(null);
+
+        HttpApiResponse output = getTeamHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(202, output.getStatusCode()),
+                () -> assertEquals("{ \"status\": \"PROVISIONING\" }", output.getBody()),
+                () -> verify(playerRepository, never()).findByTeamId(any())
         );
+    }
+
+    @Test
+    public void shouldGetTeamFromItsOwnRepositoriesAfterPrimingAndRestore() {
+        String username = "username-test";
+        Team team = Team.builder()
+                .id(username)
+                .value(Money.parse("0.00"))
+                .budget(Money.parse("5000000.00"))
+                .country("Brazil")
+                .name("The Avengers")
+                .build();
+
+        when(teamRepository.findById(username))
+                .thenReturn(team);
+        when(playerRepository.findByTeamId(username))
+                .thenReturn(List.of());
 
+        getTeamHandler.prime();
+        AWSConfiguration.refresh();
+        HttpApiResponse output = getTeamHandler.handleRequest(createInput(username), null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals("{\"id\":\"username-test\",\"name\":\"The Avengers\",\"country\":\"Brazil\",\"value\":\"0.00\",\"budget\":\"5000000.00\",\"players\":[]}",
+                        output.getBody()),
+                () -> verify(teamRepository).findById(username)
+        );
+    }
+
+    private Team buildTeamWithPlayerCount(String username, int playerCount) {
+        return Team.builder()
+                .id(username)
+                .value(Money.parse("2000000.00"))
+                .budget(Money.parse("5000000.00"))
+                .country("Brazil")
+                .name("The Avengers")
+                .playerCount(playerCount)
+                .version(8)
+                .build();
     }
 
-    private APIGatewayProxyRequestEvent createInput(String username) {
-        APIGatewayProxyRequestEvent.ProxyRequestContext context = new APIGatewayProxyRequestEvent.ProxyRequestContext();
-        context.setAuthorizer(Map.of("jwt", Map.of("claims", Map.of("username", username))));
+    private Player buildPlayer(String playerId, String teamId) {
+        return Player.builder()
+                .id(playerId)
+                .firstName("Tony")
+                .lastName("Stark")
+                .country("Brazil")
+                .age(30)
+                .value(Money.parse("1000000.00"))
+                .position(PlayerPosition.ATTACKER)
+                .teamId(teamId)
+                .build();
+    }
 
-        return new APIGatewayProxyRequestEvent()
-                .withRequestContext(context);
+    private HttpApiRequest createInput(String username) {
+        return new HttpApiRequest()
+                .withUsername(username);
     }
 }
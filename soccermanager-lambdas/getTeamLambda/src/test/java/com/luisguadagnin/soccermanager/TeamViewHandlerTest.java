@@ -0,0 +1,90 @@
+package com.luisguadagnin.soccermanager;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.view.TeamViewProjector;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TeamViewHandlerTest {
+
+    private final TeamViewProjector teamViewProjector;
+    private final TeamViewHandler teamViewHandler;
+
+    public TeamViewHandlerTest() {
+        this.teamViewProjector = mock(TeamViewProjector.class);
+        this.teamViewHandler = new TeamViewHandler(teamViewProjector);
+    }
+
+    @Test
+    public void shouldRenderEachChangedTeamOnce() throws IOException {
+        DynamodbEvent dynamodbEvent = createEvent(createRecord("team-a", "1"), createRecord("team-b", "2"), createRecord("team-a", "3"));
+
+        StreamsEventResponse response = teamViewHandler.handleRequest(dynamodbEvent, null);
+
+        assertAll(
+                () -> assertTrue(response.getBatchItemFailures().isEmpty()),
+                () -> verify(teamViewProjector, times(1)).project("team-a"),
+                () -> verify(teamViewProjector, times(1)).project("team-b")
+        );
+    }
+
+    @Test
+    public void shouldReportFailedTeamAndStopThere() throws IOException {
+        DynamodbEvent dynamodbEvent = createEvent(createRecord("team-a", "1"), createRecord("team-b", "2"), createRecord("team-c", "3"));
+
+        when(teamViewProjector.project("team-b"))
+                .thenThrow(new RuntimeException("Unable to load players"));
+
+        StreamsEventResponse response = teamViewHandler.handleRequest(dynamodbEvent, null);
+
+        assertAll(
+                () -> assertEquals(1, response.getBatchItemFailures().size()),
+                () -> assertEquals("2", response.getBatchItemFailures().get(0).getItemIdentifier()),
+                () -> verify(teamViewProjector).project("team-a"),
+                () -> verify(teamViewProjector, never()).project("team-c")
+        );
+    }
+
+    @Test
+    public void shouldRenderTeamThroughItsOwnProjectorAfterPrimingAndRestore() throws IOException {
+        teamViewHandler.prime();
+        AWSConfiguration.refresh();
+        StreamsEventResponse response = teamViewHandler.handleRequest(createEvent(createRecord("team-a", "1")), null);
+
+        assertAll(
+                () -> assertTrue(response.getBatchItemFailures().isEmpty()),
+                () -> verify(teamViewProjector).project("team-a")
+        );
+    }
+
+    private DynamodbEvent createEvent(DynamodbEvent.DynamodbStreamRecord... records) {
+        DynamodbEvent dynamodbEvent = new DynamodbEvent();
+        dynamodbEvent.setRecords(List.of(records));
+        return dynamodbEvent;
+    }
+
+    private DynamodbEvent.DynamodbStreamRecord createRecord(String teamId, String sequenceNumber) {
+        DynamodbEvent.DynamodbStreamRecord record = new DynamodbEvent.DynamodbStreamRecord();
+        record.setDynamodb(new StreamRecord()
+                .withKeys(Map.of("id", new AttributeValue().withS(teamId)))
+                .withSequenceNumber(sequenceNumber));
+        return record;
+    }
+
+}
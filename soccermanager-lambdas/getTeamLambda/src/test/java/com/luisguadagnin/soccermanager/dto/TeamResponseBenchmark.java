@@ -0,0 +1,100 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.http.HttpApiStreams;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The GET /team response of a 100-player team, from the entities to the bytes posted to the runtime: through the DTOs and
+ * ObjectMapper as the handler used to, against {@link TeamResponseWriter}. Run through {@link TeamResponseBenchmarkTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TeamResponseBenchmark {
+
+    private static final Map<String, String> HEADERS = Map.of("Content-Type", "application/json");
+
+    private final Team team = Team.builder()
+            .id("luis@guadagnin.com")
+            .name("São Paulo Lions")
+            .country("Brazil")
+            .value(Money.parse("100000000.00"))
+            .budget(Money.parse("5000000.00"))
+            .build();
+    private final List<Player> players = IntStream.range(0, 100)
+            .mapToObj(i -> Player.builder()
+                    .id(UUID.nameUUIDFromBytes(new byte[]{(byte) i}).toString())
+                    .firstName("Luis")
+                    .lastName("Guadagnin")
+                    .country("Brazil")
+                    .age(18 + i % 23)
+                    .value(Money.ofCents(100000000L + i))
+                    .position(PlayerPosition.values()[i % 4])
+                    .build())
+            .collect(Collectors.toList());
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TeamResponseWriter teamResponseWriter = new TeamResponseWriter();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(32768);
+
+    @Benchmark
+    public int dtos() throws IOException {
+        TeamResponse teamResponse = TeamResponse.builder()
+                .id(team.getId())
+                .budget(team.getBudget().toString())
+                .country(team.getCountry())
+                .name(team.getName())
+                .value(team.getValue().toString())
+                .players(players.stream()
+                        .map(player -> PlayerResponse.builder()
+                                .id(player.getId())
+                                .position(player.getPosition().toString())
+                                .age(player.getAge())
+                                .country(player.getCountry())
+                                .firstName(player.getFirstName())
+                                .lastName(player.getLastName())
+                                .value(player.getValue().toString())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+        return respond(new HttpApiResponse().withBody(objectMapper.writeValueAsString(teamResponse)));
+    }
+
+    @Benchmark
+    public int writer() throws IOException {
+        return respond(new HttpApiResponse().withBody(teamResponseWriter.write(team, players)));
+    }
+
+    private int respond(HttpApiResponse response) throws IOException {
+        output.reset();
+        HttpApiStreams.writeResponse(response.withStatusCode(200).withHeaders(HEADERS), output);
+        return output.size();
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link TeamResponseBenchmark} with JMH; gc.alloc.rate.norm is the bytes allocated per response. Run with RUN_BENCHMARKS=true mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+public class TeamResponseBenchmarkTest {
+
+    @Test
+    public void reportResponseWritingCost() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(TeamResponseBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+
+        assertEquals(2, results.size());
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The golden files hold what the ObjectMapper wrote from the TeamResponse and PlayerResponse DTOs for the same teams
+ */
+public class TeamResponseWriterTest {
+
+    private final TeamResponseWriter teamResponseWriter = new TeamResponseWriter();
+
+    @Test
+    public void shouldWriteTeamAsTheDtosDid() throws IOException {
+        Team team = Team.builder()
+                .id("luis@guadagnin.com")
+                .name("São Paulo \"Lions\" \\ FC")
+                .country("Brazil")
+                .value(Money.parse("2500000.05"))
+                .budget(Money.parse("-0.50"))
+                .build();
+        List<Player> players = List.of(
+                player("3f1e4c9a-6a44-4b86-8f3a-7f6a1f0d2b11", "Zoë", "O'Brien\tJr.", "Côte d'Ivoire", 18, "1000000.00", PlayerPosition.GOALKEEPER),
+                player("9b2d7c55-0e3f-4a51-a3a8-51c0e4f2e7d4", "José", "Nuñez", null, 40, "0.07", PlayerPosition.DEFENDER),
+                player("c0ffee00-0000-4000-8000-000000000000", "Line\nBreak", "🙂 Emoji", "日本", 27, "1500000.50", PlayerPosition.ATTACKER));
+
+        assertEquals(golden("team.json"), teamResponseWriter.write(team, players).toString());
+    }
+
+    @Test
+    public void shouldWriteTeamWithoutPlayersAsTheDtosDid() throws IOException {
+        Team team = Team.builder()
+                .id("empty@guadagnin.com")
+                .country("Brazil")
+                .value(Money.ZERO)
+                .budget(Money.parse("5000000.00"))
+                .build();
+
+        assertEquals(golden("team-without-players.json"), teamResponseWriter.write(team, List.of()).toString());
+    }
+
+    @Test
+    public void shouldReuseTheBufferForTheNextTeam() throws IOException {
+        Team team = Team.builder().id("luis@guadagnin.com").name("Lions").value(Money.ZERO).budget(Money.ZERO).build();
+        teamResponseWriter.write(team, List.of(player("player-uuid", "John", "Cena", "Brazil", 23, "1000000.00", PlayerPosition.ATTACKER)));
+
+        assertEquals("{\"id\":\"luis@guadagnin.com\",\"name\":\"Lions\",\"country\":null,\"value\":\"0.00\",\"budget\":\"0.00\",\"players\":[]}",
+                teamResponseWriter.write(team, List.of()).toString());
+    }
+
+    private static Player player(String id, String firstName, String lastName, String country, int age, String value, PlayerPosition position) {
+        return Player.builder()
+                .id(id)
+                .firstName(firstName)
+                .lastName(lastName)
+                .country(country)
+                .age(age)
+                .value(Money.parse(value))
+                .position(position)
+                .build();
+    }
+
+    private static String golden(String name) throws IOException {
+        try (InputStream input = TeamResponseWriterTest.class.getResourceAsStream(name)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
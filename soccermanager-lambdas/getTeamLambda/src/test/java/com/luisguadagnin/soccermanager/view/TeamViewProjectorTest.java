@@ -0,0 +1,150 @@
+package com.luisguadagnin.soccermanager.view;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamView;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.PlayerRepository;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.repository.TeamViewRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TeamViewProjectorTest {
+
+    private final TeamRepository teamRepository;
+    private final PlayerRepository playerRepository;
+    private final TeamViewRepository teamViewRepository;
+    private final TeamViewProjector teamViewProjector;
+
+    public TeamViewProjectorTest() {
+        this.teamRepository = mock(TeamRepository.class);
+        this.playerRepository = mock(PlayerRepository.class);
+        this.teamViewRepository = mock(TeamViewRepository.class);
+        this.teamViewProjector = new TeamViewProjector(teamRepository, playerRepository, teamViewRepository);
+    }
+
+    @Test
+    public void shouldSaveRosterRenderedAtTeamVersion() throws IOException {
+        String teamId = "username-test";
+
+        when(teamRepository.findById(teamId))
+                .thenReturn(buildTeam(teamId, 1));
+        when(playerRepository.findByTeamId(teamId))
+                .thenReturn(List.of(buildPlayer(teamId)));
+        when(teamViewRepository.save(any()))
+                .thenReturn(true);
+
+        boolean saved = teamViewProjector.project(teamId);
+
+        assertAll(
+                () -> assertTrue(saved),
+                () -> verify(teamViewRepository).save(new TeamView(teamId, 4,
+                        "{\"id\":\"username-test\",\"name\":\"The Avengers\",\"country\":\"Brazil\",\"value\":\"1000000.00\",\"budget\":\"5000000.00\",\"players\":[" +
+                                "{\"id\":\"player-uuid-1\",\"firstName\":\"John\",\"lastName\":\"Cena\",\"country\":\"Brazil\",\"age\":23,\"value\":\"1000000.00\",\"position\":\"ATTACKER\"}]}"))
+        );
+    }
+
+    @Test
+    public void shouldNotRenderRosterBehindPlayerCount() {
+        String teamId = "username-test";
+
+        when(teamRepository.findById(teamId))
+                .thenReturn(buildTeam(teamId, 2));
+        when(playerRepository.findByTeamId(teamId))
+                .thenReturn(List.of(buildPlayer(teamId)));
+
+        assertAll(
+                () -> assertThrows(IllegalStateException.class, () -> teamViewProjector.project(teamId)),
+                () -> verify(teamViewRepository, never()).save(any())
+        );
+    }
+
+    @Test
+    public void shouldRenderPlayersReadConsistentlyOverOutdatedIndex() throws IOException {
+        String teamId = "username-test";
+        AmazonDynamoDB amazonDynamoDB = mock(AmazonDynamoDB.class);
+        TeamViewProjector projector = new TeamViewProjector(teamRepository, new PlayerRepository(amazonDynamoDB), teamViewRepository);
+        Player renamed = buildPlayer(teamId, "Dwayne", "Johnson");
+
+        when(teamRepository.findById(teamId))
+                .thenReturn(buildTeam(teamId, 1));
+        when(amazonDynamoDB.query(any(QueryRequest.class)))
+                .thenReturn(new QueryResult().withItems(List.of(PlayerSchema.toItem(buildPlayer(teamId))))); // the name before PUT /player
+        when(amazonDynamoDB.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(new BatchGetItemResult()
+                        .withResponses(Map.of(PlayerSchema.TABLE_NAME, List.of(PlayerSchema.toItem(renamed))))
+                        .withUnprocessedKeys(Map.of()));
+        when(teamViewRepository.save(any()))
+                .thenReturn(true);
+
+        projector.project(teamId);
+
+        assertAll(
+                () -> verify(amazonDynamoDB).batchGetItem(argThat((BatchGetItemRequest request) ->
+                        request.getRequestItems().get(PlayerSchema.TABLE_NAME).getConsistentRead())),
+                () -> verify(teamViewRepository).save(new TeamView(teamId, 4,
+                        "{\"id\":\"username-test\",\"name\":\"The Avengers\",\"country\":\"Brazil\",\"value\":\"1000000.00\",\"budget\":\"5000000.00\",\"players\":[" +
+                                "{\"id\":\"player-uuid-1\",\"firstName\":\"Dwayne\",\"lastName\":\"Johnson\",\"country\":\"Brazil\",\"age\":23,\"value\":\"1000000.00\",\"position\":\"ATTACKER\"}]}"))
+        );
+    }
+
+    @Test
+    public void shouldSkipMissingTeam() throws IOException {
+        assertAll(
+                () -> assertFalse(teamViewProjector.project("username-test")),
+                () -> verify(teamViewRepository, never()).save(any())
+        );
+    }
+
+    private Team buildTeam(String teamId, int playerCount) {
+        return Team.builder()
+                .id(teamId)
+                .name("The Avengers")
+                .country("Brazil")
+                .value(Money.parse("1000000.00"))
+                .budget(Money.parse("5000000.00"))
+                .playerCount(playerCount)
+                .version(4)
+                .build();
+    }
+
+    private Player buildPlayer(String teamId) {
+        return buildPlayer(teamId, "John", "Cena");
+    }
+
+    private Player buildPlayer(String teamId, String firstName, String lastName) {
+        return Player.builder()
+                .id("player-uuid-1")
+                .position(PlayerPosition.ATTACKER)
+                .country("Brazil")
+                .teamId(teamId)
+                .value(Money.parse("1000000.00"))
+                .firstName(firstName)
+                .lastName(lastName)
+                .age(23)
+                .build();
+    }
+
+}
@@ -1,64 +1,93 @@
 package com.luisguadagnin.soccermanager;
 
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidp.AbstractAWSCognitoIdentityProvider;
 import com.amazonaws.services.cognitoidp.model.AWSCognitoIdentityProviderException;
+import com.amazonaws.services.cognitoidp.model.AdminInitiateAuthRequest;
+import com.amazonaws.services.cognitoidp.model.AdminInitiateAuthResult;
+import com.amazonaws.services.cognitoidp.model.AuthenticationResultType;
 import com.amazonaws.services.lambda.runtime.Context;
-import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.amazonaws.util.StringUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.luisguadagnin.soccermanager.clients.CognitoClient;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.dto.UserData;
 import com.luisguadagnin.soccermanager.exception.BadRequestException;
+import com.luisguadagnin.soccermanager.http.HttpApiHandler;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.priming.Priming;
 
 import java.util.Map;
 
-public class LoginHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+public class LoginHandler extends HttpApiHandler {
 
     private final ObjectMapper objectMapper;
 
     private final CognitoClient cognitoClient;
 
+
     public LoginHandler() {
         this.objectMapper = new ObjectMapper();
         this.cognitoClient = new CognitoClient();
+        Priming.register(this::prime, AWSConfiguration::refresh);
     }
 
     LoginHandler(CognitoClient cognitoClient) {
-        this.objectMapper = new ObjectMapper();
+        this(new ObjectMapper(), cognitoClient);
+    }
+
+    private LoginHandler(ObjectMapper objectMapper, CognitoClient cognitoClient) {
+        this.objectMapper = objectMapper;
         this.cognitoClient = cognitoClient;
     }
 
+    /* Logs in against a stub user pool through this handler's ObjectMapper, so its deserializers are cached in the snapshot too */
+    void prime() {
+        AWSCognitoIdentityProvider primingCognito = new AbstractAWSCognitoIdentityProvider() {
+            @Override
+            public AdminInitiateAuthResult adminInitiateAuth(AdminInitiateAuthRequest request) {
+                return new AdminInitiateAuthResult().withAuthenticationResult(new AuthenticationResultType().withAccessToken("priming-token"));
+            }
+        };
+        LoginHandler primingHandler = new LoginHandler(objectMapper, new CognitoClient(primingCognito));
+
+        HttpApiResponse response = primingHandler.invoke(new HttpApiRequest()
+                .withBody("{ \"email\": \"priming@soccermanager.local\", \"password\": \"priming\" }"));
+
+        Priming.checkStatusCode(200, response.getStatusCode());
+    }
+
     @Override
-    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent, Context context) {
+    public HttpApiResponse handleRequest(HttpApiRequest request, Context context) {
         String responseToken;
         try {
-            responseToken = auth(apiGatewayProxyRequestEvent);
+            responseToken = auth(request);
         } catch (BadRequestException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse(ex.getMessage()))
                     .withStatusCode(400);
         } catch (AWSCognitoIdentityProviderException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse("Invalid credentials"))
                     .withStatusCode(404);
         } catch (Exception ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse("Internal server error"))
                     .withStatusCode(500);
         }
 
-        return new APIGatewayProxyResponseEvent()
+        return new HttpApiResponse()
                 .withHeaders(Map.of("Authorization", "Bearer " + responseToken))
                 .withStatusCode(200);
     }
 
-    private String auth(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) {
-        UserData userData = convertInput(apiGatewayProxyRequestEvent.getBody());
+    private String auth(HttpApiRequest request) {
+        UserData userData = convertInput(request.getBody());
 
         validateUserData(userData);
 
@@ -20,6 +20,10 @@ public class CognitoClient {
                 .build();
     }
 
+    public CognitoClient(AWSCognitoIdentityProvider awsCognitoIdentityProvider) {
+        this.awsCognitoIdentityProvider = awsCognitoIdentityProvider;
+    }
+
     public String auth(String email, String password) {
         AdminInitiateAuthRequest adminInitiateAuthRequest = new AdminInitiateAuthRequest()
                 .withUserPoolId(AWSConfiguration.getCognitoUserPoolId())
@@ -2,7 +2,6 @@ package com.luisguadagnin.soccermanager.configuration;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicSessionCredentials;
 
 public class AWSConfiguration {
@@ -53,13 +52,37 @@ public class AWSConfiguration {
         return awsCredentials;
     }
 
+    /**
+     * Clients keep this provider, so credentials dropped by {@link #refresh()} are read again on their next request
+     */
     public static AWSCredentialsProvider getAwsCredentialsProvider() {
         if (awsCredentialsProvider == null) {
-            awsCredentialsProvider = new AWSStaticCredentialsProvider(getAwsCredentials());
+            awsCredentialsProvider = new AWSCredentialsProvider() {
+                @Override
+                public AWSCredentials getCredentials() {
+                    return getAwsCredentials();
+                }
+
+                @Override
+                public void refresh() {
+                    AWSConfiguration.refresh();
+                }
+            };
         }
         return awsCredentialsProvider;
     }
 
+    /**
+     * Drops the credentials read from the environment, which belong to the environment that took a snapshot
+     * and must be read again once it is restored
+     */
+    public static void refresh() {
+        awsAccessKeyId = null;
+        awsSecretKey = null;
+        awsSessionToken = null;
+        awsCredentials = null;
+    }
+
     public static String getCognitoUserPoolId() {
         if (cognitoUserPoolId == null) {
             cognitoUserPoolId = System.getenv("COGNITO_USER_POOL_ID");
@@ -0,0 +1,70 @@
+package com.luisguadagnin.soccermanager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.luisguadagnin.soccermanager.clients.CognitoClient;
+import com.luisguadagnin.soccermanager.runtime.BootstrapHarness;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serves HTTP API events through {@link BootstrapHarness}, on the JVM and, under mvn -Pnative verify,
+ * from the native executable.
+ */
+public class BootstrapTest {
+
+    private final BootstrapHarness bootstrapHarness;
+    private final CognitoClient cognitoClient;
+
+    public BootstrapTest() throws IOException {
+        this.bootstrapHarness = new BootstrapHarness();
+        this.cognitoClient = mock(CognitoClient.class);
+    }
+
+    @AfterEach
+    public void closeHarness() {
+        bootstrapHarness.close();
+    }
+
+    @Test
+    public void shouldLoginThroughRuntimeApi() throws Exception {
+        String email = "luis@guadagnin.com";
+        String password = "123456";
+        String authToken = "eyLasoinfdaonaonsdaonsdagax";
+
+        when(cognitoClient.auth(email, password))
+                .thenReturn(authToken);
+
+        JsonNode response = bootstrapHarness.serve(new LoginHandler(cognitoClient),
+                LambdaEvents.httpApi("POST", "/login", null, null, null,
+                        "{\"email\": \"" + email + "\", \"password\": \"" + password + "\"}"));
+
+        assertAll(
+                () -> assertEquals(200, response.get("statusCode").asInt()),
+                () -> assertEquals("Bearer " + authToken, response.get("headers").get("Authorization").asText())
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.executable", matches = ".+")
+    public void shouldAnswerFromNativeExecutable() throws Exception {
+        // the body is read into LoginRequest, then rejected before reaching Cognito
+        JsonNode response = bootstrapHarness.serveNative(LoginHandler.class,
+                LambdaEvents.httpApi("POST", "/login", null, null, null,
+                        "{\"email\": \"luis@guadagnin.com\"}"));
+
+        assertAll(
+                () -> assertEquals(400, response.get("statusCode").asInt()),
+                () -> assertEquals("{ \"message\": \"\"password\" field is empty\" }", response.get("body").asText())
+        );
+    }
+
+}
@@ -1,14 +1,16 @@
 package com.luisguadagnin.soccermanager;
 
 import com.amazonaws.services.cognitoidp.model.UserNotFoundException;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.luisguadagnin.soccermanager.clients.CognitoClient;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class LoginHandlerTest {
@@ -25,7 +27,7 @@ public class LoginHandlerTest {
     public void shouldLoginSuccessfully() {
         String email = "luis@guadagnin.com";
         String password = "123456";
-        APIGatewayProxyRequestEvent input = createInput("{" +
+        HttpApiRequest input = createInput("{" +
                 "  \"email\": \"" + email + "\"," +
                 "  \"password\": \"" + password + "\"" +
                 "}");
@@ -34,7 +36,7 @@ public class LoginHandlerTest {
         when(cognitoClient.auth(email, password))
                 .thenReturn(authToken);
 
-        APIGatewayProxyResponseEvent output = loginHandler.handleRequest(input, null);
+        HttpApiResponse output = loginHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(200, output.getStatusCode()),
@@ -46,7 +48,7 @@ public class LoginHandlerTest {
     public void shouldFailToLoginWhenUserDoesNotExist() {
         String email = "luis@guadagnin.com";
         String password = "123456";
-        APIGatewayProxyRequestEvent input = createInput("{" +
+        HttpApiRequest input = createInput("{" +
                 "  \"email\": \"" + email + "\"," +
                 "  \"password\": \"" + password + "\"" +
                 "}");
@@ -54,15 +56,38 @@ public class LoginHandlerTest {
         when(cognitoClient.auth(email, password))
                 .thenThrow(new UserNotFoundException("error message"));
 
-        APIGatewayProxyResponseEvent output = loginHandler.handleRequest(input, null);
+        HttpApiResponse output = loginHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(404, output.getStatusCode())
         );
     }
 
-    private APIGatewayProxyRequestEvent createInput(String body) {
-        return new APIGatewayProxyRequestEvent()
+    @Test
+    public void shouldLoginThroughItsOwnClientAfterPrimingAndRestore() {
+        String email = "luis@guadagnin.com";
+        String password = "123456";
+        HttpApiRequest input = createInput("{" +
+                "  \"email\": \"" + email + "\"," +
+                "  \"password\": \"" + password + "\"" +
+                "}");
+
+        when(cognitoClient.auth(email, password))
+                .thenReturn("eyLasoinfdaonaonsdaonsdagax");
+
+        loginHandler.prime();
+        AWSConfiguration.refresh();
+        HttpApiResponse output = loginHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals("Bearer eyLasoinfdaonaonsdaonsdagax", output.getHeaders().get("Authorization")),
+                () -> verify(cognitoClient).auth(email, password)
+        );
+    }
+
+    private HttpApiRequest createInput(String body) {
+        return new HttpApiRequest()
                 .withBody(body);
     }
 }
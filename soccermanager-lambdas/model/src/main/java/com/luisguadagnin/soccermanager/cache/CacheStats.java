@@ -0,0 +1,33 @@
+package com.luisguadagnin.soccermanager.cache;
+
+import lombok.Data;
+
+@Data
+public class CacheStats {
+
+    static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, 0);
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final int size;
+    private final long weight;
+
+    public long requests() {
+        return hits + misses;
+    }
+
+    public double hitRate() {
+        return requests() == 0 ? 0 : (double) hits / requests();
+    }
+
+    /**
+     * The counters accumulated since the earlier stats, with the current size and weight
+     */
+    public CacheStats since(CacheStats earlier) {
+        return new CacheStats(hits - earlier.hits, misses - earlier.misses, evictions - earlier.evictions,
+                expirations - earlier.expirations, size, weight);
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.luisguadagnin.soccermanager.cache;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * A counter bumped after every write that changes what an offer search returns, so cached search pages can be told apart from
+ * the current market. It's the sum of MARKET_VERSION_SHARDS items of the MarketVersion table, each bump adding to one of them.
+ */
+public class MarketVersion {
+
+    public static final String TABLE_NAME = "MarketVersion";
+    public static final String ITEM_ID_PREFIX = "shard-";
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(Optional.ofNullable(System.getenv("MARKET_VERSION_POLL_MILLIS"))
+            .map(Long::parseLong)
+            .orElse(1000L));
+    private static final int SHARDS = Optional.ofNullable(System.getenv("MARKET_VERSION_SHARDS"))
+            .map(Integer::parseInt)
+            .orElse(10);
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final int shards;
+    private final long pollIntervalNanos;
+    private final LongSupplier nanoClock;
+
+    private boolean read;
+    private long version;
+    private long readAt;
+
+    public MarketVersion(AmazonDynamoDB amazonDynamoDB) {
+        this(amazonDynamoDB, SHARDS, POLL_INTERVAL, System::nanoTime);
+    }
+
+    MarketVersion(AmazonDynamoDB amazonDynamoDB, int shards, Duration pollInterval, LongSupplier nanoClock) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.shards = shards;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public static String itemId(int shard) {
+        return ITEM_ID_PREFIX + shard;
+    }
+
+    /**
+     * To be called once the write is done, outside its transaction: writers share these items, which would make
+     * concurrent transactions conflict with each other
+     */
+    public void bump() {
+        try {
+            amazonDynamoDB.updateItem(new UpdateItemRequest()
+                    .withTableName(TABLE_NAME)
+                    .withKey(key(ThreadLocalRandom.current().nextInt(shards)))
+                    .withUpdateExpression("ADD #version :one")
+                    .withExpressionAttributeNames(Map.of("#version", "version"))
+                    .withExpressionAttributeValues(Map.of(":one", new AttributeValue().withN("1"))));
+        } catch (SdkClientException ex) {
+            // the write itself went through, pages cached in the meantime still expire with their TTL
+        }
+    }
+
+    /**
+     * The version read last, read again once older than the poll interval, so it lags behind writes by up to that interval
+     */
+    public synchronized long current() {
+        long now = nanoClock.getAsLong();
+        if (!read || now - readAt >= pollIntervalNanos) {
+            version = readSum();
+            read = true;
+            readAt = now;
+        }
+        return version;
+    }
+
+    /* All shards in a single BatchGetItem, items never bumped yet count as zero */
+    private long readSum() {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) keys.add(key(shard));
+        Map<String, KeysAndAttributes> requestItems = Map.of(TABLE_NAME, new KeysAndAttributes()
+                .withKeys(keys)
+                .withProjectionExpression("#version")
+                .withExpressionAttributeNames(Map.of("#version", "version")));
+
+        long sum = 0;
+        while (requestItems != null && !requestItems.isEmpty()) {
+            BatchGetItemResult result = amazonDynamoDB.batchGetItem(new BatchGetItemRequest().withRequestItems(requestItems));
+            for (Map<String, AttributeValue> item : result.getResponses().getOrDefault(TABLE_NAME, List.of())) {
+                AttributeValue shardVersion = item.get("version");
+                if (shardVersion != null) sum += Long.parseLong(shardVersion.getN());
+            }
+            requestItems = result.getUnprocessedKeys();
+        }
+        return sum;
+    }
+
+    private static Map<String, AttributeValue> key(int shard) {
+        return Map.of("id", new AttributeValue().withS(itemId(shard)));
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.luisguadagnin.soccermanager.cache;
+
+import com.luisguadagnin.soccermanager.http.EmbeddedMetrics;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A read-through cache local to the Lambda container, whose entries expire after a TTL and are evicted, least recently used
+ * first, once their total weight goes over a budget. Concurrent misses on the same key share a single load.
+ * Writes from other containers are only seen once the entry expires, so writes must still be conditioned on what was read.
+ */
+public class ReadThroughCache<K, V> {
+
+    private static final long PUBLISH_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+    private final long ttlNanos;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<K, CompletableFuture<V>> loads = new HashMap<>();
+    private final EmbeddedMetrics metrics = new EmbeddedMetrics();
+
+    private long weight;
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private CacheStats published = CacheStats.EMPTY;
+    private long publishedAt;
+
+    public ReadThroughCache(String name, Duration ttl, long maxWeight, ToLongFunction<V> weigher) {
+        this(name, ttl, maxWeight, weigher, System::nanoTime);
+    }
+
+    ReadThroughCache(String name, Duration ttl, long maxWeight, ToLongFunction<V> weigher, LongSupplier nanoClock) {
+        this.name = name;
+        this.ttlNanos = ttl.toNanos();
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.nanoClock = nanoClock;
+        this.publishedAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * Returns the cached value, or loads and caches it. Null values, i.e. missing items, aren't cached.
+     */
+    public V get(K key, Function<K, V> loader) {
+        long loadVersion;
+        long loadStartedAt;
+        CompletableFuture<V> load;
+        boolean loading;
+        synchronized (this) {
+            loadStartedAt = nanoClock.getAsLong();
+            publishIfDue(loadStartedAt);
+            Entry<V> entry = entries.get(key);
+            if (entry != null && loadStartedAt - entry.loadedAt < ttlNanos) {
+                hits++;
+                return entry.value;
+            }
+            if (entry != null) {
+                remove(key);
+                expirations++;
+            }
+            loadVersion = version;
+            load = loads.get(key);
+            loading = load == null;
+            if (loading) {
+                misses++;
+                load = new CompletableFuture<>();
+                loads.put(key, load);
+            } else {
+                hits++; // served by the load another request started
+            }
+        }
+        if (!loading) return join(load);
+
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error ex) {
+            finishLoad(key, load);
+            load.completeExceptionally(ex);
+            throw ex;
+        }
+        finishLoad(key, load);
+        if (value != null) store(key, value, loadVersion, loadStartedAt);
+        load.complete(value);
+        return value;
+    }
+
+    /**
+     * Drops the cached value, to be called on every write of the item made by this container
+     */
+    public synchronized void invalidate(K key) {
+        version++;
+        remove(key);
+        loads.remove(key); // later reads mustn't wait for a load that may predate the write
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, expirations, entries.size(), weight);
+    }
+
+    private synchronized void store(K key, V value, long loadVersion, long loadedAt) {
+        if (loadVersion != version) return; // invalidated while loading, the value may predate the write
+        long valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maxWeight) return;
+
+        Entry<V> previous = entries.put(key, new Entry<>(value, valueWeight, loadedAt));
+        if (previous != null) weight -= previous.weight;
+        weight += valueWeight;
+
+        Iterator<Entry<V>> leastRecentlyUsed = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= leastRecentlyUsed.next().weight;
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    private synchronized void finishLoad(K key, CompletableFuture<V> load) {
+        loads.remove(key, load);
+    }
+
+    private V join(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error) throw (Error) ex.getCause();
+            throw ex;
+        }
+    }
+
+    private void remove(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) weight -= removed.weight;
+    }
+
+    /* Logs the counters of the last minute as metrics */
+    private void publishIfDue(long now) {
+        if (now - publishedAt < PUBLISH_INTERVAL_NANOS) return;
+        CacheStats current = stats();
+        CacheStats interval = current.since(published);
+        published = current;
+        publishedAt = now;
+        if (interval.requests() == 0) return;
+
+        metrics.line()
+                .dimension("Cache", name)
+                .count("CacheHits", interval.getHits())
+                .count("CacheMisses", interval.getMisses())
+                .count("CacheEvictions", interval.getEvictions())
+                .metric("CacheHitRate", "Percent", interval.hitRate() * 100)
+                .publish();
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long weight;
+        private final long loadedAt;
+
+        Entry(V value, long weight, long loadedAt) {
+            this.value = value;
+            this.weight = weight;
+            this.loadedAt = loadedAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.luisguadagnin.soccermanager.generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Names and countries of generated teams and players, drawn like Faker's English locale does (a first name is as likely to
+ * come from the female list as from the male one, a team is named after a US state and a creature) but from plain word lists
+ * loaded once per class loader, so nothing has to parse Faker's YAML files on a cold start.
+ */
+public class NameGenerator {
+
+    private static final String[] MALE_FIRST_NAMES = load("male-first-names.txt");
+    private static final String[] FEMALE_FIRST_NAMES = load("female-first-names.txt");
+    private static final String[] LAST_NAMES = load("last-names.txt");
+    private static final String[] COUNTRIES = load("countries.txt");
+    private static final String[] STATES = load("states.txt");
+    private static final String[] CREATURES = load("creatures.txt");
+
+    private final SplittableRandom random;
+
+    public NameGenerator(SplittableRandom random) {
+        this.random = random;
+    }
+
+    public String firstName() {
+        return pick(random.nextBoolean() ? FEMALE_FIRST_NAMES : MALE_FIRST_NAMES);
+    }
+
+    public String lastName() {
+        return pick(LAST_NAMES);
+    }
+
+    public String country() {
+        return pick(COUNTRIES);
+    }
+
+    public String teamName() {
+        return pick(STATES) + " " + pick(CREATURES);
+    }
+
+    private String pick(String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private static String[] load(String resource) {
+        try (InputStream inputStream = NameGenerator.class.getResourceAsStream(resource);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .map(String::intern)
+                    .toArray(String[]::new);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
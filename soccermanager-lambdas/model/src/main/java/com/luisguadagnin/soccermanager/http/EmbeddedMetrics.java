@@ -0,0 +1,111 @@
+package com.luisguadagnin.soccermanager.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Logs metrics in CloudWatch embedded metric format, which CloudWatch turns into metrics of the SoccerManager namespace.
+ * Each line is started by {@link #line()} and written by {@link #publish()}, reusing the same buffer, so an instance must
+ * not be shared by threads writing at the same time.
+ * <pre>
+ * metrics.line().dimension("Cache", "players").count("CacheHits", hits).publish();
+ * </pre>
+ */
+public final class EmbeddedMetrics {
+
+    private static final String NAMESPACE = "SoccerManager";
+
+    private final PrintStream out;
+    private final JsonBody body = new JsonBody();
+    private final List<String> dimensionNames = new ArrayList<>();
+    private final List<String> dimensionValues = new ArrayList<>();
+    private final List<String> metricNames = new ArrayList<>();
+    private final List<String> metricUnits = new ArrayList<>();
+    private final List<Number> metricValues = new ArrayList<>();
+
+    public EmbeddedMetrics() {
+        this(System.out);
+    }
+
+    public EmbeddedMetrics(PrintStream out) {
+        this.out = out;
+    }
+
+    public EmbeddedMetrics line() {
+        dimensionNames.clear();
+        dimensionValues.clear();
+        metricNames.clear();
+        metricUnits.clear();
+        metricValues.clear();
+        return this;
+    }
+
+    public EmbeddedMetrics dimension(String name, String value) {
+        dimensionNames.add(name);
+        dimensionValues.add(value);
+        return this;
+    }
+
+    public EmbeddedMetrics count(String name, long value) {
+        return metric(name, "Count", value);
+    }
+
+    public EmbeddedMetrics metric(String name, String unit, Number value) {
+        metricNames.add(name);
+        metricUnits.add(unit);
+        metricValues.add(value);
+        return this;
+    }
+
+    public void publish() {
+        try (JsonGenerator generator = body.start()) {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("_aws");
+            generator.writeNumberField("Timestamp", System.currentTimeMillis());
+            generator.writeArrayFieldStart("CloudWatchMetrics");
+            generator.writeStartObject();
+            generator.writeStringField("Namespace", NAMESPACE);
+            generator.writeArrayFieldStart("Dimensions");
+            generator.writeStartArray();
+            for (String dimensionName : dimensionNames) generator.writeString(dimensionName);
+            generator.writeEndArray();
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("Metrics");
+            for (int i = 0; i < metricNames.size(); i++) {
+                generator.writeStartObject();
+                generator.writeStringField("Name", metricNames.get(i));
+                generator.writeStringField("Unit", metricUnits.get(i));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+            for (int i = 0; i < dimensionNames.size(); i++) {
+                generator.writeStringField(dimensionNames.get(i), dimensionValues.get(i));
+            }
+            for (int i = 0; i < metricNames.size(); i++) {
+                generator.writeFieldName(metricNames.get(i));
+                writeNumber(generator, metricValues.get(i));
+            }
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        out.println(body);
+    }
+
+    private static void writeNumber(JsonGenerator generator, Number value) throws IOException {
+        if (value instanceof Double || value instanceof Float) {
+            generator.writeNumber(value.doubleValue());
+        } else {
+            generator.writeNumber(value.longValue());
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.luisguadagnin.soccermanager.http;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Handler of an HTTP API route. The runtime hands over the raw event, which {@link HttpApiStreams} reads without binding
+ * it to the aws-lambda-java-events classes, and the response is written straight to the runtime's output stream.
+ */
+public abstract class HttpApiHandler implements RequestStreamHandler {
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        HttpApiResponse response = handleRequest(HttpApiStreams.readRequest(input), context);
+        HttpApiStreams.writeResponse(response, output);
+    }
+
+    public abstract HttpApiResponse handleRequest(HttpApiRequest request, Context context);
+
+    /**
+     * Runs the request through the same path as an invocation, reading the event and writing the response included, e.g. to prime it
+     */
+    public HttpApiResponse invoke(HttpApiRequest request) {
+        try {
+            ByteArrayOutputStream event = new ByteArrayOutputStream();
+            HttpApiStreams.writeRequest(request, event);
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            handleRequest(new ByteArrayInputStream(event.toByteArray()), response, null);
+            return HttpApiStreams.readResponse(new ByteArrayInputStream(response.toByteArray()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.luisguadagnin.soccermanager.http;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * The parts of an HTTP API (payload format 2.0) event the handlers read
+ */
+@Data
+public class HttpApiRequest {
+
+    private String routeKey;
+
+    /** the authorizer's username claim, null on the routes without authorization */
+    private String username;
+
+    private Map<String, String> pathParameters;
+    private Map<String, String> queryStringParameters;
+
+    /** the If-None-Match header, the only one the handlers read */
+    private String ifNoneMatch;
+
+    private String body;
+
+    public HttpApiRequest withRouteKey(String routeKey) {
+        this.routeKey = routeKey;
+        return this;
+    }
+
+    public HttpApiRequest withUsername(String username) {
+        this.username = username;
+        return this;
+    }
+
+    public HttpApiRequest withPathParameters(Map<String, String> pathParameters) {
+        this.pathParameters = pathParameters;
+        return this;
+    }
+
+    public HttpApiRequest withQueryStringParameters(Map<String, String> queryStringParameters) {
+        this.queryStringParameters = queryStringParameters;
+        return this;
+    }
+
+    public HttpApiRequest withIfNoneMatch(String ifNoneMatch) {
+        this.ifNoneMatch = ifNoneMatch;
+        return this;
+    }
+
+    public HttpApiRequest withBody(String body) {
+        this.body = body;
+        return this;
+    }
+
+}
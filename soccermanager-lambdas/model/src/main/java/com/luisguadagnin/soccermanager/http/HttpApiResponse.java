@@ -0,0 +1,50 @@
+package com.luisguadagnin.soccermanager.http;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * A response to an HTTP API (payload format 2.0) event
+ */
+@Data
+public class HttpApiResponse {
+
+    private Integer statusCode;
+    private Map<String, String> headers;
+    private String body;
+
+    /** set instead of {@link #body} by the handlers writing their own JSON, compared and printed through {@link #getBody()} */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private JsonBody jsonBody;
+
+    public HttpApiResponse withStatusCode(Integer statusCode) {
+        this.statusCode = statusCode;
+        return this;
+    }
+
+    public HttpApiResponse withHeaders(Map<String, String> headers) {
+        this.headers = headers;
+        return this;
+    }
+
+    public HttpApiResponse withBody(String body) {
+        this.body = body;
+        this.jsonBody = null;
+        return this;
+    }
+
+    public HttpApiResponse withBody(JsonBody jsonBody) {
+        this.body = null;
+        this.jsonBody = jsonBody;
+        return this;
+    }
+
+    public String getBody() {
+        return jsonBody == null ? body : jsonBody.toString();
+    }
+
+}
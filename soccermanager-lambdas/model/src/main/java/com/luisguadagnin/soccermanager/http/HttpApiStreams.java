@@ -0,0 +1,193 @@
+package com.luisguadagnin.soccermanager.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes HTTP API (payload format 2.0) events token by token: only the route, the username claim, the path and
+ * query parameters, the If-None-Match header and the body are kept from a request, everything else (other headers, request
+ * context, cookies...) is skipped without being bound to objects.
+ */
+public final class HttpApiStreams {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamReadFeature.AUTO_CLOSE_SOURCE) // the runtime owns its streams
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private static final String[] USERNAME_PATH = {"authorizer", "jwt", "claims", "username"};
+    private static final String[] IF_NONE_MATCH_PATH = {"if-none-match"}; // HTTP API lowercases header names
+
+    private HttpApiStreams() {}
+
+    public static HttpApiRequest readRequest(InputStream input) throws IOException {
+        HttpApiRequest request = new HttpApiRequest();
+        boolean base64Encoded = false;
+        try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+            expectObject(parser, parser.nextToken());
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "routeKey":
+                        request.setRouteKey(parser.getValueAsString());
+                        break;
+                    case "requestContext":
+                        request.setUsername(readText(parser, USERNAME_PATH, 0));
+                        break;
+                    case "pathParameters":
+                        request.setPathParameters(readStringMap(parser));
+                        break;
+                    case "queryStringParameters":
+                        request.setQueryStringParameters(readStringMap(parser));
+                        break;
+                    case "headers":
+                        request.setIfNoneMatch(readText(parser, IF_NONE_MATCH_PATH, 0));
+                        break;
+                    case "body":
+                        request.setBody(parser.getValueAsString());
+                        break;
+                    case "isBase64Encoded":
+                        base64Encoded = value == JsonToken.VALUE_TRUE;
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        if (base64Encoded && request.getBody() != null) {
+            request.setBody(new String(Base64.getDecoder().decode(request.getBody()), StandardCharsets.UTF_8));
+        }
+        return request;
+    }
+
+    public static void writeResponse(HttpApiResponse response, OutputStream output) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            generator.writeStartObject();
+            if (response.getStatusCode() != null) generator.writeNumberField("statusCode", response.getStatusCode());
+            if (response.getHeaders() != null) writeStringMap(generator, "headers", response.getHeaders());
+            if (response.getJsonBody() != null) {
+                JsonBody jsonBody = response.getJsonBody();
+                generator.writeFieldName("body");
+                generator.writeString(jsonBody.chars(), 0, jsonBody.length());
+            } else if (response.getBody() != null) {
+                generator.writeStringField("body", response.getBody());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes the request as HTTP API would deliver it, keeping only what {@link #readRequest} reads
+     */
+    public static void writeRequest(HttpApiRequest request, OutputStream output) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeStringField("version", "2.0");
+            if (request.getRouteKey() != null) generator.writeStringField("routeKey", request.getRouteKey());
+            if (request.getPathParameters() != null) writeStringMap(generator, "pathParameters", request.getPathParameters());
+            if (request.getQueryStringParameters() != null) writeStringMap(generator, "queryStringParameters", request.getQueryStringParameters());
+            if (request.getIfNoneMatch() != null) writeStringMap(generator, "headers", Map.of("if-none-match", request.getIfNoneMatch()));
+            if (request.getUsername() != null) {
+                generator.writeObjectFieldStart("requestContext");
+                generator.writeObjectFieldStart("authorizer");
+                generator.writeObjectFieldStart("jwt");
+                writeStringMap(generator, "claims", Map.of("username", request.getUsername()));
+                generator.writeEndObject();
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            if (request.getBody() != null) generator.writeStringField("body", request.getBody());
+            generator.writeBooleanField("isBase64Encoded", false);
+            generator.writeEndObject();
+        }
+    }
+
+    public static HttpApiResponse readResponse(InputStream input) throws IOException {
+        HttpApiResponse response = new HttpApiResponse();
+        try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+            expectObject(parser, parser.nextToken());
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "statusCode":
+                        response.setStatusCode(value == JsonToken.VALUE_NULL ? null : parser.getValueAsInt());
+                        break;
+                    case "headers":
+                        response.setHeaders(readStringMap(parser));
+                        break;
+                    case "body":
+                        response.setBody(parser.getValueAsString());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        return response;
+    }
+
+    /* the text at the given path under the current object, skipping every other member */
+    private static String readText(JsonParser parser, String[] path, int depth) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String text = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            boolean onPath = path[depth].equals(parser.getCurrentName());
+            parser.nextToken();
+            if (onPath && depth == path.length - 1) {
+                text = parser.getValueAsString();
+                parser.skipChildren();
+            } else if (onPath) {
+                text = readText(parser, path, depth + 1);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return text;
+    }
+
+    private static Map<String, String> readStringMap(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) return null;
+        expectObject(parser, parser.currentToken());
+        Map<String, String> map = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parser.nextToken();
+            map.put(key, parser.getValueAsString());
+            parser.skipChildren();
+        }
+        return map;
+    }
+
+    private static void writeStringMap(JsonGenerator generator, String field, Map<String, String> map) throws IOException {
+        generator.writeObjectFieldStart(field);
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            generator.writeStringField(entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void expectObject(JsonParser parser, JsonToken token) throws JsonParseException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an HTTP API event object but found " + token);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.luisguadagnin.soccermanager.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+
+/**
+ * A JSON response body written into a buffer kept by the handler across requests, so it goes from the entities to
+ * {@link HttpApiStreams#writeResponse} without DTOs nor an intermediate String. Its content is only valid until the next
+ * {@link #start()}.
+ * <p>
+ * The buffer holds chars rather than UTF-8 bytes: Jackson's UTF-8 generator escapes surrogate pairs, e.g. emojis in names,
+ * which {@code ObjectMapper.writeValueAsString} and so the former responses didn't.
+ */
+public final class JsonBody {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Buffer buffer = new Buffer();
+    private final char[] decimal = new char[21];
+
+    /**
+     * Clears the body and returns a generator writing to it, to be closed once the body is complete
+     */
+    public JsonGenerator start() throws IOException {
+        buffer.reset();
+        return JSON_FACTORY.createGenerator(buffer);
+    }
+
+    /**
+     * Writes hundredths as a plain decimal string with two fractional digits, the way {@code Money.toString} formats cents
+     */
+    public void writeHundredthsField(JsonGenerator generator, String fieldName, long hundredths) throws IOException {
+        long absolute = Math.abs(hundredths);
+        int start = decimal.length;
+        decimal[--start] = (char) ('0' + absolute % 10);
+        decimal[--start] = (char) ('0' + absolute / 10 % 10);
+        decimal[--start] = '.';
+        absolute /= 100;
+        do {
+            decimal[--start] = (char) ('0' + absolute % 10);
+            absolute /= 10;
+        } while (absolute > 0);
+        if (hundredths < 0) decimal[--start] = '-';
+        generator.writeFieldName(fieldName);
+        generator.writeString(decimal, start, decimal.length - start);
+    }
+
+    char[] chars() {
+        return buffer.chars();
+    }
+
+    int length() {
+        return buffer.size();
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+
+    private static class Buffer extends CharArrayWriter {
+
+        Buffer() {
+            super(8192);
+        }
+
+        char[] chars() {
+            return buf;
+        }
+
+    }
+
+}
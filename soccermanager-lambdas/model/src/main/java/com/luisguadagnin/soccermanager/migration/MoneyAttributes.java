@@ -0,0 +1,77 @@
+package com.luisguadagnin.soccermanager.migration;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.luisguadagnin.soccermanager.model.Money;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites the money attributes stored as decimal strings ("1000000.00") as numbers of cents (100000000), as items written
+ * before money was stored in cents still hold. Each attribute is only replaced if it still holds the string that was read,
+ * so it's safe while the API is up and more than once.
+ */
+public class MoneyAttributes {
+
+    public static final Map<String, List<String>> BY_TABLE = Map.of(
+            "Team", List.of("budget", "value"),
+            "Player", List.of("value"),
+            "Offer", List.of("value")
+    );
+
+    private final AmazonDynamoDB amazonDynamoDB;
+
+    public MoneyAttributes(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
+    }
+
+    /**
+     * Reads the item consistently and rewrites its money attributes still stored as strings, returning how many were rewritten
+     */
+    public int convert(String tableName, String id) {
+        Map<String, AttributeValue> item = amazonDynamoDB.getItem(new GetItemRequest()
+                        .withTableName(tableName)
+                        .withKey(Map.of("id", new AttributeValue().withS(id)))
+                        .withConsistentRead(true))
+                .getItem();
+        return item == null ? 0 : convert(tableName, item);
+    }
+
+    /**
+     * Rewrites the money attributes of an item already read that are still stored as strings, returning how many were rewritten
+     */
+    public int convert(String tableName, Map<String, AttributeValue> item) {
+        int converted = 0;
+        for (String attributeName : BY_TABLE.getOrDefault(tableName, List.of())) {
+            AttributeValue attributeValue = item.get(attributeName);
+            if (attributeValue != null && attributeValue.getS() != null && convert(tableName, item.get("id"), attributeName, attributeValue)) {
+                converted++;
+            }
+        }
+        return converted;
+    }
+
+    private boolean convert(String tableName, AttributeValue id, String attributeName, AttributeValue stringValue) {
+        Money money = Money.parse(stringValue.getS());
+        try {
+            amazonDynamoDB.updateItem(new UpdateItemRequest()
+                    .withTableName(tableName)
+                    .withKey(Map.of("id", id))
+                    .withUpdateExpression("SET #attr = :cents")
+                    .withConditionExpression("#attr = :string")
+                    .withExpressionAttributeNames(Map.of("#attr", attributeName))
+                    .withExpressionAttributeValues(Map.of(
+                            ":cents", new AttributeValue().withN(Long.toString(money.getCents())),
+                            ":string", stringValue)));
+            return true;
+        } catch (ConditionalCheckFailedException ex) {
+            // rewritten in the meantime, which only ever stores numbers now
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.luisguadagnin.soccermanager.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Amount of money in cents. Stored as a DynamoDB number (see {@link MoneyConverter}) so it can be changed with atomic ADD updates.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Parses decimal strings with up to two fractional digits, eg.: "1000000.00", "1500.5" or "-20"
+     */
+    public static Money parse(String str) {
+        int length = str.length();
+        if (length == 0) {
+            throw new NumberFormatException("Empty money amount");
+        }
+        boolean negative = str.charAt(0) == '-';
+        int i = negative ? 1 : 0;
+        long units = 0;
+        int digits = 0;
+        for (; i < length && str.charAt(i) != '.'; i++, digits++) {
+            units = Math.addExact(Math.multiplyExact(units, 10), digit(str, i));
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < length) {
+            for (i++; i < length; i++, fractionDigits++) {
+                if (fractionDigits == 2) {
+                    throw new NumberFormatException("More than two fractional digits: " + str);
+                }
+                fraction = fraction * 10 + digit(str, i);
+            }
+        }
+        if (digits + fractionDigits == 0) {
+            throw new NumberFormatException("Invalid money amount: " + str);
+        }
+        if (fractionDigits == 1) fraction *= 10;
+        long cents = Math.addExact(Math.multiplyExact(units, 100), fraction);
+        return ofCents(negative ? -cents : cents);
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    /**
+     * Increases the amount by a whole percentage, rounding half cents down
+     */
+    public Money increasedBy(int percentage) {
+        long scaled = Math.multiplyExact(cents, 100L + percentage);
+        long result = scaled / 100;
+        long remainder = Math.abs(scaled % 100);
+        if (remainder > 50) result += Long.signum(scaled);
+        return ofCents(result);
+    }
+
+    public boolean isLessThan(Money other) {
+        return cents < other.cents;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money && ((Money) other).cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    /**
+     * Formats as a plain decimal string with two fractional digits, eg.: "1000000.00"
+     */
+    @Override
+    public String toString() {
+        long absolute = Math.abs(cents);
+        long fraction = absolute % 100;
+        StringBuilder builder = new StringBuilder(24);
+        if (cents < 0) builder.append('-');
+        return builder.append(absolute / 100)
+                .append('.')
+                .append((char) ('0' + fraction / 10))
+                .append((char) ('0' + fraction % 10))
+                .toString();
+    }
+
+    private static int digit(String str, int index) {
+        char c = str.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Invalid money amount: " + str);
+        }
+        return c - '0';
+    }
+
+}
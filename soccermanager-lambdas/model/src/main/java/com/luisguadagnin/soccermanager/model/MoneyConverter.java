@@ -0,0 +1,25 @@
+package com.luisguadagnin.soccermanager.model;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverter;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * Writes money as a number of cents. Still reads the decimal strings written before
+ * they're rewritten as numbers (see {@link com.luisguadagnin.soccermanager.migration.MoneyAttributes}).
+ */
+public class MoneyConverter implements DynamoDBTypeConverter<AttributeValue, Money> {
+
+    @Override
+    public AttributeValue convert(Money money) {
+        return new AttributeValue().withN(Long.toString(money.getCents()));
+    }
+
+    @Override
+    public Money unconvert(AttributeValue attributeValue) {
+        if (attributeValue.getN() != null) {
+            return Money.ofCents(Long.parseLong(attributeValue.getN()));
+        }
+        return Money.parse(attributeValue.getS());
+    }
+
+}
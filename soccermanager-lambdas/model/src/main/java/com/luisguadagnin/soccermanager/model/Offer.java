@@ -3,6 +3,7 @@ package com.luisguadagnin.soccermanager.model;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConvertedEnum;
 import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
 import lombok.AllArgsConstructor;
@@ -10,12 +11,19 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Optional;
+
 @DynamoDBTable(tableName = "Offer")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Offer {
 
+    /* Unfiltered searches read every shard of the Sort-* indexes, so this value may grow but must never shrink */
+    public static final int SORT_PARTITIONS = Optional.ofNullable(System.getenv("OFFER_SORT_PARTITIONS"))
+            .map(Integer::parseInt)
+            .orElse(4);
+
     @DynamoDBHashKey(attributeName = "id")
     private String id;
 
@@ -38,14 +46,46 @@ public class Offer {
     @DynamoDBAttribute(attributeName = "sort_partition")
     private int sortPartition;
 
+    /* Listed player summary, denormalized so a search page can be answered by the index query alone */
+
+    @DynamoDBAttribute(attributeName = "firstName")
+    private String firstName;
+
+    @DynamoDBAttribute(attributeName = "lastName")
+    private String lastName;
+
+    @DynamoDBAttribute(attributeName = "age")
+    private int age;
+
+    @DynamoDBAttribute(attributeName = "value")
+    @DynamoDBTypeConverted(converter = MoneyConverter.class)
+    private Money value;
+
     @Builder
-    public Offer(String id, long price, int discount, String country, PlayerPosition position) {
+    public Offer(String id, long price, int discount, String country, PlayerPosition position,
+                 String firstName, String lastName, int age, Money value) {
         this.id = id;
         this.price = price;
         this.discount = discount;
         this.country = country;
         this.position = position;
-        this.countryPosition = country + "::" + position;
-        this.sortPartition = 1;
+        this.countryPosition = buildCountryPosition(country, position);
+        this.sortPartition = buildSortPartition(id);
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.age = age;
+        this.value = value;
+    }
+
+    public static int buildSortPartition(String id) {
+        return 1 + Math.floorMod(String.valueOf(id).hashCode(), SORT_PARTITIONS);
+    }
+
+    public static String buildCountryPosition(String country, PlayerPosition position) {
+        return country + "::" + position;
+    }
+
+    public boolean hasPlayerSummary() {
+        return firstName != null;
     }
 }
@@ -3,6 +3,7 @@ package com.luisguadagnin.soccermanager.model;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConvertedEnum;
 import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
 import lombok.AllArgsConstructor;
@@ -33,7 +34,8 @@ public class Player {
     private int age;
 
     @DynamoDBAttribute(attributeName = "value")
-    private String value;
+    @DynamoDBTypeConverted(converter = MoneyConverter.class)
+    private Money value;
 
     @DynamoDBAttribute(attributeName = "position")
     @DynamoDBTypeConvertedEnum
@@ -3,13 +3,12 @@ package com.luisguadagnin.soccermanager.model;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.Set;
-
 @DynamoDBTable(tableName = "Team")
 @Data
 @NoArgsConstructor
@@ -27,12 +26,19 @@ public class Team {
     private String country;
 
     @DynamoDBAttribute(attributeName = "value")
-    private String value;
+    @DynamoDBTypeConverted(converter = MoneyConverter.class)
+    private Money value;
 
     @DynamoDBAttribute(attributeName = "budget")
-    private String budget;
+    @DynamoDBTypeConverted(converter = MoneyConverter.class)
+    private Money budget;
+
+    /* Changed in the same writes that move players to or from the team, whose roster is read from Player's TeamId-index */
+    @DynamoDBAttribute(attributeName = "playerCount")
+    private Integer playerCount;
 
-    @DynamoDBAttribute(attributeName = "playersId")
-    private Set<String> playersId;
+    /* Added to by every write that changes what GET /team answers, it's the response's ETag */
+    @DynamoDBAttribute(attributeName = "version")
+    private long version;
 
 }
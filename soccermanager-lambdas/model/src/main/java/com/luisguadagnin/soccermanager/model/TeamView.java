@@ -0,0 +1,30 @@
+package com.luisguadagnin.soccermanager.model;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The GET /team response body of a team, rendered at the team's version whenever the team changes
+ */
+@DynamoDBTable(tableName = "TeamView")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TeamView {
+
+    @DynamoDBHashKey(attributeName = "id")
+    private String id;
+
+    @DynamoDBAttribute(attributeName = "version")
+    private long version;
+
+    @DynamoDBAttribute(attributeName = "body")
+    private String body;
+
+}
@@ -0,0 +1,61 @@
+package com.luisguadagnin.soccermanager.priming;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs a handler's hot path before a checkpoint (e.g. a Lambda SnapStart snapshot), so its classes are loaded and compiled
+ * in the snapshot instead of on the first requests after restore, and refreshes what must not outlive the snapshot after restore.
+ * The global context only keeps weak references, so every registered instance is held here for the life of the process.
+ */
+public class Priming implements Resource {
+
+    private static final int ROUNDS = 200;
+    private static final List<Priming> REGISTERED = new CopyOnWriteArrayList<>();
+
+    private final Runnable hotPath;
+    private final Runnable restore;
+
+    Priming(Runnable hotPath, Runnable restore) {
+        this.hotPath = hotPath;
+        this.restore = restore;
+    }
+
+    public static void register(Runnable hotPath, Runnable restore) {
+        Priming priming = new Priming(hotPath, restore);
+        REGISTERED.add(priming);
+        Core.getGlobalContext().register(priming);
+    }
+
+    /**
+     * Fails priming when the stubbed request wasn't answered as expected, as it would then skip most of the hot path
+     */
+    public static void checkStatusCode(int expected, Integer actual) {
+        if (actual == null || actual != expected) {
+            throw new IllegalStateException("Priming request answered " + actual + " instead of " + expected);
+        }
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        try {
+            for (int i = 0; i < ROUNDS; i++) {
+                hotPath.run();
+            }
+        } catch (RuntimeException ex) {
+            // a cold first request is better than no snapshot at all, but the broken hot path is logged to be fixed
+            System.err.println("Priming failed, checkpointing without it:");
+            ex.printStackTrace();
+        }
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        restore.run();
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.luisguadagnin.soccermanager.priming;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamSchema;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory stand-in for DynamoDB used while priming, so no request reaches the real tables before a checkpoint.
+ * Items are only looked up by id: update expressions, conditions and key conditions are not evaluated,
+ * except that updating a missing item with a condition fails as a conditional check would.
+ * <p>
+ * Holds a team of 20 players owned by {@link #TEAM_ID} and an offer for {@link #LISTED_PLAYER_ID}, owned by {@link #SELLER_ID}.
+ */
+public class PrimingDynamoDB extends AbstractAmazonDynamoDB {
+
+    public static final String TEAM_ID = "priming@soccermanager.local";
+    public static final String SELLER_ID = "priming-seller@soccermanager.local";
+    public static final String PLAYER_ID = "00000000-0000-0000-0000-000000000001";
+    public static final String LISTED_PLAYER_ID = "00000000-0000-0000-0000-000000000100";
+
+    private static final int SQUAD_SIZE = 20;
+    private static final PlayerPosition[] POSITIONS = PlayerPosition.values();
+
+    private final Map<String, Map<String, Map<String, AttributeValue>>> tables = new ConcurrentHashMap<>();
+
+    public PrimingDynamoDB() {
+        for (int i = 1; i <= SQUAD_SIZE; i++) {
+            Player player = buildPlayer(String.format("00000000-0000-0000-0000-%012d", i), TEAM_ID, i);
+            store(PlayerSchema.TABLE_NAME, PlayerSchema.toItem(player));
+        }
+        store(TeamSchema.TABLE_NAME, TeamSchema.toItem(buildTeam(TEAM_ID, SQUAD_SIZE)));
+
+        Team seller = buildTeam(SELLER_ID, 1);
+        Player listedPlayer = buildPlayer(LISTED_PLAYER_ID, SELLER_ID, SQUAD_SIZE + 1);
+        store(PlayerSchema.TABLE_NAME, PlayerSchema.toItem(listedPlayer));
+        store(TeamSchema.TABLE_NAME, TeamSchema.toItem(seller));
+        store(OfferSchema.TABLE_NAME, OfferSchema.toItem(Offer.builder()
+                .id(listedPlayer.getId())
+                .price(90000000)
+                .discount(1000)
+                .country(listedPlayer.getCountry())
+                .position(listedPlayer.getPosition())
+                .firstName(listedPlayer.getFirstName())
+                .lastName(listedPlayer.getLastName())
+                .age(listedPlayer.getAge())
+                .value(listedPlayer.getValue())
+                .build()));
+    }
+
+    @Override
+    public GetItemResult getItem(GetItemRequest request) {
+        return new GetItemResult().withItem(load(request.getTableName(), request.getKey()));
+    }
+
+    @Override
+    public BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+        Map<String, List<Map<String, AttributeValue>>> responses = new ConcurrentHashMap<>();
+        request.getRequestItems().forEach((tableName, keysAndAttributes) -> responses.put(tableName, keysAndAttributes.getKeys().stream()
+                .map(key -> load(tableName, key))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList())));
+        return new BatchGetItemResult().withResponses(responses).withUnprocessedKeys(Map.of());
+    }
+
+    @Override
+    public QueryResult query(QueryRequest request) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>(table(request.getTableName()).values());
+        if (PlayerSchema.TABLE_NAME.equals(request.getTableName())) {
+            // a team's roster, the only query made on players
+            AttributeValue teamId = request.getExpressionAttributeValues().get(":teamId");
+            items.removeIf(item -> !teamId.equals(item.get("teamId")));
+            items.sort(Comparator.comparing(item -> item.get("id").getS()));
+        }
+        if (request.getLimit() != null && items.size() > request.getLimit()) {
+            items = items.subList(0, request.getLimit());
+        }
+        return new QueryResult().withItems(items).withCount(items.size());
+    }
+
+    /* The whole table in a single page */
+    @Override
+    public ScanResult scan(ScanRequest request) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>(table(request.getTableName()).values());
+        return new ScanResult().withItems(items).withCount(items.size()).withScannedCount(items.size());
+    }
+
+    @Override
+    public PutItemResult putItem(PutItemRequest request) {
+        store(request.getTableName(), request.getItem());
+        return new PutItemResult();
+    }
+
+    @Override
+    public BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+        request.getRequestItems().forEach((tableName, writeRequests) -> writeRequests.stream()
+                .map(WriteRequest::getPutRequest)
+                .filter(Objects::nonNull)
+                .forEach(putRequest -> store(tableName, putRequest.getItem())));
+        return new BatchWriteItemResult().withUnprocessedItems(Map.of());
+    }
+
+    @Override
+    public UpdateItemResult updateItem(UpdateItemRequest request) {
+        Map<String, AttributeValue> item = load(request.getTableName(), request.getKey());
+        if (item == null && request.getConditionExpression() != null) {
+            throw new ConditionalCheckFailedException("The conditional request failed");
+        }
+        return new UpdateItemResult().withAttributes(item);
+    }
+
+    @Override
+    public TransactWriteItemsResult transactWriteItems(TransactWriteItemsRequest request) {
+        return new TransactWriteItemsResult();
+    }
+
+    private Map<String, AttributeValue> load(String tableName, Map<String, AttributeValue> key) {
+        return table(tableName).get(key.get("id").getS());
+    }
+
+    private void store(String tableName, Map<String, AttributeValue> item) {
+        table(tableName).put(item.get("id").getS(), item);
+    }
+
+    private Map<String, Map<String, AttributeValue>> table(String tableName) {
+        return tables.computeIfAbsent(tableName, name -> new ConcurrentHashMap<>());
+    }
+
+    private static Team buildTeam(String id, int playerCount) {
+        return Team.builder()
+                .id(id)
+                .name("Priming FC")
+                .country("Brazil")
+                .budget(Money.parse("5000000.00"))
+                .value(Money.parse("20000000.00"))
+                .playerCount(playerCount)
+                .build();
+    }
+
+    private static Player buildPlayer(String id, String teamId, int number) {
+        return Player.builder()
+                .id(id)
+                .firstName("Player")
+                .lastName("Number " + number)
+                .country("Brazil")
+                .age(18 + number % 23)
+                .value(Money.parse("1000000.00"))
+                .position(POSITIONS[number % POSITIONS.length])
+                .teamId(teamId)
+                .build();
+    }
+
+}
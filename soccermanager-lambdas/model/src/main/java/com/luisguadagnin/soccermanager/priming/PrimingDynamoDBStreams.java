@@ -0,0 +1,69 @@
+package com.luisguadagnin.soccermanager.priming;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamResult;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsResult;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorRequest;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorResult;
+import com.amazonaws.services.dynamodbv2.model.OperationType;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.SequenceNumberRange;
+import com.amazonaws.services.dynamodbv2.model.Shard;
+import com.amazonaws.services.dynamodbv2.model.StreamDescription;
+import com.amazonaws.services.dynamodbv2.model.StreamRecord;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory stand-in for a table's stream used while priming: a single open shard whose first read yields a MODIFY record,
+ * with its new image, for every item of the table in a {@link PrimingDynamoDB}, and nothing afterwards.
+ */
+public class PrimingDynamoDBStreams extends AbstractAmazonDynamoDBStreams {
+
+    private static final String SHARD_ID = "shardId-priming";
+    private static final String FIRST_ITERATOR = "priming-first";
+    private static final String NEXT_ITERATOR = "priming-next";
+
+    private final PrimingDynamoDB primingDynamoDB;
+    private final String tableName;
+
+    public PrimingDynamoDBStreams(PrimingDynamoDB primingDynamoDB, String tableName) {
+        this.primingDynamoDB = primingDynamoDB;
+        this.tableName = tableName;
+    }
+
+    @Override
+    public DescribeStreamResult describeStream(DescribeStreamRequest request) {
+        return new DescribeStreamResult().withStreamDescription(new StreamDescription()
+                .withStreamArn(request.getStreamArn())
+                .withShards(new Shard()
+                        .withShardId(SHARD_ID)
+                        .withSequenceNumberRange(new SequenceNumberRange().withStartingSequenceNumber("1"))));
+    }
+
+    @Override
+    public GetShardIteratorResult getShardIterator(GetShardIteratorRequest request) {
+        return new GetShardIteratorResult().withShardIterator(FIRST_ITERATOR);
+    }
+
+    @Override
+    public GetRecordsResult getRecords(GetRecordsRequest request) {
+        if (!FIRST_ITERATOR.equals(request.getShardIterator())) {
+            return new GetRecordsResult().withRecords(List.of()).withNextShardIterator(NEXT_ITERATOR);
+        }
+        List<Record> records = primingDynamoDB.scan(new ScanRequest().withTableName(tableName)).getItems().stream()
+                .map(item -> new Record()
+                        .withEventName(OperationType.MODIFY)
+                        .withDynamodb(new StreamRecord()
+                                .withKeys(Map.of("id", item.get("id")))
+                                .withNewImage(item)))
+                .collect(Collectors.toList());
+        return new GetRecordsResult().withRecords(records).withNextShardIterator(NEXT_ITERATOR);
+    }
+
+}
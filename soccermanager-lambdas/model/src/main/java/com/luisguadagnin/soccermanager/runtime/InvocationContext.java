@@ -0,0 +1,102 @@
+package com.luisguadagnin.soccermanager.runtime;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Context of an invocation, built from the headers of the runtime API's next invocation and the function's environment
+ */
+class InvocationContext implements Context {
+
+    private static final LambdaLogger LOGGER = new LambdaLogger() {
+        @Override
+        public void log(String message) {
+            System.out.println(message);
+        }
+
+        @Override
+        public void log(byte[] message) {
+            log(new String(message, StandardCharsets.UTF_8));
+        }
+    };
+
+    private final String awsRequestId;
+    private final long deadlineMs;
+    private final String invokedFunctionArn;
+    private final String traceId;
+
+    InvocationContext(HttpHeaders headers) {
+        awsRequestId = headers.firstValue("Lambda-Runtime-Aws-Request-Id")
+                .orElseThrow(() -> new IllegalStateException("Invocation without a request id"));
+        deadlineMs = headers.firstValueAsLong("Lambda-Runtime-Deadline-Ms").orElse(Long.MAX_VALUE);
+        invokedFunctionArn = headers.firstValue("Lambda-Runtime-Invoked-Function-Arn").orElse(null);
+        traceId = headers.firstValue("Lambda-Runtime-Trace-Id").orElse(null);
+    }
+
+    Optional<String> getTraceId() {
+        return Optional.ofNullable(traceId);
+    }
+
+    @Override
+    public String getAwsRequestId() {
+        return awsRequestId;
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return System.getenv("AWS_LAMBDA_LOG_GROUP_NAME");
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return System.getenv("AWS_LAMBDA_LOG_STREAM_NAME");
+    }
+
+    @Override
+    public String getFunctionName() {
+        return System.getenv("AWS_LAMBDA_FUNCTION_NAME");
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return System.getenv("AWS_LAMBDA_FUNCTION_VERSION");
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return invokedFunctionArn;
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, deadlineMs - System.currentTimeMillis()));
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        String memorySize = System.getenv("AWS_LAMBDA_FUNCTION_MEMORY_SIZE");
+        return memorySize == null ? 0 : Integer.parseInt(memorySize);
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return LOGGER;
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.luisguadagnin.soccermanager.runtime;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Custom runtime (the {@code bootstrap} of a {@code provided.al2} function) used by the native executables: takes invocations
+ * from the Lambda Runtime API, runs them through the handler named by {@code _HANDLER} and posts back its response or error.
+ * <p>
+ * Stream handlers get the raw event. For the others, events are read leniently, as the managed Java runtime does, so SQS payloads
+ * fit the aws-lambda-java-events classes.
+ */
+public class LambdaRuntime {
+
+    private static final String API_VERSION = "2018-06-01";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String runtimeUri;
+    private final ResponseBuffer response = new ResponseBuffer();
+
+    public LambdaRuntime(String runtimeApi) {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        objectMapper = JsonMapper.builder()
+                .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES) // e.g. SQS's "Records" and "eventSourceARN"
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+        runtimeUri = "http://" + runtimeApi + "/" + API_VERSION + "/runtime";
+    }
+
+    public static void main(String[] args) {
+        new LambdaRuntime(System.getenv("AWS_LAMBDA_RUNTIME_API")).start(System.getenv("_HANDLER"));
+        System.exit(1); // start only returns when the handler couldn't be created
+    }
+
+    /**
+     * Creates the handler and serves invocations until the environment is shut down, unless the handler can't be created
+     */
+    @SuppressWarnings("unchecked")
+    public void start(String handlerName) {
+        Invocation invocation;
+        try {
+            Class<?> handlerClass = Class.forName(handlerName);
+            Object handler = handlerClass.getDeclaredConstructor().newInstance();
+            if (handler instanceof RequestStreamHandler) {
+                invocation = streamInvocation((RequestStreamHandler) handler);
+            } else {
+                invocation = objectInvocation((RequestHandler<Object, Object>) handler, (Class<Object>) findInputType(handlerClass));
+            }
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            ex.printStackTrace();
+            post(runtimeUri + "/init/error", ex);
+            return;
+        }
+
+        while (true) {
+            handleNext(invocation);
+        }
+    }
+
+    /**
+     * Waits for the next invocation and answers it
+     */
+    public <I, O> void handleNext(RequestHandler<I, O> handler, Class<I> inputType) {
+        handleNext(objectInvocation(handler, inputType));
+    }
+
+    /**
+     * Waits for the next invocation and answers it
+     */
+    public void handleNext(RequestStreamHandler handler) {
+        handleNext(streamInvocation(handler));
+    }
+
+    private <I, O> Invocation objectInvocation(RequestHandler<I, O> handler, Class<I> inputType) {
+        return (event, output, context) -> objectMapper.writeValue(output, handler.handleRequest(objectMapper.readValue(event, inputType), context));
+    }
+
+    private static Invocation streamInvocation(RequestStreamHandler handler) {
+        return (event, output, context) -> handler.handleRequest(new ByteArrayInputStream(event), output, context);
+    }
+
+    private void handleNext(Invocation invocation) {
+        HttpResponse<byte[]> next = send(HttpRequest.newBuilder(URI.create(runtimeUri + "/invocation/next")).GET().build());
+        InvocationContext context = new InvocationContext(next.headers());
+        context.getTraceId().ifPresentOrElse(
+                traceId -> System.setProperty("com.amazonaws.xray.traceHeader", traceId),
+                () -> System.clearProperty("com.amazonaws.xray.traceHeader"));
+
+        response.reset();
+        try {
+            invocation.run(next.body(), response, context);
+        } catch (IOException | RuntimeException ex) {
+            ex.printStackTrace();
+            post(runtimeUri + "/invocation/" + context.getAwsRequestId() + "/error", ex);
+            return;
+        }
+        send(HttpRequest.newBuilder(URI.create(runtimeUri + "/invocation/" + context.getAwsRequestId() + "/response"))
+                .POST(response.publisher())
+                .build());
+    }
+
+    /* the handler's own handleRequest, rather than the bridge method taking an Object */
+    private static Class<?> findInputType(Class<?> handlerClass) {
+        return Arrays.stream(handlerClass.getMethods())
+                .filter(method -> method.getName().equals("handleRequest") && method.getParameterCount() == 2 && !method.isBridge())
+                .map(Method::getParameterTypes)
+                .map(parameterTypes -> parameterTypes[0])
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(handlerClass.getName() + " is not a RequestHandler"));
+    }
+
+    private void post(String uri, Exception ex) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("errorMessage", String.valueOf(ex.getMessage()));
+        error.put("errorType", ex.getClass().getName());
+        error.put("stackTrace", Arrays.stream(ex.getStackTrace()).map(StackTraceElement::toString).collect(Collectors.toList()));
+        try {
+            send(HttpRequest.newBuilder(URI.create(uri))
+                    .header("Lambda-Runtime-Function-Error-Type", ex.getClass().getName())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(error)))
+                    .build());
+        } catch (IOException jsonEx) {
+            throw new UncheckedIOException(jsonEx);
+        }
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to reach the runtime API", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while talking to the runtime API", ex);
+        }
+    }
+
+    private interface Invocation {
+        void run(byte[] event, OutputStream output, Context context) throws IOException;
+    }
+
+    /* kept across invocations, so a response is written without growing a fresh buffer nor copying it out */
+    private static class ResponseBuffer extends ByteArrayOutputStream {
+
+        ResponseBuffer() {
+            super(8192);
+        }
+
+        HttpRequest.BodyPublisher publisher() {
+            return HttpRequest.BodyPublishers.ofByteArray(buf, 0, count);
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.luisguadagnin.soccermanager.cache;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MarketVersionTest {
+
+    private static final int SHARDS = 4;
+
+    private final VersionItemsDynamoDB amazonDynamoDB = new VersionItemsDynamoDB();
+    private long now;
+    private final MarketVersion marketVersion = new MarketVersion(amazonDynamoDB, SHARDS, Duration.ofSeconds(1), () -> now);
+
+    @Test
+    public void shouldReadZeroBeforeFirstBump() {
+        assertEquals(0, marketVersion.current());
+    }
+
+    @Test
+    public void shouldReadVersionAgainOnlyAfterPollInterval() {
+        marketVersion.bump();
+        long first = marketVersion.current();
+        marketVersion.bump();
+        long beforeInterval = marketVersion.current();
+        now += Duration.ofSeconds(1).toNanos();
+        long afterInterval = marketVersion.current();
+
+        assertAll(
+                () -> assertEquals(1, first),
+                () -> assertEquals(1, beforeInterval),
+                () -> assertEquals(2, afterInterval),
+                () -> assertEquals(2, amazonDynamoDB.reads)
+        );
+    }
+
+    @Test
+    public void shouldSpreadBumpsOverShardsAndSumThem() {
+        for (int i = 0; i < 1000; i++) marketVersion.bump();
+
+        assertAll(
+                () -> assertEquals(1000, marketVersion.current()),
+                () -> assertEquals(SHARDS, amazonDynamoDB.versions.size()),
+                () -> amazonDynamoDB.versions.values().forEach(version -> assertTrue(version < 1000 / 2, version + " bumps on one shard")),
+                () -> assertEquals(1, amazonDynamoDB.reads)
+        );
+    }
+
+    /* Holds the version items, returning the first key of every batch as unprocessed once */
+    private static class VersionItemsDynamoDB extends AbstractAmazonDynamoDB {
+
+        private final Map<String, Long> versions = new ConcurrentHashMap<>();
+        private int reads;
+
+        @Override
+        public UpdateItemResult updateItem(UpdateItemRequest request) {
+            String id = request.getKey().get("id").getS();
+            assertTrue(id.startsWith(MarketVersion.ITEM_ID_PREFIX), id);
+            versions.merge(id, 1L, Long::sum);
+            return new UpdateItemResult();
+        }
+
+        @Override
+        public BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+            KeysAndAttributes keysAndAttributes = request.getRequestItems().get(MarketVersion.TABLE_NAME);
+            List<Map<String, AttributeValue>> keys = keysAndAttributes.getKeys();
+            if (keys.size() == SHARDS) reads++; // not counting the retries of unprocessed keys
+            boolean unprocess = keys.size() > 1;
+            List<Map<String, AttributeValue>> items = keys.subList(unprocess ? 1 : 0, keys.size()).stream()
+                    .map(key -> versions.containsKey(key.get("id").getS())
+                            ? Map.of("version", new AttributeValue().withN(versions.get(key.get("id").getS()).toString()))
+                            : null)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            return new BatchGetItemResult()
+                    .withResponses(Map.of(MarketVersion.TABLE_NAME, items))
+                    .withUnprocessedKeys(unprocess ? Map.of(MarketVersion.TABLE_NAME, keysAndAttributes.clone().withKeys(keys.subList(0, 1))) : Map.of());
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.luisguadagnin.soccermanager.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays ten minutes of one container's traffic, 20 requests per second from 200 users listing and buying the 20 players
+ * of their own teams, a fifth of the users making four fifths of the requests, and one request in twenty writing the player.
+ * Counts the reads reaching DynamoDB per cache setting. Run with RUN_BENCHMARKS=true mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+public class ReadThroughCacheSimulationTest {
+
+    private static final int USERS = 200;
+    private static final int PLAYERS_PER_TEAM = 20;
+    private static final int REQUESTS = 10 * 60 * 20;
+    private static final long REQUEST_INTERVAL_NANOS = Duration.ofMillis(50).toNanos();
+    private static final long PLAYER_SIZE = 250;
+
+    private long now;
+    private long reads;
+
+    @Test
+    public void reportDynamoDBReads() {
+        long uncached = replay(Duration.ZERO, 4L * 1024 * 1024);
+
+        System.out.printf("Player reads reaching DynamoDB out of %d requests%n", REQUESTS);
+        System.out.printf("  no cache                 %6d%n", uncached);
+        for (long ttlSeconds : new long[]{5, 30, 60}) {
+            long cached = replay(Duration.ofSeconds(ttlSeconds), 4L * 1024 * 1024);
+            System.out.printf("  TTL %2ds, 4 MiB           %6d%n", ttlSeconds, cached);
+            assertTrue(cached < uncached);
+        }
+        System.out.printf("  TTL 30s, 250 players     %6d%n", replay(Duration.ofSeconds(30), 250 * PLAYER_SIZE));
+    }
+
+    private long replay(Duration ttl, long maxBytes) {
+        now = 0;
+        reads = 0;
+        Random random = new Random(42);
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>("Player", ttl, maxBytes, player -> PLAYER_SIZE, () -> now);
+
+        for (int i = 0; i < REQUESTS; i++) {
+            now += REQUEST_INTERVAL_NANOS;
+            int user = random.nextInt(5) < 4 ? random.nextInt(USERS / 5) : USERS / 5 + random.nextInt(USERS - USERS / 5);
+            String playerId = user + "-" + random.nextInt(PLAYERS_PER_TEAM);
+
+            cache.get(playerId, id -> {
+                reads++;
+                return id;
+            });
+            if (random.nextInt(20) == 0) cache.invalidate(playerId);
+        }
+        return reads;
+    }
+
+}
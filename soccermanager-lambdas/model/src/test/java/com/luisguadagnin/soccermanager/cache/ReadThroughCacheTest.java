@@ -0,0 +1,131 @@
+package com.luisguadagnin.soccermanager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ReadThroughCacheTest {
+
+    private long now;
+    private final List<String> loads = new ArrayList<>();
+    private final Function<String, String> loader = key -> {
+        loads.add(key);
+        return "value of " + key;
+    };
+
+    private final ReadThroughCache<String, String> cache = new ReadThroughCache<>("Test", Duration.ofSeconds(10), 100,
+            value -> 10, () -> now);
+
+    @Test
+    public void shouldLoadOnlyOnFirstRead() {
+        cache.get("a", loader);
+        String value = cache.get("a", loader);
+
+        assertAll(
+                () -> assertEquals("value of a", value),
+                () -> assertEquals(List.of("a"), loads),
+                () -> assertEquals(1, cache.stats().getHits()),
+                () -> assertEquals(1, cache.stats().getMisses()),
+                () -> assertEquals(0.5, cache.stats().hitRate())
+        );
+    }
+
+    @Test
+    public void shouldReloadAfterTtl() {
+        cache.get("a", loader);
+        now += Duration.ofSeconds(10).toNanos();
+        cache.get("a", loader);
+
+        assertAll(
+                () -> assertEquals(List.of("a", "a"), loads),
+                () -> assertEquals(1, cache.stats().getExpirations())
+        );
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedOverMaxWeight() {
+        cache.get("a", loader); // 10 entries of weight 10 fill the cache
+        for (int i = 0; i < 9; i++) cache.get("b" + i, loader);
+        cache.get("a", loader);
+        cache.get("c", loader);
+        cache.get("a", loader);
+        cache.get("b0", loader);
+
+        assertAll(
+                () -> assertEquals(List.of("a", "b0", "b1", "b2", "b3", "b4", "b5", "b6", "b7", "b8", "c", "b0"), loads),
+                () -> assertEquals(2, cache.stats().getEvictions()),
+                () -> assertEquals(10, cache.stats().getSize()),
+                () -> assertEquals(100, cache.stats().getWeight())
+        );
+    }
+
+    @Test
+    public void shouldNotCacheMissingItems() {
+        assertNull(cache.get("a", key -> null));
+        cache.get("a", loader);
+
+        assertEquals(List.of("a"), loads);
+    }
+
+    @Test
+    public void shouldReloadAfterInvalidate() {
+        cache.get("a", loader);
+        cache.invalidate("a");
+        cache.get("a", loader);
+
+        assertAll(
+                () -> assertEquals(List.of("a", "a"), loads),
+                () -> assertEquals(0, cache.stats().getHits())
+        );
+    }
+
+    @Test
+    public void shouldNotCacheValueLoadedDuringWrite() {
+        cache.get("a", key -> {
+            cache.invalidate("a"); // this container writes the item while it's being read
+            return "value before the write";
+        });
+        String value = cache.get("a", loader);
+
+        assertAll(
+                () -> assertEquals("value of a", value),
+                () -> assertEquals(List.of("a"), loads)
+        );
+    }
+
+    @Test
+    public void shouldShareOneLoadBetweenConcurrentMisses() throws InterruptedException, ExecutionException {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get("a", key -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return loader.apply(key);
+        }));
+        loading.await();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.get("a", loader));
+        while (cache.stats().getHits() == 0) Thread.onSpinWait();
+        release.countDown();
+
+        assertAll(
+                () -> assertEquals("value of a", first.get()),
+                () -> assertEquals("value of a", second.get()),
+                () -> assertEquals(List.of("a"), loads)
+        );
+    }
+
+}
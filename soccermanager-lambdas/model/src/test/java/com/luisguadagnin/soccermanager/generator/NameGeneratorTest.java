@@ -0,0 +1,67 @@
+package com.luisguadagnin.soccermanager.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NameGeneratorTest {
+
+    @Test
+    public void shouldGenerateTheSameNamesForTheSameSeed() {
+        NameGenerator nameGenerator = new NameGenerator(new SplittableRandom(42));
+        NameGenerator sameSeed = new NameGenerator(new SplittableRandom(42));
+
+        IntStream.range(0, 100).forEach(i -> assertAll(
+                () -> assertEquals(nameGenerator.firstName(), sameSeed.firstName()),
+                () -> assertEquals(nameGenerator.lastName(), sameSeed.lastName()),
+                () -> assertEquals(nameGenerator.country(), sameSeed.country()),
+                () -> assertEquals(nameGenerator.teamName(), sameSeed.teamName())
+        ));
+    }
+
+    @Test
+    public void shouldDrawFromTheWholeWordLists() {
+        NameGenerator nameGenerator = new NameGenerator(new SplittableRandom(42));
+        Set<String> countries = new HashSet<>();
+        Set<String> lastNames = new HashSet<>();
+        Set<String> firstNames = new HashSet<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            countries.add(nameGenerator.country());
+            lastNames.add(nameGenerator.lastName());
+            firstNames.add(nameGenerator.firstName());
+        }
+
+        assertAll(
+                () -> assertEquals(193, countries.size()),
+                () -> assertEquals(473, lastNames.size()),
+                () -> assertTrue(firstNames.contains("Aaron")),
+                () -> assertTrue(firstNames.contains("Abigail")),
+                () -> assertTrue(countries.contains("Côte d'Ivoire"))
+        );
+    }
+
+    @Test
+    public void shouldNameTeamsAfterAStateAndACreature() {
+        String teamName = new NameGenerator(new SplittableRandom(42)).teamName();
+
+        assertTrue(teamName.matches("[A-Z][A-Za-z ]+ [a-z ]+"), teamName);
+    }
+
+    @Test
+    public void shouldShareInternedWords() {
+        NameGenerator nameGenerator = new NameGenerator(new SplittableRandom(7));
+        String lastName = nameGenerator.lastName();
+
+        assertSame(lastName.intern(), lastName);
+    }
+
+}
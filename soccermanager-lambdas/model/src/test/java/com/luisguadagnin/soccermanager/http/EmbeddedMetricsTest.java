@@ -0,0 +1,62 @@
+package com.luisguadagnin.soccermanager.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class EmbeddedMetricsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void shouldDeclareEveryMetricAndDimensionOfTheLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EmbeddedMetrics metrics = new EmbeddedMetrics(new PrintStream(out, true, StandardCharsets.UTF_8));
+
+        metrics.line()
+                .dimension("Cache", "players \"hot\"")
+                .count("CacheHits", 3)
+                .metric("CacheHitRate", "Percent", 75.0)
+                .publish();
+
+        JsonNode line = objectMapper.readTree(out.toString(StandardCharsets.UTF_8));
+        JsonNode directive = line.get("_aws").get("CloudWatchMetrics").get(0);
+        assertAll(
+                () -> assertEquals("SoccerManager", directive.get("Namespace").asText()),
+                () -> assertEquals("Cache", directive.get("Dimensions").get(0).get(0).asText()),
+                () -> assertEquals("CacheHits", directive.get("Metrics").get(0).get("Name").asText()),
+                () -> assertEquals("Count", directive.get("Metrics").get(0).get("Unit").asText()),
+                () -> assertEquals("Percent", directive.get("Metrics").get(1).get("Unit").asText()),
+                () -> assertEquals("players \"hot\"", line.get("Cache").asText()),
+                () -> assertEquals(3, line.get("CacheHits").asLong()),
+                () -> assertEquals(75.0, line.get("CacheHitRate").asDouble())
+        );
+    }
+
+    @Test
+    public void shouldStartEachLineOver() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EmbeddedMetrics metrics = new EmbeddedMetrics(new PrintStream(out, true, StandardCharsets.UTF_8));
+
+        metrics.line().dimension("Cache", "players").count("CacheHits", 3).publish();
+        metrics.line().count("SearchEngineErrors", 1).publish();
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertAll(
+                () -> assertEquals(0, second.get("_aws").get("CloudWatchMetrics").get(0).get("Dimensions").get(0).size()),
+                () -> assertEquals(1, second.get("_aws").get("CloudWatchMetrics").get(0).get("Metrics").size()),
+                () -> assertFalse(second.has("Cache"))
+        );
+    }
+
+}
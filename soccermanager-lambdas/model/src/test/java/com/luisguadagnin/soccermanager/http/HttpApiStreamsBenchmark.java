@@ -0,0 +1,116 @@
+package com.luisguadagnin.soccermanager.http;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding an HTTP API event to the aws-lambda-java-events classes, as the handlers did before extending {@link HttpApiHandler},
+ * against {@link HttpApiStreams}, on an event of each route and a response of the size GET /team answers. Both write to a
+ * buffer reused across invocations, as {@code LambdaRuntime} does. Run through {@link HttpApiStreamsBenchmarkTest} with the gc
+ * profiler for the allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpApiStreamsBenchmark {
+
+    private static final String USERNAME = "luis@guadagnin.com";
+
+    private static final Map<String, String> ROUTES = Map.of(
+            "POST /user", LambdaEvents.httpApi("POST", "/user", null, null, null,
+                    "{\"email\": \"luis@guadagnin.com\", \"password\": \"Passw0rd!\", \"country\": \"Brazil\"}"),
+            "POST /auth", LambdaEvents.httpApi("POST", "/auth", null, null, null,
+                    "{\"email\": \"luis@guadagnin.com\", \"password\": \"Passw0rd!\"}"),
+            "GET /team", LambdaEvents.httpApi("GET", "/team", USERNAME, null, null, null),
+            "PUT /team", LambdaEvents.httpApi("PUT", "/team", USERNAME, null, null,
+                    "{\"name\": \"Lions\", \"country\": \"Brazil\"}"),
+            "PUT /player/{playerId}", LambdaEvents.httpApi("PUT", "/player/{playerId}", USERNAME,
+                    Map.of("playerId", "3f1e4c9a-6a44-4b86-8f3a-7f6a1f0d2b11"), null,
+                    "{\"firstName\": \"Louis\", \"lastName\": \"Guadagnin\", \"country\": \"Brazil\"}"),
+            "POST /offer", LambdaEvents.httpApi("POST", "/offer", USERNAME, null, null,
+                    "{\"playerId\": \"3f1e4c9a-6a44-4b86-8f3a-7f6a1f0d2b11\", \"price\": \"1500000.00\"}"),
+            "GET /offer", LambdaEvents.httpApi("GET", "/offer", USERNAME, null,
+                    Map.of("country", "Brazil", "position", "ATTACKER", "orderBy", "discount", "pageSize", "10"), null),
+            "POST /purchase", LambdaEvents.httpApi("POST", "/purchase", USERNAME, null, null,
+                    "{\"offerId\": \"9b2d7c55-0e3f-4a51-a3a8-51c0e4f2e7d4\"}")
+    );
+
+    private static final String RESPONSE_BODY = "{\"name\":\"Lions\",\"country\":\"Brazil\",\"value\":\"20000000.00\"," +
+            "\"budget\":\"5000000.00\",\"players\":[" + "{\"id\":\"3f1e4c9a-6a44-4b86-8f3a-7f6a1f0d2b11\",\"firstName\":\"Louis\"," +
+            "\"lastName\":\"Guadagnin\",\"country\":\"Brazil\",\"age\":27,\"value\":\"1000000.00\",\"position\":\"ATTACKER\"},".repeat(19) +
+            "{\"id\":\"3f1e4c9a-6a44-4b86-8f3a-7f6a1f0d2b11\",\"firstName\":\"Louis\",\"lastName\":\"Guadagnin\",\"country\":\"Brazil\"," +
+            "\"age\":27,\"value\":\"1000000.00\",\"position\":\"ATTACKER\"}]}";
+
+    @Param({"POST /user", "POST /auth", "GET /team", "PUT /team", "PUT /player/{playerId}", "POST /offer", "GET /offer", "POST /purchase"})
+    private String route;
+
+    private byte[] event;
+    private ObjectMapper objectMapper;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
+
+    @Setup
+    public void setUp() {
+        event = ROUTES.get(route).getBytes(StandardCharsets.UTF_8);
+        objectMapper = JsonMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int boundEvents() throws IOException {
+        APIGatewayProxyRequestEvent request = objectMapper.readValue(event, APIGatewayProxyRequestEvent.class);
+        String username = null;
+        if (request.getRequestContext() != null && request.getRequestContext().getAuthorizer() != null) {
+            Map<String, Object> jwt = (Map<String, Object>) request.getRequestContext().getAuthorizer().get("jwt");
+            username = (String) ((Map<String, Object>) jwt.get("claims")).get("username");
+        }
+        APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent()
+                .withStatusCode(200)
+                .withHeaders(Map.of("Content-Type", "application/json", "X-Username", String.valueOf(username)))
+                .withBody(RESPONSE_BODY);
+        output.reset();
+        objectMapper.writeValue(output, response);
+        return output.size();
+    }
+
+    @Benchmark
+    public int streams() throws IOException {
+        HttpApiRequest request = HttpApiStreams.readRequest(new ByteArrayInputStream(event));
+        HttpApiResponse response = new HttpApiResponse()
+                .withStatusCode(200)
+                .withHeaders(Map.of("Content-Type", "application/json", "X-Username", String.valueOf(request.getUsername())))
+                .withBody(RESPONSE_BODY);
+        output.reset();
+        HttpApiStreams.writeResponse(response, output);
+        return output.size();
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.luisguadagnin.soccermanager.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link HttpApiStreamsBenchmark} with JMH; gc.alloc.rate.norm is the bytes allocated per event. Run with RUN_BENCHMARKS=true mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+public class HttpApiStreamsBenchmarkTest {
+
+    @Test
+    public void reportEventHandlingCost() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(HttpApiStreamsBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+
+        assertEquals(16, results.size());
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.luisguadagnin.soccermanager.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HttpApiStreamsTest {
+
+    @Test
+    public void shouldReadOnlyWhatHandlersUse() throws IOException {
+        String event = LambdaEvents.httpApi("PUT", "/player/{playerId}", "luis@guadagnin.com", Map.of("playerId", "player-uuid"),
+                Map.of("country", "Brazil"), "{\"firstName\": \"Louis\"}");
+
+        HttpApiRequest request = HttpApiStreams.readRequest(stream(event));
+
+        assertAll(
+                () -> assertEquals("PUT /player/{playerId}", request.getRouteKey()),
+                () -> assertEquals("luis@guadagnin.com", request.getUsername()),
+                () -> assertEquals(Map.of("playerId", "player-uuid"), request.getPathParameters()),
+                () -> assertEquals(Map.of("country", "Brazil"), request.getQueryStringParameters()),
+                () -> assertEquals("{\"firstName\": \"Louis\"}", request.getBody())
+        );
+    }
+
+    @Test
+    public void shouldLeaveUsernameEmptyWithoutAuthorizer() throws IOException {
+        HttpApiRequest request = HttpApiStreams.readRequest(stream(LambdaEvents.httpApi("POST", "/user", null, null, null, "{}")));
+
+        assertAll(
+                () -> assertNull(request.getUsername()),
+                () -> assertNull(request.getPathParameters()),
+                () -> assertNull(request.getQueryStringParameters())
+        );
+    }
+
+    @Test
+    public void shouldSkipClaimsOtherThanUsername() throws IOException {
+        String event = "{\"requestContext\":{\"authorizer\":{\"jwt\":{\"claims\":{\"sub\":\"x\",\"username\":\"luis@guadagnin.com\"," +
+                "\"cognito:groups\":[\"a\",\"b\"]},\"scopes\":null}},\"http\":{\"method\":\"GET\"}},\"cookies\":[\"a=b\"]," +
+                "\"pathParameters\":null,\"body\":null}";
+
+        HttpApiRequest request = HttpApiStreams.readRequest(stream(event));
+
+        assertAll(
+                () -> assertEquals("luis@guadagnin.com", request.getUsername()),
+                () -> assertNull(request.getPathParameters()),
+                () -> assertNull(request.getBody())
+        );
+    }
+
+    @Test
+    public void shouldReadIfNoneMatchAmongHeaders() throws IOException {
+        String event = "{\"headers\":{\"accept\":\"application/json\",\"if-none-match\":\"\\\"42\\\"\",\"host\":\"example.com\"}," +
+                "\"body\":null}";
+
+        HttpApiRequest request = HttpApiStreams.readRequest(stream(event));
+
+        assertEquals("\"42\"", request.getIfNoneMatch());
+    }
+
+    @Test
+    public void shouldDecodeBase64Body() throws IOException {
+        String body = Base64.getEncoder().encodeToString("{\"name\": \"São Paulo\"}".getBytes(StandardCharsets.UTF_8));
+
+        HttpApiRequest request = HttpApiStreams.readRequest(stream("{\"body\":\"" + body + "\",\"isBase64Encoded\":true}"));
+
+        assertEquals("{\"name\": \"São Paulo\"}", request.getBody());
+    }
+
+    @Test
+    public void shouldRejectEventsThatAreNotObjects() {
+        assertThrows(JsonParseException.class, () -> HttpApiStreams.readRequest(stream("[]")));
+    }
+
+    @Test
+    public void shouldWriteResponse() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "application/json");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        HttpApiStreams.writeResponse(new HttpApiResponse()
+                .withStatusCode(400)
+                .withHeaders(headers)
+                .withBody("{ \"message\": \"\"price\" field is empty\" }"), output);
+
+        assertEquals("{\"statusCode\":400,\"headers\":{\"Content-Type\":\"application/json\"}," +
+                "\"body\":\"{ \\\"message\\\": \\\"\\\"price\\\" field is empty\\\" }\"}", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldWriteJsonBodyAsTheEquivalentString() throws IOException {
+        JsonBody jsonBody = new JsonBody();
+        try (JsonGenerator generator = jsonBody.start()) {
+            generator.writeStartObject();
+            generator.writeStringField("name", "São Paulo \"Lions\" \\ 🙂\n");
+            generator.writeEndObject();
+        }
+        ByteArrayOutputStream fromJsonBody = new ByteArrayOutputStream();
+        ByteArrayOutputStream fromString = new ByteArrayOutputStream();
+
+        HttpApiStreams.writeResponse(new HttpApiResponse().withStatusCode(200).withBody(jsonBody), fromJsonBody);
+        HttpApiStreams.writeResponse(new HttpApiResponse().withStatusCode(200).withBody(jsonBody.toString()), fromString);
+
+        assertEquals(fromString.toString(StandardCharsets.UTF_8), fromJsonBody.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldReadBackWhatItWrites() throws IOException {
+        HttpApiRequest request = new HttpApiRequest()
+                .withRouteKey("GET /offer")
+                .withUsername("luis@guadagnin.com")
+                .withQueryStringParameters(Map.of("country", "Brazil", "pageSize", "5"))
+                .withIfNoneMatch("\"7\"")
+                .withBody("");
+        HttpApiResponse response = new HttpApiResponse()
+                .withStatusCode(200)
+                .withHeaders(Map.of("Authorization", "Bearer token"))
+                .withBody("{}");
+        ByteArrayOutputStream requestBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream responseBytes = new ByteArrayOutputStream();
+
+        HttpApiStreams.writeRequest(request, requestBytes);
+        HttpApiStreams.writeResponse(response, responseBytes);
+
+        assertAll(
+                () -> assertEquals(request, HttpApiStreams.readRequest(new ByteArrayInputStream(requestBytes.toByteArray()))),
+                () -> assertEquals(response, HttpApiStreams.readResponse(new ByteArrayInputStream(responseBytes.toByteArray())))
+        );
+    }
+
+    private static InputStream stream(String event) {
+        return new ByteArrayInputStream(event.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.luisguadagnin.soccermanager.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.luisguadagnin.soccermanager.model.Money;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JsonBodyTest {
+
+    @Test
+    public void shouldWriteHundredthsAsMoneyFormatsCents() throws IOException {
+        long[] amounts = {0, 5, 10, 99, 100, -50, -1250, 150000000, 1000000007, Long.MAX_VALUE, -Long.MAX_VALUE};
+        JsonBody jsonBody = new JsonBody();
+
+        for (long amount : amounts) {
+            try (JsonGenerator generator = jsonBody.start()) {
+                generator.writeStartObject();
+                jsonBody.writeHundredthsField(generator, "value", amount);
+                generator.writeEndObject();
+            }
+
+            assertEquals("{\"value\":\"" + Money.ofCents(amount) + "\"}", jsonBody.toString());
+        }
+    }
+
+    @Test
+    public void shouldStartOverOnEachBody() throws IOException {
+        JsonBody jsonBody = new JsonBody();
+        try (JsonGenerator generator = jsonBody.start()) {
+            generator.writeString("first body, longer than the second");
+        }
+        try (JsonGenerator generator = jsonBody.start()) {
+            generator.writeString("second");
+        }
+
+        assertEquals("\"second\"", jsonBody.toString());
+    }
+
+}
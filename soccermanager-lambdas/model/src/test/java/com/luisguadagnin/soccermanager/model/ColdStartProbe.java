@@ -0,0 +1,41 @@
+package com.luisguadagnin.soccermanager.model;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+
+/**
+ * Run in a fresh JVM by {@link SchemaColdStartBenchmarkTest}: builds the DynamoDB client, then times the first
+ * write and read of every entity with either the mapper or the generated schemas, and prints the nanoseconds taken.
+ */
+public class ColdStartProbe {
+
+    public static void main(String[] args) {
+        AmazonDynamoDB amazonDynamoDB = AmazonDynamoDBClientBuilder.standard()
+                .withRegion("us-east-1")
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("test", "test")))
+                .build();
+        Player player = Samples.player();
+        Team team = Samples.team();
+        Offer offer = Samples.offer();
+
+        long start = System.nanoTime();
+        Object result;
+        if ("mapper".equals(args[0])) {
+            DynamoDBMapper dynamoDBMapper = new DynamoDBMapper(amazonDynamoDB);
+            result = dynamoDBMapper.marshallIntoObject(Player.class, dynamoDBMapper.getTableModel(Player.class).convert(player)).hashCode()
+                    + dynamoDBMapper.marshallIntoObject(Team.class, dynamoDBMapper.getTableModel(Team.class).convert(team)).hashCode()
+                    + dynamoDBMapper.marshallIntoObject(Offer.class, dynamoDBMapper.getTableModel(Offer.class).convert(offer)).hashCode();
+        } else {
+            result = PlayerSchema.fromItem(PlayerSchema.toItem(player)).hashCode()
+                    + TeamSchema.fromItem(TeamSchema.toItem(team)).hashCode()
+                    + OfferSchema.fromItem(OfferSchema.toItem(offer)).hashCode();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(elapsed + " " + result);
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.luisguadagnin.soccermanager.model;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The generated schemas must stay interchangeable with DynamoDBMapper, which wrote the items already in the tables
+ */
+public class GeneratedSchemaTest {
+
+    private final DynamoDBMapper dynamoDBMapper;
+
+    public GeneratedSchemaTest() {
+        this.dynamoDBMapper = new DynamoDBMapper(AmazonDynamoDBClientBuilder.standard()
+                .withRegion("us-east-1")
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("test", "test")))
+                .build());
+    }
+
+    @Test
+    public void shouldWriteTheSameItemsAsTheMapper() {
+        assertAll(
+                () -> assertEquals(dynamoDBMapper.getTableModel(Player.class).convert(Samples.player()), PlayerSchema.toItem(Samples.player())),
+                () -> assertEquals(dynamoDBMapper.getTableModel(Team.class).convert(Samples.team()), TeamSchema.toItem(Samples.team())),
+                () -> assertEquals(dynamoDBMapper.getTableModel(Offer.class).convert(Samples.offer()), OfferSchema.toItem(Samples.offer()))
+        );
+    }
+
+    @Test
+    public void shouldReadItemsWrittenByTheMapper() {
+        assertAll(
+                () -> assertEquals(Samples.player(), PlayerSchema.fromItem(dynamoDBMapper.getTableModel(Player.class).convert(Samples.player()))),
+                () -> assertEquals(Samples.team(), TeamSchema.fromItem(dynamoDBMapper.getTableModel(Team.class).convert(Samples.team()))),
+                () -> assertEquals(Samples.offer(), OfferSchema.fromItem(dynamoDBMapper.getTableModel(Offer.class).convert(Samples.offer())))
+        );
+    }
+
+    @Test
+    public void shouldReadLegacyAndPartialItems() {
+        Map<String, AttributeValue> legacyTeam = new HashMap<>(TeamSchema.toItem(Samples.team()));
+        legacyTeam.put("budget", new AttributeValue().withS("5000000.00"));
+        legacyTeam.put("playersId", new AttributeValue().withSS("player-uuid", "other-player-uuid"));
+        Map<String, AttributeValue> legacyOffer = Map.of(
+                "id", new AttributeValue().withS("player-uuid"),
+                "price", new AttributeValue().withN("150000000"));
+
+        Offer offer = OfferSchema.fromItem(legacyOffer);
+
+        assertAll(
+                () -> assertEquals(Samples.team(), TeamSchema.fromItem(legacyTeam)),
+                () -> assertEquals(150000000, offer.getPrice()),
+                () -> assertFalse(offer.hasPlayerSummary()),
+                () -> assertNull(OfferSchema.fromItem(null))
+        );
+    }
+
+    @Test
+    public void shouldLeaveEmptyAndMissingAttributesOut() {
+        Team team = Samples.team();
+        team.setPlayerCount(null);
+        team.setName(null);
+
+        Map<String, AttributeValue> item = TeamSchema.toItem(team);
+
+        assertAll(
+                () -> assertFalse(item.containsKey("playerCount")),
+                () -> assertFalse(item.containsKey("name")),
+                () -> assertEquals(Map.of("id", new AttributeValue().withS("luis@guadagnin.com")), TeamSchema.key("luis@guadagnin.com"))
+        );
+    }
+
+}
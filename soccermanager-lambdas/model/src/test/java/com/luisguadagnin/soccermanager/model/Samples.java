@@ -0,0 +1,47 @@
+package com.luisguadagnin.soccermanager.model;
+
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+
+class Samples {
+
+    private Samples() {}
+
+    static Player player() {
+        return Player.builder()
+                .id("player-uuid")
+                .firstName("Jay")
+                .lastName("Cutler")
+                .country("Brazil")
+                .age(35)
+                .value(Money.parse("1000000.00"))
+                .position(PlayerPosition.MIDFIELDER)
+                .teamId("luis@guadagnin.com")
+                .build();
+    }
+
+    static Team team() {
+        return Team.builder()
+                .id("luis@guadagnin.com")
+                .name("The Avengers")
+                .country("Brazil")
+                .value(Money.parse("20000000.00"))
+                .budget(Money.parse("5000000.00"))
+                .playerCount(2)
+                .build();
+    }
+
+    static Offer offer() {
+        return Offer.builder()
+                .id("player-uuid")
+                .price(150000000)
+                .discount(2500)
+                .country("Brazil")
+                .position(PlayerPosition.MIDFIELDER)
+                .firstName("Jay")
+                .lastName("Cutler")
+                .age(35)
+                .value(Money.parse("2000000.00"))
+                .build();
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.luisguadagnin.soccermanager.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the first use of DynamoDBMapper with the first use of the generated schemas, each in fresh JVMs,
+ * which is what a Lambda cold start pays. Run with RUN_BENCHMARKS=true mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+public class SchemaColdStartBenchmarkTest {
+
+    private static final int RUNS = 7;
+
+    @Test
+    public void reportColdStartTime() throws IOException, InterruptedException {
+        long[] mapper = new long[RUNS];
+        long[] schema = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            mapper[i] = probe("mapper");
+            schema[i] = probe("schema");
+        }
+        Arrays.sort(mapper);
+        Arrays.sort(schema);
+
+        System.out.printf("First write + read of Player, Team and Offer in a fresh JVM, median of %d runs (ms)%n", RUNS);
+        System.out.printf("  DynamoDBMapper      %6.1f%n", mapper[RUNS / 2] / 1_000_000.0);
+        System.out.printf("  generated schemas   %6.1f%n", schema[RUNS / 2] / 1_000_000.0);
+    }
+
+    private long probe(String mode) throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String classpath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        Process process = new ProcessBuilder(java, "-cp", classpath, ColdStartProbe.class.getName(), mode)
+                .redirectErrorStream(true)
+                .start();
+        String output;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            output = reader.lines().reduce("", (previous, line) -> line);
+        }
+        assertEquals(0, process.waitFor(), output);
+        return Long.parseLong(output.split(" ")[0]);
+    }
+
+}
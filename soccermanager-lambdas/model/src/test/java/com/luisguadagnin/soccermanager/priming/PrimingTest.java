@@ -0,0 +1,65 @@
+package com.luisguadagnin.soccermanager.priming;
+
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamSchema;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrimingTest {
+
+    @Test
+    public void shouldRunHotPathBeforeCheckpointAndRestoreAfterIt() {
+        AtomicInteger hotPathRuns = new AtomicInteger();
+        AtomicInteger restores = new AtomicInteger();
+        Priming priming = new Priming(hotPathRuns::incrementAndGet, restores::incrementAndGet);
+
+        priming.beforeCheckpoint(null);
+        int runsBeforeRestore = hotPathRuns.get();
+        priming.afterRestore(null);
+
+        assertAll(
+                () -> assertTrue(runsBeforeRestore > 1),
+                () -> assertEquals(runsBeforeRestore, hotPathRuns.get()),
+                () -> assertEquals(1, restores.get())
+        );
+    }
+
+    @Test
+    public void shouldNotFailCheckpointWhenHotPathFails() {
+        AtomicInteger hotPathRuns = new AtomicInteger();
+        Priming priming = new Priming(() -> {
+            hotPathRuns.incrementAndGet();
+            throw new IllegalStateException("stub answered 500");
+        }, () -> {});
+
+        priming.beforeCheckpoint(null);
+
+        assertEquals(1, hotPathRuns.get());
+    }
+
+    @Test
+    public void shouldServeTheSampleTeamAndOffer() {
+        PrimingDynamoDB primingDynamoDB = new PrimingDynamoDB();
+
+        Team team = TeamSchema.fromItem(primingDynamoDB.getItem(TeamSchema.TABLE_NAME, TeamSchema.key(PrimingDynamoDB.TEAM_ID)).getItem());
+        Player player = PlayerSchema.fromItem(primingDynamoDB.getItem(PlayerSchema.TABLE_NAME, PlayerSchema.key(PrimingDynamoDB.PLAYER_ID)).getItem());
+        Player listedPlayer = PlayerSchema.fromItem(primingDynamoDB.getItem(PlayerSchema.TABLE_NAME, PlayerSchema.key(PrimingDynamoDB.LISTED_PLAYER_ID)).getItem());
+
+        assertAll(
+                () -> assertEquals(20, team.getPlayerCount()),
+                () -> assertEquals(PrimingDynamoDB.TEAM_ID, player.getTeamId()),
+                () -> assertEquals(PrimingDynamoDB.SELLER_ID, listedPlayer.getTeamId()),
+                () -> assertNotNull(primingDynamoDB.getItem(OfferSchema.TABLE_NAME, OfferSchema.key(PrimingDynamoDB.LISTED_PLAYER_ID)).getItem())
+        );
+    }
+
+}
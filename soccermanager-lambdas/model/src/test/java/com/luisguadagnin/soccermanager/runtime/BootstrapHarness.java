@@ -0,0 +1,71 @@
+package com.luisguadagnin.soccermanager.runtime;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves a single event through a {@link RuntimeApiEmulator} as the provided.al2 bootstrap does, on the JVM through
+ * {@link LambdaRuntime} or from the native executable given by the native.executable property (set by mvn -Pnative verify),
+ * and reads back what the runtime answered.
+ */
+public class BootstrapHarness implements AutoCloseable {
+
+    private static final long JVM_TIMEOUT_SECONDS = 5;
+    private static final long NATIVE_TIMEOUT_SECONDS = 30;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RuntimeApiEmulator runtimeApiEmulator;
+
+    public BootstrapHarness() throws IOException {
+        runtimeApiEmulator = new RuntimeApiEmulator();
+    }
+
+    public JsonNode serve(RequestStreamHandler handler, String event) throws Exception {
+        CompletableFuture<RuntimeApiEmulator.Result> result = runtimeApiEmulator.invoke(event);
+        new LambdaRuntime(runtimeApiEmulator.getRuntimeApi()).handleNext(handler);
+        return read(result, JVM_TIMEOUT_SECONDS);
+    }
+
+    public <I, O> JsonNode serve(RequestHandler<I, O> handler, Class<I> inputType, String event) throws Exception {
+        CompletableFuture<RuntimeApiEmulator.Result> result = runtimeApiEmulator.invoke(event);
+        new LambdaRuntime(runtimeApiEmulator.getRuntimeApi()).handleNext(handler, inputType);
+        return read(result, JVM_TIMEOUT_SECONDS);
+    }
+
+    public JsonNode serveNative(Class<?> handler, String event) throws Exception {
+        return serveNative(handler, Map.of(), event);
+    }
+
+    public JsonNode serveNative(Class<?> handler, Map<String, String> functionEnvironment, String event) throws Exception {
+        Process bootstrap = runtimeApiEmulator.launch(System.getProperty("native.executable"), handler.getName(), functionEnvironment);
+        try {
+            return read(runtimeApiEmulator.invoke(event), NATIVE_TIMEOUT_SECONDS);
+        } finally {
+            bootstrap.destroy();
+        }
+    }
+
+    /**
+     * Reads the body of an HTTP API response served by this harness
+     */
+    public JsonNode body(JsonNode response) throws IOException {
+        return objectMapper.readTree(response.get("body").asText());
+    }
+
+    @Override
+    public void close() {
+        runtimeApiEmulator.close();
+    }
+
+    private JsonNode read(CompletableFuture<RuntimeApiEmulator.Result> result, long timeoutSeconds) throws Exception {
+        return objectMapper.readTree(result.get(timeoutSeconds, TimeUnit.SECONDS).getBody());
+    }
+
+}
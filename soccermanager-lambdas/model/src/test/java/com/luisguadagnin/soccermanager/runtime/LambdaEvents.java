@@ -0,0 +1,91 @@
+package com.luisguadagnin.soccermanager.runtime;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Events as Lambda delivers them to the functions: HTTP API (payload format 2.0) requests and SQS batches
+ */
+public final class LambdaEvents {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private LambdaEvents() {}
+
+    /**
+     * @param username the authorizer's username claim, or null for the routes without authorization
+     */
+    public static String httpApi(String method, String path, String username, Map<String, String> pathParameters,
+                                 Map<String, String> queryStringParameters, String body) {
+        Map<String, Object> http = new LinkedHashMap<>();
+        http.put("method", method);
+        http.put("path", path);
+        http.put("protocol", "HTTP/1.1");
+        http.put("sourceIp", "127.0.0.1");
+        http.put("userAgent", "runtime-api-emulator");
+
+        Map<String, Object> requestContext = new LinkedHashMap<>();
+        requestContext.put("accountId", "000000000000");
+        requestContext.put("apiId", "emulated");
+        if (username != null) {
+            requestContext.put("authorizer", Map.of("jwt", Map.of(
+                    "claims", Map.of("sub", UUID.randomUUID().toString(), "username", username, "token_use", "access"),
+                    "scopes", List.of())));
+        }
+        requestContext.put("domainName", "emulated.execute-api.us-east-1.amazonaws.com");
+        requestContext.put("domainPrefix", "emulated");
+        requestContext.put("http", http);
+        requestContext.put("requestId", UUID.randomUUID().toString());
+        requestContext.put("routeKey", method + " " + path);
+        requestContext.put("stage", "$default");
+        requestContext.put("timeEpoch", System.currentTimeMillis());
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("version", "2.0");
+        event.put("routeKey", method + " " + path);
+        event.put("rawPath", path);
+        event.put("rawQueryString", queryStringParameters == null ? "" : queryStringParameters.entrySet().stream()
+                .map(parameter -> parameter.getKey() + "=" + parameter.getValue())
+                .collect(Collectors.joining("&")));
+        event.put("headers", Map.of("content-type", "application/json", "host", "emulated.execute-api.us-east-1.amazonaws.com"));
+        if (queryStringParameters != null) event.put("queryStringParameters", queryStringParameters);
+        if (pathParameters != null) event.put("pathParameters", pathParameters);
+        event.put("requestContext", requestContext);
+        if (body != null) event.put("body", body);
+        event.put("isBase64Encoded", false);
+        return toJson(event);
+    }
+
+    public static String sqs(String... bodies) {
+        List<Map<String, Object>> records = List.of(bodies).stream()
+                .map(body -> {
+                    Map<String, Object> record = new LinkedHashMap<>();
+                    record.put("messageId", UUID.randomUUID().toString());
+                    record.put("receiptHandle", UUID.randomUUID().toString());
+                    record.put("body", body);
+                    record.put("attributes", Map.of("ApproximateReceiveCount", "1", "SentTimestamp", String.valueOf(System.currentTimeMillis())));
+                    record.put("messageAttributes", Map.of());
+                    record.put("eventSource", "aws:sqs");
+                    record.put("eventSourceARN", "arn:aws:sqs:us-east-1:000000000000:TeamProvisioning");
+                    record.put("awsRegion", "us-east-1");
+                    return record;
+                })
+                .collect(Collectors.toList());
+        return toJson(Map.of("Records", records));
+    }
+
+    private static String toJson(Object event) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(event);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
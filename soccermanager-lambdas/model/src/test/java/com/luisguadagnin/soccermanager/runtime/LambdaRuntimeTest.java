@@ -0,0 +1,122 @@
+package com.luisguadagnin.soccermanager.runtime;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.luisguadagnin.soccermanager.http.HttpApiHandler;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LambdaRuntimeTest {
+
+    private final RuntimeApiEmulator runtimeApiEmulator;
+    private final LambdaRuntime lambdaRuntime;
+
+    public LambdaRuntimeTest() throws IOException {
+        this.runtimeApiEmulator = new RuntimeApiEmulator();
+        this.lambdaRuntime = new LambdaRuntime(runtimeApiEmulator.getRuntimeApi());
+    }
+
+    @AfterEach
+    public void closeEmulator() {
+        runtimeApiEmulator.close();
+    }
+
+    @Test
+    public void shouldPostTheHandlerResponse() throws Exception {
+        CompletableFuture<RuntimeApiEmulator.Result> result = runtimeApiEmulator.invoke("\"soccer\"");
+
+        lambdaRuntime.handleNext(new UppercaseHandler(), String.class);
+
+        RuntimeApiEmulator.Result response = result.get(5, TimeUnit.SECONDS);
+        assertAll(
+                () -> assertFalse(response.isError()),
+                () -> assertEquals("\"SOCCER\"", response.getBody())
+        );
+    }
+
+    @Test
+    public void shouldPostTheHandlerError() throws Exception {
+        CompletableFuture<RuntimeApiEmulator.Result> result = runtimeApiEmulator.invoke("null");
+
+        lambdaRuntime.handleNext(new UppercaseHandler(), String.class);
+
+        RuntimeApiEmulator.Result response = result.get(5, TimeUnit.SECONDS);
+        assertAll(
+                () -> assertTrue(response.isError()),
+                () -> assertTrue(response.getBody().contains("\"errorType\":\"java.lang.NullPointerException\""))
+        );
+    }
+
+    @Test
+    public void shouldServeTheHandlerNamedAtStartup() throws InterruptedException, ExecutionException, TimeoutException {
+        Thread runtimeThread = new Thread(() -> lambdaRuntime.start(UppercaseHandler.class.getName()));
+        runtimeThread.setDaemon(true);
+        runtimeThread.start();
+
+        RuntimeApiEmulator.Result first = runtimeApiEmulator.invoke("\"first\"").get(5, TimeUnit.SECONDS);
+        RuntimeApiEmulator.Result second = runtimeApiEmulator.invoke("\"second\"").get(5, TimeUnit.SECONDS);
+
+        assertAll(
+                () -> assertEquals("\"FIRST\"", first.getBody()),
+                () -> assertEquals("\"SECOND\"", second.getBody())
+        );
+    }
+
+    @Test
+    public void shouldPassTheRawEventToStreamHandlers() throws InterruptedException, ExecutionException, TimeoutException {
+        Thread runtimeThread = new Thread(() -> lambdaRuntime.start(RouteHandler.class.getName()));
+        runtimeThread.setDaemon(true);
+        runtimeThread.start();
+
+        RuntimeApiEmulator.Result response = runtimeApiEmulator.invoke(LambdaEvents.httpApi("GET", "/team", "luis@guadagnin.com", null, null, null))
+                .get(5, TimeUnit.SECONDS);
+
+        assertAll(
+                () -> assertFalse(response.isError()),
+                () -> assertEquals("{\"statusCode\":200,\"body\":\"GET /team luis@guadagnin.com\"}", response.getBody())
+        );
+    }
+
+    @Test
+    public void shouldReportInitErrorWhenHandlerIsMissing() throws InterruptedException, ExecutionException, TimeoutException {
+        lambdaRuntime.start("com.luisguadagnin.soccermanager.MissingHandler");
+
+        RuntimeApiEmulator.Result initError = runtimeApiEmulator.getInitError().get(5, TimeUnit.SECONDS);
+        assertTrue(initError.getBody().contains("\"errorType\":\"java.lang.ClassNotFoundException\""));
+    }
+
+    public static class UppercaseHandler implements RequestHandler<String, String> {
+
+        @Override
+        public String handleRequest(String input, Context context) {
+            if (context.getRemainingTimeInMillis() <= 0) throw new IllegalStateException("Invocation past its deadline");
+            return input.toUpperCase();
+        }
+
+    }
+
+    public static class RouteHandler extends HttpApiHandler {
+
+        @Override
+        public HttpApiResponse handleRequest(HttpApiRequest request, Context context) {
+            return new HttpApiResponse()
+                    .withStatusCode(200)
+                    .withBody(request.getRouteKey() + " " + request.getUsername());
+        }
+
+    }
+
+}
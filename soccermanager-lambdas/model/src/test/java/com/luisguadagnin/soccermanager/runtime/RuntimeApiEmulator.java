@@ -0,0 +1,156 @@
+package com.luisguadagnin.soccermanager.runtime;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Local stand-in for the Lambda Runtime API: hands out the queued events as invocations and collects what the runtime posts back,
+ * so a handler can be run through {@link LambdaRuntime} or a native bootstrap without deploying it.
+ */
+public class RuntimeApiEmulator implements AutoCloseable {
+
+    private static final String RUNTIME_PATH = "/2018-06-01/runtime/";
+
+    private final HttpServer server;
+    private final ExecutorService executorService;
+    private final BlockingQueue<String> pendingRequestIds = new LinkedBlockingQueue<>();
+    private final Map<String, String> events = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Result>> results = new ConcurrentHashMap<>();
+    private final CompletableFuture<Result> initError = new CompletableFuture<>();
+
+    public RuntimeApiEmulator() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executorService = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "runtime-api-emulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executorService); // the next invocation is long-polled
+        server.createContext(RUNTIME_PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * Value of AWS_LAMBDA_RUNTIME_API for the runtime under test
+     */
+    public String getRuntimeApi() {
+        return server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Starts a native bootstrap serving this emulator's invocations with the given handler, as Lambda starts a provided.al2 function
+     */
+    public Process launch(String executable, String handler) throws IOException {
+        return launch(executable, handler, Map.of());
+    }
+
+    /**
+     * Starts a native bootstrap as {@link #launch(String, String)} does, with the function's own environment variables too
+     */
+    public Process launch(String executable, String handler, Map<String, String> functionEnvironment) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(executable).inheritIO();
+        Map<String, String> environment = processBuilder.environment();
+        environment.putAll(functionEnvironment);
+        environment.put("AWS_LAMBDA_RUNTIME_API", getRuntimeApi());
+        environment.put("_HANDLER", handler);
+        environment.put("AWS_REGION", "us-east-1");
+        environment.put("AWS_ACCESS_KEY_ID", "emulated");
+        environment.put("AWS_SECRET_ACCESS_KEY", "emulated");
+        environment.put("AWS_LAMBDA_FUNCTION_MEMORY_SIZE", "512");
+        return processBuilder.start();
+    }
+
+    public CompletableFuture<Result> invoke(String event) {
+        String requestId = UUID.randomUUID().toString();
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        events.put(requestId, event);
+        results.put(requestId, result);
+        pendingRequestIds.add(requestId);
+        return result;
+    }
+
+    public CompletableFuture<Result> getInitError() {
+        return initError;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().substring(RUNTIME_PATH.length()).split("/");
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+
+        if (path.length == 2 && path[0].equals("invocation") && path[1].equals("next")) {
+            String requestId;
+            try {
+                requestId = pendingRequestIds.take();
+            } catch (InterruptedException ex) {
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Lambda-Runtime-Aws-Request-Id", requestId);
+            exchange.getResponseHeaders().add("Lambda-Runtime-Deadline-Ms", String.valueOf(System.currentTimeMillis() + 60000));
+            exchange.getResponseHeaders().add("Lambda-Runtime-Invoked-Function-Arn", "arn:aws:lambda:us-east-1:000000000000:function:emulated");
+            exchange.getResponseHeaders().add("Lambda-Runtime-Trace-Id", "Root=1-00000000-000000000000000000000000;Sampled=0");
+            respond(exchange, 200, events.remove(requestId));
+        } else if (path.length == 3 && path[0].equals("invocation") && results.containsKey(path[1])
+                && (path[2].equals("response") || path[2].equals("error"))) {
+            results.remove(path[1]).complete(new Result(path[2].equals("error"), body));
+            respond(exchange, 202, "{\"status\":\"OK\"}");
+        } else if (path.length == 2 && path[0].equals("init") && path[1].equals("error")) {
+            initError.complete(new Result(true, body));
+            respond(exchange, 202, "{\"status\":\"OK\"}");
+        } else {
+            respond(exchange, 404, "{\"errorMessage\":\"Unknown resource\"}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * What the runtime posted back for an invocation
+     */
+    public static class Result {
+
+        private final boolean error;
+        private final String body;
+
+        Result(boolean error, String body) {
+            this.error = error;
+            this.body = body;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+    }
+
+}
@@ -1,111 +1,165 @@
 package com.luisguadagnin.soccermanager;
 
 import com.amazonaws.services.lambda.runtime.Context;
-import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.amazonaws.util.StringUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.dto.PurchasePlayerRequest;
+import com.luisguadagnin.soccermanager.dto.PurchaseSettlement;
 import com.luisguadagnin.soccermanager.exception.BadRequestException;
+import com.luisguadagnin.soccermanager.exception.ConflictException;
 import com.luisguadagnin.soccermanager.exception.NotFoundException;
+import com.luisguadagnin.soccermanager.exception.TeamProvisioningException;
+import com.luisguadagnin.soccermanager.http.HttpApiHandler;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.model.Money;
 import com.luisguadagnin.soccermanager.model.Offer;
 import com.luisguadagnin.soccermanager.model.Player;
-import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.priming.Priming;
+import com.luisguadagnin.soccermanager.priming.PrimingDynamoDB;
 import com.luisguadagnin.soccermanager.repository.OfferRepository;
 import com.luisguadagnin.soccermanager.repository.PlayerRepository;
-import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.repository.PurchaseRepository;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
+import java.util.function.Supplier;
 
-public class PurchasePlayerHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+public class PurchasePlayerHandler extends HttpApiHandler {
 
     private final ObjectMapper objectMapper;
     private final PlayerRepository playerRepository;
     private final OfferRepository offerRepository;
-    private final TeamRepository teamRepository;
+    private final PurchaseRepository purchaseRepository;
 
     public PurchasePlayerHandler() {
         this.objectMapper = new ObjectMapper();
         this.playerRepository = new PlayerRepository();
         this.offerRepository = new OfferRepository();
-        this.teamRepository = new TeamRepository();
+        this.purchaseRepository = new PurchaseRepository();
+        Priming.register(this::prime, AWSConfiguration::refresh);
     }
 
-    PurchasePlayerHandler(PlayerRepository playerRepository, OfferRepository offerRepository, TeamRepository teamRepository) {
-        this.objectMapper = new ObjectMapper();
+    PurchasePlayerHandler(PlayerRepository playerRepository, OfferRepository offerRepository, PurchaseRepository purchaseRepository) {
+        this(new ObjectMapper(), playerRepository, offerRepository, purchaseRepository);
+    }
+
+    private PurchasePlayerHandler(ObjectMapper objectMapper, PlayerRepository playerRepository, OfferRepository offerRepository,
+                                  PurchaseRepository purchaseRepository) {
+        this.objectMapper = objectMapper;
         this.playerRepository = playerRepository;
         this.offerRepository = offerRepository;
-        this.teamRepository = teamRepository;
+        this.purchaseRepository = purchaseRepository;
+    }
+
+    /* Buys the stub listed player through this handler's ObjectMapper, so its deserializers are cached in the snapshot too */
+    void prime() {
+        PrimingDynamoDB primingDynamoDB = new PrimingDynamoDB();
+        PurchasePlayerHandler primingHandler = new PurchasePlayerHandler(objectMapper, new PlayerRepository(primingDynamoDB),
+                new OfferRepository(primingDynamoDB), new PurchaseRepository(primingDynamoDB));
+
+        HttpApiResponse response = primingHandler.invoke(
+                buildPrimingRequest("{ \"playerId\": \"" + PrimingDynamoDB.LISTED_PLAYER_ID + "\" }"));
+
+        Priming.checkStatusCode(200, response.getStatusCode());
+    }
+
+    private static HttpApiRequest buildPrimingRequest(String body) {
+        return new HttpApiRequest()
+                .withBody(body)
+                .withUsername(PrimingDynamoDB.TEAM_ID);
     }
 
     @Override
-    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent, Context context) {
+    public HttpApiResponse handleRequest(HttpApiRequest request, Context context) {
         try {
-            purchasePlayer(apiGatewayProxyRequestEvent);
+            purchasePlayer(request);
         } catch (BadRequestException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse(ex.getMessage()))
                     .withStatusCode(400);
         } catch (NotFoundException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse(ex.getMessage()))
                     .withStatusCode(404);
+        } catch (ConflictException | TeamProvisioningException ex) {
+            return new HttpApiResponse()
+                    .withHeaders(Map.of("Content-Type", "application/json"))
+                    .withBody(buildErrorResponse(ex.getMessage()))
+                    .withStatusCode(409);
         } catch (Exception ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse("Internal server error"))
                     .withStatusCode(500);
         }
-        return new APIGatewayProxyResponseEvent()
+        return new HttpApiResponse()
                 .withStatusCode(200);
     }
 
-    private void purchasePlayer(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) {
-        String loggedUser = extractUsername(apiGatewayProxyRequestEvent);
-        PurchasePlayerRequest purchasePlayerRequest = buildRequestFromBody(apiGatewayProxyRequestEvent);
+    private void purchasePlayer(HttpApiRequest request) {
+        String loggedUser = extractUsername(request);
+        PurchasePlayerRequest purchasePlayerRequest = buildRequestFromBody(request);
         validateRequest(purchasePlayerRequest);
+        String playerId = purchasePlayerRequest.getPlayerId();
 
-        Player purchasedPlayer = findPlayerById(purchasePlayerRequest.getPlayerId());
-        Team originalTeam = findTeamById(purchasedPlayer.getTeamId());
-        Team newTeam = findTeamById(loggedUser);
-        validateDistinctTeams(originalTeam, newTeam);
-        Offer offer = findOfferById(purchasedPlayer.getId());
-
-        updateTeamBudgets(originalTeam, newTeam, offer);
-        updatePlayerTeam(purchasedPlayer, originalTeam, newTeam);
-        updateOriginalTeamValue(originalTeam, purchasedPlayer);
-        updatePlayerValue(purchasedPlayer);
-        updateNewTeamValue(newTeam, purchasedPlayer);
-
-        offerRepository.delete(offer);
-        teamRepository.save(originalTeam);
-        teamRepository.save(newTeam);
-        playerRepository.save(purchasedPlayer);
+        Player cachedPlayer = findPlayerById(playerId);
+        try {
+            purchase(cachedPlayer, loggedUser, () -> new BadRequestException("No offer found for this player")); // converts into 400
+        } catch (ConflictException ex) {
+            /* Only a player that came stale from the cache is worth another try, otherwise another request won the race */
+            Player freshPlayer = findPlayerById(playerId);
+            if (!isStale(cachedPlayer, freshPlayer)) throw ex;
+            /* A fresh player whose offer is gone was just sold by another request */
+            purchase(freshPlayer, loggedUser, () -> new ConflictException("Player was sold to another team")); // converts into 409
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private String extractUsername(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) {
+    private void purchase(Player purchasedPlayer, String loggedUser, Supplier<RuntimeException> notListed) {
+        validateDistinctTeams(purchasedPlayer.getTeamId(), loggedUser);
+        Offer offer = Optional
+                .ofNullable(offerRepository.findById(purchasedPlayer.getId()))
+                .orElseThrow(notListed);
+
         try {
-            Map<String, Object> authorizer = apiGatewayProxyRequestEvent.getRequestContext().getAuthorizer();
-            Map<String, Object> jwt = (Map<String, Object>) authorizer.get("jwt");
-            Map<String, Object> claims = (Map<String, Object>) jwt.get("claims");
-            return (String) claims.get("username");
-        } catch (ClassCastException ex) {
-            throw new RuntimeException("Unable to process authorization token", ex);
+            settle(purchasedPlayer, offer, loggedUser);
+        } catch (ConflictException ex) {
+            playerRepository.evict(purchasedPlayer.getId());
+            throw ex;
         }
+        playerRepository.evict(purchasedPlayer.getId()); // now the buyer's, with a new value
     }
 
-    private PurchasePlayerRequest buildRequestFromBody(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) {
-        String bodyStr = apiGatewayProxyRequestEvent.getBody();
+    private boolean isStale(Player cachedPlayer, Player freshPlayer) {
+        return !Objects.equals(cachedPlayer.getTeamId(), freshPlayer.getTeamId())
+                || !Objects.equals(cachedPlayer.getValue(), freshPlayer.getValue());
+    }
+
+    private void settle(Player purchasedPlayer, Offer offer, String loggedUser) {
+        /* Budgets and values are changed with atomic ADD updates, the buyer's budget is checked by the transaction itself */
+        purchaseRepository.settle(PurchaseSettlement.builder()
+                .playerId(purchasedPlayer.getId())
+                .price(Money.ofCents(offer.getPrice()))
+                .playerExpectedValue(purchasedPlayer.getValue())
+                .playerValue(purchasedPlayer.getValue().increasedBy(generateRandomNumberBetween(10, 100)))
+                .sellerTeamId(purchasedPlayer.getTeamId())
+                .buyerTeamId(loggedUser)
+                .build());
+    }
+
+    private String extractUsername(HttpApiRequest request) {
+        if (request.getUsername() == null) throw new RuntimeException("Unable to process authorization token");
+        return request.getUsername();
+    }
+
+    private PurchasePlayerRequest buildRequestFromBody(HttpApiRequest request) {
+        String bodyStr = request.getBody();
         try {
             return objectMapper.readValue(bodyStr, PurchasePlayerRequest.class);
         } catch (JsonProcessingException ex) {
@@ -125,71 +179,12 @@ public class PurchasePlayerHandler implements RequestHandler<APIGatewayProxyRequ
                 .orElseThrow(() -> new NotFoundException("Player not found")); // converts into 404
     }
 
-    private Team findTeamById(String teamId) {
-        return Optional
-                .ofNullable(teamRepository.findById(teamId))
-                .orElseThrow(() -> new RuntimeException("Team not found")); // converts into 500
-    }
-
-    private Offer findOfferById(String offerId) {
-        return Optional
-                .ofNullable(offerRepository.findById(offerId))
-                .orElseThrow(() -> new BadRequestException("No offer found for this player")); // converts into 400
-    }
-
-    private void validateDistinctTeams(Team originalTeam, Team newTeam) {
-        if (Objects.equals(originalTeam.getId(), newTeam.getId())) {
+    private void validateDistinctTeams(String originalTeamId, String newTeamId) {
+        if (Objects.equals(originalTeamId, newTeamId)) {
             throw new BadRequestException("Cannot buy a player from your own team");
         }
     }
 
-    private void updateTeamBudgets(Team originalTeam, Team newTeam, Offer offer) {
-        BigDecimal purchaseCost = new BigDecimal(offer.getPrice()).divide(new BigDecimal("100"), 2, RoundingMode.UNNECESSARY);
-
-        /* Updates new team budget */
-        BigDecimal newTeamBudget = new BigDecimal(newTeam.getBudget()).setScale(2, RoundingMode.UNNECESSARY);
-        if (newTeamBudget.compareTo(purchaseCost) < 0) {
-            throw new BadRequestException("Not enough budget to purchase player");
-        }
-        BigDecimal newNewTeamBudget = newTeamBudget.subtract(purchaseCost);
-        newTeam.setBudget(newNewTeamBudget.toString());
-
-        /* Updates original team budget */
-        BigDecimal originalTeamBudget = new BigDecimal(originalTeam.getBudget()).setScale(2, RoundingMode.UNNECESSARY);
-        BigDecimal newOriginalTeamBudget = originalTeamBudget.add(purchaseCost);
-        originalTeam.setBudget(newOriginalTeamBudget.toString());
-    }
-
-    private void updatePlayerTeam(Player purchasedPlayer, Team originalTeam, Team newTeam) {
-        purchasedPlayer.setTeamId(newTeam.getId());
-        originalTeam.getPlayersId().remove(purchasedPlayer.getId());
-        newTeam.getPlayersId().add(purchasedPlayer.getId());
-    }
-
-    private void updateOriginalTeamValue(Team originalTeam, Player purchasedPlayer) {
-        BigDecimal playerValue = new BigDecimal(purchasedPlayer.getValue());
-        BigDecimal teamValue = new BigDecimal(originalTeam.getValue());
-        BigDecimal newTeamValue = teamValue.subtract(playerValue);
-        originalTeam.setValue(newTeamValue.toString());
-    }
-
-    private void updatePlayerValue(Player purchasedPlayer) {
-        BigDecimal oldValue = new BigDecimal(purchasedPlayer.getValue());
-        int percentageIncrease = generateRandomNumberBetween(10, 100);
-        BigDecimal multiplier = new BigDecimal(percentageIncrease)
-                .divide(new BigDecimal(100), 2, RoundingMode.UNNECESSARY)
-                .add(BigDecimal.ONE);
-        BigDecimal newValue = oldValue.multiply(multiplier).setScale(2, RoundingMode.HALF_DOWN);
-        purchasedPlayer.setValue(newValue.toString());
-    }
-
-    private void updateNewTeamValue(Team newTeam, Player purchasedPlayer) {
-        BigDecimal playerValue = new BigDecimal(purchasedPlayer.getValue());
-        BigDecimal teamValue = new BigDecimal(newTeam.getValue());
-        BigDecimal newTeamValue = teamValue.add(playerValue);
-        newTeam.setValue(newTeamValue.toString());
-    }
-
     private int generateRandomNumberBetween(int min, int max) {
         Random random = new Random();
         return random.nextInt(max - min + 1) + min;
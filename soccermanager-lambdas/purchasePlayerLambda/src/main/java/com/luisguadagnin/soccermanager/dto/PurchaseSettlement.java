@@ -0,0 +1,22 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import com.luisguadagnin.soccermanager.model.Money;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Everything written by a purchase. Team budgets and values are changed by the price and player value deltas,
+ * so the teams don't need to be read beforehand.
+ */
+@Data
+@Builder
+public class PurchaseSettlement {
+
+    private String playerId;
+    private Money price;
+    private Money playerExpectedValue;
+    private Money playerValue;
+    private String sellerTeamId;
+    private String buyerTeamId;
+
+}
@@ -1,23 +1,24 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
 
 public class OfferRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    private final AmazonDynamoDB amazonDynamoDB;
 
     public OfferRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        amazonDynamoDB = AWSConfiguration.getAmazonDynamoDB();
     }
 
-    public Offer findById(String id) {
-        return dynamoDBMapper.load(Offer.class, id);
+    public OfferRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
     }
 
-    public void delete(Offer offer) {
-        dynamoDBMapper.delete(offer);
+    public Offer findById(String id) {
+        return OfferSchema.fromItem(amazonDynamoDB.getItem(OfferSchema.TABLE_NAME, OfferSchema.key(id)).getItem());
     }
 
 }
@@ -0,0 +1,186 @@
+package com.luisguadagnin.soccermanager.repository;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.Delete;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.luisguadagnin.soccermanager.cache.MarketVersion;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.dto.PurchaseSettlement;
+import com.luisguadagnin.soccermanager.exception.BadRequestException;
+import com.luisguadagnin.soccermanager.exception.ConflictException;
+import com.luisguadagnin.soccermanager.exception.TeamProvisioningException;
+import com.luisguadagnin.soccermanager.migration.MoneyAttributes;
+import com.luisguadagnin.soccermanager.model.Money;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class PurchaseRepository {
+
+    private static final String OFFER_TABLE = "Offer";
+    private static final String TEAM_TABLE = "Team";
+    private static final String PLAYER_TABLE = "Player";
+    private static final int BUYER_ITEM = 1;
+    private static final int PLAYER_ITEM = 3;
+    private static final Set<String> CONFLICT_REASONS = Set.of("ConditionalCheckFailed", "TransactionConflict");
+    private static final Set<String> LEGACY_MONEY_REASONS = Set.of("ConditionalCheckFailed", "ValidationError");
+    private static final AttributeValue ONE = new AttributeValue().withN("1");
+    private static final AttributeValue MINUS_ONE = new AttributeValue().withN("-1");
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final MarketVersion marketVersion;
+    private final MoneyAttributes moneyAttributes;
+
+    public PurchaseRepository() {
+        this(AWSConfiguration.getAmazonDynamoDB());
+    }
+
+    public PurchaseRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.marketVersion = new MarketVersion(amazonDynamoDB);
+        this.moneyAttributes = new MoneyAttributes(amazonDynamoDB);
+    }
+
+    /**
+     * Deletes the offer, moves the player and settles both teams, bumping their versions, in a single transaction.
+     * Rosters are read through the player's teamId, so moving the player only changes the teams' player counts.
+     * Fails with {@link BadRequestException} if the buyer can't afford the player, with {@link TeamProvisioningException} if the
+     * buyer's team hasn't been saved since signup yet and with {@link ConflictException} if the offer or the player changed since
+     * they were read.
+     * <p>
+     * Teams and players written before money was stored in cents may still hold decimal strings, which ADD can't add to
+     * and conditions don't compare with numbers. When the teams or the player fail the transaction, their money is
+     * rewritten as numbers, and the transaction is tried once more if anything was rewritten.
+     */
+    public void settle(PurchaseSettlement settlement) {
+        AttributeValue playerId = new AttributeValue().withS(settlement.getPlayerId());
+        AttributeValue price = money(settlement.getPrice());
+
+        Delete deleteOffer = new Delete()
+                .withTableName(OFFER_TABLE)
+                .withKey(Map.of("id", playerId))
+                .withConditionExpression("price = :price")
+                .withExpressionAttributeValues(Map.of(":price", price));
+
+        Update updateBuyer = new Update()
+                .withTableName(TEAM_TABLE)
+                .withKey(Map.of("id", new AttributeValue().withS(settlement.getBuyerTeamId())))
+                .withUpdateExpression("ADD budget :cost, #value :playerValue, playerCount :one, #version :one")
+                .withConditionExpression("attribute_exists(id) AND budget >= :price")
+                .withExpressionAttributeNames(Map.of("#value", "value", "#version", "version"))
+                .withExpressionAttributeValues(Map.of(
+                        ":cost", money(settlement.getPrice().negate()),
+                        ":price", price,
+                        ":playerValue", money(settlement.getPlayerValue()),
+                        ":one", ONE));
+
+        Update updateSeller = new Update()
+                .withTableName(TEAM_TABLE)
+                .withKey(Map.of("id", new AttributeValue().withS(settlement.getSellerTeamId())))
+                .withUpdateExpression("ADD budget :price, #value :playerValue, playerCount :minusOne, #version :one")
+                .withConditionExpression("attribute_exists(id)")
+                .withExpressionAttributeNames(Map.of("#value", "value", "#version", "version"))
+                .withExpressionAttributeValues(Map.of(
+                        ":price", price,
+                        ":playerValue", money(settlement.getPlayerExpectedValue().negate()),
+                        ":minusOne", MINUS_ONE,
+                        ":one", ONE));
+
+        Update updatePlayer = new Update()
+                .withTableName(PLAYER_TABLE)
+                .withKey(Map.of("id", playerId))
+                .withUpdateExpression("SET teamId = :buyer, #value = :value")
+                .withConditionExpression("teamId = :seller AND #value = :expectedValue")
+                .withExpressionAttributeNames(Map.of("#value", "value"))
+                .withExpressionAttributeValues(Map.of(
+                        ":buyer", new AttributeValue().withS(settlement.getBuyerTeamId()),
+                        ":seller", new AttributeValue().withS(settlement.getSellerTeamId()),
+                        ":value", money(settlement.getPlayerValue()),
+                        ":expectedValue", money(settlement.getPlayerExpectedValue())));
+
+        TransactWriteItemsRequest request = new TransactWriteItemsRequest().withTransactItems(List.of(
+                new TransactWriteItem().withDelete(deleteOffer),
+                new TransactWriteItem().withUpdate(updateBuyer),
+                new TransactWriteItem().withUpdate(updateSeller),
+                new TransactWriteItem().withUpdate(updatePlayer)));
+        try {
+            amazonDynamoDB.transactWriteItems(request);
+        } catch (TransactionCanceledException ex) {
+            if (!mayHoldLegacyMoney(reasonCodes(ex)) || convertLegacyMoney(settlement) == 0) {
+                throw translate(ex, settlement);
+            }
+            try {
+                amazonDynamoDB.transactWriteItems(request);
+            } catch (TransactionCanceledException retried) {
+                throw translate(retried, settlement);
+            }
+        }
+        marketVersion.bump();
+    }
+
+    private RuntimeException translate(TransactionCanceledException ex, PurchaseSettlement settlement) {
+        List<String> reasons = reasonCodes(ex);
+        if (isOnlyFailure(reasons, BUYER_ITEM)) {
+            /* The cancellation doesn't tell which half of the condition failed, so the buyer is read once more */
+            return teamExists(settlement.getBuyerTeamId())
+                    ? new BadRequestException("Not enough budget to purchase player")
+                    : new TeamProvisioningException();
+        }
+        if (reasons.stream().anyMatch(CONFLICT_REASONS::contains)) {
+            return new ConflictException("Player was changed by another request, please try again");
+        }
+        return ex;
+    }
+
+    private boolean teamExists(String teamId) {
+        return amazonDynamoDB.getItem(new GetItemRequest()
+                        .withTableName(TEAM_TABLE)
+                        .withKey(Map.of("id", new AttributeValue().withS(teamId)))
+                        .withProjectionExpression("id")
+                        .withConsistentRead(true))
+                .getItem() != null;
+    }
+
+    private boolean mayHoldLegacyMoney(List<String> reasons) {
+        for (int i = BUYER_ITEM; i <= PLAYER_ITEM && i < reasons.size(); i++) {
+            if (LEGACY_MONEY_REASONS.contains(reasons.get(i))) return true;
+        }
+        return false;
+    }
+
+    private int convertLegacyMoney(PurchaseSettlement settlement) {
+        return moneyAttributes.convert(TEAM_TABLE, settlement.getBuyerTeamId())
+                + moneyAttributes.convert(TEAM_TABLE, settlement.getSellerTeamId())
+                + moneyAttributes.convert(PLAYER_TABLE, settlement.getPlayerId());
+    }
+
+    private List<String> reasonCodes(TransactionCanceledException ex) {
+        return Optional.ofNullable(ex.getCancellationReasons()).orElse(List.of()).stream()
+                .map(CancellationReason::getCode)
+                .collect(Collectors.toList());
+    }
+
+    private boolean isOnlyFailure(List<String> reasons, int item) {
+        for (int i = 0; i < reasons.size(); i++) {
+            boolean failed = !"None".equals(reasons.get(i));
+            if (failed != (i == item && "ConditionalCheckFailed".equals(reasons.get(i)))) {
+                return false;
+            }
+        }
+        return reasons.size() > item;
+    }
+
+    private static AttributeValue money(Money money) {
+        return new AttributeValue().withN(Long.toString(money.getCents()));
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.luisguadagnin.soccermanager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.OfferRepository;
+import com.luisguadagnin.soccermanager.repository.PlayerRepository;
+import com.luisguadagnin.soccermanager.repository.PurchaseRepository;
+import com.luisguadagnin.soccermanager.runtime.BootstrapHarness;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serves HTTP API events through {@link BootstrapHarness}, on the JVM and, under mvn -Pnative verify,
+ * from the native executable.
+ */
+public class BootstrapTest {
+
+    private final BootstrapHarness bootstrapHarness;
+    private final PlayerRepository playerRepository;
+    private final OfferRepository offerRepository;
+    private final PurchaseRepository purchaseRepository;
+
+    public BootstrapTest() throws IOException {
+        this.bootstrapHarness = new BootstrapHarness();
+        this.playerRepository = mock(PlayerRepository.class);
+        this.offerRepository = mock(OfferRepository.class);
+        this.purchaseRepository = mock(PurchaseRepository.class);
+    }
+
+    @AfterEach
+    public void closeHarness() {
+        bootstrapHarness.close();
+    }
+
+    @Test
+    public void shouldPurchasePlayerThroughRuntimeApi() throws Exception {
+        String playerId = "player-uuid";
+        Player player = Player.builder()
+                .id(playerId)
+                .age(20)
+                .firstName("Julian")
+                .lastName("Assange")
+                .value(Money.parse("1000000.00"))
+                .teamId("original-team-uuid")
+                .country("Colombia")
+                .position(PlayerPosition.MIDFIELDER)
+                .build();
+
+        when(playerRepository.findById(playerId))
+                .thenReturn(player);
+        when(offerRepository.findById(playerId))
+                .thenReturn(Offer.builder().id(playerId).price(150000000).build());
+
+        JsonNode response = bootstrapHarness.serve(new PurchasePlayerHandler(playerRepository, offerRepository, purchaseRepository),
+                LambdaEvents.httpApi("POST", "/purchase", "luis@guadagnin.com", null, null,
+                        "{\"playerId\": \"" + playerId + "\"}"));
+
+        assertAll(
+                () -> assertEquals(200, response.get("statusCode").asInt()),
+                () -> verify(purchaseRepository).settle(any())
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.executable", matches = ".+")
+    public void shouldAnswerFromNativeExecutable() throws Exception {
+        // the body is read into PurchasePlayerRequest, then rejected before reaching DynamoDB
+        JsonNode response = bootstrapHarness.serveNative(PurchasePlayerHandler.class,
+                LambdaEvents.httpApi("POST", "/purchase", "luis@guadagnin.com", null, null,
+                        "{\"playerId\": \"\"}"));
+
+        assertAll(
+                () -> assertEquals(400, response.get("statusCode").asInt()),
+                () -> assertEquals("{ \"message\": \"\"playerId\" field is empty\" }", response.get("body").asText())
+        );
+    }
+
+}
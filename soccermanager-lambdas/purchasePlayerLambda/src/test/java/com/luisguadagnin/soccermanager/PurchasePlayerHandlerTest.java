@@ -1,29 +1,31 @@
 package com.luisguadagnin.soccermanager;
 
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.dto.PurchaseSettlement;
+import com.luisguadagnin.soccermanager.exception.BadRequestException;
+import com.luisguadagnin.soccermanager.exception.ConflictException;
+import com.luisguadagnin.soccermanager.exception.TeamProvisioningException;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.model.Money;
 import com.luisguadagnin.soccermanager.model.Offer;
 import com.luisguadagnin.soccermanager.model.Player;
-import com.luisguadagnin.soccermanager.model.Team;
 import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
 import com.luisguadagnin.soccermanager.repository.OfferRepository;
 import com.luisguadagnin.soccermanager.repository.PlayerRepository;
-import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.repository.PurchaseRepository;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
-import java.math.BigDecimal;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -32,13 +34,13 @@ public class PurchasePlayerHandlerTest {
     private final PurchasePlayerHandler purchasePlayerHandler;
     private final PlayerRepository playerRepository;
     private final OfferRepository offerRepository;
-    private final TeamRepository teamRepository;
+    private final PurchaseRepository purchaseRepository;
 
     public PurchasePlayerHandlerTest() {
         this.playerRepository = mock(PlayerRepository.class);
         this.offerRepository = mock(OfferRepository.class);
-        this.teamRepository = mock(TeamRepository.class);
-        this.purchasePlayerHandler = new PurchasePlayerHandler(playerRepository, offerRepository, teamRepository);
+        this.purchaseRepository = mock(PurchaseRepository.class);
+        this.purchasePlayerHandler = new PurchasePlayerHandler(playerRepository, offerRepository, purchaseRepository);
     }
 
     @Test
@@ -50,32 +52,7 @@ public class PurchasePlayerHandlerTest {
                 "}";
         String originalTeamId = "original-team-uuid";
 
-        Player player = Player.builder()
-                .id(playerId)
-                .age(20)
-                .firstName("Julian")
-                .lastName("Assange")
-                .value("1000000.00")
-                .teamId(originalTeamId)
-                .country("Colombia")
-                .position(PlayerPosition.MIDFIELDER)
-                .build();
-        Team originalTeam = Team.builder()
-                .id(originalTeamId)
-                .name("Los Grandes")
-                .country("Colombia")
-                .budget("5000000.00")
-                .playersId(new HashSet<>(Set.of(playerId)))
-                .value("20000000.00")
-                .build();
-        Team newTeam = Team.builder()
-                .id(username)
-                .name("Los Mejores")
-                .country("Chile")
-                .budget("5000000.00")
-                .playersId(new HashSet<>())
-                .value("20000000.00")
-                .build();
+        Player player = buildPlayer(playerId, originalTeamId);
         Offer offer = Offer.builder()
                 .id(playerId)
                 .price(150000000)
@@ -83,32 +60,27 @@ public class PurchasePlayerHandlerTest {
 
         when(playerRepository.findById(playerId))
                 .thenReturn(player);
-        when(teamRepository.findById(anyString()))
-                .thenReturn(originalTeam)
-                .thenReturn(newTeam);
         when(offerRepository.findById(playerId))
                 .thenReturn(offer);
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody);
+        HttpApiRequest input = createInput(username, requestBody);
+
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
 
-        APIGatewayProxyResponseEvent output = purchasePlayerHandler.handleRequest(input, null);
+        ArgumentCaptor<PurchaseSettlement> settlementCaptor = ArgumentCaptor.forClass(PurchaseSettlement.class);
+        verify(purchaseRepository).settle(settlementCaptor.capture());
+        PurchaseSettlement settlement = settlementCaptor.getValue();
 
         assertAll(
                 () -> assertEquals(200, output.getStatusCode()),
-                () -> verify(teamRepository).findById(originalTeamId),
-                () -> verify(teamRepository).findById(username),
-                () -> assertEquals("6500000.00", originalTeam.getBudget()),
-                () -> assertEquals("3500000.00", newTeam.getBudget()),
-                () -> assertEquals("19000000.00", originalTeam.getValue()),
-                () -> assertTrue(new BigDecimal("21000000.00").compareTo(new BigDecimal(newTeam.getValue())) < 0),
-                () -> assertFalse(originalTeam.getPlayersId().contains(playerId)),
-                () -> assertTrue(newTeam.getPlayersId().contains(playerId)),
-                () -> assertEquals(username, player.getTeamId()),
-                () -> assertTrue(new BigDecimal("1000000.00").compareTo(new BigDecimal(player.getValue())) < 0),
-                () -> verify(playerRepository).save(player),
-                () -> verify(teamRepository).save(originalTeam),
-                () -> verify(teamRepository).save(newTeam),
-                () -> verify(offerRepository).delete(offer)
+                () -> assertEquals(playerId, settlement.getPlayerId()),
+                () -> assertEquals(Money.parse("1500000.00"), settlement.getPrice()),
+                () -> assertEquals(originalTeamId, settlement.getSellerTeamId()),
+                () -> assertEquals(username, settlement.getBuyerTeamId()),
+                () -> assertEquals(Money.parse("1000000.00"), settlement.getPlayerExpectedValue()),
+                () -> assertTrue(Money.parse("1100000.00").compareTo(settlement.getPlayerValue()) <= 0),
+                () -> assertTrue(Money.parse("2000000.00").compareTo(settlement.getPlayerValue()) >= 0),
+                () -> verify(playerRepository).evict(playerId)
         );
     }
 
@@ -119,13 +91,13 @@ public class PurchasePlayerHandlerTest {
                 "  \"anyAttribute\": \"anyValue\"" +
                 "}";
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody);
+        HttpApiRequest input = createInput(username, requestBody);
 
-        APIGatewayProxyResponseEvent output = purchasePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(purchaseRepository, never()).settle(any())
         );
     }
 
@@ -136,13 +108,13 @@ public class PurchasePlayerHandlerTest {
                 "  \"playerId\": \"\"" +
                 "}";
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody);
+        HttpApiRequest input = createInput(username, requestBody);
 
-        APIGatewayProxyResponseEvent output = purchasePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(purchaseRepository, never()).settle(any())
         );
     }
 
@@ -157,13 +129,13 @@ public class PurchasePlayerHandlerTest {
         when(playerRepository.findById(playerId))
                 .thenReturn(null);
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody);
+        HttpApiRequest input = createInput(username, requestBody);
 
-        APIGatewayProxyResponseEvent output = purchasePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(404, output.getStatusCode()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(purchaseRepository, never()).settle(any())
         );
     }
 
@@ -175,38 +147,16 @@ public class PurchasePlayerHandlerTest {
                 "  \"playerId\": \"" + playerId + "\"" +
                 "}";
 
-        Player player = Player.builder()
-                .id(playerId)
-                .age(20)
-                .firstName("Julian")
-                .lastName("Assange")
-                .value("1000000.00")
-                .teamId(username)
-                .country("Colombia")
-                .position(PlayerPosition.MIDFIELDER)
-                .build();
-        Team team = Team.builder()
-                .id(username)
-                .name("Los Grandes")
-                .country("Colombia")
-                .budget("5000000.00")
-                .playersId(new HashSet<>(Set.of(playerId)))
-                .value("20000000.00")
-                .build();
-
         when(playerRepository.findById(playerId))
-                .thenReturn(player);
-        when(teamRepository.findById(anyString()))
-                .thenReturn(team)
-                .thenReturn(team);
+                .thenReturn(buildPlayer(playerId, username));
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody);
+        HttpApiRequest input = createInput(username, requestBody);
 
-        APIGatewayProxyResponseEvent output = purchasePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(purchaseRepository, never()).settle(any())
         );
     }
 
@@ -217,50 +167,19 @@ public class PurchasePlayerHandlerTest {
         String requestBody = "{" +
                 "  \"playerId\": \"" + playerId + "\"" +
                 "}";
-        String originalTeamId = "original-team-uuid";
-
-        Player player = Player.builder()
-                .id(playerId)
-                .age(20)
-                .firstName("Julian")
-                .lastName("Assange")
-                .value("1000000.00")
-                .teamId(originalTeamId)
-                .country("Colombia")
-                .position(PlayerPosition.MIDFIELDER)
-                .build();
-        Team originalTeam = Team.builder()
-                .id(originalTeamId)
-                .name("Los Grandes")
-                .country("Colombia")
-                .budget("5000000.00")
-                .playersId(new HashSet<>(Set.of(playerId)))
-                .value("20000000.00")
-                .build();
-        Team newTeam = Team.builder()
-                .id(username)
-                .name("Los Mejores")
-                .country("Chile")
-                .budget("5000000.00")
-                .playersId(new HashSet<>())
-                .value("20000000.00")
-                .build();
 
         when(playerRepository.findById(playerId))
-                .thenReturn(player);
-        when(teamRepository.findById(anyString()))
-                .thenReturn(originalTeam)
-                .thenReturn(newTeam);
+                .thenReturn(buildPlayer(playerId, "original-team-uuid"));
         when(offerRepository.findById(playerId))
                 .thenReturn(null);
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody);
+        HttpApiRequest input = createInput(username, requestBody);
 
-        APIGatewayProxyResponseEvent output = purchasePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(purchaseRepository, never()).settle(any())
         );
     }
 
@@ -271,63 +190,175 @@ public class PurchasePlayerHandlerTest {
         String requestBody = "{" +
                 "  \"playerId\": \"" + playerId + "\"" +
                 "}";
-        String originalTeamId = "original-team-uuid";
-
-        Player player = Player.builder()
-                .id(playerId)
-                .age(20)
-                .firstName("Julian")
-                .lastName("Assange")
-                .value("1000000.00")
-                .teamId(originalTeamId)
-                .country("Colombia")
-                .position(PlayerPosition.MIDFIELDER)
-                .build();
-        Team originalTeam = Team.builder()
-                .id(originalTeamId)
-                .name("Los Grandes")
-                .country("Colombia")
-                .budget("5000000.00")
-                .playersId(new HashSet<>(Set.of(playerId)))
-                .value("20000000.00")
-                .build();
-        Team newTeam = Team.builder()
-                .id(username)
-                .name("Los Mejores")
-                .country("Chile")
-                .budget("1000000.00")
-                .playersId(new HashSet<>())
-                .value("20000000.00")
-                .build();
-        Offer offer = Offer.builder()
-                .id(playerId)
-                .price(150000000)
-                .build();
 
         when(playerRepository.findById(playerId))
-                .thenReturn(player);
-        when(teamRepository.findById(anyString()))
-                .thenReturn(originalTeam)
-                .thenReturn(newTeam);
+                .thenReturn(buildPlayer(playerId, "original-team-uuid"));
         when(offerRepository.findById(playerId))
-                .thenReturn(offer);
+                .thenReturn(Offer.builder().id(playerId).price(150000000).build());
+        doThrow(new BadRequestException("Not enough budget to purchase player"))
+                .when(purchaseRepository).settle(any());
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody);
+        HttpApiRequest input = createInput(username, requestBody);
 
-        APIGatewayProxyResponseEvent output = purchasePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> assertEquals("{ \"message\": \"Not enough budget to purchase player\" }", output.getBody())
+        );
+    }
+
+    @Test
+    public void shouldAskToRetryWhileBuyersTeamIsStillBeingProvisioned() {
+        String username = "username-test";
+        String playerId = "player-uuid";
+        String requestBody = "{" +
+                "  \"playerId\": \"" + playerId + "\"" +
+                "}";
+
+        when(playerRepository.findById(playerId))
+                .thenReturn(buildPlayer(playerId, "original-team-uuid"));
+        when(offerRepository.findById(playerId))
+                .thenReturn(Offer.builder().id(playerId).price(150000000).build());
+        doThrow(new TeamProvisioningException())
+                .when(purchaseRepository).settle(any());
+
+        HttpApiRequest input = createInput(username, requestBody);
+
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(409, output.getStatusCode()),
+                () -> assertEquals("{ \"message\": \"Team is still being provisioned, please try again shortly\" }", output.getBody())
         );
     }
 
-    private APIGatewayProxyRequestEvent createInput(String username, String body) {
-        APIGatewayProxyRequestEvent.ProxyRequestContext context = new APIGatewayProxyRequestEvent.ProxyRequestContext();
-        context.setAuthorizer(Map.of("jwt", Map.of("claims", Map.of("username", username))));
+    @Test
+    public void shouldAnswerConflictWhenPurchaseRacesAnotherRequest() {
+        String username = "username-test";
+        String playerId = "player-uuid";
+        String requestBody = "{" +
+                "  \"playerId\": \"" + playerId + "\"" +
+                "}";
+
+        when(playerRepository.findById(playerId))
+                .thenReturn(buildPlayer(playerId, "original-team-uuid"));
+        when(offerRepository.findById(playerId))
+                .thenReturn(Offer.builder().id(playerId).price(150000000).build());
+        doThrow(new ConflictException("Player was changed by another request, please try again"))
+                .when(purchaseRepository).settle(any());
+
+        HttpApiRequest input = createInput(username, requestBody);
+
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(409, output.getStatusCode()),
+                () -> verify(playerRepository).evict(playerId),
+                () -> verify(purchaseRepository).settle(any())
+        );
+    }
+
+    @Test
+    public void shouldAnswerConflictWhenAnotherRequestBuysThePlayerFirst() {
+        String username = "username-test";
+        String playerId = "player-uuid";
+        String requestBody = "{" +
+                "  \"playerId\": \"" + playerId + "\"" +
+                "}";
+
+        /* The other buyer's transaction moved the player, raised its value and deleted the offer */
+        Player soldPlayer = buildPlayer(playerId, "winner-team-uuid");
+        soldPlayer.setValue(Money.parse("1500000.00"));
+        when(playerRepository.findById(playerId))
+                .thenReturn(buildPlayer(playerId, "original-team-uuid"))
+                .thenReturn(soldPlayer);
+        when(offerRepository.findById(playerId))
+                .thenReturn(Offer.builder().id(playerId).price(150000000).build())
+                .thenReturn(null);
+        doThrow(new ConflictException("Player was changed by another request, please try again"))
+                .when(purchaseRepository).settle(any());
+
+        HttpApiRequest input = createInput(username, requestBody);
+
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
+
+        assertAll(
+                () -> assertEquals(409, output.getStatusCode()),
+                () -> assertEquals("{ \"message\": \"Player was sold to another team\" }", output.getBody()),
+                () -> verify(purchaseRepository).settle(any())
+        );
+    }
+
+    @Test
+    public void shouldPurchasePlayerOnFreshReadWhenCachedPlayerIsStale() {
+        String username = "username-test";
+        String playerId = "player-uuid";
+        String requestBody = "{" +
+                "  \"playerId\": \"" + playerId + "\"" +
+                "}";
+
+        when(playerRepository.findById(playerId))
+                .thenReturn(buildPlayer(playerId, "former-team-uuid"))
+                .thenReturn(buildPlayer(playerId, "original-team-uuid"));
+        when(offerRepository.findById(playerId))
+                .thenReturn(Offer.builder().id(playerId).price(150000000).build());
+        doThrow(new ConflictException("Player was changed by another request, please try again"))
+                .doNothing()
+                .when(purchaseRepository).settle(any());
+
+        HttpApiRequest input = createInput(username, requestBody);
+
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(input, null);
+
+        ArgumentCaptor<PurchaseSettlement> settlementCaptor = ArgumentCaptor.forClass(PurchaseSettlement.class);
+        verify(purchaseRepository, times(2)).settle(settlementCaptor.capture());
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals("original-team-uuid", settlementCaptor.getValue().getSellerTeamId()),
+                () -> verify(playerRepository, times(2)).evict(playerId)
+        );
+    }
+
+    @Test
+    public void shouldPurchasePlayerThroughItsOwnRepositoriesAfterPrimingAndRestore() {
+        String username = "username-test";
+        String playerId = "player-uuid";
+        String requestBody = "{" +
+                "  \"playerId\": \"" + playerId + "\"" +
+                "}";
+
+        when(playerRepository.findById(playerId))
+                .thenReturn(buildPlayer(playerId, "original-team-uuid"));
+        when(offerRepository.findById(playerId))
+                .thenReturn(Offer.builder().id(playerId).price(150000000).build());
+
+        purchasePlayerHandler.prime();
+        AWSConfiguration.refresh();
+        HttpApiResponse output = purchasePlayerHandler.handleRequest(createInput(username, requestBody), null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> verify(purchaseRepository).settle(any())
+        );
+    }
+
+    private Player buildPlayer(String playerId, String teamId) {
+        return Player.builder()
+                .id(playerId)
+                .age(20)
+                .firstName("Julian")
+                .lastName("Assange")
+                .value(Money.parse("1000000.00"))
+                .teamId(teamId)
+                .country("Colombia")
+                .position(PlayerPosition.MIDFIELDER)
+                .build();
+    }
 
-        return new APIGatewayProxyRequestEvent()
+    private HttpApiRequest createInput(String username, String body) {
+        return new HttpApiRequest()
                 .withBody(body)
-                .withRequestContext(context);
+                .withUsername(username);
     }
 }
@@ -0,0 +1,246 @@
+package com.luisguadagnin.soccermanager.repository;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ResourceInUseException;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.luisguadagnin.soccermanager.dto.PurchaseSettlement;
+import com.luisguadagnin.soccermanager.exception.BadRequestException;
+import com.luisguadagnin.soccermanager.exception.ConflictException;
+import com.luisguadagnin.soccermanager.exception.TeamProvisioningException;
+import com.luisguadagnin.soccermanager.model.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against DynamoDB Local, e.g. DYNAMODB_LOCAL_ENDPOINT=http://localhost:8000
+ */
+@EnabledIfEnvironmentVariable(named = "DYNAMODB_LOCAL_ENDPOINT", matches = ".+")
+public class PurchaseRepositoryTest {
+
+    private static final int BUYERS = 8;
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final PurchaseRepository purchaseRepository;
+
+    public PurchaseRepositoryTest() {
+        this.amazonDynamoDB = AmazonDynamoDBClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(System.getenv("DYNAMODB_LOCAL_ENDPOINT"), "us-east-1"))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("local", "local")))
+                .build();
+        this.purchaseRepository = new PurchaseRepository(amazonDynamoDB);
+        List.of("Offer", "Team", "Player", "MarketVersion").forEach(this::createTable);
+    }
+
+    @Test
+    public void shouldLetExactlyOneConcurrentBuyerWin() throws InterruptedException {
+        String playerId = UUID.randomUUID().toString();
+        String sellerId = UUID.randomUUID().toString();
+        List<String> buyerIds = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) buyerIds.add(UUID.randomUUID().toString());
+
+        putItem("Offer", Map.of("id", s(playerId), "price", new AttributeValue().withN("150000000")));
+        putItem("Player", Map.of("id", s(playerId), "teamId", s(sellerId), "value", n(100000000)));
+        putItem("Team", Map.of("id", s(sellerId), "budget", n(500000000), "value", n(2000000000),
+                "playerCount", n(2)));
+        buyerIds.forEach(buyerId -> putItem("Team", Map.of("id", s(buyerId), "budget", n(500000000), "value", n(2000000000), "playerCount", n(0))));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> attempts = new ArrayList<>();
+        for (String buyerId : buyerIds) {
+            Callable<String> attempt = () -> {
+                start.await();
+                try {
+                    purchaseRepository.settle(buildSettlement(playerId, sellerId, buyerId));
+                    return buyerId;
+                } catch (ConflictException ex) {
+                    return null;
+                }
+            };
+            attempts.add(executorService.submit(attempt));
+        }
+        start.countDown();
+
+        List<String> winners = new ArrayList<>();
+        for (Future<String> attempt : attempts) {
+            try {
+                String winner = attempt.get();
+                if (winner != null) winners.add(winner);
+            } catch (ExecutionException ex) {
+                throw new AssertionError("Purchase failed with something other than a conflict", ex.getCause());
+            }
+        }
+        executorService.shutdown();
+
+        assertEquals(1, winners.size());
+        String winner = winners.get(0);
+        Map<String, AttributeValue> seller = getItem("Team", sellerId);
+        Map<String, AttributeValue> buyer = getItem("Team", winner);
+        assertAll(
+                () -> assertTrue(getItem("Offer", playerId) == null),
+                () -> assertEquals(winner, getItem("Player", playerId).get("teamId").getS()),
+                () -> assertEquals("150000000", getItem("Player", playerId).get("value").getN()),
+                () -> assertEquals("650000000", seller.get("budget").getN()),
+                () -> assertEquals("1900000000", seller.get("value").getN()),
+                () -> assertEquals("1", seller.get("playerCount").getN()),
+                () -> assertEquals("350000000", buyer.get("budget").getN()),
+                () -> assertEquals("2150000000", buyer.get("value").getN()),
+                () -> assertEquals("1", buyer.get("playerCount").getN())
+        );
+        for (String buyerId : buyerIds) {
+            if (!buyerId.equals(winner)) {
+                assertEquals("500000000", getItem("Team", buyerId).get("budget").getN());
+            }
+        }
+    }
+
+    @Test
+    public void shouldRejectPurchaseWhenBudgetIsLowerThanPrice() {
+        String playerId = UUID.randomUUID().toString();
+        String sellerId = UUID.randomUUID().toString();
+        String buyerId = UUID.randomUUID().toString();
+
+        putItem("Offer", Map.of("id", s(playerId), "price", new AttributeValue().withN("150000000")));
+        putItem("Player", Map.of("id", s(playerId), "teamId", s(sellerId), "value", n(100000000)));
+        putItem("Team", Map.of("id", s(sellerId), "budget", n(500000000), "value", n(2000000000),
+                "playerCount", n(1)));
+        putItem("Team", Map.of("id", s(buyerId), "budget", n(100000000), "value", n(2000000000)));
+
+        assertThrows(BadRequestException.class, () -> purchaseRepository.settle(buildSettlement(playerId, sellerId, buyerId)));
+        assertAll(
+                () -> assertEquals(sellerId, getItem("Player", playerId).get("teamId").getS()),
+                () -> assertEquals("100000000", getItem("Team", buyerId).get("budget").getN()),
+                () -> assertTrue(getItem("Offer", playerId) != null)
+        );
+    }
+
+    @Test
+    public void shouldAskToRetryPurchaseWhileBuyersTeamIsMissing() {
+        String playerId = UUID.randomUUID().toString();
+        String sellerId = UUID.randomUUID().toString();
+        String buyerId = UUID.randomUUID().toString();
+
+        putItem("Offer", Map.of("id", s(playerId), "price", new AttributeValue().withN("150000000")));
+        putItem("Player", Map.of("id", s(playerId), "teamId", s(sellerId), "value", n(100000000)));
+        putItem("Team", Map.of("id", s(sellerId), "budget", n(500000000), "value", n(2000000000),
+                "playerCount", n(1)));
+
+        assertThrows(TeamProvisioningException.class, () -> purchaseRepository.settle(buildSettlement(playerId, sellerId, buyerId)));
+        assertAll(
+                () -> assertEquals(sellerId, getItem("Player", playerId).get("teamId").getS()),
+                () -> assertTrue(getItem("Team", buyerId) == null)
+        );
+    }
+
+    @Test
+    public void shouldSettlePurchaseBetweenTeamsStillHoldingDecimalStrings() {
+        String playerId = UUID.randomUUID().toString();
+        String sellerId = UUID.randomUUID().toString();
+        String buyerId = UUID.randomUUID().toString();
+
+        putItem("Offer", Map.of("id", s(playerId), "price", new AttributeValue().withN("150000000")));
+        putItem("Player", Map.of("id", s(playerId), "teamId", s(sellerId), "value", s("1000000.00")));
+        putItem("Team", Map.of("id", s(sellerId), "budget", s("5000000.00"), "value", s("20000000.00"),
+                "playerCount", n(1)));
+        putItem("Team", Map.of("id", s(buyerId), "budget", s("5000000.00"), "value", s("20000000.00"), "playerCount", n(0)));
+
+        purchaseRepository.settle(buildSettlement(playerId, sellerId, buyerId));
+
+        Map<String, AttributeValue> seller = getItem("Team", sellerId);
+        Map<String, AttributeValue> buyer = getItem("Team", buyerId);
+        assertAll(
+                () -> assertTrue(getItem("Offer", playerId) == null),
+                () -> assertEquals(buyerId, getItem("Player", playerId).get("teamId").getS()),
+                () -> assertEquals("150000000", getItem("Player", playerId).get("value").getN()),
+                () -> assertEquals("650000000", seller.get("budget").getN()),
+                () -> assertEquals("1900000000", seller.get("value").getN()),
+                () -> assertEquals("350000000", buyer.get("budget").getN()),
+                () -> assertEquals("2150000000", buyer.get("value").getN())
+        );
+    }
+
+    @Test
+    public void shouldRejectPurchaseWhenBudgetStillHeldAsDecimalStringIsLowerThanPrice() {
+        String playerId = UUID.randomUUID().toString();
+        String sellerId = UUID.randomUUID().toString();
+        String buyerId = UUID.randomUUID().toString();
+
+        putItem("Offer", Map.of("id", s(playerId), "price", new AttributeValue().withN("150000000")));
+        putItem("Player", Map.of("id", s(playerId), "teamId", s(sellerId), "value", n(100000000)));
+        putItem("Team", Map.of("id", s(sellerId), "budget", n(500000000), "value", n(2000000000),
+                "playerCount", n(1)));
+        putItem("Team", Map.of("id", s(buyerId), "budget", s("1000000.00"), "value", n(2000000000)));
+
+        assertThrows(BadRequestException.class, () -> purchaseRepository.settle(buildSettlement(playerId, sellerId, buyerId)));
+        assertAll(
+                () -> assertEquals(sellerId, getItem("Player", playerId).get("teamId").getS()),
+                () -> assertEquals("100000000", getItem("Team", buyerId).get("budget").getN())
+        );
+    }
+
+    private PurchaseSettlement buildSettlement(String playerId, String sellerId, String buyerId) {
+        return PurchaseSettlement.builder()
+                .playerId(playerId)
+                .price(Money.parse("1500000.00"))
+                .playerExpectedValue(Money.parse("1000000.00"))
+                .playerValue(Money.parse("1500000.00"))
+                .sellerTeamId(sellerId)
+                .buyerTeamId(buyerId)
+                .build();
+    }
+
+    private void createTable(String tableName) {
+        try {
+            amazonDynamoDB.createTable(new CreateTableRequest()
+                    .withTableName(tableName)
+                    .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+                    .withAttributeDefinitions(new AttributeDefinition("id", ScalarAttributeType.S))
+                    .withBillingMode(BillingMode.PAY_PER_REQUEST));
+        } catch (ResourceInUseException ex) {
+            // created by a previous run
+        }
+    }
+
+    private void putItem(String tableName, Map<String, AttributeValue> item) {
+        amazonDynamoDB.putItem(tableName, item);
+    }
+
+    private Map<String, AttributeValue> getItem(String tableName, String id) {
+        return amazonDynamoDB.getItem(tableName, Map.of("id", s(id))).getItem();
+    }
+
+    private static AttributeValue s(String value) {
+        return new AttributeValue().withS(value);
+    }
+
+    private static AttributeValue n(long value) {
+        return new AttributeValue().withN(Long.toString(value));
+    }
+
+}
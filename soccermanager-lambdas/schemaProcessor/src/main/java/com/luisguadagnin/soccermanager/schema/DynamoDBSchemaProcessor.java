@@ -0,0 +1,297 @@
+package com.luisguadagnin.soccermanager.schema;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Generates {@code <Entity>Schema}, a reflection-free marshaller, next to every {@code @DynamoDBTable} class.
+ * It follows DynamoDBMapper's conventions for what it supports (string hash keys, strings, int/long numbers, string sets,
+ * {@code @DynamoDBTypeConvertedEnum} enums and {@code AttributeValue} converters), so either one reads what the other writes.
+ * Anything else fails the build instead of being silently skipped.
+ */
+@SupportedAnnotationTypes(DynamoDBSchemaProcessor.TABLE)
+public class DynamoDBSchemaProcessor extends AbstractProcessor {
+
+    static final String TABLE = "com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable";
+    private static final String HASH_KEY = "com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey";
+    private static final String ATTRIBUTE = "com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute";
+    private static final String IGNORE = "com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIgnore";
+    private static final String CONVERTED = "com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted";
+    private static final String CONVERTED_ENUM = "com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConvertedEnum";
+
+    private enum Kind { STRING, INT, LONG, STRING_SET, ENUM, CONVERTED }
+
+    private static class Attribute {
+
+        private final String fieldName;
+        private final String attributeName;
+        private final Kind kind;
+        private final boolean primitive;
+        private final String typeName;
+        private final String converterField;
+
+        private Attribute(String fieldName, String attributeName, Kind kind, boolean primitive, String typeName, String converterField) {
+            this.fieldName = fieldName;
+            this.attributeName = attributeName;
+            this.kind = kind;
+            this.primitive = primitive;
+            this.typeName = typeName;
+            this.converterField = converterField;
+        }
+
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    generate((TypeElement) element);
+                }
+            }
+        }
+        return false; // leaves the annotation to other processors
+    }
+
+    private void generate(TypeElement entity) {
+        String tableName = annotationValue(entity, TABLE, "tableName").orElse(entity.getSimpleName().toString());
+        Map<String, String> converters = new LinkedHashMap<>(); // converter class -> static field holding its instance
+        List<Attribute> attributes = new ArrayList<>();
+        String hashKey = null;
+
+        for (VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT) || annotation(field, IGNORE).isPresent()) {
+                continue;
+            }
+            String fieldName = field.getSimpleName().toString();
+            String attributeName = annotationValue(field, HASH_KEY, "attributeName")
+                    .or(() -> annotationValue(field, ATTRIBUTE, "attributeName"))
+                    .filter(name -> !name.isEmpty())
+                    .orElse(fieldName);
+            if (annotation(field, HASH_KEY).isPresent()) {
+                if (!"java.lang.String".equals(field.asType().toString())) {
+                    error(field, "Only String hash keys are supported");
+                    continue;
+                }
+                hashKey = attributeName;
+            }
+
+            Attribute attribute = toAttribute(field, fieldName, attributeName, converters);
+            if (attribute != null) {
+                attributes.add(attribute);
+            }
+        }
+
+        if (hashKey == null) {
+            error(entity, "@DynamoDBTable classes need a @DynamoDBHashKey field");
+            return;
+        }
+        write(entity, tableName, hashKey, attributes, converters);
+    }
+
+    private Attribute toAttribute(VariableElement field, String fieldName, String attributeName, Map<String, String> converters) {
+        TypeMirror type = field.asType();
+        Optional<String> converter = annotationValue(field, CONVERTED, "converter");
+        if (converter.isPresent()) {
+            String converterField = converters.computeIfAbsent(converter.get(), this::converterFieldName);
+            return new Attribute(fieldName, attributeName, Kind.CONVERTED, type.getKind().isPrimitive(), type.toString(), converterField);
+        }
+        if (type.getKind() == TypeKind.INT) return new Attribute(fieldName, attributeName, Kind.INT, true, "int", null);
+        if (type.getKind() == TypeKind.LONG) return new Attribute(fieldName, attributeName, Kind.LONG, true, "long", null);
+
+        if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declaredType = (DeclaredType) type;
+            String rawName = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+            switch (rawName) {
+                case "java.lang.String":
+                    return new Attribute(fieldName, attributeName, Kind.STRING, false, rawName, null);
+                case "java.lang.Integer":
+                    return new Attribute(fieldName, attributeName, Kind.INT, false, rawName, null);
+                case "java.lang.Long":
+                    return new Attribute(fieldName, attributeName, Kind.LONG, false, rawName, null);
+                case "java.util.Set":
+                    if (declaredType.getTypeArguments().size() == 1 && "java.lang.String".equals(declaredType.getTypeArguments().get(0).toString())) {
+                        return new Attribute(fieldName, attributeName, Kind.STRING_SET, false, type.toString(), null);
+                    }
+                    break;
+                default:
+                    if (declaredType.asElement().getKind() == ElementKind.ENUM && annotation(field, CONVERTED_ENUM).isPresent()) {
+                        return new Attribute(fieldName, attributeName, Kind.ENUM, false, rawName, null);
+                    }
+            }
+        }
+        error(field, "Unsupported attribute type " + type + ": add a type converter or @DynamoDBIgnore");
+        return null;
+    }
+
+    private void write(TypeElement entity, String tableName, String hashKey, List<Attribute> attributes, Map<String, String> converters) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+        String entityName = entity.getSimpleName().toString();
+        String schemaName = entityName + "Schema";
+        String variable = Character.toLowerCase(entityName.charAt(0)) + entityName.substring(1);
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(packageName).append(";\n\n")
+                .append("import com.amazonaws.services.dynamodbv2.model.AttributeValue;\n\n")
+                .append("import java.util.ArrayList;\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.HashSet;\n")
+                .append("import java.util.List;\n")
+                .append("import java.util.Map;\n\n")
+                .append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("public final class ").append(schemaName).append(" {\n\n")
+                .append("    public static final String TABLE_NAME = \"").append(tableName).append("\";\n")
+                .append("    public static final String HASH_KEY = \"").append(hashKey).append("\";\n");
+        converters.forEach((converterClass, field) -> source
+                .append("    private static final ").append(converterClass).append(' ').append(field)
+                .append(" = new ").append(converterClass).append("();\n"));
+
+        source.append("\n    private ").append(schemaName).append("() {}\n\n");
+
+        source.append("    public static Map<String, AttributeValue> key(String id) {\n")
+                .append("        return Map.of(HASH_KEY, new AttributeValue().withS(id));\n")
+                .append("    }\n\n");
+
+        source.append("    public static Map<String, AttributeValue> toItem(").append(entityName).append(' ').append(variable).append(") {\n")
+                .append("        Map<String, AttributeValue> item = new HashMap<>(").append(attributes.size() * 2).append(");\n");
+        for (Attribute attribute : attributes) {
+            source.append(toItemStatement(attribute, variable + "." + getter(attribute) + "()"));
+        }
+        source.append("        return item;\n")
+                .append("    }\n\n");
+
+        source.append("    public static ").append(entityName).append(" fromItem(Map<String, AttributeValue> item) {\n")
+                .append("        if (item == null) return null;\n")
+                .append("        ").append(entityName).append(' ').append(variable).append(" = new ").append(entityName).append("();\n")
+                .append("        AttributeValue attributeValue;\n");
+        for (Attribute attribute : attributes) {
+            source.append("        if ((attributeValue = item.get(\"").append(attribute.attributeName).append("\")) != null) ")
+                    .append(variable).append('.').append(setter(attribute)).append('(').append(fromAttributeValue(attribute)).append(");\n");
+        }
+        source.append("        return ").append(variable).append(";\n")
+                .append("    }\n\n");
+
+        source.append("    public static List<").append(entityName).append("> fromItems(List<Map<String, AttributeValue>> items) {\n")
+                .append("        List<").append(entityName).append("> ").append(variable).append("s = new ArrayList<>(items.size());\n")
+                .append("        for (Map<String, AttributeValue> item : items) {\n")
+                .append("            ").append(variable).append("s.add(fromItem(item));\n")
+                .append("        }\n")
+                .append("        return ").append(variable).append("s;\n")
+                .append("    }\n\n")
+                .append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(packageName + "." + schemaName, entity).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException ex) {
+            error(entity, "Unable to write " + schemaName + ": " + ex.getMessage());
+        }
+    }
+
+    private String toItemStatement(Attribute attribute, String value) {
+        String put = "item.put(\"" + attribute.attributeName + "\", ";
+        switch (attribute.kind) {
+            case INT:
+            case LONG:
+                if (attribute.primitive) {
+                    String boxed = attribute.kind == Kind.INT ? "Integer" : "Long";
+                    return "        " + put + "new AttributeValue().withN(" + boxed + ".toString(" + value + ")));\n";
+                }
+                return "        if (" + value + " != null) " + put + "new AttributeValue().withN(" + value + ".toString()));\n";
+            case STRING_SET:
+                return "        if (" + value + " != null && !" + value + ".isEmpty()) " + put + "new AttributeValue().withSS(" + value + "));\n";
+            case ENUM:
+                return "        if (" + value + " != null) " + put + "new AttributeValue().withS(" + value + ".name()));\n";
+            case CONVERTED:
+                return (attribute.primitive ? "        " : "        if (" + value + " != null) ")
+                        + put + attribute.converterField + ".convert(" + value + "));\n";
+            default:
+                return "        if (" + value + " != null) " + put + "new AttributeValue().withS(" + value + "));\n";
+        }
+    }
+
+    private String fromAttributeValue(Attribute attribute) {
+        switch (attribute.kind) {
+            case INT:
+                return "Integer.parseInt(attributeValue.getN())";
+            case LONG:
+                return "Long.parseLong(attributeValue.getN())";
+            case STRING_SET:
+                return "new HashSet<>(attributeValue.getSS())";
+            case ENUM:
+                return attribute.typeName + ".valueOf(attributeValue.getS())";
+            case CONVERTED:
+                return attribute.converterField + ".unconvert(attributeValue)";
+            default:
+                return "attributeValue.getS()";
+        }
+    }
+
+    /* Lombok's accessor names, which is what the model classes use */
+    private String getter(Attribute attribute) {
+        return "get" + capitalize(attribute.fieldName);
+    }
+
+    private String setter(Attribute attribute) {
+        return "set" + capitalize(attribute.fieldName);
+    }
+
+    private String converterFieldName(String converterClass) {
+        String simpleName = converterClass.substring(converterClass.lastIndexOf('.') + 1);
+        return simpleName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private Optional<AnnotationMirror> annotation(Element element, String annotationType) {
+        return element.getAnnotationMirrors().stream()
+                .filter(mirror -> annotationType.equals(mirror.getAnnotationType().toString()))
+                .map(mirror -> (AnnotationMirror) mirror)
+                .findFirst();
+    }
+
+    private Optional<String> annotationValue(Element element, String annotationType, String name) {
+        return annotation(element, annotationType).flatMap(mirror -> {
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (name.contentEquals(entry.getKey().getSimpleName())) {
+                    return Optional.of(entry.getValue().getValue().toString());
+                }
+            }
+            return Optional.empty();
+        });
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
@@ -1,139 +1,323 @@
 package com.luisguadagnin.soccermanager;
 
-import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.lambda.runtime.Context;
-import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.luisguadagnin.soccermanager.dto.KeyResource;
-import com.luisguadagnin.soccermanager.dto.OfferResponse;
+import com.luisguadagnin.soccermanager.cache.MarketVersion;
+import com.luisguadagnin.soccermanager.cache.SearchPageCache;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
 import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
-import com.luisguadagnin.soccermanager.dto.PlayerResponse;
+import com.luisguadagnin.soccermanager.dto.SearchCursor;
 import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
-import com.luisguadagnin.soccermanager.dto.SearchOffersResponse;
+import com.luisguadagnin.soccermanager.dto.SearchOffersResponseWriter;
+import com.luisguadagnin.soccermanager.engine.InMemorySnapshotStore;
+import com.luisguadagnin.soccermanager.engine.MarketFeed;
+import com.luisguadagnin.soccermanager.engine.OfferSearchEngine;
+import com.luisguadagnin.soccermanager.engine.OfferStream;
 import com.luisguadagnin.soccermanager.exception.BadRequestException;
-import com.luisguadagnin.soccermanager.model.Offer;
-import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.exception.ServiceUnavailableException;
+import com.luisguadagnin.soccermanager.http.EmbeddedMetrics;
+import com.luisguadagnin.soccermanager.http.HttpApiHandler;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
 import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.priming.Priming;
+import com.luisguadagnin.soccermanager.priming.PrimingDynamoDB;
+import com.luisguadagnin.soccermanager.priming.PrimingDynamoDBStreams;
+import com.luisguadagnin.soccermanager.repository.OfferHydrator;
 import com.luisguadagnin.soccermanager.repository.OfferRepository;
-import com.luisguadagnin.soccermanager.repository.PlayerRepository;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
-public class SearchOffersHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+public class SearchOffersHandler extends HttpApiHandler {
+
+    /* Each country, or pair of country and position, is a partition read in parallel */
+    private static final int MAX_COUNTRIES = 10;
+    /* Filtered pages are read on until they fill, so larger pages are cut to this size */
+    private static final int MAX_PAGE_SIZE = 100;
 
     private final ObjectMapper objectMapper;
-    private final PlayerRepository playerRepository;
+    private final SearchOffersResponseWriter searchOffersResponseWriter = new SearchOffersResponseWriter();
+    private final EmbeddedMetrics metrics = new EmbeddedMetrics();
     private final OfferRepository offerRepository;
+    private final SearchPageCache searchPageCache;
+    private final OfferSearchEngine offerSearchEngine;
 
     public SearchOffersHandler() {
         objectMapper = new ObjectMapper();
-        playerRepository = new PlayerRepository();
         offerRepository = new OfferRepository();
+        searchPageCache = new SearchPageCache();
+        offerSearchEngine = OfferSearchEngine.fromEnvironment();
+        Priming.register(this::prime, AWSConfiguration::refresh);
+    }
+
+    SearchOffersHandler(OfferRepository offerRepository) {
+        this(new ObjectMapper(), offerRepository, null, null);
+    }
+
+    SearchOffersHandler(OfferRepository offerRepository, SearchPageCache searchPageCache) {
+        this(new ObjectMapper(), offerRepository, searchPageCache, null);
+    }
+
+    SearchOffersHandler(OfferRepository offerRepository, SearchPageCache searchPageCache, OfferSearchEngine offerSearchEngine) {
+        this(new ObjectMapper(), offerRepository, searchPageCache, offerSearchEngine);
     }
 
-    SearchOffersHandler(PlayerRepository playerRepository, OfferRepository offerRepository) {
-        this.playerRepository = playerRepository;
+    private SearchOffersHandler(ObjectMapper objectMapper, OfferRepository offerRepository, SearchPageCache searchPageCache,
+                                OfferSearchEngine offerSearchEngine) {
         this.offerRepository = offerRepository;
-        this.objectMapper = new ObjectMapper();
+        this.objectMapper = objectMapper;
+        this.searchPageCache = searchPageCache;
+        this.offerSearchEngine = offerSearchEngine;
+    }
+
+    /*
+     * Searches the stub offers through the repository and through a search engine loaded from what a feed of a stub stream
+     * wrote, so the response writer, the page cache, the repository's and the engine's code paths are loaded in the snapshot too
+     */
+    void prime() {
+        PrimingDynamoDB primingDynamoDB = new PrimingDynamoDB();
+        ExecutorService executorService = AWSConfiguration.getExecutorService();
+        OfferHydrator offerHydrator = new OfferHydrator(primingDynamoDB, executorService);
+        SearchOffersHandler primingHandler = new SearchOffersHandler(objectMapper,
+                new OfferRepository(primingDynamoDB, offerHydrator, executorService),
+                new SearchPageCache(new MarketVersion(primingDynamoDB)), null);
+        InMemorySnapshotStore snapshotStore = new InMemorySnapshotStore();
+        InMemorySnapshotStore deltaStore = new InMemorySnapshotStore();
+        new MarketFeed(primingDynamoDB, new OfferStream(new PrimingDynamoDBStreams(primingDynamoDB, OfferSchema.TABLE_NAME), "priming"),
+                snapshotStore, deltaStore).poll();
+        SearchOffersHandler primingEngineHandler = new SearchOffersHandler(objectMapper, null, null,
+                new OfferSearchEngine(snapshotStore, deltaStore, offerHydrator));
+
+        for (SearchOffersHandler handler : List.of(primingHandler, primingEngineHandler)) {
+            for (Map<String, String> queryParameters : List.of(Map.of("orderBy", "discount"), Map.of("country", "Brazil", "orderBy", "price"))) {
+                HttpApiResponse response = handler.invoke(new HttpApiRequest().withQueryStringParameters(queryParameters));
+                Priming.checkStatusCode(200, response.getStatusCode());
+            }
+        }
     }
 
     @Override
-    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent, Context context) {
+    public HttpApiResponse handleRequest(HttpApiRequest request, Context context) {
         String response;
         try {
-            response = searchOffers(apiGatewayProxyRequestEvent);
+            response = searchOffers(request);
         } catch (BadRequestException ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse(ex.getMessage()))
                     .withStatusCode(400);
+        } catch (ServiceUnavailableException ex) {
+            return new HttpApiResponse()
+                    .withHeaders(Map.of("Content-Type", "application/json", "Retry-After", "1"))
+                    .withBody(buildErrorResponse(ex.getMessage()))
+                    .withStatusCode(503);
         } catch (Exception ex) {
-            return new APIGatewayProxyResponseEvent()
+            return new HttpApiResponse()
                     .withHeaders(Map.of("Content-Type", "application/json"))
                     .withBody(buildErrorResponse("Internal server error"))
                     .withStatusCode(500);
         }
-        return new APIGatewayProxyResponseEvent()
+        return new HttpApiResponse()
                 .withBody(response)
                 .withHeaders(Map.of("Content-Type", "application/json"))
                 .withStatusCode(200);
     }
 
-    private String searchOffers(APIGatewayProxyRequestEvent apiGatewayProxyRequestEvent) throws JsonProcessingException {
-        Map<String, String> queryParameters = Optional.ofNullable(apiGatewayProxyRequestEvent.getQueryStringParameters()).orElse(new HashMap<>());
+    private String searchOffers(HttpApiRequest httpApiRequest) {
+        Map<String, String> queryParameters = Optional.ofNullable(httpApiRequest.getQueryStringParameters()).orElse(new HashMap<>());
         SearchOffersRequest request = buildRequestFromQueryParameters(queryParameters);
 
-        OffersQueryResponse offersQueryResponse = offerRepository.findByQuery(request);
+        /*
+         * Pages answered by the engine continue through it, and pages read from the indexes through them. An engine cursor is
+         * valid even when this container has no index to continue it from, e.g. while its snapshot can't be read, so that is
+         * answered as unavailable for a moment rather than as a bad request.
+         */
+        SearchCursor cursor = request.getExclusiveStartKey();
+        if (cursor != null && cursor.getAfter() != null) {
+            return writePage(Optional.ofNullable(offerSearchEngine)
+                    .flatMap(engine -> searchEngine(request))
+                    .orElseThrow(() -> new ServiceUnavailableException("Search index is not loaded yet, please try again")));
+        }
+        if (cursor == null && offerSearchEngine != null) {
+            Optional<OffersQueryResponse> page = searchEngine(request);
+            publishEngineMetrics(offerSearchEngine.lagMillis(), page.isEmpty());
+            if (page.isPresent()) return writePage(page.get());
+        }
+        return searchPageCache == null ? readPage(request) : searchPageCache.get(request, this::readPage);
+    }
 
-        List<String> offerIds = offersQueryResponse.getOffers().stream().map(Offer::getId).collect(Collectors.toList());
-        Map<String, Player> mapIdPlayer = playerRepository.findById(offerIds).stream().collect(Collectors.toMap(
-                Player::getId,
-                Function.identity()
-        ));
+    /*
+     * Empty when the engine has no index current enough, or the snapshot's storage can't be read for now. Anything else is a
+     * bug of the engine, which is logged and counted rather than hidden behind the indexes.
+     */
+    private Optional<OffersQueryResponse> searchEngine(SearchOffersRequest request) {
+        try {
+            return offerSearchEngine.search(request);
+        } catch (UncheckedIOException ex) {
+            return Optional.empty();
+        } catch (RuntimeException ex) {
+            System.err.println("Search engine failed:");
+            ex.printStackTrace();
+            publishEngineError();
+            throw ex;
+        }
+    }
 
-        SearchOffersResponse searchOffersResponse = buildResponse(offersQueryResponse, mapIdPlayer);
-        return objectMapper.writeValueAsString(searchOffersResponse);
+    private String readPage(SearchOffersRequest request) {
+        OffersQueryResponse offersQueryResponse = offerRepository.findByQuery(request);
+        publishReadMetrics(offersQueryResponse);
+        return writePage(offersQueryResponse);
     }
 
+    private String writePage(OffersQueryResponse offersQueryResponse) {
+        try {
+            return searchOffersResponseWriter.write(offersQueryResponse).toString();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /* Values the search reads the same way are normalized, so equal searches share their cached pages */
     private SearchOffersRequest buildRequestFromQueryParameters(Map<String, String> queryParameters) {
-        String orderBy = queryParameters.getOrDefault("orderBy", "price");
-        return SearchOffersRequest.builder()
-                .country(queryParameters.get("country"))
-                .position(Optional.ofNullable(queryParameters.get("position")).map(PlayerPosition::valueOf).orElse(null))
+        String orderBy = "price".equals(queryParameters.getOrDefault("orderBy", "price")) ? "price" : "discount";
+        String orderDirection = queryParameters.getOrDefault("orderDirection", "price".equals(orderBy) ? "ASC" : "DESC");
+        SearchOffersRequest request = SearchOffersRequest.builder()
+                .countries(parseCountries(queryParameters))
+                .positions(parsePositions(queryParameters))
                 .orderBy(orderBy)
-                .orderDirection(queryParameters.getOrDefault("orderDirection", "price".equals(orderBy) ? "ASC" : "DESC"))
-                .pageSize(Integer.parseInt(queryParameters.getOrDefault("pageSize", "10")))
+                .orderDirection("ASC".equals(orderDirection) ? "ASC" : "DESC")
+                .pageSize(parsePageSize(queryParameters))
+                .minPrice(parseAmount(queryParameters, "minPrice"))
+                .maxPrice(parseAmount(queryParameters, "maxPrice"))
+                .minDiscount(parseDiscount(queryParameters, "minDiscount"))
+                .maxDiscount(parseDiscount(queryParameters, "maxDiscount"))
+                .minAge(parseInteger(queryParameters, "minAge"))
+                .maxAge(parseInteger(queryParameters, "maxAge"))
+                .minValue(parseAmount(queryParameters, "minValue"))
+                .maxValue(parseAmount(queryParameters, "maxValue"))
                 .exclusiveStartKey(convertExclusiveStartKey(queryParameters.get("exclusiveStartKey")))
                 .build();
+        validateRange("price", request.getMinPrice(), request.getMaxPrice());
+        validateRange("discount", request.getMinDiscount(), request.getMaxDiscount());
+        validateRange("age", request.getMinAge(), request.getMaxAge());
+        validateRange("value", request.getMinValue(), request.getMaxValue());
+        return request;
     }
 
-    private Map<String, AttributeValue> convertExclusiveStartKey(String str) {
+    /* Repeated query parameters reach the handler joined by commas, eg.: country=Brazil&country=Argentina as "Brazil,Argentina" */
+    private List<String> parseList(Map<String, String> queryParameters, String name) {
+        String value = queryParameters.get(name);
+        if (value == null) return List.of();
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private List<String> parseCountries(Map<String, String> queryParameters) {
+        List<String> countries = parseList(queryParameters, "country");
+        if (countries.size() > MAX_COUNTRIES) {
+            throw new BadRequestException("Too many countries");
+        }
+        return countries;
+    }
+
+    private List<PlayerPosition> parsePositions(Map<String, String> queryParameters) {
+        try {
+            return parseList(queryParameters, "position").stream()
+                    .map(PlayerPosition::valueOf)
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid position");
+        }
+    }
+
+    /* Prices and discounts are given as decimals, like in the response, eg.: maxPrice=2000000.00 or minDiscount=10.5 */
+    private Long parseAmount(Map<String, String> queryParameters, String name) {
+        String value = queryParameters.get(name);
+        if (value == null) return null;
+        try {
+            return Money.parse(value).getCents();
+        } catch (NumberFormatException | ArithmeticException ex) {
+            throw new BadRequestException("Invalid " + name);
+        }
+    }
+
+    private Integer parseDiscount(Map<String, String> queryParameters, String name) {
+        Long discount = parseAmount(queryParameters, name);
+        if (discount == null) return null;
+        if (discount < Integer.MIN_VALUE || discount > Integer.MAX_VALUE) {
+            throw new BadRequestException("Invalid " + name);
+        }
+        return discount.intValue();
+    }
+
+    private int parsePageSize(Map<String, String> queryParameters) {
+        Integer pageSize = parseInteger(queryParameters, "pageSize");
+        if (pageSize == null) return 10;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Invalid pageSize");
+        }
+        return pageSize;
+    }
+
+    private Integer parseInteger(Map<String, String> queryParameters, String name) {
+        String value = queryParameters.get(name);
+        if (value == null) return null;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Invalid " + name);
+        }
+    }
+
+    private <T extends Comparable<T>> void validateRange(String field, T min, T max) {
+        if (min != null && max != null && min.compareTo(max) > 0) {
+            throw new BadRequestException("Invalid " + field + " range");
+        }
+    }
+
+    private SearchCursor convertExclusiveStartKey(String str) {
         if (str == null) return null;
         try {
-            return objectMapper.readValue(str, KeyResource.class).toMap();
+            return objectMapper.readValue(str, SearchCursor.class);
         } catch (JsonProcessingException e) {
             throw new BadRequestException("Invalid exclusiveStartKey");
         }
     }
 
-    private SearchOffersResponse buildResponse(OffersQueryResponse offersQueryResponse, Map<String, Player> mapIdPlayer) {
-        return SearchOffersResponse.builder()
-                .lastEvaluatedKey(Optional.ofNullable(offersQueryResponse.getLastEvaluatedKey()).map(KeyResource::new).orElse(null))
-                .offers(offersQueryResponse.getOffers().stream()
-                        .map(offer -> buildOfferResponse(offer, mapIdPlayer))
-                        .collect(Collectors.toList()))
-                .build();
+    /* Logs what reading the page cost as metrics */
+    private void publishReadMetrics(OffersQueryResponse page) {
+        metrics.line()
+                .metric("SearchConsumedCapacity", "None", page.getConsumedCapacity())
+                .count("SearchQueries", page.getQueries())
+                .count("SearchOffers", page.getOffers().size())
+                .publish();
     }
 
-    private OfferResponse buildOfferResponse(Offer offer, Map<String, Player> mapIdPlayer) {
-        return OfferResponse.builder()
-                .id(offer.getId())
-                .discount(new BigDecimal(offer.getDiscount()).divide(new BigDecimal(100), 2, RoundingMode.UNNECESSARY).toString())
-                .price(new BigDecimal(offer.getPrice()).divide(new BigDecimal(100), 2, RoundingMode.UNNECESSARY).toString())
-                .player(buildPlayerResponse(mapIdPlayer.get(offer.getId())))
-                .build();
+    /* Logs how far behind the engine's index is, and whether the page fell back to the indexes, as metrics */
+    private void publishEngineMetrics(long lagMillis, boolean fellBack) {
+        metrics.line();
+        if (lagMillis != Long.MAX_VALUE) metrics.metric("SearchEngineLag", "Milliseconds", lagMillis);
+        metrics.count("SearchEngineFallbacks", fellBack ? 1 : 0).publish();
     }
 
-    private PlayerResponse buildPlayerResponse(Player player) {
-        return PlayerResponse.builder()
-                .value(player.getValue())
-                .position(player.getPosition())
-                .country(player.getCountry())
-                .lastName(player.getLastName())
-                .firstName(player.getFirstName())
-                .age(player.getAge())
-                .id(player.getId())
-                .build();
+    private void publishEngineError() {
+        metrics.line().count("SearchEngineErrors", 1).publish();
     }
 
     private String buildErrorResponse(String message) {
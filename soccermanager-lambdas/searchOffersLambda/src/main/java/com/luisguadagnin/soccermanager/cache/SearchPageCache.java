@@ -0,0 +1,48 @@
+package com.luisguadagnin.soccermanager.cache;
+
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * GET /offer response bodies, keyed by the search and the market version they were read at. A page is answered again
+ * without reaching DynamoDB until its TTL ends or any container changes the market, which shows once the version is polled again.
+ */
+public class SearchPageCache {
+
+    private static final Duration TTL = Duration.ofSeconds(Optional.ofNullable(System.getenv("SEARCH_CACHE_TTL_SECONDS"))
+            .map(Long::parseLong)
+            .orElse(5L));
+    private static final long MAX_BYTES = Optional.ofNullable(System.getenv("SEARCH_CACHE_MAX_BYTES"))
+            .map(Long::parseLong)
+            .orElse(16L * 1024 * 1024);
+
+    private final MarketVersion marketVersion;
+    private final ReadThroughCache<PageKey, String> cache;
+
+    public SearchPageCache() {
+        this(new MarketVersion(AWSConfiguration.getAmazonDynamoDB()));
+    }
+
+    public SearchPageCache(MarketVersion marketVersion) {
+        this.marketVersion = marketVersion;
+        this.cache = new ReadThroughCache<>("SearchPage", TTL, MAX_BYTES, body -> 64 + 2L * body.length());
+    }
+
+    public String get(SearchOffersRequest request, Function<SearchOffersRequest, String> search) {
+        return cache.get(new PageKey(request, marketVersion.current()), key -> search.apply(key.getRequest()));
+    }
+
+    @Data
+    private static class PageKey {
+
+        private final SearchOffersRequest request;
+        private final long marketVersion;
+
+    }
+
+}
@@ -2,14 +2,19 @@ package com.luisguadagnin.soccermanager.configuration;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicSessionCredentials;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreamsClient;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AWSConfiguration {
 
+    private static final int EXECUTOR_THREADS = 8;
+
     private static String awsAccessKeyId;
     private static String awsSecretKey;
     private static String awsRegion;
@@ -17,7 +22,8 @@ public class AWSConfiguration {
     private static AWSCredentials awsCredentials;
     private static AWSCredentialsProvider awsCredentialsProvider;
     private static AmazonDynamoDB amazonDynamoDB;
-    private static DynamoDBMapper dynamoDBMapper;
+    private static AmazonDynamoDBStreams amazonDynamoDBStreams;
+    private static ExecutorService executorService;
 
     private AWSConfiguration() {}
 
@@ -56,13 +62,37 @@ public class AWSConfiguration {
         return awsCredentials;
     }
 
+    /**
+     * Clients keep this provider, so credentials dropped by {@link #refresh()} are read again on their next request
+     */
     public static AWSCredentialsProvider getAwsCredentialsProvider() {
         if (awsCredentialsProvider == null) {
-            awsCredentialsProvider = new AWSStaticCredentialsProvider(getAwsCredentials());
+            awsCredentialsProvider = new AWSCredentialsProvider() {
+                @Override
+                public AWSCredentials getCredentials() {
+                    return getAwsCredentials();
+                }
+
+                @Override
+                public void refresh() {
+                    AWSConfiguration.refresh();
+                }
+            };
         }
         return awsCredentialsProvider;
     }
 
+    /**
+     * Drops the credentials read from the environment, which belong to the environment that took a snapshot
+     * and must be read again once it is restored
+     */
+    public static void refresh() {
+        awsAccessKeyId = null;
+        awsSecretKey = null;
+        awsSessionToken = null;
+        awsCredentials = null;
+    }
+
     public static AmazonDynamoDB getAmazonDynamoDB() {
         if (amazonDynamoDB == null) {
             amazonDynamoDB = AmazonDynamoDBClient.builder()
@@ -73,11 +103,25 @@ public class AWSConfiguration {
         return amazonDynamoDB;
     }
 
-    public static DynamoDBMapper getDynamoDBMapper() {
-        if (dynamoDBMapper == null) {
-            dynamoDBMapper = new DynamoDBMapper(getAmazonDynamoDB());
+    public static AmazonDynamoDBStreams getAmazonDynamoDBStreams() {
+        if (amazonDynamoDBStreams == null) {
+            amazonDynamoDBStreams = AmazonDynamoDBStreamsClient.builder()
+                    .withCredentials(getAwsCredentialsProvider())
+                    .withRegion(getAwsRegion())
+                    .build();
+        }
+        return amazonDynamoDBStreams;
+    }
+
+    public static ExecutorService getExecutorService() {
+        if (executorService == null) {
+            executorService = Executors.newFixedThreadPool(EXECUTOR_THREADS, runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
         }
-        return dynamoDBMapper;
+        return executorService;
     }
 
 }
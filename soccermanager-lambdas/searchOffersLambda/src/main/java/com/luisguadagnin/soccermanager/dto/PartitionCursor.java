@@ -0,0 +1,22 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PartitionCursor {
+
+    @JsonProperty("pkv")
+    private String partitionKeyValue;
+
+    /* Null when nothing was read from this partition yet */
+    @JsonProperty("key")
+    private KeyResource key;
+
+}
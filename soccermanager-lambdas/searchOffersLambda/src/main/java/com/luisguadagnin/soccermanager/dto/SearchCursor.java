@@ -0,0 +1,27 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchCursor {
+
+    /* Only partitions that still have offers to read are listed */
+    @JsonProperty("partitions")
+    private List<PartitionCursor> partitions;
+
+    /* Set instead of partitions on pages answered by the search engine: the sort key and id of the page's last offer */
+    @JsonProperty("after")
+    private KeyResource after;
+
+    public SearchCursor(List<PartitionCursor> partitions) {
+        this.partitions = partitions;
+    }
+
+}
@@ -1,19 +1,31 @@
 package com.luisguadagnin.soccermanager.dto;
 
-import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
 import lombok.Builder;
 import lombok.Data;
 
-import java.util.Map;
+import java.util.List;
 
 @Data
 @Builder
 public class SearchOffersRequest {
-    private String country;
-    private PlayerPosition position;
+    /* Offers of any of the given countries and positions, sorted so equal searches are equal requests */
+    @Builder.Default
+    private List<String> countries = List.of();
+    @Builder.Default
+    private List<PlayerPosition> positions = List.of();
     private String orderBy;
     private String orderDirection;
     private int pageSize;
-    private Map<String, AttributeValue> exclusiveStartKey;
+    /* Inclusive bounds, null when open: prices in cents, discounts in hundredths of a percent */
+    private Long minPrice;
+    private Long maxPrice;
+    private Integer minDiscount;
+    private Integer maxDiscount;
+    /* Filters on the listed player, applied after the index is read; values in cents */
+    private Integer minAge;
+    private Integer maxAge;
+    private Long minValue;
+    private Long maxValue;
+    private SearchCursor exclusiveStartKey;
 }
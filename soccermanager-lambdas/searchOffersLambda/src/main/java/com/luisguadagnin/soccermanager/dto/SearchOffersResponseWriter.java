@@ -0,0 +1,87 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.luisguadagnin.soccermanager.http.JsonBody;
+import com.luisguadagnin.soccermanager.model.Offer;
+
+import java.io.IOException;
+
+/**
+ * Writes the GET /offer response straight from a page of offers, field by field as it used to be serialized from the
+ * SearchOffersResponse, OfferResponse and PlayerResponse DTOs
+ */
+public class SearchOffersResponseWriter {
+
+    private final JsonBody jsonBody = new JsonBody();
+
+    public JsonBody write(OffersQueryResponse page) throws IOException {
+        try (JsonGenerator generator = jsonBody.start()) {
+            generator.writeStartObject();
+            if (page.getLastEvaluatedKey() != null) {
+                generator.writeFieldName("lastEvaluatedKey");
+                writeCursor(generator, page.getLastEvaluatedKey());
+            }
+            generator.writeArrayFieldStart("offers");
+            for (Offer offer : page.getOffers()) {
+                writeOffer(generator, offer);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return jsonBody;
+    }
+
+    private void writeOffer(JsonGenerator generator, Offer offer) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", offer.getId());
+        jsonBody.writeHundredthsField(generator, "price", offer.getPrice());
+        jsonBody.writeHundredthsField(generator, "discount", offer.getDiscount());
+        generator.writeObjectFieldStart("player");
+        generator.writeStringField("id", offer.getId());
+        generator.writeStringField("firstName", offer.getFirstName());
+        generator.writeStringField("lastName", offer.getLastName());
+        generator.writeStringField("country", offer.getCountry());
+        generator.writeNumberField("age", offer.getAge());
+        jsonBody.writeHundredthsField(generator, "value", offer.getValue().getCents());
+        generator.writeStringField("position", offer.getPosition() == null ? null : offer.getPosition().name());
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private static void writeCursor(JsonGenerator generator, SearchCursor cursor) throws IOException {
+        generator.writeStartObject();
+        if (cursor.getAfter() != null) {
+            generator.writeObjectFieldStart("after");
+            generator.writeStringField("sk", cursor.getAfter().getSortKeyName());
+            generator.writeStringField("skv", cursor.getAfter().getSortKeyValue());
+            generator.writeStringField("id", cursor.getAfter().getOfferId());
+            generator.writeEndObject();
+            generator.writeEndObject();
+            return;
+        }
+        generator.writeFieldName("partitions");
+        if (cursor.getPartitions() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeStartArray();
+            for (PartitionCursor partition : cursor.getPartitions()) {
+                generator.writeStartObject();
+                if (partition.getPartitionKeyValue() != null) generator.writeStringField("pkv", partition.getPartitionKeyValue());
+                if (partition.getKey() != null) {
+                    KeyResource key = partition.getKey();
+                    generator.writeObjectFieldStart("key");
+                    generator.writeStringField("pk", key.getPartitionKeyName());
+                    generator.writeStringField("pkv", key.getPartitionKeyValue());
+                    generator.writeStringField("sk", key.getSortKeyName());
+                    generator.writeStringField("skv", key.getSortKeyValue());
+                    generator.writeStringField("id", key.getOfferId());
+                    generator.writeEndObject();
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Keeps the snapshot in a file, e.g. on a file system mounted by the writer and every container. It's read whole, as decoding
+ * copies it into the index anyway, and written to a file beside it then moved over it, so a read never sees one partly written.
+ */
+public class FileSnapshotStore implements SnapshotStore {
+
+    private final Path path;
+
+    public FileSnapshotStore(Path path) {
+        this.path = path;
+    }
+
+    /* Null unless SEARCH_SNAPSHOT_PATH names the snapshot's file */
+    public static FileSnapshotStore fromEnvironment() {
+        String path = System.getenv("SEARCH_SNAPSHOT_PATH");
+        if (path == null || path.isEmpty()) return null;
+        return new FileSnapshotStore(Path.of(path));
+    }
+
+    /* The store of the deltas written after each snapshot, a file beside the snapshot's */
+    public FileSnapshotStore deltaStore() {
+        return new FileSnapshotStore(path.resolveSibling(path.getFileName() + ".delta"));
+    }
+
+    @Override
+    public Optional<ByteBuffer> read() {
+        try {
+            return Optional.of(ByteBuffer.wrap(Files.readAllBytes(path)));
+        } catch (NoSuchFileException ex) {
+            return Optional.empty();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void write(ByteBuffer snapshot) {
+        Path written = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(written, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (snapshot.hasRemaining()) {
+                    channel.write(snapshot);
+                }
+                channel.force(false);
+            }
+            Files.move(written, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Keeps the snapshot in memory, for a feed and an engine in the same process, e.g. when priming the handler
+ */
+public class InMemorySnapshotStore implements SnapshotStore {
+
+    private volatile ByteBuffer snapshot;
+
+    @Override
+    public Optional<ByteBuffer> read() {
+        return Optional.ofNullable(snapshot).map(ByteBuffer::duplicate);
+    }
+
+    @Override
+    public void write(ByteBuffer snapshot) {
+        this.snapshot = snapshot;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.luisguadagnin.soccermanager.model.Offer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The changes read from the Offer table's stream since a {@link MarketSnapshot}: the ids of removed offers and the last version
+ * of every offer put. Applying it more than once leaves the same market.
+ * <p>
+ * Layout: "SMDL", VERSION, the snapshot's takenAt, currentAt, the records read, the removed ids, then the offers put as written
+ * by {@link OfferIndex#encode}. A format change must bump VERSION.
+ */
+public class MarketDelta {
+
+    private static final int MAGIC = 0x534D444C;
+    private static final int VERSION = 1;
+
+    private final long snapshotTakenAt;
+    private final long currentAt;
+    private final long records;
+    private final Set<String> removedIds;
+    private final OfferIndex putOffers;
+
+    public MarketDelta(long snapshotTakenAt, long currentAt, long records, Set<String> removedIds, OfferIndex putOffers) {
+        this.snapshotTakenAt = snapshotTakenAt;
+        this.currentAt = currentAt;
+        this.records = records;
+        this.removedIds = removedIds;
+        this.putOffers = putOffers;
+    }
+
+    /* The snapshot the changes were read after */
+    public long getSnapshotTakenAt() {
+        return snapshotTakenAt;
+    }
+
+    /* Every change made to the table before this time, give or take the stream's own delay, is in the delta or its snapshot */
+    public long getCurrentAt() {
+        return currentAt;
+    }
+
+    /* Records read since the snapshot, so a delta with as many as the last one applied has no new change */
+    public long getRecords() {
+        return records;
+    }
+
+    public void applyTo(OfferIndex index) {
+        for (String id : removedIds) {
+            index.remove(id);
+        }
+        for (Offer offer : putOffers.offers()) {
+            index.put(offer);
+        }
+    }
+
+    public ByteBuffer encode() {
+        ByteBuffer encodedOffers = putOffers.encode();
+        int removedSize = Integer.BYTES;
+        for (String id : removedIds) {
+            removedSize += MarketSnapshot.stringSize(id);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 2 + Long.BYTES * 3 + removedSize + encodedOffers.remaining());
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(snapshotTakenAt);
+        buffer.putLong(currentAt);
+        buffer.putLong(records);
+        buffer.putInt(removedIds.size());
+        for (String id : removedIds) {
+            MarketSnapshot.putString(buffer, id);
+        }
+        buffer.put(encodedOffers);
+        return buffer.flip();
+    }
+
+    /* Empty if the buffer holds a delta of another format version, or one cut short */
+    public static Optional<MarketDelta> decode(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return Optional.empty();
+            long snapshotTakenAt = buffer.getLong();
+            long currentAt = buffer.getLong();
+            long records = buffer.getLong();
+            int removed = buffer.getInt();
+            Set<String> removedIds = new LinkedHashSet<>();
+            for (int id = 0; id < removed; id++) {
+                removedIds.add(MarketSnapshot.getString(buffer));
+            }
+            return Optional.of(new MarketDelta(snapshotTakenAt, currentAt, records, removedIds, OfferIndex.decode(buffer)));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException ex) {
+            return Optional.empty();
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ExpiredIteratorException;
+import com.amazonaws.services.dynamodbv2.model.OperationType;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TrimmedDataAccessException;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * The one reader of the Offer table's stream: keeps an {@link OfferIndex} of the whole market, writes it as a
+ * {@link MarketSnapshot}, and writes the changes read on every poll as a {@link MarketDelta}. Starts from the last snapshot,
+ * or scans the table when there's none or the stream no longer keeps the records after it.
+ */
+public class MarketFeed {
+
+    /* The stream keeps records for 24 hours, older snapshots can't be brought up to date */
+    private static final Duration MAX_SNAPSHOT_AGE = Duration.ofHours(23);
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final OfferStream offerStream;
+    private final SnapshotStore snapshotStore;
+    private final SnapshotStore deltaStore;
+    private final LongSupplier clock;
+
+    private OfferIndex index;
+    private long snapshotTakenAt;
+    private long currentAt;
+    /* Approximate creation time of the last record applied, 0 until one is */
+    private long lastRecordAt;
+    private long records;
+    private final Set<String> removedIds = new LinkedHashSet<>();
+    private OfferIndex putOffers = new OfferIndex();
+
+    public MarketFeed(AmazonDynamoDB amazonDynamoDB, OfferStream offerStream, SnapshotStore snapshotStore, SnapshotStore deltaStore) {
+        this(amazonDynamoDB, offerStream, snapshotStore, deltaStore, System::currentTimeMillis);
+    }
+
+    MarketFeed(AmazonDynamoDB amazonDynamoDB, OfferStream offerStream, SnapshotStore snapshotStore, SnapshotStore deltaStore,
+               LongSupplier clock) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.offerStream = offerStream;
+        this.snapshotStore = snapshotStore;
+        this.deltaStore = deltaStore;
+        this.clock = clock;
+    }
+
+    /* Reads the stream since the last poll and writes the changes read since the snapshot, loading the market first if needed */
+    public void poll() {
+        long start = clock.getAsLong();
+        if (index == null) {
+            load(start);
+            return;
+        }
+        try {
+            if (offerStream.read(this::apply)) currentAt = start;
+        } catch (ExpiredIteratorException | TrimmedDataAccessException | ResourceNotFoundException ex) {
+            load(start);
+            return;
+        }
+        writeDelta();
+    }
+
+    /* Writes the index, with the stream position it's current up to, and starts a new delta after it */
+    public void writeSnapshot() {
+        if (index == null) {
+            poll();
+            return;
+        }
+        snapshotTakenAt = Math.max(clock.getAsLong(), snapshotTakenAt + 1);
+        snapshotStore.write(new MarketSnapshot(snapshotTakenAt, currentAt, offerStream.position(), index).encode());
+        records = 0;
+        removedIds.clear();
+        putOffers = new OfferIndex();
+        writeDelta();
+    }
+
+    /* Epoch millis the market is current up to, 0 until loaded */
+    public long getCurrentAt() {
+        return currentAt;
+    }
+
+    public long getLastRecordAt() {
+        return lastRecordAt;
+    }
+
+    private void writeDelta() {
+        deltaStore.write(new MarketDelta(snapshotTakenAt, currentAt, records, removedIds, putOffers).encode());
+    }
+
+    /* The stream is opened before scanning, so changes made during the scan are read right after it */
+    private void load(long start) {
+        index = null;
+        if (!loadSnapshot()) {
+            offerStream.openAtLatest();
+            List<Offer> offers = new ArrayList<>();
+            Map<String, AttributeValue> exclusiveStartKey = null;
+            do {
+                ScanResult result = amazonDynamoDB.scan(new ScanRequest()
+                        .withTableName(OfferSchema.TABLE_NAME)
+                        .withConsistentRead(true)
+                        .withExclusiveStartKey(exclusiveStartKey));
+                offers.addAll(OfferSchema.fromItems(result.getItems()));
+                exclusiveStartKey = result.getLastEvaluatedKey();
+            } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+            OfferIndex loaded = new OfferIndex();
+            loaded.putAll(offers);
+            index = loaded;
+            currentAt = 0;
+        }
+        if (offerStream.read(this::apply)) currentAt = start;
+        writeSnapshot();
+    }
+
+    /* False when there's no snapshot, or none the stream still keeps the records after */
+    private boolean loadSnapshot() {
+        Optional<MarketSnapshot> snapshot = snapshotStore.read()
+                .flatMap(MarketSnapshot::decode)
+                .filter(taken -> clock.getAsLong() - taken.getTakenAt() < MAX_SNAPSHOT_AGE.toMillis());
+        if (snapshot.isEmpty()) return false;
+        try {
+            offerStream.openAt(snapshot.get().getStreamPosition());
+        } catch (ExpiredIteratorException | TrimmedDataAccessException | ResourceNotFoundException ex) {
+            return false;
+        }
+        index = snapshot.get().getIndex();
+        snapshotTakenAt = snapshot.get().getTakenAt();
+        currentAt = snapshot.get().getCurrentAt();
+        return true;
+    }
+
+    private void apply(Record record) {
+        String id = record.getDynamodb().getKeys().get("id").getS();
+        records++;
+        if (record.getDynamodb().getApproximateCreationDateTime() != null) {
+            lastRecordAt = record.getDynamodb().getApproximateCreationDateTime().getTime();
+        }
+        if (OperationType.REMOVE.toString().equals(record.getEventName())) {
+            remove(id);
+            return;
+        }
+        Map<String, AttributeValue> newImage = record.getDynamodb().getNewImage();
+        if (newImage == null) {
+            throw new IllegalStateException("The Offer table's stream must carry new images");
+        }
+        Offer offer = OfferSchema.fromItem(newImage);
+        index.put(offer);
+        putOffers.put(offer);
+        removedIds.remove(id);
+    }
+
+    private void remove(String id) {
+        index.remove(id);
+        putOffers.remove(id);
+        removedIds.add(id);
+    }
+
+}
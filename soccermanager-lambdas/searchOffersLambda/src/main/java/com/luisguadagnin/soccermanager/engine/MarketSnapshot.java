@@ -0,0 +1,111 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An {@link OfferIndex} with the Offer stream position it's current up to, so {@link MarketFeed} can resume from it.
+ * <p>
+ * Layout: "SMKT", VERSION, takenAt, currentAt, each shard's id and last sequence number read, then the index as written by
+ * {@link OfferIndex#encode}. Strings are their UTF-8 length (-1 for null) and bytes. A format change must bump VERSION.
+ */
+public class MarketSnapshot {
+
+    private static final int MAGIC = 0x534D4B54;
+    private static final int VERSION = 2;
+
+    private final long takenAt;
+    private final long currentAt;
+    private final Map<String, String> streamPosition;
+    private final OfferIndex index;
+
+    public MarketSnapshot(long takenAt, long currentAt, Map<String, String> streamPosition, OfferIndex index) {
+        this.takenAt = takenAt;
+        this.currentAt = currentAt;
+        this.streamPosition = streamPosition;
+        this.index = index;
+    }
+
+    public long getTakenAt() {
+        return takenAt;
+    }
+
+    /* Every change made to the table before this time, give or take the stream's own delay, is in the index */
+    public long getCurrentAt() {
+        return currentAt;
+    }
+
+    /* Shard ids and the sequence number of the last record read from each, null if none was */
+    public Map<String, String> getStreamPosition() {
+        return streamPosition;
+    }
+
+    public OfferIndex getIndex() {
+        return index;
+    }
+
+    public ByteBuffer encode() {
+        ByteBuffer encodedIndex = index.encode();
+        int positionSize = Integer.BYTES;
+        for (Map.Entry<String, String> shard : streamPosition.entrySet()) {
+            positionSize += stringSize(shard.getKey()) + stringSize(shard.getValue());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 2 + Long.BYTES * 2 + positionSize + encodedIndex.remaining());
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(takenAt);
+        buffer.putLong(currentAt);
+        buffer.putInt(streamPosition.size());
+        for (Map.Entry<String, String> shard : streamPosition.entrySet()) {
+            putString(buffer, shard.getKey());
+            putString(buffer, shard.getValue());
+        }
+        buffer.put(encodedIndex);
+        return buffer.flip();
+    }
+
+    /* Empty if the buffer holds a snapshot of another format version, or one cut short */
+    public static Optional<MarketSnapshot> decode(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return Optional.empty();
+            long takenAt = buffer.getLong();
+            long currentAt = buffer.getLong();
+            int shards = buffer.getInt();
+            Map<String, String> streamPosition = new LinkedHashMap<>();
+            for (int shard = 0; shard < shards; shard++) {
+                streamPosition.put(getString(buffer), getString(buffer));
+            }
+            return Optional.of(new MarketSnapshot(takenAt, currentAt, streamPosition, OfferIndex.decode(buffer)));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException ex) {
+            return Optional.empty();
+        }
+    }
+
+    static int stringSize(String string) {
+        return Integer.BYTES + (string == null ? 0 : string.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    static void putString(ByteBuffer buffer, String string) {
+        if (string == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
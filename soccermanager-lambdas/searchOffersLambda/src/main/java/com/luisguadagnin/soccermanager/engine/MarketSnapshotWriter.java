@@ -0,0 +1,57 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreamsClientBuilder;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Runs the {@link MarketFeed}, writing the market snapshot at SEARCH_SNAPSHOT_PATH every SEARCH_SNAPSHOT_INTERVAL_SECONDS
+ * (default 60) and its changes every SEARCH_FEED_POLL_MILLIS (default 500) from the stream at OFFER_STREAM_ARN.
+ * Only one writer should run. Not deployed by the CDK stack.
+ * <p>
+ * Usage: mvn -q compile exec:java -Dexec.mainClass=com.luisguadagnin.soccermanager.engine.MarketSnapshotWriter
+ */
+public class MarketSnapshotWriter {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(Optional.ofNullable(System.getenv("SEARCH_FEED_POLL_MILLIS"))
+            .map(Long::parseLong)
+            .orElse(500L));
+    private static final Duration INTERVAL = Duration.ofSeconds(Optional.ofNullable(System.getenv("SEARCH_SNAPSHOT_INTERVAL_SECONDS"))
+            .map(Long::parseLong)
+            .orElse(60L));
+
+    public static void main(String[] args) throws InterruptedException {
+        String streamArn = System.getenv("OFFER_STREAM_ARN");
+        FileSnapshotStore snapshotStore = FileSnapshotStore.fromEnvironment();
+        if (streamArn == null || snapshotStore == null) {
+            System.err.println("OFFER_STREAM_ARN and SEARCH_SNAPSHOT_PATH must be set");
+            System.exit(1);
+        }
+
+        MarketFeed marketFeed = new MarketFeed(AmazonDynamoDBClientBuilder.defaultClient(),
+                new OfferStream(AmazonDynamoDBStreamsClientBuilder.defaultClient(), streamArn), snapshotStore,
+                snapshotStore.deltaStore());
+        long snapshotAt = System.nanoTime() - INTERVAL.toNanos();
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                if (start - snapshotAt >= INTERVAL.toNanos()) {
+                    marketFeed.writeSnapshot();
+                    snapshotAt = start;
+                    System.out.printf("Snapshot written in %d ms, current up to %d ms ago, last record %d ms old%n",
+                            Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                            System.currentTimeMillis() - marketFeed.getCurrentAt(),
+                            System.currentTimeMillis() - marketFeed.getLastRecordAt());
+                } else {
+                    marketFeed.poll();
+                }
+            } catch (RuntimeException ex) {
+                System.err.println("Reading the stream failed, retrying: " + ex);
+            }
+            Thread.sleep(Math.max(0, POLL_INTERVAL.toMillis() - Duration.ofNanos(System.nanoTime() - start).toMillis()));
+        }
+    }
+
+}
@@ -0,0 +1,510 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.luisguadagnin.soccermanager.dto.KeyResource;
+import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.SearchCursor;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.exception.BadRequestException;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Every listed offer, held in columns of primitives and kept sorted by price and by discount, ties broken by id.
+ * Not thread safe.
+ */
+public class OfferIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final PlayerPosition[] POSITIONS = PlayerPosition.values();
+    private static final byte NO_POSITION = -1;
+    private static final int NO_COUNTRY = -1;
+    /* Bytes per row of the primitive columns and the discount order, as encoded */
+    private static final int ROW_BYTES = Long.BYTES * 2 + Integer.BYTES * 4 + 2;
+
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private final Map<String, Integer> countryIds = new HashMap<>();
+    private final List<String> countryNames = new ArrayList<>();
+
+    private String[] ids;
+    private long[] prices;
+    private int[] discounts;
+    private byte[] positions;
+    private int[] countries;
+    /* The listed player's summary, absent from offers listed before it was kept */
+    private boolean[] summarized;
+    private int[] ages;
+    private long[] values;
+    private String[] firstNames;
+    private String[] lastNames;
+
+    private int usedRows;
+    private int[] freeRows = new int[0];
+    private int freeRowCount;
+
+    private final SortOrder byPrice = new SortOrder() {
+        @Override
+        long key(int row) {
+            return prices[row];
+        }
+    };
+    private final SortOrder byDiscount = new SortOrder() {
+        @Override
+        long key(int row) {
+            return discounts[row];
+        }
+    };
+
+    public OfferIndex() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private OfferIndex(int capacity) {
+        ids = new String[capacity];
+        prices = new long[capacity];
+        discounts = new int[capacity];
+        positions = new byte[capacity];
+        countries = new int[capacity];
+        summarized = new boolean[capacity];
+        ages = new int[capacity];
+        values = new long[capacity];
+        firstNames = new String[capacity];
+        lastNames = new String[capacity];
+    }
+
+    public int size() {
+        return rowsById.size();
+    }
+
+    /* Adds the offer, or replaces the one with its id */
+    public void put(Offer offer) {
+        Integer existing = rowsById.get(offer.getId());
+        int row;
+        if (existing != null) {
+            row = existing;
+            byPrice.remove(row);
+            byDiscount.remove(row);
+        } else {
+            row = allocateRow();
+            rowsById.put(offer.getId(), row);
+        }
+        write(row, offer);
+        byPrice.insert(row);
+        byDiscount.insert(row);
+    }
+
+    /* Adds or replaces every offer, sorting the orders once instead of inserting each offer into them */
+    public void putAll(Collection<Offer> offers) {
+        for (Offer offer : offers) {
+            Integer existing = rowsById.get(offer.getId());
+            int row = existing != null ? existing : allocateRow();
+            rowsById.put(offer.getId(), row);
+            write(row, offer);
+        }
+        byPrice.rebuild();
+        byDiscount.rebuild();
+    }
+
+    public void remove(String id) {
+        Integer row = rowsById.remove(id);
+        if (row == null) return;
+        byPrice.remove(row);
+        byDiscount.remove(row);
+        ids[row] = null;
+        firstNames[row] = null;
+        lastNames[row] = null;
+
+        if (freeRowCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, Math.max(16, freeRows.length * 2));
+        }
+        freeRows[freeRowCount++] = row;
+    }
+
+    /**
+     * The page of offers matching every filter of the request, in the request's order. Offers without a player summary carry
+     * only their index attributes and don't match age or value filters, as in the table's indexes.
+     */
+    public OffersQueryResponse search(SearchOffersRequest request) {
+        boolean orderedByPrice = "price".equals(request.getOrderBy());
+        String sortKeyName = orderedByPrice ? "price" : "discount";
+        SortOrder order = orderedByPrice ? byPrice : byDiscount;
+        boolean ascending = "ASC".equals(request.getOrderDirection());
+        Filter filter = new Filter(request);
+        long min = orderedByPrice ? filter.minPrice : filter.minDiscount;
+        long max = orderedByPrice ? filter.maxPrice : filter.maxDiscount;
+
+        int index;
+        KeyResource after = request.getExclusiveStartKey() == null ? null : request.getExclusiveStartKey().getAfter();
+        if (after == null) {
+            index = ascending ? order.first(row -> order.key(row) >= min) : order.first(row -> order.key(row) > max) - 1;
+        } else {
+            if (!sortKeyName.equals(after.getSortKeyName()) || after.getOfferId() == null) {
+                throw new BadRequestException("Invalid exclusiveStartKey");
+            }
+            long afterKey = parseSortKeyValue(after.getSortKeyValue());
+            String afterId = after.getOfferId();
+            index = ascending
+                    ? order.first(row -> order.compare(row, afterKey, afterId) > 0)
+                    : order.first(row -> order.compare(row, afterKey, afterId) >= 0) - 1;
+        }
+
+        List<Offer> page = new ArrayList<>(Math.min(request.getPageSize(), 1024));
+        int lastRow = -1;
+        boolean more = false;
+        for (int step = ascending ? 1 : -1; index >= 0 && index < order.size; index += step) {
+            int row = order.rows[index];
+            long key = order.key(row);
+            if (ascending ? key > max : key < min) break;
+            if (!filter.matches(row)) continue;
+            if (page.size() == request.getPageSize()) {
+                more = true;
+                break;
+            }
+            page.add(toOffer(row));
+            lastRow = row;
+        }
+
+        SearchCursor cursor = null;
+        if (more) {
+            cursor = new SearchCursor();
+            cursor.setAfter(new KeyResource(null, null, sortKeyName, String.valueOf(order.key(lastRow)), ids[lastRow]));
+        }
+        return OffersQueryResponse.builder()
+                .offers(page)
+                .lastEvaluatedKey(cursor)
+                .build();
+    }
+
+    /* Every offer, in price order */
+    List<Offer> offers() {
+        List<Offer> offers = new ArrayList<>(size());
+        for (int index = 0; index < byPrice.size; index++) {
+            offers.add(toOffer(byPrice.rows[index]));
+        }
+        return offers;
+    }
+
+    /**
+     * The index as bytes, its rows renumbered in price order so that order needn't be kept: the row count, the country names,
+     * the columns of primitives, the rows in discount order, then the ids, first and last names. Strings are kept as their
+     * UTF-8 lengths (-1 for null) followed by their bytes.
+     */
+    ByteBuffer encode() {
+        int rows = size();
+        int[] renumbered = new int[usedRows];
+        for (int index = 0; index < rows; index++) {
+            renumbered[byPrice.rows[index]] = index;
+        }
+        byte[][] countryBytes = encodeStrings(countryNames.toArray(new String[0]), null, countryNames.size());
+        byte[][] idBytes = encodeStrings(ids, byPrice.rows, rows);
+        byte[][] firstNameBytes = encodeStrings(firstNames, byPrice.rows, rows);
+        byte[][] lastNameBytes = encodeStrings(lastNames, byPrice.rows, rows);
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 2 + rows * ROW_BYTES
+                + stringsSize(countryBytes) + stringsSize(idBytes) + stringsSize(firstNameBytes) + stringsSize(lastNameBytes));
+        buffer.putInt(rows);
+        buffer.putInt(countryBytes.length);
+        putStrings(buffer, countryBytes);
+        for (int index = 0; index < rows; index++) buffer.putLong(prices[byPrice.rows[index]]);
+        for (int index = 0; index < rows; index++) buffer.putInt(discounts[byPrice.rows[index]]);
+        for (int index = 0; index < rows; index++) buffer.put(positions[byPrice.rows[index]]);
+        for (int index = 0; index < rows; index++) buffer.putInt(countries[byPrice.rows[index]]);
+        for (int index = 0; index < rows; index++) buffer.put((byte) (summarized[byPrice.rows[index]] ? 1 : 0));
+        for (int index = 0; index < rows; index++) buffer.putInt(ages[byPrice.rows[index]]);
+        for (int index = 0; index < rows; index++) buffer.putLong(values[byPrice.rows[index]]);
+        for (int index = 0; index < rows; index++) buffer.putInt(renumbered[byDiscount.rows[index]]);
+        putStrings(buffer, idBytes);
+        putStrings(buffer, firstNameBytes);
+        putStrings(buffer, lastNameBytes);
+        return buffer.flip();
+    }
+
+    /* Reads an index written by encode, copying each column out of the buffer at once */
+    static OfferIndex decode(ByteBuffer buffer) {
+        int rows = buffer.getInt();
+        OfferIndex index = new OfferIndex(Math.max(INITIAL_CAPACITY, rows));
+        String[] countryNames = getStrings(buffer, buffer.getInt());
+        for (String countryName : countryNames) {
+            index.countryId(countryName);
+        }
+        buffer.asLongBuffer().get(index.prices, 0, rows);
+        buffer.position(buffer.position() + rows * Long.BYTES);
+        buffer.asIntBuffer().get(index.discounts, 0, rows);
+        buffer.position(buffer.position() + rows * Integer.BYTES);
+        buffer.get(index.positions, 0, rows);
+        buffer.asIntBuffer().get(index.countries, 0, rows);
+        buffer.position(buffer.position() + rows * Integer.BYTES);
+        for (int row = 0; row < rows; row++) {
+            index.summarized[row] = buffer.get() != 0;
+        }
+        buffer.asIntBuffer().get(index.ages, 0, rows);
+        buffer.position(buffer.position() + rows * Integer.BYTES);
+        buffer.asLongBuffer().get(index.values, 0, rows);
+        buffer.position(buffer.position() + rows * Long.BYTES);
+        int[] byDiscountRows = new int[Math.max(INITIAL_CAPACITY, rows)];
+        buffer.asIntBuffer().get(byDiscountRows, 0, rows);
+        buffer.position(buffer.position() + rows * Integer.BYTES);
+        System.arraycopy(getStrings(buffer, rows), 0, index.ids, 0, rows);
+        System.arraycopy(getStrings(buffer, rows), 0, index.firstNames, 0, rows);
+        System.arraycopy(getStrings(buffer, rows), 0, index.lastNames, 0, rows);
+
+        int[] byPriceRows = new int[Math.max(INITIAL_CAPACITY, rows)];
+        for (int row = 0; row < rows; row++) {
+            byPriceRows[row] = row;
+            index.rowsById.put(index.ids[row], row);
+        }
+        index.byPrice.rows = byPriceRows;
+        index.byPrice.size = rows;
+        index.byDiscount.rows = byDiscountRows;
+        index.byDiscount.size = rows;
+        index.usedRows = rows;
+        return index;
+    }
+
+    private void write(int row, Offer offer) {
+        ids[row] = offer.getId();
+        prices[row] = offer.getPrice();
+        discounts[row] = offer.getDiscount();
+        positions[row] = offer.getPosition() == null ? NO_POSITION : (byte) offer.getPosition().ordinal();
+        countries[row] = offer.getCountry() == null ? NO_COUNTRY : countryId(offer.getCountry());
+        summarized[row] = offer.hasPlayerSummary();
+        ages[row] = offer.getAge();
+        values[row] = offer.getValue() == null ? 0 : offer.getValue().getCents();
+        firstNames[row] = offer.getFirstName();
+        lastNames[row] = offer.getLastName();
+    }
+
+    private Offer toOffer(int row) {
+        Offer.OfferBuilder offer = Offer.builder()
+                .id(ids[row])
+                .price(prices[row])
+                .discount(discounts[row])
+                .country(countries[row] == NO_COUNTRY ? null : countryNames.get(countries[row]))
+                .position(positions[row] == NO_POSITION ? null : POSITIONS[positions[row]]);
+        if (summarized[row]) {
+            offer.firstName(firstNames[row])
+                    .lastName(lastNames[row])
+                    .age(ages[row])
+                    .value(Money.ofCents(values[row]));
+        }
+        return offer.build();
+    }
+
+    private int countryId(String country) {
+        return countryIds.computeIfAbsent(country, name -> {
+            countryNames.add(name);
+            return countryNames.size() - 1;
+        });
+    }
+
+    private int allocateRow() {
+        if (freeRowCount > 0) {
+            return freeRows[--freeRowCount];
+        }
+        if (usedRows == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            discounts = Arrays.copyOf(discounts, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            countries = Arrays.copyOf(countries, capacity);
+            summarized = Arrays.copyOf(summarized, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            values = Arrays.copyOf(values, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+        }
+        return usedRows++;
+    }
+
+    /* The strings of the first count rows given, or the first count strings when rows is null */
+    private static byte[][] encodeStrings(String[] strings, int[] rows, int count) {
+        byte[][] encoded = new byte[count][];
+        for (int index = 0; index < count; index++) {
+            String string = strings[rows == null ? index : rows[index]];
+            encoded[index] = string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static int stringsSize(byte[][] strings) {
+        int size = Integer.BYTES * strings.length;
+        for (byte[] string : strings) {
+            if (string != null) size += string.length;
+        }
+        return size;
+    }
+
+    private static void putStrings(ByteBuffer buffer, byte[][] strings) {
+        for (byte[] string : strings) {
+            buffer.putInt(string == null ? -1 : string.length);
+        }
+        for (byte[] string : strings) {
+            if (string != null) buffer.put(string);
+        }
+    }
+
+    private static String[] getStrings(ByteBuffer buffer, int count) {
+        int[] lengths = new int[count];
+        int size = 0;
+        for (int index = 0; index < count; index++) {
+            lengths[index] = buffer.getInt();
+            if (lengths[index] > 0) size += lengths[index];
+        }
+        byte[] bytes = new byte[size];
+        buffer.get(bytes);
+        String[] strings = new String[count];
+        int offset = 0;
+        for (int index = 0; index < count; index++) {
+            if (lengths[index] < 0) continue;
+            strings[index] = new String(bytes, offset, lengths[index], StandardCharsets.UTF_8);
+            offset += lengths[index];
+        }
+        return strings;
+    }
+
+    private static long parseSortKeyValue(String sortKeyValue) {
+        try {
+            return Long.parseLong(sortKeyValue);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Invalid exclusiveStartKey");
+        }
+    }
+
+    /* Rows sorted by a key column and then by id */
+    private abstract class SortOrder {
+
+        private int[] rows = new int[INITIAL_CAPACITY];
+        private int size;
+
+        abstract long key(int row);
+
+        int compare(int row, long key, String id) {
+            int byKey = Long.compare(key(row), key);
+            return byKey != 0 ? byKey : ids[row].compareTo(id);
+        }
+
+        /* Index of the first row the predicate holds for, which must hold for every row after it too */
+        int first(IntPredicate predicate) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (predicate.test(rows[middle])) high = middle;
+                else low = middle + 1;
+            }
+            return low;
+        }
+
+        void insert(int row) {
+            long key = key(row);
+            String id = ids[row];
+            int index = first(other -> compare(other, key, id) > 0);
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+            System.arraycopy(rows, index, rows, index + 1, size - index);
+            rows[index] = row;
+            size++;
+        }
+
+        /* Sorts every row of the index again */
+        void rebuild() {
+            Integer[] sorted = rowsById.values().toArray(new Integer[0]);
+            Arrays.sort(sorted, (row, other) -> compare(row, key(other), ids[other]));
+            rows = new int[Math.max(INITIAL_CAPACITY, sorted.length)];
+            for (int index = 0; index < sorted.length; index++) {
+                rows[index] = sorted[index];
+            }
+            size = sorted.length;
+        }
+
+        /* To be called before the row's columns change, as it's found by its current key */
+        void remove(int row) {
+            long key = key(row);
+            String id = ids[row];
+            int index = first(other -> compare(other, key, id) >= 0);
+            if (index == size || rows[index] != row) {
+                throw new IllegalStateException("Row " + row + " is missing from its sort order");
+            }
+            System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+            size--;
+        }
+
+    }
+
+    /* The request's filters, resolved against the columns' encodings */
+    private class Filter {
+
+        private final boolean[] countryMask;
+        private final int positionMask;
+        private final long minPrice;
+        private final long maxPrice;
+        private final long minDiscount;
+        private final long maxDiscount;
+        private final boolean filtersPlayer;
+        private final int minAge;
+        private final int maxAge;
+        private final long minValue;
+        private final long maxValue;
+
+        Filter(SearchOffersRequest request) {
+            if (request.getCountries().isEmpty()) {
+                countryMask = null;
+            } else {
+                countryMask = new boolean[countryNames.size()];
+                for (String country : request.getCountries()) {
+                    Integer id = countryIds.get(country);
+                    if (id != null) countryMask[id] = true;
+                }
+            }
+            int mask = 0;
+            for (PlayerPosition position : request.getPositions()) {
+                mask |= 1 << position.ordinal();
+            }
+            positionMask = mask;
+
+            minPrice = request.getMinPrice() == null ? Long.MIN_VALUE : request.getMinPrice();
+            maxPrice = request.getMaxPrice() == null ? Long.MAX_VALUE : request.getMaxPrice();
+            minDiscount = request.getMinDiscount() == null ? Long.MIN_VALUE : request.getMinDiscount();
+            maxDiscount = request.getMaxDiscount() == null ? Long.MAX_VALUE : request.getMaxDiscount();
+            filtersPlayer = request.getMinAge() != null || request.getMaxAge() != null
+                    || request.getMinValue() != null || request.getMaxValue() != null;
+            minAge = request.getMinAge() == null ? Integer.MIN_VALUE : request.getMinAge();
+            maxAge = request.getMaxAge() == null ? Integer.MAX_VALUE : request.getMaxAge();
+            minValue = request.getMinValue() == null ? Long.MIN_VALUE : request.getMinValue();
+            maxValue = request.getMaxValue() == null ? Long.MAX_VALUE : request.getMaxValue();
+        }
+
+        boolean matches(int row) {
+            if (countryMask != null) {
+                int country = countries[row];
+                if (country == NO_COUNTRY || country >= countryMask.length || !countryMask[country]) return false;
+            }
+            if (positionMask != 0) {
+                byte position = positions[row];
+                if (position == NO_POSITION || (positionMask & 1 << position) == 0) return false;
+            }
+            if (prices[row] < minPrice || prices[row] > maxPrice) return false;
+            if (discounts[row] < minDiscount || discounts[row] > maxDiscount) return false;
+            if (filtersPlayer) {
+                if (!summarized[row]) return false;
+                if (ages[row] < minAge || ages[row] > maxAge) return false;
+                if (values[row] < minValue || values[row] > maxValue) return false;
+            }
+            return true;
+        }
+
+    }
+
+}
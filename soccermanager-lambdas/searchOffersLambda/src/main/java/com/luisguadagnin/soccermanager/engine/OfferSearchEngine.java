@@ -0,0 +1,103 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.repository.OfferHydrator;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Answers offer searches from an in-memory {@link OfferIndex} loaded from the {@link MarketSnapshot} at SEARCH_SNAPSHOT_PATH,
+ * applying its {@link MarketDelta} at most every SEARCH_ENGINE_POLL_MILLIS. First pages are left to the table's indexes while
+ * the index is more than SEARCH_ENGINE_MAX_LAG_MILLIS behind; later pages are always answered by the engine.
+ */
+public class OfferSearchEngine {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(Optional.ofNullable(System.getenv("SEARCH_ENGINE_POLL_MILLIS"))
+            .map(Long::parseLong)
+            .orElse(1000L));
+    private static final Duration MAX_LAG = Duration.ofMillis(Optional.ofNullable(System.getenv("SEARCH_ENGINE_MAX_LAG_MILLIS"))
+            .map(Long::parseLong)
+            .orElse(10000L));
+
+    private final SnapshotStore snapshotStore;
+    private final SnapshotStore deltaStore;
+    private final OfferHydrator offerHydrator;
+    private final long pollIntervalNanos;
+    private final long maxLagMillis;
+    private final LongSupplier nanoClock;
+    private final LongSupplier clock;
+
+    private OfferIndex index;
+    private long snapshotTakenAt;
+    private long currentAt;
+    /* Records of the last delta applied, so an unchanged delta isn't applied again */
+    private long appliedRecords;
+    private boolean read;
+    private long readAt;
+
+    public OfferSearchEngine(SnapshotStore snapshotStore, SnapshotStore deltaStore, OfferHydrator offerHydrator) {
+        this(snapshotStore, deltaStore, offerHydrator, POLL_INTERVAL, MAX_LAG, System::nanoTime, System::currentTimeMillis);
+    }
+
+    OfferSearchEngine(SnapshotStore snapshotStore, SnapshotStore deltaStore, OfferHydrator offerHydrator, Duration pollInterval,
+                      Duration maxLag, LongSupplier nanoClock, LongSupplier clock) {
+        this.snapshotStore = snapshotStore;
+        this.deltaStore = deltaStore;
+        this.offerHydrator = offerHydrator;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.maxLagMillis = maxLag.toMillis();
+        this.nanoClock = nanoClock;
+        this.clock = clock;
+    }
+
+    /* Null unless SEARCH_SNAPSHOT_PATH names the snapshot written by MarketFeed, the delta being beside it */
+    public static OfferSearchEngine fromEnvironment() {
+        FileSnapshotStore snapshotStore = FileSnapshotStore.fromEnvironment();
+        if (snapshotStore == null) return null;
+        return new OfferSearchEngine(snapshotStore, snapshotStore.deltaStore(), new OfferHydrator());
+    }
+
+    /* Empty when there's no index to answer from, or for a first page, when the index lags by more than the max lag */
+    public synchronized Optional<OffersQueryResponse> search(SearchOffersRequest request) {
+        refresh(index == null && request.getExclusiveStartKey() != null);
+        if (index == null || request.getExclusiveStartKey() == null && lagMillis() > maxLagMillis) return Optional.empty();
+        OffersQueryResponse page = index.search(request);
+        page.setOffers(offerHydrator.hydrateLegacyOffers(page.getOffers()));
+        return Optional.of(page);
+    }
+
+    /* How long ago the index was last current, as far as the snapshot and delta it loaded tell */
+    public synchronized long lagMillis() {
+        return index == null ? Long.MAX_VALUE : Math.max(0, clock.getAsLong() - currentAt);
+    }
+
+    private void refresh(boolean force) {
+        long now = nanoClock.getAsLong();
+        if (!force && read && now - readAt < pollIntervalNanos) return;
+        read = true;
+        readAt = now;
+        Optional<MarketDelta> delta = deltaStore.read().flatMap(MarketDelta::decode);
+        if (index == null || delta.isPresent() && delta.get().getSnapshotTakenAt() > snapshotTakenAt) {
+            loadSnapshot();
+        }
+        if (index == null || delta.isEmpty() || delta.get().getSnapshotTakenAt() != snapshotTakenAt) return;
+        if (delta.get().getRecords() != appliedRecords) {
+            delta.get().applyTo(index);
+            appliedRecords = delta.get().getRecords();
+        }
+        currentAt = Math.max(currentAt, delta.get().getCurrentAt());
+    }
+
+    private void loadSnapshot() {
+        snapshotStore.read().flatMap(MarketSnapshot::decode).ifPresent(snapshot -> {
+            index = snapshot.getIndex();
+            snapshotTakenAt = snapshot.getTakenAt();
+            currentAt = snapshot.getCurrentAt();
+            appliedRecords = 0;
+        });
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsResult;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorRequest;
+import com.amazonaws.services.dynamodbv2.model.LimitExceededException;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.Shard;
+import com.amazonaws.services.dynamodbv2.model.ShardIteratorType;
+import com.amazonaws.services.dynamodbv2.model.StreamDescription;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads the Offer table's stream from the position it was opened at, following the shards that replace closed ones.
+ * A table's changes to an item are all in one lineage of shards, so reading every shard in order applies them in order.
+ * GetRecords allows about two readers per shard, so only {@link MarketFeed} reads the stream, the containers read what it writes.
+ */
+public class OfferStream {
+
+    /* GetRecords is limited to 5 calls per second per shard */
+    private static final int MAX_CALLS_PER_SHARD = 4;
+
+    private final AmazonDynamoDBStreams amazonDynamoDBStreams;
+    private final String streamArn;
+    private final Map<String, String> iteratorsByShard = new LinkedHashMap<>();
+    /* Sequence number of the last record read from each shard in iteratorsByShard, null until one is */
+    private final Map<String, String> sequenceNumbersByShard = new LinkedHashMap<>();
+
+    public OfferStream(AmazonDynamoDBStreams amazonDynamoDBStreams, String streamArn) {
+        this.amazonDynamoDBStreams = amazonDynamoDBStreams;
+        this.streamArn = streamArn;
+    }
+
+    /* Positions every open shard after its latest record, so only changes made from now on are read */
+    public void openAtLatest() {
+        iteratorsByShard.clear();
+        sequenceNumbersByShard.clear();
+        for (Shard shard : describeShards()) {
+            if (shard.getSequenceNumberRange().getEndingSequenceNumber() == null) {
+                open(shard.getShardId(), ShardIteratorType.LATEST, null);
+            }
+        }
+    }
+
+    /**
+     * Positions every shard of a position taken by {@link #position()} after the last record read from it. Shards no record was
+     * read from are read from their oldest record, which applies again changes older than the position, in their order.
+     * Throws TrimmedDataAccessException once the records after the position are no longer kept.
+     */
+    public void openAt(Map<String, String> position) {
+        iteratorsByShard.clear();
+        sequenceNumbersByShard.clear();
+        for (Map.Entry<String, String> shard : position.entrySet()) {
+            open(shard.getKey(), shard.getValue() == null ? ShardIteratorType.TRIM_HORIZON : ShardIteratorType.AFTER_SEQUENCE_NUMBER,
+                    shard.getValue());
+        }
+    }
+
+    /* The shards being read and the sequence number of the last record read from each */
+    public Map<String, String> position() {
+        return new LinkedHashMap<>(sequenceNumbersByShard);
+    }
+
+    /**
+     * Hands the records written since the last read to the consumer. A busy shard may have more records than a read takes,
+     * and a throttled one may not be read at all, those are handed on the next read. True when every shard was read up to
+     * its end, so every record written before the read started was handed. Throws ExpiredIteratorException or
+     * TrimmedDataAccessException once the stream was left unread for too long, which leaves it to be opened again.
+     */
+    public boolean read(Consumer<Record> consumer) {
+        boolean drained = true;
+        List<String> closedShards = new ArrayList<>();
+        for (Map.Entry<String, String> entry : iteratorsByShard.entrySet()) {
+            String iterator = entry.getValue();
+            boolean shardDrained = false;
+            try {
+                for (int call = 0; call < MAX_CALLS_PER_SHARD && iterator != null && !shardDrained; call++) {
+                    GetRecordsResult result = amazonDynamoDBStreams.getRecords(new GetRecordsRequest().withShardIterator(iterator));
+                    for (Record record : result.getRecords()) {
+                        consumer.accept(record);
+                        sequenceNumbersByShard.put(entry.getKey(), record.getDynamodb().getSequenceNumber());
+                    }
+                    iterator = result.getNextShardIterator();
+                    shardDrained = result.getRecords().isEmpty();
+                }
+            } catch (LimitExceededException ex) {
+                // read on from the last iterator next time
+            }
+            drained &= shardDrained || iterator == null;
+            if (iterator == null) closedShards.add(entry.getKey());
+            else entry.setValue(iterator);
+        }
+
+        if (closedShards.isEmpty()) return drained;
+        List<Shard> shards = describeShards();
+        for (String closedShard : closedShards) {
+            iteratorsByShard.remove(closedShard);
+            sequenceNumbersByShard.remove(closedShard);
+            for (Shard shard : shards) {
+                if (closedShard.equals(shard.getParentShardId()) && !iteratorsByShard.containsKey(shard.getShardId())) {
+                    open(shard.getShardId(), ShardIteratorType.TRIM_HORIZON, null);
+                    drained = false;
+                }
+            }
+        }
+        return drained;
+    }
+
+    private List<Shard> describeShards() {
+        List<Shard> shards = new ArrayList<>();
+        String exclusiveStartShardId = null;
+        do {
+            StreamDescription description = amazonDynamoDBStreams.describeStream(new DescribeStreamRequest()
+                    .withStreamArn(streamArn)
+                    .withExclusiveStartShardId(exclusiveStartShardId))
+                    .getStreamDescription();
+            shards.addAll(description.getShards());
+            exclusiveStartShardId = description.getLastEvaluatedShardId();
+        } while (exclusiveStartShardId != null);
+        return shards;
+    }
+
+    private void open(String shardId, ShardIteratorType type, String sequenceNumber) {
+        iteratorsByShard.put(shardId, amazonDynamoDBStreams.getShardIterator(new GetShardIteratorRequest()
+                        .withStreamArn(streamArn)
+                        .withShardId(shardId)
+                        .withShardIteratorType(type)
+                        .withSequenceNumber(sequenceNumber))
+                .getShardIterator());
+        sequenceNumbersByShard.put(shardId, sequenceNumber);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Where the market snapshot, or the delta after it, is kept: written by {@link MarketFeed} and read by the containers' engines
+ */
+public interface SnapshotStore {
+
+    /* The last snapshot written, empty if none was */
+    Optional<ByteBuffer> read();
+
+    /* Replaces the last snapshot, so a read never sees one partly written */
+    void write(ByteBuffer snapshot);
+
+}
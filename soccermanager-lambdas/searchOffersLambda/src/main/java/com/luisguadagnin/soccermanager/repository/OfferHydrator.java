@@ -0,0 +1,146 @@
+package com.luisguadagnin.soccermanager.repository;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loads full offers and their players for offers listed before the player summary was denormalized into the offer item.
+ * Every offer id is also its player id, so both items are requested in the same BatchGetItem call.
+ */
+public class OfferHydrator {
+
+    private static final int MAX_KEYS_PER_BATCH = 100;
+    private static final int OFFERS_PER_BATCH = MAX_KEYS_PER_BATCH / 2; // one offer key plus one player key
+    private static final int MAX_RETRIES = 5;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final ExecutorService executorService;
+
+    public OfferHydrator() {
+        this(AWSConfiguration.getAmazonDynamoDB(), AWSConfiguration.getExecutorService());
+    }
+
+    public OfferHydrator(AmazonDynamoDB amazonDynamoDB, ExecutorService executorService) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.executorService = executorService;
+    }
+
+    /* Hydrates the offers of the page that were listed without a player summary, keeping the page order */
+    public List<Offer> hydrateLegacyOffers(List<Offer> page) {
+        List<String> legacyOfferIds = page.stream()
+                .filter(offer -> !offer.hasPlayerSummary())
+                .map(Offer::getId)
+                .collect(Collectors.toList());
+        if (legacyOfferIds.isEmpty()) {
+            return page;
+        }
+
+        Map<String, Offer> hydratedOffers = hydrate(legacyOfferIds).stream()
+                .collect(Collectors.toMap(Offer::getId, Function.identity()));
+        return page.stream()
+                .map(offer -> offer.hasPlayerSummary() ? offer : hydratedOffers.get(offer.getId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public List<Offer> hydrate(List<String> offerIds) {
+        List<List<String>> chunks = partition(offerIds);
+        Map<String, List<Map<String, AttributeValue>>> items;
+        if (chunks.size() <= 1) {
+            items = chunks.isEmpty() ? Map.of() : loadChunk(chunks.get(0));
+        } else {
+            List<CompletableFuture<Map<String, List<Map<String, AttributeValue>>>>> futures = chunks.stream()
+                    .map(chunk -> CompletableFuture.supplyAsync(() -> loadChunk(chunk), executorService))
+                    .collect(Collectors.toList());
+            items = new HashMap<>();
+            for (CompletableFuture<Map<String, List<Map<String, AttributeValue>>>> future : futures) {
+                future.join().forEach((table, tableItems) -> items.computeIfAbsent(table, key -> new ArrayList<>()).addAll(tableItems));
+            }
+        }
+
+        Map<String, Offer> offersById = OfferSchema.fromItems(items.getOrDefault(OfferSchema.TABLE_NAME, List.of())).stream()
+                .collect(Collectors.toMap(Offer::getId, Function.identity()));
+        Map<String, Player> playersById = PlayerSchema.fromItems(items.getOrDefault(PlayerSchema.TABLE_NAME, List.of())).stream()
+                .collect(Collectors.toMap(Player::getId, Function.identity()));
+
+        /* Keeps the index order and drops offers deleted between the index query and the batch load */
+        return offerIds.stream()
+                .filter(id -> offersById.containsKey(id) && playersById.containsKey(id))
+                .map(id -> applyPlayerSummary(offersById.get(id), playersById.get(id)))
+                .collect(Collectors.toList());
+    }
+
+    private Offer applyPlayerSummary(Offer offer, Player player) {
+        offer.setFirstName(player.getFirstName());
+        offer.setLastName(player.getLastName());
+        offer.setAge(player.getAge());
+        offer.setValue(player.getValue());
+        offer.setCountry(player.getCountry());
+        return offer;
+    }
+
+    private Map<String, List<Map<String, AttributeValue>>> loadChunk(List<String> offerIds) {
+        List<Map<String, AttributeValue>> keys = offerIds.stream()
+                .map(OfferSchema::key)
+                .collect(Collectors.toList());
+        Map<String, KeysAndAttributes> requestItems = Map.of(
+                OfferSchema.TABLE_NAME, new KeysAndAttributes().withKeys(keys),
+                PlayerSchema.TABLE_NAME, new KeysAndAttributes().withKeys(keys)
+        );
+
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+        int attempt = 0;
+        while (requestItems != null && !requestItems.isEmpty()) {
+            if (attempt > MAX_RETRIES) {
+                throw new RuntimeException("Unable to load offers: unprocessed keys remained after " + MAX_RETRIES + " retries");
+            }
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+            BatchGetItemResult result = amazonDynamoDB.batchGetItem(new BatchGetItemRequest().withRequestItems(requestItems));
+            result.getResponses().forEach((table, tableItems) -> responses.computeIfAbsent(table, key -> new ArrayList<>()).addAll(tableItems));
+            requestItems = result.getUnprocessedKeys();
+            attempt++;
+        }
+        return responses;
+    }
+
+    private void backoff(int attempt) {
+        long maxDelay = BASE_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxDelay / 2, maxDelay + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading offers", ex);
+        }
+    }
+
+    private List<List<String>> partition(List<String> offerIds) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < offerIds.size(); i += OFFERS_PER_BATCH) {
+            chunks.add(offerIds.subList(i, Math.min(i + OFFERS_PER_BATCH, offerIds.size())));
+        }
+        return chunks;
+    }
+
+}
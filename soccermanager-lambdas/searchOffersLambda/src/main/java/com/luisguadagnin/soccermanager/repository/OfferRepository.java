@@ -1,97 +1,377 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
-import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.dto.KeyResource;
 import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.PartitionCursor;
+import com.luisguadagnin.soccermanager.dto.SearchCursor;
 import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.exception.BadRequestException;
 import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
 import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class OfferRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    /* Capacity units a filtered search may consume for one page before answering with the offers matched so far */
+    private static final double READ_BUDGET = Optional.ofNullable(System.getenv("SEARCH_READ_BUDGET"))
+            .map(Double::parseDouble)
+            .orElse(10.0);
+    /* Charged at least for an eventually consistent query, counted when a result doesn't report its capacity */
+    private static final double MIN_QUERY_CAPACITY = 0.5;
+    private static final int MAX_QUERY_LIMIT = 1000;
+    /* Suffix of the search indexes read, "-v2-index" once the stack has built the indexes projecting whole offers */
+    private static final String INDEX_SUFFIX = "v2".equals(System.getenv("OFFER_INDEX_VERSION")) ? "-v2-index" : "-index";
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final OfferHydrator offerHydrator;
+    private final ExecutorService executorService;
+    private final double readBudget;
 
     public OfferRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        amazonDynamoDB = AWSConfiguration.getAmazonDynamoDB();
+        offerHydrator = new OfferHydrator();
+        executorService = AWSConfiguration.getExecutorService();
+        readBudget = READ_BUDGET;
+    }
+
+    public OfferRepository(AmazonDynamoDB amazonDynamoDB, OfferHydrator offerHydrator, ExecutorService executorService) {
+        this(amazonDynamoDB, offerHydrator, executorService, READ_BUDGET);
+    }
+
+    public OfferRepository(AmazonDynamoDB amazonDynamoDB, OfferHydrator offerHydrator, ExecutorService executorService, double readBudget) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.offerHydrator = offerHydrator;
+        this.executorService = executorService;
+        this.readBudget = readBudget;
     }
 
+    /**
+     * Reads one page from every partition of the chosen index in parallel and merges them in sort key order.
+     * The returned cursor keeps the position of each partition that still has offers to read. Filters other than the sort key
+     * range are applied after reading, until the page is full or SEARCH_READ_BUDGET is consumed.
+     */
     public OffersQueryResponse findByQuery(SearchOffersRequest request) {
-        String indexName = buildIndexName(request);
-        DynamoDBQueryExpression<Offer> queryExpression = new DynamoDBQueryExpression<Offer>()
-                .withIndexName(indexName)
-                .withKeyConditionExpression("#attr = :val")
-                .withExpressionAttributeNames(buildExpressionAttributeNames(request))
-                .withExpressionAttributeValues(buildExpressionAttributeValues(request))
-                .withScanIndexForward("ASC".equals(request.getOrderDirection()))
-                .withLimit(request.getPageSize())
-                .withExclusiveStartKey(request.getExclusiveStartKey())
-                .withConsistentRead(false);
+        String partitionKeyName = buildPartitionKeyName(request);
+        String sortKeyName = "price".equals(request.getOrderBy()) ? "price" : "discount";
+        boolean ascending = "ASC".equals(request.getOrderDirection());
 
-        QueryResultPage<Offer> result = dynamoDBMapper.queryPage(Offer.class, queryExpression);
-        List<Offer> queriedOffers = result.getResults();
+        List<PartitionReader> readers = buildReaders(request, partitionKeyName, sortKeyName);
+        QueryRequest query = buildQuery(request, partitionKeyName, sortKeyName, ascending);
+        fetch(readers, query);
+
+        Comparator<Offer> comparator = Comparator.comparingLong(offer -> sortKeyValue(offer, sortKeyName));
+        if (!ascending) comparator = comparator.reversed();
+        List<Offer> page = new ArrayList<>();
+        merge(readers, comparator, request.getPageSize(), page);
+        while (query.getFilterExpression() != null && page.size() < request.getPageSize() && consumedCapacity(readers) < readBudget) {
+            List<PartitionReader> blocking = readers.stream()
+                    .filter(reader -> reader.buffer.isEmpty() && reader.hasMore())
+                    .collect(Collectors.toList());
+            if (blocking.isEmpty()) break;
+            fetch(blocking, query);
+            merge(readers, comparator, request.getPageSize(), page);
+        }
 
-        List<Offer> fetchedOffers = queriedOffers.stream()
-                .map(dynamoDBMapper::load)
-                .collect(Collectors.toList());
         return OffersQueryResponse.builder()
-                .offers(fetchedOffers)
-                .lastEvaluatedKey(result.getLastEvaluatedKey())
+                .offers(offerHydrator.hydrateLegacyOffers(page))
+                .lastEvaluatedKey(buildCursor(readers))
+                .consumedCapacity(consumedCapacity(readers))
+                .queries(readers.stream().mapToInt(reader -> reader.fetches).sum())
                 .build();
     }
 
+    private List<PartitionReader> buildReaders(SearchOffersRequest request, String partitionKeyName, String sortKeyName) {
+        List<AttributeValue> partitionKeyValues = buildPartitionKeyValues(request);
+        SearchCursor cursor = request.getExclusiveStartKey();
+        if (cursor == null) {
+            return partitionKeyValues.stream()
+                    .map(value -> new PartitionReader(value, partitionKeyName, sortKeyName, null))
+                    .collect(Collectors.toList());
+        }
+
+        if (cursor.getPartitions() == null) {
+            throw new BadRequestException("Invalid exclusiveStartKey");
+        }
+
+        /* Partitions missing from the cursor were exhausted on a previous page */
+        Map<String, PartitionCursor> cursorsByValue = cursor.getPartitions().stream()
+                .collect(Collectors.toMap(PartitionCursor::getPartitionKeyValue, Function.identity()));
+        List<PartitionReader> readers = new ArrayList<>();
+        for (AttributeValue value : partitionKeyValues) {
+            PartitionCursor partitionCursor = cursorsByValue.remove(partitionKeyValue(value));
+            if (partitionCursor == null) continue;
+            KeyResource key = partitionCursor.getKey();
+            if (key != null && !(partitionKeyName.equals(key.getPartitionKeyName()) && sortKeyName.equals(key.getSortKeyName())
+                    && isWithin(key.getSortKeyValue(), lowerBound(request, sortKeyName), upperBound(request, sortKeyName)))) {
+                throw new BadRequestException("Invalid exclusiveStartKey");
+            }
+            readers.add(new PartitionReader(value, partitionKeyName, sortKeyName, key == null ? null : key.toMap()));
+        }
+        if (!cursorsByValue.isEmpty()) {
+            throw new BadRequestException("Invalid exclusiveStartKey");
+        }
+        return readers;
+    }
+
+    /* The query every partition reader runs, lacking its partition key value and start key */
+    private QueryRequest buildQuery(SearchOffersRequest request, String partitionKeyName, String sortKeyName, boolean ascending) {
+        String filterKeyName = "price".equals(sortKeyName) ? "discount" : "price";
+        Map<String, String> names = new HashMap<>(Map.of("#attr", partitionKeyName));
+        Map<String, AttributeValue> values = new HashMap<>();
+
+        String keyCondition = "#attr = :val";
+        String sortKeyCondition = buildRangeCondition("sk", sortKeyName, lowerBound(request, sortKeyName), upperBound(request, sortKeyName), names, values);
+        if (sortKeyCondition != null) {
+            keyCondition += " AND " + sortKeyCondition;
+        }
+        List<String> filters = new ArrayList<>();
+        Optional.ofNullable(buildRangeCondition("fk", filterKeyName, lowerBound(request, filterKeyName), upperBound(request, filterKeyName), names, values))
+                .ifPresent(filters::add);
+        Optional.ofNullable(buildRangeCondition("age", "age", toLong(request.getMinAge()), toLong(request.getMaxAge()), names, values))
+                .ifPresent(filters::add);
+        Optional.ofNullable(buildRangeCondition("value", "value", request.getMinValue(), request.getMaxValue(), names, values))
+                .ifPresent(filters::add);
+
+        return new QueryRequest()
+                .withTableName(OfferSchema.TABLE_NAME)
+                .withIndexName(buildIndexName(request))
+                .withKeyConditionExpression(keyCondition)
+                .withFilterExpression(filters.isEmpty() ? null : String.join(" AND ", filters))
+                .withExpressionAttributeNames(names)
+                .withExpressionAttributeValues(values)
+                .withScanIndexForward(ascending)
+                .withLimit(request.getPageSize())
+                .withConsistentRead(false)
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+    }
+
+    /* Condition on the attribute aliased as #alias for the given inclusive bounds, null when both are open */
+    private static String buildRangeCondition(String alias, String attributeName, Long min, Long max,
+                                              Map<String, String> names, Map<String, AttributeValue> values) {
+        if (min == null && max == null) return null;
+        names.put("#" + alias, attributeName);
+        if (min != null) values.put(":" + alias + "Min", new AttributeValue().withN(String.valueOf(min)));
+        if (max != null) values.put(":" + alias + "Max", new AttributeValue().withN(String.valueOf(max)));
+
+        if (min == null) return String.format("#%s <= :%sMax", alias, alias);
+        if (max == null) return String.format("#%s >= :%sMin", alias, alias);
+        return String.format("#%s BETWEEN :%sMin AND :%sMax", alias, alias, alias);
+    }
+
+    private static Long lowerBound(SearchOffersRequest request, String keyName) {
+        return "price".equals(keyName) ? request.getMinPrice() : toLong(request.getMinDiscount());
+    }
+
+    private static Long upperBound(SearchOffersRequest request, String keyName) {
+        return "price".equals(keyName) ? request.getMaxPrice() : toLong(request.getMaxDiscount());
+    }
+
+    private static Long toLong(Integer value) {
+        return value == null ? null : value.longValue();
+    }
+
+    /* DynamoDB refuses start keys outside the key condition, so cursors of another range are rejected here */
+    private static boolean isWithin(String sortKeyValue, Long min, Long max) {
+        long value;
+        try {
+            value = Long.parseLong(sortKeyValue);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        return (min == null || value >= min) && (max == null || value <= max);
+    }
+
+    private void fetch(List<PartitionReader> readers, QueryRequest query) {
+        if (readers.size() == 1) {
+            readers.get(0).fetch(query);
+            return;
+        }
+        CompletableFuture.allOf(readers.stream()
+                        .map(reader -> CompletableFuture.runAsync(() -> reader.fetch(query), executorService))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    private void merge(List<PartitionReader> readers, Comparator<Offer> comparator, int pageSize, List<Offer> page) {
+        while (page.size() < pageSize) {
+            PartitionReader next = null;
+            for (PartitionReader reader : readers) {
+                if (reader.buffer.isEmpty()) {
+                    /* Unread offers of this partition could sort before any buffered one, so the page must end here */
+                    if (reader.hasMore()) return;
+                    continue;
+                }
+                if (next == null || comparator.compare(reader.buffer.peek(), next.buffer.peek()) < 0) {
+                    next = reader;
+                }
+            }
+            if (next == null) break;
+            page.add(next.take());
+        }
+    }
+
+    private static double consumedCapacity(List<PartitionReader> readers) {
+        return readers.stream().mapToDouble(reader -> reader.consumedCapacity).sum();
+    }
+
+    private SearchCursor buildCursor(List<PartitionReader> readers) {
+        List<PartitionCursor> partitions = readers.stream()
+                .filter(PartitionReader::hasRemaining)
+                .map(PartitionReader::toCursor)
+                .collect(Collectors.toList());
+        return partitions.isEmpty() ? null : new SearchCursor(partitions);
+    }
+
     private String buildIndexName(SearchOffersRequest request) {
-        final String country = request.getCountry();
-        final PlayerPosition position = request.getPosition();
+        final List<String> countries = request.getCountries();
+        final List<PlayerPosition> positions = request.getPositions();
         final String orderBy = request.getOrderBy();
 
         String indexSortKey = "price".equals(orderBy) ? "Price" : "Discount";
         String indexPartitionKey;
-        if (country == null && position == null) indexPartitionKey = "Sort";
-        else if (country == null) indexPartitionKey = "Position";
-        else if (position == null) indexPartitionKey = "Country";
+        if (countries.isEmpty() && positions.isEmpty()) indexPartitionKey = "Sort";
+        else if (countries.isEmpty()) indexPartitionKey = "Position";
+        else if (positions.isEmpty()) indexPartitionKey = "Country";
         else indexPartitionKey = "CountryPosition";
-        return String.format("%s-%s-index", indexPartitionKey, indexSortKey);
+        return indexPartitionKey + "-" + indexSortKey + INDEX_SUFFIX;
     }
 
-    private Map<String, AttributeValue> buildExpressionAttributeValues(SearchOffersRequest request) {
-        String country = request.getCountry();
-        PlayerPosition position = request.getPosition();
+    /* One partition per shard, per value of the filter or per pair of country and position, each read by its own reader */
+    private List<AttributeValue> buildPartitionKeyValues(SearchOffersRequest request) {
+        List<String> countries = request.getCountries();
+        List<PlayerPosition> positions = request.getPositions();
 
-        AttributeValue attributeValue = new AttributeValue();
-        if (country == null && position == null) {
-            attributeValue = attributeValue.withN("1");
-        } else if (country == null) {
-            attributeValue = attributeValue.withS(request.getPosition().toString());
-        } else if (position == null) {
-            attributeValue = attributeValue.withS(request.getCountry());
+        if (countries.isEmpty() && positions.isEmpty()) {
+            return IntStream.rangeClosed(1, Offer.SORT_PARTITIONS)
+                    .mapToObj(partition -> new AttributeValue().withN(String.valueOf(partition)))
+                    .collect(Collectors.toList());
+        } else if (countries.isEmpty()) {
+            return positions.stream()
+                    .map(position -> new AttributeValue().withS(position.toString()))
+                    .collect(Collectors.toList());
+        } else if (positions.isEmpty()) {
+            return countries.stream()
+                    .map(country -> new AttributeValue().withS(country))
+                    .collect(Collectors.toList());
         } else {
-            attributeValue = attributeValue.withS(request.getCountry() + "::" + request.getPosition());
+            return countries.stream()
+                    .flatMap(country -> positions.stream().map(position -> Offer.buildCountryPosition(country, position)))
+                    .map(countryPosition -> new AttributeValue().withS(countryPosition))
+                    .collect(Collectors.toList());
         }
-        return Map.of(":val", attributeValue);
     }
 
-    private Map<String, String> buildExpressionAttributeNames(SearchOffersRequest request) {
-        String country = request.getCountry();
-        PlayerPosition position = request.getPosition();
+    private String buildPartitionKeyName(SearchOffersRequest request) {
+        List<String> countries = request.getCountries();
+        List<PlayerPosition> positions = request.getPositions();
 
-        String attributeName;
-        if (country == null && position == null) {
-            attributeName = "sort_partition";
-        } else if (country == null) {
-            attributeName = "position";
-        } else if (position == null) {
-            attributeName = "country";
+        if (countries.isEmpty() && positions.isEmpty()) {
+            return "sort_partition";
+        } else if (countries.isEmpty()) {
+            return "position";
+        } else if (positions.isEmpty()) {
+            return "country";
         } else {
-            attributeName = "country_position";
+            return "country_position";
+        }
+    }
+
+    private static long sortKeyValue(Offer offer, String sortKeyName) {
+        return "price".equals(sortKeyName) ? offer.getPrice() : offer.getDiscount();
+    }
+
+    private static String partitionKeyValue(AttributeValue value) {
+        return value.getN() != null ? value.getN() : value.getS();
+    }
+
+    private class PartitionReader {
+
+        private final AttributeValue partitionKeyValue;
+        private final String partitionKeyName;
+        private final String sortKeyName;
+        private final Deque<Offer> buffer = new ArrayDeque<>();
+        private Map<String, AttributeValue> startKey;
+        private Map<String, AttributeValue> lastEvaluatedKey;
+        private Offer lastTaken;
+        private int fetches;
+        private double consumedCapacity;
+
+        PartitionReader(AttributeValue partitionKeyValue, String partitionKeyName, String sortKeyName, Map<String, AttributeValue> startKey) {
+            this.partitionKeyValue = partitionKeyValue;
+            this.partitionKeyName = partitionKeyName;
+            this.sortKeyName = sortKeyName;
+            this.startKey = startKey;
         }
-        return Map.of("#attr", attributeName);
+
+        /* Called again only once the buffer is empty, so reading resumes at the last evaluated key with twice the limit */
+        void fetch(QueryRequest query) {
+            if (fetches > 0) {
+                startKey = lastEvaluatedKey;
+                lastTaken = null;
+            }
+            Map<String, AttributeValue> values = new HashMap<>(query.getExpressionAttributeValues());
+            values.put(":val", partitionKeyValue);
+            long limit = Math.min((long) query.getLimit() << Math.min(fetches, 10), MAX_QUERY_LIMIT);
+            QueryRequest queryRequest = query.clone()
+                    .withExpressionAttributeValues(values)
+                    .withLimit((int) Math.max(query.getLimit(), limit))
+                    .withExclusiveStartKey(startKey);
+
+            QueryResult result = amazonDynamoDB.query(queryRequest);
+            buffer.addAll(OfferSchema.fromItems(result.getItems()));
+            lastEvaluatedKey = result.getLastEvaluatedKey();
+            fetches++;
+            consumedCapacity += result.getConsumedCapacity() == null ? MIN_QUERY_CAPACITY : result.getConsumedCapacity().getCapacityUnits();
+        }
+
+        Offer take() {
+            lastTaken = buffer.poll();
+            return lastTaken;
+        }
+
+        boolean hasMore() {
+            return lastEvaluatedKey != null;
+        }
+
+        boolean hasRemaining() {
+            return !buffer.isEmpty() || hasMore();
+        }
+
+        PartitionCursor toCursor() {
+            Map<String, AttributeValue> position;
+            if (buffer.isEmpty()) position = lastEvaluatedKey;
+            else if (lastTaken != null) position = keyOf(lastTaken);
+            else position = startKey;
+            return new PartitionCursor(partitionKeyValue(partitionKeyValue), position == null ? null : new KeyResource(position));
+        }
+
+        private Map<String, AttributeValue> keyOf(Offer offer) {
+            return Map.of(
+                    "id", new AttributeValue().withS(offer.getId()),
+                    partitionKeyName, partitionKeyValue,
+                    sortKeyName, new AttributeValue().withN(String.valueOf(sortKeyValue(offer, sortKeyName))));
+        }
+
     }
 
 }
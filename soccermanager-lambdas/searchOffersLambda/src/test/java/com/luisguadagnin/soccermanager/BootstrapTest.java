@@ -0,0 +1,90 @@
+package com.luisguadagnin.soccermanager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.OfferRepository;
+import com.luisguadagnin.soccermanager.runtime.BootstrapHarness;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serves HTTP API events through {@link BootstrapHarness}, on the JVM and, under mvn -Pnative verify,
+ * from the native executable.
+ */
+public class BootstrapTest {
+
+    private final BootstrapHarness bootstrapHarness;
+    private final OfferRepository offerRepository;
+
+    public BootstrapTest() throws IOException {
+        this.bootstrapHarness = new BootstrapHarness();
+        this.offerRepository = mock(OfferRepository.class);
+    }
+
+    @AfterEach
+    public void closeHarness() {
+        bootstrapHarness.close();
+    }
+
+    @Test
+    public void shouldSearchOffersThroughRuntimeApi() throws Exception {
+        Offer offer = Offer.builder()
+                .id("offer-id")
+                .price(150000000)
+                .discount(2500)
+                .country("Brazil")
+                .position(PlayerPosition.MIDFIELDER)
+                .value(Money.parse("2000000.00"))
+                .firstName("Jay")
+                .lastName("Cutler")
+                .age(35)
+                .build();
+
+        when(offerRepository.findByQuery(any(SearchOffersRequest.class)))
+                .thenReturn(OffersQueryResponse.builder()
+                        .offers(List.of(offer))
+                        .build());
+
+        JsonNode response = bootstrapHarness.serve(new SearchOffersHandler(offerRepository),
+                LambdaEvents.httpApi("GET", "/offer", "luis@guadagnin.com", null,
+                        Map.of("country", "Brazil"), null));
+
+        JsonNode body = bootstrapHarness.body(response);
+        assertAll(
+                () -> assertEquals(200, response.get("statusCode").asInt()),
+                () -> assertEquals("offer-id", body.get("offers").get(0).get("id").asText()),
+                () -> assertEquals("Cutler", body.get("offers").get(0).get("player").get("lastName").asText())
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.executable", matches = ".+")
+    public void shouldAnswerFromNativeExecutable() throws Exception {
+        // the cursor is read into SearchCursor, then rejected before reaching DynamoDB
+        JsonNode response = bootstrapHarness.serveNative(SearchOffersHandler.class,
+                LambdaEvents.httpApi("GET", "/offer", "luis@guadagnin.com", null,
+                        Map.of("exclusiveStartKey", "not-json"), null));
+
+        assertAll(
+                () -> assertEquals(400, response.get("statusCode").asInt()),
+                () -> assertEquals("{ \"message\": \"Invalid exclusiveStartKey\" }", response.get("body").asText())
+        );
+    }
+
+}
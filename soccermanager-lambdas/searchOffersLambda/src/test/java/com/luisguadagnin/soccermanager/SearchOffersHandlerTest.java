@@ -1,68 +1,87 @@
 package com.luisguadagnin.soccermanager;
 
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luisguadagnin.soccermanager.cache.MarketVersion;
+import com.luisguadagnin.soccermanager.cache.SearchPageCache;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.dto.KeyResource;
 import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.SearchCursor;
 import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.engine.InMemorySnapshotStore;
+import com.luisguadagnin.soccermanager.engine.OfferSearchEngine;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.model.Money;
 import com.luisguadagnin.soccermanager.model.Offer;
-import com.luisguadagnin.soccermanager.model.Player;
 import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.OfferHydrator;
 import com.luisguadagnin.soccermanager.repository.OfferRepository;
-import com.luisguadagnin.soccermanager.repository.PlayerRepository;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SearchOffersHandlerTest {
 
     private final OfferRepository offerRepository;
-    private final PlayerRepository playerRepository;
     private final SearchOffersHandler searchOffersHandler;
 
     public SearchOffersHandlerTest() {
         this.offerRepository = mock(OfferRepository.class);
-        this.playerRepository = mock(PlayerRepository.class);
-        this.searchOffersHandler = new SearchOffersHandler(playerRepository, offerRepository);
+        this.searchOffersHandler = new SearchOffersHandler(offerRepository);
     }
 
     @Test
     public void shouldSearchOffersSuccessfully() {
-        APIGatewayProxyRequestEvent input = new APIGatewayProxyRequestEvent();
+        HttpApiRequest input = new HttpApiRequest();
         String offerId = "offer-id";
 
-        Player player = Player.builder()
-                .id(offerId)
-                .position(PlayerPosition.MIDFIELDER)
-                .country("Brazil")
-                .teamId("team-id")
-                .value("2000000.00")
-                .firstName("Jay")
-                .lastName("Cutler")
-                .age(35)
-                .build();
-
         Offer offer = Offer.builder()
                 .id(offerId)
                 .price(150000000)
                 .discount(2500)
                 .country("Brazil")
                 .position(PlayerPosition.MIDFIELDER)
+                .value(Money.parse("2000000.00"))
+                .firstName("Jay")
+                .lastName("Cutler")
+                .age(35)
                 .build();
 
         when(offerRepository.findByQuery(any(SearchOffersRequest.class)))
                 .thenReturn(OffersQueryResponse.builder()
                         .offers(List.of(offer))
                         .build());
-        when(playerRepository.findById(List.of(offerId)))
-                .thenReturn(List.of(player));
 
-        APIGatewayProxyResponseEvent output = searchOffersHandler.handleRequest(input, null);
+        HttpApiResponse output = searchOffersHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals("{\"offers\":[{\"id\":\"offer-id\",\"price\":\"1500000.00\",\"discount\":\"25.00\",\"player\":" +
@@ -72,4 +91,329 @@ public class SearchOffersHandlerTest {
         );
         System.out.println(output.getBody());
     }
+
+    @Test
+    public void shouldAnswerEqualSearchesFromCacheUntilMarketChanges() {
+        MarketVersion marketVersion = mock(MarketVersion.class);
+        SearchOffersHandler cachingHandler = new SearchOffersHandler(offerRepository, new SearchPageCache(marketVersion));
+        when(marketVersion.current())
+                .thenReturn(1L, 1L, 2L);
+        when(offerRepository.findByQuery(any(SearchOffersRequest.class)))
+                .thenReturn(OffersQueryResponse.builder()
+                        .offers(List.of())
+                        .build());
+
+        HttpApiResponse first = cachingHandler.handleRequest(new HttpApiRequest(), null);
+        HttpApiResponse sameSearch = cachingHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("orderBy", "price", "orderDirection", "ASC")), null);
+        verify(offerRepository).findByQuery(any(SearchOffersRequest.class));
+        HttpApiResponse afterMarketChange = cachingHandler.handleRequest(new HttpApiRequest(), null);
+
+        assertAll(
+                () -> assertEquals("{\"offers\":[]}", first.getBody()),
+                () -> assertEquals(first.getBody(), sameSearch.getBody()),
+                () -> assertEquals(200, afterMarketChange.getStatusCode()),
+                () -> verify(offerRepository, times(2)).findByQuery(any(SearchOffersRequest.class))
+        );
+    }
+
+    @Test
+    public void shouldSearchThroughItsOwnRepositoryAfterPrimingAndRestore() {
+        when(offerRepository.findByQuery(any(SearchOffersRequest.class)))
+                .thenReturn(OffersQueryResponse.builder()
+                        .offers(List.of())
+                        .build());
+
+        searchOffersHandler.prime();
+        AWSConfiguration.refresh();
+        HttpApiResponse output = searchOffersHandler.handleRequest(new HttpApiRequest(), null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals("{\"offers\":[]}", output.getBody()),
+                () -> verify(offerRepository).findByQuery(any(SearchOffersRequest.class))
+        );
+    }
+
+    @Test
+    public void shouldPageThroughAPriceRangeWithoutLeavingIt() throws Exception {
+        AmazonDynamoDB amazonDynamoDB = mock(AmazonDynamoDB.class);
+        SearchOffersHandler rangeHandler = buildHandler(amazonDynamoDB);
+        mockPositionPriceIndex(amazonDynamoDB);
+
+        List<String> prices = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Map<String, String> queryParameters = new HashMap<>(Map.of("position", "ATTACKER", "orderBy", "price",
+                    "minPrice", "1000000.00", "maxPrice", "2500000", "pageSize", "3"));
+            if (cursor != null) queryParameters.put("exclusiveStartKey", cursor);
+            HttpApiResponse output = rangeHandler.handleRequest(new HttpApiRequest().withQueryStringParameters(queryParameters), null);
+            assertEquals(200, output.getStatusCode(), output.getBody());
+
+            JsonNode body = new ObjectMapper().readTree(output.getBody());
+            body.get("offers").forEach(offer -> prices.add(offer.get("price").asText()));
+            cursor = body.has("lastEvaluatedKey") ? body.get("lastEvaluatedKey").toString() : null;
+            pages++;
+        } while (cursor != null);
+        assertEquals(2, pages);
+
+        ArgumentCaptor<QueryRequest> queries = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(amazonDynamoDB, times(2)).query(queries.capture());
+        assertAll(
+                () -> assertEquals(List.of("1000000.00", "1500000.00", "2000000.00", "2500000.00"), prices),
+                () -> assertEquals("Position-Price-index", queries.getValue().getIndexName()),
+                () -> queries.getAllValues().forEach(query -> assertEquals("#attr = :val AND #sk BETWEEN :skMin AND :skMax", query.getKeyConditionExpression())),
+                () -> assertEquals("250000000", queries.getValue().getExpressionAttributeValues().get(":skMax").getN())
+        );
+    }
+
+    @Test
+    public void shouldRejectCursorsOutsideTheRange() {
+        AmazonDynamoDB amazonDynamoDB = mock(AmazonDynamoDB.class);
+        SearchOffersHandler rangeHandler = buildHandler(amazonDynamoDB);
+        String cursor = "{\"partitions\":[{\"pkv\":\"ATTACKER\",\"key\":" +
+                "{\"pk\":\"position\",\"pkv\":\"ATTACKER\",\"sk\":\"price\",\"skv\":\"50000000\",\"id\":\"offer-1\"}}]}";
+
+        HttpApiResponse output = rangeHandler.handleRequest(new HttpApiRequest().withQueryStringParameters(Map.of("position", "ATTACKER",
+                "orderBy", "price", "minPrice", "1000000.00", "exclusiveStartKey", cursor)), null);
+
+        assertAll(
+                () -> assertEquals(400, output.getStatusCode()),
+                () -> assertEquals("{ \"message\": \"Invalid exclusiveStartKey\" }", output.getBody()),
+                () -> verify(amazonDynamoDB, never()).query(any(QueryRequest.class))
+        );
+    }
+
+    @Test
+    public void shouldPassPlayerFiltersToTheRepository() {
+        when(offerRepository.findByQuery(any(SearchOffersRequest.class)))
+                .thenReturn(OffersQueryResponse.builder()
+                        .offers(List.of())
+                        .consumedCapacity(1.5)
+                        .queries(3)
+                        .build());
+
+        HttpApiResponse output = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("minAge", "18", "maxAge", "23", "maxValue", "1500000.00")), null);
+
+        ArgumentCaptor<SearchOffersRequest> request = ArgumentCaptor.forClass(SearchOffersRequest.class);
+        verify(offerRepository).findByQuery(request.capture());
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals(18, request.getValue().getMinAge()),
+                () -> assertEquals(23, request.getValue().getMaxAge()),
+                () -> assertNull(request.getValue().getMinValue()),
+                () -> assertEquals(150000000L, request.getValue().getMaxValue())
+        );
+    }
+
+    @Test
+    public void shouldSearchSeveralCountriesAndPositions() {
+        when(offerRepository.findByQuery(any(SearchOffersRequest.class)))
+                .thenReturn(OffersQueryResponse.builder()
+                        .offers(List.of())
+                        .build());
+
+        HttpApiResponse output = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("country", "Brazil,Argentina", "position", "MIDFIELDER,DEFENDER,MIDFIELDER")), null);
+        HttpApiResponse invalidPosition = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("position", "DEFENDER,STRIKER")), null);
+
+        ArgumentCaptor<SearchOffersRequest> request = ArgumentCaptor.forClass(SearchOffersRequest.class);
+        verify(offerRepository).findByQuery(request.capture());
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> assertEquals(List.of("Argentina", "Brazil"), request.getValue().getCountries()),
+                () -> assertEquals(List.of(PlayerPosition.DEFENDER, PlayerPosition.MIDFIELDER), request.getValue().getPositions()),
+                () -> assertEquals(400, invalidPosition.getStatusCode()),
+                () -> assertEquals("{ \"message\": \"Invalid position\" }", invalidPosition.getBody())
+        );
+    }
+
+    @Test
+    public void shouldRejectInvalidRanges() {
+        HttpApiResponse inverted = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("minDiscount", "20.00", "maxDiscount", "10.00")), null);
+        HttpApiResponse malformed = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("maxPrice", "2M")), null);
+        HttpApiResponse invalidAge = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("minAge", "young")), null);
+
+        assertAll(
+                () -> assertEquals(400, inverted.getStatusCode()),
+                () -> assertEquals("{ \"message\": \"Invalid discount range\" }", inverted.getBody()),
+                () -> assertEquals(400, malformed.getStatusCode()),
+                () -> assertEquals("{ \"message\": \"Invalid maxPrice\" }", malformed.getBody()),
+                () -> assertEquals("{ \"message\": \"Invalid minAge\" }", invalidAge.getBody()),
+                () -> verify(offerRepository, never()).findByQuery(any(SearchOffersRequest.class))
+        );
+    }
+
+    @Test
+    public void shouldRejectInvalidPageSizes() {
+        when(offerRepository.findByQuery(any(SearchOffersRequest.class)))
+                .thenReturn(OffersQueryResponse.builder()
+                        .offers(List.of())
+                        .build());
+
+        HttpApiResponse malformed = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("pageSize", "abc")), null);
+        HttpApiResponse empty = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("pageSize", "0")), null);
+        HttpApiResponse large = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("pageSize", "101")), null);
+        HttpApiResponse largest = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("pageSize", "100")), null);
+
+        ArgumentCaptor<SearchOffersRequest> request = ArgumentCaptor.forClass(SearchOffersRequest.class);
+        verify(offerRepository).findByQuery(request.capture());
+        assertAll(
+                () -> assertEquals(400, malformed.getStatusCode()),
+                () -> assertEquals("{ \"message\": \"Invalid pageSize\" }", malformed.getBody()),
+                () -> assertEquals(400, empty.getStatusCode()),
+                () -> assertEquals(400, large.getStatusCode()),
+                () -> assertEquals(200, largest.getStatusCode()),
+                () -> assertEquals(100, request.getValue().getPageSize())
+        );
+    }
+
+    @Test
+    public void shouldContinueEachSearchThroughWhatAnsweredItsFirstPage() {
+        OfferSearchEngine offerSearchEngine = mock(OfferSearchEngine.class);
+        SearchCursor engineCursor = new SearchCursor();
+        engineCursor.setAfter(new KeyResource(null, null, "price", "150000000", "offer-id"));
+        when(offerSearchEngine.search(any(SearchOffersRequest.class)))
+                .thenReturn(Optional.of(OffersQueryResponse.builder()
+                        .offers(List.of())
+                        .lastEvaluatedKey(engineCursor)
+                        .build()));
+        when(offerRepository.findByQuery(any(SearchOffersRequest.class)))
+                .thenReturn(OffersQueryResponse.builder()
+                        .offers(List.of())
+                        .build());
+        SearchOffersHandler engineHandler = new SearchOffersHandler(offerRepository, null, offerSearchEngine);
+        String afterCursor = "{\"after\":{\"sk\":\"price\",\"skv\":\"150000000\",\"id\":\"offer-id\"}}";
+        String partitionsCursor = "{\"partitions\":[{\"pkv\":\"ATTACKER\",\"key\":" +
+                "{\"pk\":\"position\",\"pkv\":\"ATTACKER\",\"sk\":\"price\",\"skv\":\"50000000\",\"id\":\"offer-1\"}}]}";
+
+        HttpApiResponse firstPage = engineHandler.handleRequest(new HttpApiRequest(), null);
+        HttpApiResponse nextPage = engineHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("exclusiveStartKey", afterCursor)), null);
+        HttpApiResponse indexedPage = engineHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("position", "ATTACKER", "exclusiveStartKey", partitionsCursor)), null);
+        HttpApiResponse withoutEngine = searchOffersHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("exclusiveStartKey", afterCursor)), null);
+
+        assertAll(
+                () -> assertEquals(200, firstPage.getStatusCode()),
+                () -> assertEquals(200, nextPage.getStatusCode()),
+                () -> verify(offerSearchEngine, times(2)).search(any(SearchOffersRequest.class)),
+                () -> assertEquals(200, indexedPage.getStatusCode()),
+                () -> verify(offerRepository).findByQuery(any(SearchOffersRequest.class)),
+                () -> assertEquals(503, withoutEngine.getStatusCode()),
+                () -> assertEquals("1", withoutEngine.getHeaders().get("Retry-After"))
+        );
+    }
+
+    @Test
+    public void shouldSearchTheIndexesWhileTheEngineCantAnswerButNotWhenItFails() {
+        OfferSearchEngine offerSearchEngine = mock(OfferSearchEngine.class);
+        when(offerSearchEngine.search(any(SearchOffersRequest.class)))
+                .thenReturn(Optional.empty())
+                .thenThrow(new UncheckedIOException(new IOException("Snapshot unreadable")))
+                .thenReturn(Optional.empty())
+                .thenThrow(new ArrayIndexOutOfBoundsException(7));
+        when(offerRepository.findByQuery(any(SearchOffersRequest.class)))
+                .thenReturn(OffersQueryResponse.builder()
+                        .offers(List.of())
+                        .build());
+        SearchOffersHandler engineHandler = new SearchOffersHandler(offerRepository, null, offerSearchEngine);
+        String afterCursor = "{\"after\":{\"sk\":\"price\",\"skv\":\"150000000\",\"id\":\"offer-id\"}}";
+
+        HttpApiResponse lagging = engineHandler.handleRequest(new HttpApiRequest(), null);
+        HttpApiResponse failing = engineHandler.handleRequest(new HttpApiRequest(), null);
+        HttpApiResponse unloadedNextPage = engineHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("exclusiveStartKey", afterCursor)), null);
+        HttpApiResponse broken = engineHandler.handleRequest(new HttpApiRequest(), null);
+
+        assertAll(
+                () -> assertEquals(200, lagging.getStatusCode()),
+                () -> assertEquals(200, failing.getStatusCode()),
+                () -> verify(offerRepository, times(2)).findByQuery(any(SearchOffersRequest.class)),
+                () -> assertEquals(503, unloadedNextPage.getStatusCode()),
+                () -> assertEquals(500, broken.getStatusCode())
+        );
+    }
+
+    @Test
+    public void shouldAnswerEngineCursorReachingAContainerWithAnEmptyEngineAsUnavailable() {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        OfferSearchEngine emptyEngine = new OfferSearchEngine(new InMemorySnapshotStore(), new InMemorySnapshotStore(),
+                new OfferHydrator(mock(AmazonDynamoDB.class), executorService));
+        SearchOffersHandler engineHandler = new SearchOffersHandler(offerRepository, null, emptyEngine);
+        String afterCursor = "{\"after\":{\"sk\":\"price\",\"skv\":\"150000000\",\"id\":\"offer-id\"}}";
+
+        HttpApiResponse nextPage = engineHandler.handleRequest(new HttpApiRequest()
+                .withQueryStringParameters(Map.of("exclusiveStartKey", afterCursor)), null);
+        executorService.shutdown();
+
+        assertAll(
+                () -> assertEquals(503, nextPage.getStatusCode()),
+                () -> assertEquals("1", nextPage.getHeaders().get("Retry-After")),
+                () -> assertEquals("{ \"message\": \"Search index is not loaded yet, please try again\" }", nextPage.getBody()),
+                () -> verify(offerRepository, never()).findByQuery(any(SearchOffersRequest.class))
+        );
+    }
+
+    private SearchOffersHandler buildHandler(AmazonDynamoDB amazonDynamoDB) {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        return new SearchOffersHandler(new OfferRepository(amazonDynamoDB, new OfferHydrator(amazonDynamoDB, executorService), executorService));
+    }
+
+    /* Ten attackers priced 500000.00 to 5000000.00, served like DynamoDB does, which refuses start keys outside the key condition */
+    private void mockPositionPriceIndex(AmazonDynamoDB amazonDynamoDB) {
+        List<Map<String, AttributeValue>> items = IntStream.rangeClosed(1, 10)
+                .mapToObj(i -> Map.of(
+                        "id", new AttributeValue().withS("offer-" + i),
+                        "price", new AttributeValue().withN(String.valueOf(i * 50000000L)),
+                        "discount", new AttributeValue().withN("1000"),
+                        "country", new AttributeValue().withS("Brazil"),
+                        "position", new AttributeValue().withS("ATTACKER"),
+                        "sort_partition", new AttributeValue().withN("1"),
+                        "firstName", new AttributeValue().withS("Jay"),
+                        "lastName", new AttributeValue().withS("Cutler"),
+                        "age", new AttributeValue().withN("30"),
+                        "value", new AttributeValue().withS("1000000.00")))
+                .collect(Collectors.toList());
+
+        when(amazonDynamoDB.query(any(QueryRequest.class))).thenAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            long min = Long.parseLong(request.getExpressionAttributeValues().get(":skMin").getN());
+            long max = Long.parseLong(request.getExpressionAttributeValues().get(":skMax").getN());
+            List<Map<String, AttributeValue>> range = items.stream()
+                    .filter(item -> Long.parseLong(item.get("price").getN()) >= min && Long.parseLong(item.get("price").getN()) <= max)
+                    .sorted(Comparator.comparingLong(item -> Long.parseLong(item.get("price").getN())))
+                    .collect(Collectors.toList());
+
+            int start = 0;
+            if (request.getExclusiveStartKey() != null) {
+                long startPrice = Long.parseLong(request.getExclusiveStartKey().get("price").getN());
+                if (startPrice < min || startPrice > max) {
+                    throw new AmazonDynamoDBException("The provided starting key is outside query boundaries based on provided conditions");
+                }
+                while (Long.parseLong(range.get(start).get("price").getN()) <= startPrice) start++;
+            }
+            int end = Math.min(start + request.getLimit(), range.size());
+            List<Map<String, AttributeValue>> page = range.subList(start, end);
+
+            QueryResult result = new QueryResult().withItems(page).withCount(page.size());
+            if (end < range.size()) {
+                Map<String, AttributeValue> last = page.get(page.size() - 1);
+                result.setLastEvaluatedKey(Map.of("id", last.get("id"), "position", last.get("position"), "price", last.get("price")));
+            }
+            return result;
+        });
+    }
+
 }
@@ -11,7 +11,7 @@ import java.util.List;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class SearchOffersResponse {
 
-    private KeyResource lastEvaluatedKey;
+    private SearchCursor lastEvaluatedKey;
     private List<OfferResponse> offers;
 
 }
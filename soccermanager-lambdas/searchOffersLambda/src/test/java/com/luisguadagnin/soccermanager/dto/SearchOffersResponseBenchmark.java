@@ -0,0 +1,103 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
+import com.luisguadagnin.soccermanager.http.HttpApiStreams;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A GET /offer response of 100 offers and a cursor, from the page to the bytes posted to the runtime: through the DTOs and
+ * ObjectMapper as the handler used to, against {@link SearchOffersResponseWriter}. Run through {@link SearchOffersResponseBenchmarkTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchOffersResponseBenchmark {
+
+    private static final Map<String, String> HEADERS = Map.of("Content-Type", "application/json");
+
+    private final OffersQueryResponse page = OffersQueryResponse.builder()
+            .offers(IntStream.range(0, 100)
+                    .mapToObj(i -> Offer.builder()
+                            .id(UUID.nameUUIDFromBytes(new byte[]{(byte) i}).toString())
+                            .price(150000000L + i)
+                            .discount(2500 - i)
+                            .country("Brazil")
+                            .position(PlayerPosition.values()[i % 4])
+                            .firstName("Luis")
+                            .lastName("Guadagnin")
+                            .age(18 + i % 23)
+                            .value(Money.parse("2000000.00"))
+                            .build())
+                    .collect(Collectors.toList()))
+            .lastEvaluatedKey(new SearchCursor(IntStream.rangeClosed(1, 4)
+                    .mapToObj(partition -> new PartitionCursor(String.valueOf(partition), new KeyResource("sort_partition",
+                            String.valueOf(partition), "discount", "2400", UUID.nameUUIDFromBytes(new byte[]{(byte) partition}).toString())))
+                    .collect(Collectors.toList())))
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SearchOffersResponseWriter searchOffersResponseWriter = new SearchOffersResponseWriter();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(65536);
+
+    @Benchmark
+    public int dtos() throws IOException {
+        SearchOffersResponse searchOffersResponse = SearchOffersResponse.builder()
+                .lastEvaluatedKey(page.getLastEvaluatedKey())
+                .offers(page.getOffers().stream()
+                        .map(offer -> OfferResponse.builder()
+                                .id(offer.getId())
+                                .discount(new BigDecimal(offer.getDiscount()).divide(new BigDecimal(100), 2, RoundingMode.UNNECESSARY).toString())
+                                .price(Money.ofCents(offer.getPrice()).toString())
+                                .player(PlayerResponse.builder()
+                                        .value(offer.getValue().toString())
+                                        .position(offer.getPosition())
+                                        .country(offer.getCountry())
+                                        .lastName(offer.getLastName())
+                                        .firstName(offer.getFirstName())
+                                        .age(offer.getAge())
+                                        .id(offer.getId())
+                                        .build())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+        return respond(new HttpApiResponse().withBody(objectMapper.writeValueAsString(searchOffersResponse)));
+    }
+
+    @Benchmark
+    public int writer() throws IOException {
+        return respond(new HttpApiResponse().withBody(searchOffersResponseWriter.write(page)));
+    }
+
+    private int respond(HttpApiResponse response) throws IOException {
+        output.reset();
+        HttpApiStreams.writeResponse(response.withStatusCode(200).withHeaders(HEADERS), output);
+        return output.size();
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The golden files hold what the ObjectMapper wrote from the SearchOffersResponse, OfferResponse and PlayerResponse DTOs
+ * for the same pages
+ */
+public class SearchOffersResponseWriterTest {
+
+    private static final List<Offer> OFFERS = List.of(
+            offer("3f1e4c9a-6a44-4b86-8f3a-7f6a1f0d2b11", 150000000, 2500, "Côte d'Ivoire", PlayerPosition.GOALKEEPER,
+                    "Zoë", "O'Brien\tJr.", 18, "2000000.00"),
+            offer("9b2d7c55-0e3f-4a51-a3a8-51c0e4f2e7d4", 7, 5, null, PlayerPosition.MIDFIELDER,
+                    "José", "\"Nuñez\" \\", 40, "0.07"),
+            offer("c0ffee00-0000-4000-8000-000000000000", 112500000, -1250, "日本", PlayerPosition.ATTACKER,
+                    "Line\nBreak", "🙂 Emoji", 27, "1000000.00"));
+
+    private final SearchOffersResponseWriter searchOffersResponseWriter = new SearchOffersResponseWriter();
+
+    @Test
+    public void shouldWritePageAsTheDtosDid() throws IOException {
+        SearchCursor cursor = new SearchCursor(List.of(
+                new PartitionCursor("1", new KeyResource("sort_partition", "1", "discount", "2500", "3f1e4c9a-6a44-4b86-8f3a-7f6a1f0d2b11")),
+                new PartitionCursor("3", null),
+                new PartitionCursor("4", new KeyResource("sort_partition", "4", "discount", "-1250", null))));
+
+        String body = searchOffersResponseWriter.write(OffersQueryResponse.builder()
+                .offers(OFFERS)
+                .lastEvaluatedKey(cursor)
+                .build()).toString();
+
+        assertEquals(golden("offers-page.json"), body);
+    }
+
+    @Test
+    public void shouldWriteLastPageAsTheDtosDid() throws IOException {
+        String body = searchOffersResponseWriter.write(OffersQueryResponse.builder()
+                .offers(OFFERS.subList(0, 1))
+                .build()).toString();
+
+        assertEquals(golden("offers-last-page.json"), body);
+    }
+
+    @Test
+    public void shouldWriteEmptyPageAsTheDtosDid() throws IOException {
+        String body = searchOffersResponseWriter.write(OffersQueryResponse.builder()
+                .offers(List.of())
+                .lastEvaluatedKey(new SearchCursor(List.of()))
+                .build()).toString();
+
+        assertEquals(golden("offers-empty-page.json"), body);
+    }
+
+    private static Offer offer(String id, long price, int discount, String country, PlayerPosition position,
+                               String firstName, String lastName, int age, String value) {
+        return Offer.builder()
+                .id(id)
+                .price(price)
+                .discount(discount)
+                .country(country)
+                .position(position)
+                .firstName(firstName)
+                .lastName(lastName)
+                .age(age)
+                .value(Money.parse(value))
+                .build();
+    }
+
+    private static String golden(String name) throws IOException {
+        try (InputStream input = SearchOffersResponseWriterTest.class.getResourceAsStream(name)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
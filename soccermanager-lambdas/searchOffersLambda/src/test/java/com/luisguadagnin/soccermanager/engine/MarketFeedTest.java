@@ -0,0 +1,313 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamResult;
+import com.amazonaws.services.dynamodbv2.model.ExpiredIteratorException;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsResult;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorRequest;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorResult;
+import com.amazonaws.services.dynamodbv2.model.LimitExceededException;
+import com.amazonaws.services.dynamodbv2.model.OperationType;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.SequenceNumberRange;
+import com.amazonaws.services.dynamodbv2.model.Shard;
+import com.amazonaws.services.dynamodbv2.model.ShardIteratorType;
+import com.amazonaws.services.dynamodbv2.model.StreamDescription;
+import com.amazonaws.services.dynamodbv2.model.StreamRecord;
+import com.amazonaws.services.dynamodbv2.model.TrimmedDataAccessException;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MarketFeedTest {
+
+    private static final String STREAM_ARN = "arn:aws:dynamodb:us-east-1:123456789012:table/Offer/stream/2022-05-01T00:00:00.000";
+
+    private final AmazonDynamoDB amazonDynamoDB = mock(AmazonDynamoDB.class);
+    private final AmazonDynamoDBStreams amazonDynamoDBStreams = mock(AmazonDynamoDBStreams.class);
+    private final AtomicLong clock = new AtomicLong(1651363200000L);
+    private final SnapshotStore snapshotStore = new InMemorySnapshotStore();
+    private final SnapshotStore deltaStore = new InMemorySnapshotStore();
+    private final MarketFeed marketFeed = buildFeed(snapshotStore);
+
+    private final List<Shard> shards = new ArrayList<>();
+    /* Records each iterator reads and the iterator after them, null once the shard is closed */
+    private final Map<String, GetRecordsResult> reads = new ConcurrentHashMap<>();
+    private long sequenceNumber;
+
+    @TempDir
+    Path directory;
+
+    public MarketFeedTest() {
+        when(amazonDynamoDBStreams.describeStream(any(DescribeStreamRequest.class)))
+                .thenAnswer(invocation -> new DescribeStreamResult().withStreamDescription(new StreamDescription().withShards(shards)));
+        when(amazonDynamoDBStreams.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenAnswer(invocation -> {
+                    GetShardIteratorRequest request = invocation.getArgument(0);
+                    return new GetShardIteratorResult().withShardIterator(request.getShardId() + "/" + request.getShardIteratorType());
+                });
+        when(amazonDynamoDBStreams.getRecords(any(GetRecordsRequest.class)))
+                .thenAnswer(invocation -> {
+                    String iterator = ((GetRecordsRequest) invocation.getArgument(0)).getShardIterator();
+                    return reads.getOrDefault(iterator, new GetRecordsResult().withRecords(List.of()).withNextShardIterator(iterator));
+                });
+    }
+
+    @Test
+    public void shouldLoadTheTableAndWriteTheChangesReadOnEveryPoll() {
+        shards.add(openShard("shard-1"));
+        mockScan(buildItem("offer-1", 300), buildItem("offer-2", 200));
+
+        marketFeed.poll();
+        List<String> loaded = marketIds();
+        long snapshotTakenAt = readSnapshot().getTakenAt();
+        reads.put("shard-1/LATEST", read("shard-1/1",
+                record(OperationType.MODIFY, buildItem("offer-1", 100)),
+                record(OperationType.INSERT, buildItem("offer-3", 250)),
+                record(OperationType.REMOVE, buildItem("offer-2", 200))));
+        clock.addAndGet(1000);
+        marketFeed.poll();
+        List<String> polled = marketIds();
+
+        assertAll(
+                () -> assertEquals(List.of("offer-2", "offer-1"), loaded),
+                () -> assertEquals(List.of("offer-1", "offer-3"), polled),
+                () -> assertEquals(snapshotTakenAt, readSnapshot().getTakenAt()),
+                () -> assertEquals(clock.get(), readDelta().getCurrentAt()),
+                () -> verify(amazonDynamoDB, times(1)).scan(any(ScanRequest.class))
+        );
+    }
+
+    @Test
+    public void shouldStartANewDeltaAfterEverySnapshot() {
+        shards.add(openShard("shard-1"));
+        mockScan(buildItem("offer-1", 300));
+        marketFeed.poll();
+        reads.put("shard-1/LATEST", read("shard-1/1", record(OperationType.INSERT, buildItem("offer-2", 200))));
+        clock.addAndGet(1000);
+        marketFeed.poll();
+
+        clock.addAndGet(1000);
+        marketFeed.writeSnapshot();
+
+        assertAll(
+                () -> assertEquals(List.of("offer-2", "offer-1"), searchIds(readSnapshot().getIndex())),
+                () -> assertEquals(readSnapshot().getTakenAt(), readDelta().getSnapshotTakenAt()),
+                () -> assertEquals(0, readDelta().getRecords()),
+                () -> assertEquals(List.of("offer-2", "offer-1"), marketIds())
+        );
+    }
+
+    @Test
+    public void shouldOnlyMoveCurrentAtWhenEveryShardIsReadToItsEnd() {
+        shards.add(openShard("shard-1"));
+        mockScan(buildItem("offer-1", 300));
+        marketFeed.poll();
+        long loadedAt = clock.get();
+
+        when(amazonDynamoDBStreams.getRecords(any(GetRecordsRequest.class)))
+                .thenThrow(new LimitExceededException("Rate exceeded"));
+        clock.addAndGet(1000);
+        marketFeed.poll();
+        long throttled = readDelta().getCurrentAt();
+
+        when(amazonDynamoDBStreams.getRecords(any(GetRecordsRequest.class)))
+                .thenReturn(read("shard-1/1", record(OperationType.INSERT, buildItem("offer-2", 200))));
+        clock.addAndGet(1000);
+        marketFeed.poll();
+        long busy = readDelta().getCurrentAt();
+
+        assertAll(
+                () -> assertEquals(loadedAt, throttled),
+                () -> assertEquals(loadedAt, busy),
+                () -> assertEquals(loadedAt, marketFeed.getCurrentAt())
+        );
+    }
+
+    @Test
+    public void shouldFollowTheShardsThatReplaceClosedOnes() {
+        shards.add(openShard("shard-1"));
+        mockScan(buildItem("offer-1", 300));
+        marketFeed.poll();
+
+        shards.set(0, openShard("shard-1").withSequenceNumberRange(new SequenceNumberRange().withStartingSequenceNumber("1").withEndingSequenceNumber("9")));
+        shards.add(openShard("shard-2").withParentShardId("shard-1"));
+        reads.put("shard-1/LATEST", read(null, record(OperationType.INSERT, buildItem("offer-2", 200))));
+        reads.put("shard-2/TRIM_HORIZON", read("shard-2/1", record(OperationType.INSERT, buildItem("offer-3", 100))));
+
+        marketFeed.poll();
+        List<String> closingRead = marketIds();
+        marketFeed.poll();
+        List<String> childRead = marketIds();
+
+        assertAll(
+                () -> assertEquals(List.of("offer-2", "offer-1"), closingRead),
+                () -> assertEquals(List.of("offer-3", "offer-2", "offer-1"), childRead)
+        );
+    }
+
+    @Test
+    public void shouldLoadAgainOnceTheStreamPositionIsLost() {
+        shards.add(openShard("shard-1"));
+        mockScan(buildItem("offer-1", 300));
+        marketFeed.poll();
+
+        when(amazonDynamoDBStreams.getRecords(any(GetRecordsRequest.class)))
+                .thenThrow(new ExpiredIteratorException("Iterator expired"))
+                .thenReturn(new GetRecordsResult().withRecords(List.of()).withNextShardIterator("shard-1/1"));
+        when(amazonDynamoDBStreams.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenThrow(new TrimmedDataAccessException("Trimmed"))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shard-1/LATEST"));
+        mockScan(buildItem("offer-1", 300), buildItem("offer-2", 400));
+        clock.addAndGet(Duration.ofMinutes(20).toMillis());
+        marketFeed.poll();
+
+        assertAll(
+                () -> assertEquals(List.of("offer-1", "offer-2"), marketIds()),
+                () -> verify(amazonDynamoDB, times(2)).scan(any(ScanRequest.class)),
+                () -> verify(amazonDynamoDBStreams, times(3)).getShardIterator(any(GetShardIteratorRequest.class))
+        );
+    }
+
+    @Test
+    public void shouldStartFromTheSnapshotAndReadOnlyTheChangesAfterIt() {
+        SnapshotStore fileStore = new FileSnapshotStore(directory.resolve("market.snapshot"));
+        shards.add(openShard("shard-1"));
+        mockScan(buildItem("offer-1", 300));
+        reads.put("shard-1/LATEST", read("shard-1/1", record(OperationType.INSERT, buildItem("offer-2", 200))));
+        buildFeed(fileStore).poll();
+
+        reads.put("shard-1/AFTER_SEQUENCE_NUMBER", read("shard-1/2", record(OperationType.INSERT, buildItem("offer-3", 100))));
+        clock.addAndGet(1000);
+        buildFeed(fileStore).poll();
+        MarketSnapshot started = MarketSnapshot.decode(fileStore.read().orElseThrow()).orElseThrow();
+
+        assertAll(
+                () -> assertEquals(List.of("offer-3", "offer-2", "offer-1"), searchIds(started.getIndex())),
+                () -> assertEquals(clock.get(), started.getCurrentAt()),
+                () -> verify(amazonDynamoDB, times(1)).scan(any(ScanRequest.class)),
+                () -> verify(amazonDynamoDBStreams).getShardIterator(new GetShardIteratorRequest()
+                        .withStreamArn(STREAM_ARN)
+                        .withShardId("shard-1")
+                        .withShardIteratorType(ShardIteratorType.AFTER_SEQUENCE_NUMBER)
+                        .withSequenceNumber("1"))
+        );
+    }
+
+    @Test
+    public void shouldScanWhenTheStreamNoLongerKeepsTheChangesAfterTheSnapshot() {
+        SnapshotStore fileStore = new FileSnapshotStore(directory.resolve("market.snapshot"));
+        shards.add(openShard("shard-1"));
+        mockScan(buildItem("offer-1", 300));
+        reads.put("shard-1/LATEST", read("shard-1/1", record(OperationType.INSERT, buildItem("offer-2", 200))));
+        buildFeed(fileStore).poll();
+
+        when(amazonDynamoDBStreams.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenThrow(new TrimmedDataAccessException("Trimmed"))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shard-1/LATEST"));
+        reads.clear();
+        mockScan(buildItem("offer-4", 400));
+        buildFeed(fileStore).poll();
+        MarketSnapshot scanned = MarketSnapshot.decode(fileStore.read().orElseThrow()).orElseThrow();
+
+        assertAll(
+                () -> assertEquals(List.of("offer-4"), searchIds(scanned.getIndex())),
+                () -> verify(amazonDynamoDB, times(2)).scan(any(ScanRequest.class))
+        );
+    }
+
+    private MarketFeed buildFeed(SnapshotStore snapshotStore) {
+        return new MarketFeed(amazonDynamoDB, new OfferStream(amazonDynamoDBStreams, STREAM_ARN), snapshotStore, deltaStore, clock::get);
+    }
+
+    private MarketSnapshot readSnapshot() {
+        return MarketSnapshot.decode(snapshotStore.read().orElseThrow()).orElseThrow();
+    }
+
+    private MarketDelta readDelta() {
+        return MarketDelta.decode(deltaStore.read().orElseThrow()).orElseThrow();
+    }
+
+    /* The market as a container loads it, the snapshot with the delta applied */
+    private List<String> marketIds() {
+        OfferIndex offerIndex = readSnapshot().getIndex();
+        readDelta().applyTo(offerIndex);
+        return searchIds(offerIndex);
+    }
+
+    private static List<String> searchIds(OfferIndex offerIndex) {
+        return offerIndex.search(SearchOffersRequest.builder()
+                        .orderBy("price")
+                        .orderDirection("ASC")
+                        .pageSize(10)
+                        .build())
+                .getOffers().stream()
+                .map(Offer::getId)
+                .collect(Collectors.toList());
+    }
+
+    @SafeVarargs
+    private void mockScan(Map<String, AttributeValue>... items) {
+        when(amazonDynamoDB.scan(any(ScanRequest.class))).thenReturn(new ScanResult().withItems(items));
+    }
+
+    private static Shard openShard(String shardId) {
+        return new Shard()
+                .withShardId(shardId)
+                .withSequenceNumberRange(new SequenceNumberRange().withStartingSequenceNumber("1"));
+    }
+
+    private static GetRecordsResult read(String nextIterator, Record... records) {
+        return new GetRecordsResult().withRecords(records).withNextShardIterator(nextIterator);
+    }
+
+    private Record record(OperationType operation, Map<String, AttributeValue> image) {
+        StreamRecord streamRecord = new StreamRecord()
+                .withKeys(Map.of("id", image.get("id")))
+                .withSequenceNumber(String.valueOf(++sequenceNumber));
+        if (operation != OperationType.REMOVE) streamRecord.setNewImage(image);
+        return new Record().withEventName(operation).withDynamodb(streamRecord);
+    }
+
+    private static Map<String, AttributeValue> buildItem(String id, long price) {
+        return OfferSchema.toItem(Offer.builder()
+                .id(id)
+                .price(price)
+                .discount(1000)
+                .country("Brazil")
+                .position(PlayerPosition.DEFENDER)
+                .firstName("Jay")
+                .lastName("Cutler")
+                .age(30)
+                .value(Money.parse("1000000.00"))
+                .build());
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Time from nothing in memory to the first page of the unfiltered market, over 10k, 100k and 1M offers: from a snapshot file
+ * against from the items of a scan, decoded and sorted (the part of a scan spent in the container, without its reads).
+ * Run through {@link MarketSnapshotBenchmarkTest}; {@link TimeToFirstQueryBenchmarkTest} compares both with a cold index query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class MarketSnapshotBenchmark {
+
+    private static final SearchOffersRequest FIRST_PAGE = SearchOffersRequest.builder()
+            .orderBy("discount")
+            .orderDirection("DESC")
+            .pageSize(10)
+            .build();
+    /* About one 1 MB scan page, decoded again for every page of the market */
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    private int offers;
+
+    private Path directory;
+    private FileSnapshotStore snapshotStore;
+    private List<Map<String, AttributeValue>> scanPage;
+
+    @Setup
+    public void writeSnapshot() throws IOException {
+        Random random = new Random(42);
+        OfferIndex offerIndex = new OfferIndex();
+        offerIndex.putAll(IntStream.range(0, offers)
+                .mapToObj(i -> buildOffer(random, "offer-" + i))
+                .collect(Collectors.toList()));
+        directory = Files.createTempDirectory("market-snapshot");
+        snapshotStore = new FileSnapshotStore(directory.resolve("market.snapshot"));
+        snapshotStore.write(new MarketSnapshot(System.currentTimeMillis(), System.currentTimeMillis(), Map.of(), offerIndex).encode());
+        scanPage = IntStream.range(0, SCAN_PAGE_SIZE)
+                .mapToObj(i -> OfferSchema.toItem(buildOffer(random, "offer-" + i)))
+                .collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(directory.resolve("market.snapshot"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int snapshot() {
+        return MarketSnapshot.decode(snapshotStore.read().orElseThrow()).orElseThrow()
+                .getIndex()
+                .search(FIRST_PAGE)
+                .getOffers().size();
+    }
+
+    @Benchmark
+    public int scan() {
+        List<Offer> scanned = new ArrayList<>(offers);
+        for (int i = 0; i < offers; i++) {
+            Offer offer = OfferSchema.fromItem(scanPage.get(i % SCAN_PAGE_SIZE));
+            offer.setId("offer-" + i);
+            scanned.add(offer);
+        }
+        OfferIndex offerIndex = new OfferIndex();
+        offerIndex.putAll(scanned);
+        return offerIndex.search(FIRST_PAGE).getOffers().size();
+    }
+
+    private static Offer buildOffer(Random random, String id) {
+        return Offer.builder()
+                .id(id)
+                .price(50000000L + random.nextInt(1000) * 500000L)
+                .discount(random.nextInt(10000))
+                .country("Country-" + random.nextInt(20))
+                .position(PlayerPosition.values()[random.nextInt(PlayerPosition.values().length)])
+                .firstName("Luis")
+                .lastName("Guadagnin")
+                .age(18 + random.nextInt(23))
+                .value(Money.ofCents(100000000L + random.nextInt(100) * 1000000L))
+                .build();
+    }
+
+}
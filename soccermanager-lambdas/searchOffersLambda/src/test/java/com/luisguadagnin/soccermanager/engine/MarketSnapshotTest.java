@@ -0,0 +1,187 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.SearchCursor;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MarketSnapshotTest {
+
+    private static final List<String> COUNTRIES = List.of("Argentina", "Brazil", "Chile", "Uruguay");
+
+    private final Random random = new Random(42);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldAnswerEverySearchLikeTheIndexItWasTakenFrom() {
+        OfferIndex offerIndex = new OfferIndex();
+        for (int i = 0; i < 2000; i++) {
+            offerIndex.put(buildOffer("offer-" + i));
+        }
+        /* Removed rows leave gaps the snapshot doesn't keep */
+        for (int i = 0; i < 500; i++) {
+            offerIndex.remove("offer-" + random.nextInt(2000));
+        }
+        offerIndex.put(Offer.builder()
+                .id("legacy")
+                .price(100)
+                .discount(10)
+                .country("Brazil")
+                .position(PlayerPosition.DEFENDER)
+                .build());
+        Map<String, String> streamPosition = new LinkedHashMap<>();
+        streamPosition.put("shard-1", "4200000000000000000000001");
+        streamPosition.put("shard-2", null);
+        FileSnapshotStore store = new FileSnapshotStore(directory.resolve("market.snapshot"));
+
+        store.write(new MarketSnapshot(1651363200000L, 1651363199000L, streamPosition, offerIndex).encode());
+        MarketSnapshot snapshot = MarketSnapshot.decode(store.read().orElseThrow()).orElseThrow();
+        OfferIndex restored = snapshot.getIndex();
+
+        assertAll(
+                () -> assertEquals(1651363200000L, snapshot.getTakenAt()),
+                () -> assertEquals(1651363199000L, snapshot.getCurrentAt()),
+                () -> assertEquals(streamPosition, snapshot.getStreamPosition()),
+                () -> assertEquals(offerIndex.size(), restored.size())
+        );
+        assertSameSearches(offerIndex, restored);
+
+        /* The restored index keeps being updated from the stream */
+        for (int i = 0; i < 500; i++) {
+            String id = "offer-" + random.nextInt(2500);
+            if (random.nextInt(3) == 0) {
+                offerIndex.remove(id);
+                restored.remove(id);
+            } else {
+                Offer offer = buildOffer(id);
+                offerIndex.put(offer);
+                restored.put(offer);
+            }
+        }
+        assertSameSearches(offerIndex, restored);
+    }
+
+    @Test
+    public void shouldIgnoreSnapshotsOfOtherVersionsOrCutShort() {
+        OfferIndex offerIndex = new OfferIndex();
+        offerIndex.put(buildOffer("offer"));
+        ByteBuffer encoded = new MarketSnapshot(1651363200000L, 1651363200000L, Map.of(), offerIndex).encode();
+
+        ByteBuffer otherVersion = ByteBuffer.allocate(encoded.remaining()).put(encoded.duplicate()).flip();
+        otherVersion.putInt(Integer.BYTES, 1);
+        ByteBuffer cutShort = encoded.duplicate().limit(encoded.remaining() - 3);
+
+        assertAll(
+                () -> assertTrue(MarketSnapshot.decode(encoded.duplicate()).isPresent()),
+                () -> assertTrue(MarketSnapshot.decode(otherVersion).isEmpty()),
+                () -> assertTrue(MarketSnapshot.decode(cutShort).isEmpty()),
+                () -> assertTrue(new FileSnapshotStore(directory.resolve("missing.snapshot")).read().isEmpty())
+        );
+    }
+
+    @Test
+    public void shouldBringTheSnapshotUpToDateWithTheDeltaAfterIt() {
+        OfferIndex offerIndex = new OfferIndex();
+        for (int i = 0; i < 200; i++) {
+            offerIndex.put(buildOffer("offer-" + i));
+        }
+        OfferIndex snapshotIndex = MarketSnapshot.decode(new MarketSnapshot(1651363200000L, 1651363200000L, Map.of(), offerIndex)
+                .encode()).orElseThrow().getIndex();
+        Set<String> removedIds = new LinkedHashSet<>();
+        OfferIndex putOffers = new OfferIndex();
+        for (int i = 0; i < 100; i++) {
+            String id = "offer-" + random.nextInt(250);
+            if (random.nextInt(3) == 0) {
+                offerIndex.remove(id);
+                putOffers.remove(id);
+                removedIds.add(id);
+            } else {
+                Offer offer = buildOffer(id);
+                offerIndex.put(offer);
+                putOffers.put(offer);
+                removedIds.remove(id);
+            }
+        }
+
+        MarketDelta delta = MarketDelta.decode(new MarketDelta(1651363200000L, 1651363201000L, 100, removedIds, putOffers).encode())
+                .orElseThrow();
+        delta.applyTo(snapshotIndex);
+
+        assertAll(
+                () -> assertEquals(1651363200000L, delta.getSnapshotTakenAt()),
+                () -> assertEquals(1651363201000L, delta.getCurrentAt()),
+                () -> assertEquals(100, delta.getRecords()),
+                () -> assertEquals(offerIndex.size(), snapshotIndex.size())
+        );
+        assertSameSearches(offerIndex, snapshotIndex);
+        /* Applied again, e.g. by a container that read it twice, it leaves the same market */
+        delta.applyTo(snapshotIndex);
+        assertSameSearches(offerIndex, snapshotIndex);
+    }
+
+    private void assertSameSearches(OfferIndex expected, OfferIndex actual) {
+        for (int i = 0; i < 100; i++) {
+            SearchOffersRequest request = buildRandomRequest();
+            assertEquals(pageThrough(expected, request), pageThrough(actual, request), request.toString());
+        }
+    }
+
+    private static List<Offer> pageThrough(OfferIndex offerIndex, SearchOffersRequest request) {
+        List<Offer> offers = new ArrayList<>();
+        SearchCursor cursor = null;
+        do {
+            request.setExclusiveStartKey(cursor);
+            OffersQueryResponse page = offerIndex.search(request);
+            offers.addAll(page.getOffers());
+            cursor = page.getLastEvaluatedKey();
+        } while (cursor != null);
+        return offers;
+    }
+
+    private Offer buildOffer(String id) {
+        return Offer.builder()
+                .id(id)
+                .price(100000 + random.nextInt(200) * 5000L)
+                .discount(random.nextInt(100) * 50 - 1000)
+                .country(COUNTRIES.get(random.nextInt(COUNTRIES.size())))
+                .position(PlayerPosition.values()[random.nextInt(PlayerPosition.values().length)])
+                .firstName("João")
+                .lastName("Cutler")
+                .age(18 + random.nextInt(23))
+                .value(Money.ofCents(50000000L + random.nextInt(100) * 1000000L))
+                .build();
+    }
+
+    private SearchOffersRequest buildRandomRequest() {
+        SearchOffersRequest.SearchOffersRequestBuilder request = SearchOffersRequest.builder()
+                .orderBy(random.nextBoolean() ? "price" : "discount")
+                .orderDirection(random.nextBoolean() ? "ASC" : "DESC")
+                .pageSize(1 + random.nextInt(100));
+        if (random.nextBoolean()) request.countries(List.of(COUNTRIES.get(random.nextInt(COUNTRIES.size()))));
+        if (random.nextBoolean()) request.positions(List.of(PlayerPosition.values()[random.nextInt(PlayerPosition.values().length)]));
+        if (random.nextBoolean()) request.maxPrice(100000 + random.nextInt(200) * 5000L);
+        if (random.nextBoolean()) request.minAge(18 + random.nextInt(23));
+        return request.build();
+    }
+
+}
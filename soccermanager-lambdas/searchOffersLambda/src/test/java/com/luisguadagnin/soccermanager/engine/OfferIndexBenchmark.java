@@ -0,0 +1,117 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Searches for a page of 100 offers and updates of single offers, against an {@link OfferIndex} of 10k, 100k and 1M offers
+ * spread over 20 countries and the 4 positions. Run through {@link OfferIndexBenchmarkTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class OfferIndexBenchmark {
+
+    private static final int COUNTRIES = 20;
+    private static final PlayerPosition[] POSITIONS = PlayerPosition.values();
+
+    @Param({"10000", "100000", "1000000"})
+    private int offers;
+
+    private final Random random = new Random(42);
+    private OfferIndex offerIndex;
+
+    @Setup
+    public void load() {
+        offerIndex = new OfferIndex();
+        offerIndex.putAll(IntStream.range(0, offers)
+                .mapToObj(i -> buildOffer("offer-" + i))
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public int firstPage() {
+        return search(request("price", "ASC").build());
+    }
+
+    @Benchmark
+    public int countryAndPosition() {
+        return search(request("discount", "DESC")
+                .countries(List.of("Country-3"))
+                .positions(List.of(PlayerPosition.ATTACKER))
+                .build());
+    }
+
+    @Benchmark
+    public int priceRange() {
+        return search(request("price", "DESC")
+                .minPrice(100000000L)
+                .maxPrice(200000000L)
+                .build());
+    }
+
+    /* Roughly one offer in 1600 matches, so the walk skips most of the order */
+    @Benchmark
+    public int selectiveFilters() {
+        return search(request("discount", "ASC")
+                .countries(List.of("Country-7"))
+                .positions(List.of(PlayerPosition.GOALKEEPER))
+                .maxAge(19)
+                .build());
+    }
+
+    /* A reprice of a random offer, which moves it in both orders */
+    @Benchmark
+    public int update() {
+        offerIndex.put(buildOffer("offer-" + random.nextInt(offers)));
+        return offerIndex.size();
+    }
+
+    private int search(SearchOffersRequest request) {
+        return offerIndex.search(request).getOffers().size();
+    }
+
+    private static SearchOffersRequest.SearchOffersRequestBuilder request(String orderBy, String orderDirection) {
+        return SearchOffersRequest.builder()
+                .orderBy(orderBy)
+                .orderDirection(orderDirection)
+                .pageSize(100);
+    }
+
+    private Offer buildOffer(String id) {
+        return Offer.builder()
+                .id(id)
+                .price(50000000L + random.nextInt(1000) * 500000L)
+                .discount(random.nextInt(10000))
+                .country("Country-" + random.nextInt(COUNTRIES))
+                .position(POSITIONS[random.nextInt(POSITIONS.length)])
+                .firstName("Luis")
+                .lastName("Guadagnin")
+                .age(18 + random.nextInt(23))
+                .value(Money.ofCents(100000000L + random.nextInt(100) * 1000000L))
+                .build();
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link OfferIndexBenchmark} with JMH, 5 benchmarks at 3 market sizes. Run with RUN_BENCHMARKS=true mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+public class OfferIndexBenchmarkTest {
+
+    @Test
+    public void reportSearchCost() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(OfferIndexBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+
+        assertEquals(15, results.size());
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.luisguadagnin.soccermanager.dto.KeyResource;
+import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.SearchCursor;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.exception.BadRequestException;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OfferIndexTest {
+
+    private static final List<String> COUNTRIES = List.of("Argentina", "Brazil", "Chile", "Uruguay");
+
+    private final Random random = new Random(42);
+    private final OfferIndex offerIndex = new OfferIndex();
+    private final Map<String, Offer> offers = new HashMap<>();
+
+    @Test
+    public void shouldPageThroughEveryCombinationOfFiltersAndOrdersLikeABruteForceSearch() {
+        List<Offer> loaded = IntStream.range(0, 3000)
+                .mapToObj(i -> buildOffer("offer-" + i))
+                .collect(Collectors.toList());
+        loaded.forEach(offer -> offers.put(offer.getId(), offer));
+        offerIndex.putAll(loaded);
+        /* Relists, reprices and sales, so rows are moved within the orders and reused */
+        for (int i = 0; i < 3000; i++) {
+            String id = "offer-" + random.nextInt(3500);
+            if (random.nextInt(3) == 0) {
+                offers.remove(id);
+                offerIndex.remove(id);
+            } else {
+                put(buildOffer(id));
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            SearchOffersRequest request = buildRandomRequest();
+            List<String> expected = bruteForce(request);
+
+            List<String> paged = new ArrayList<>();
+            SearchCursor cursor = null;
+            int pages = 0;
+            do {
+                request.setExclusiveStartKey(cursor);
+                OffersQueryResponse page = offerIndex.search(request);
+                page.getOffers().forEach(offer -> paged.add(offer.getId()));
+                cursor = page.getLastEvaluatedKey();
+                assertTrue(page.getOffers().size() == request.getPageSize() || cursor == null);
+                assertTrue(++pages <= expected.size() / request.getPageSize() + 1);
+            } while (cursor != null);
+
+            assertEquals(expected, paged, request.toString());
+        }
+        assertEquals(offers.size(), offerIndex.size());
+    }
+
+    @Test
+    public void shouldCarryThePlayerSummaryOnlyForOffersListedWithIt() {
+        Offer legacy = Offer.builder()
+                .id("legacy")
+                .price(100)
+                .discount(10)
+                .country("Brazil")
+                .position(PlayerPosition.DEFENDER)
+                .build();
+        offerIndex.put(legacy);
+        put(buildOffer("summarized"));
+
+        List<Offer> page = offerIndex.search(SearchOffersRequest.builder()
+                .orderBy("price")
+                .orderDirection("ASC")
+                .pageSize(10)
+                .build()).getOffers();
+        List<Offer> byAge = offerIndex.search(SearchOffersRequest.builder()
+                .orderBy("price")
+                .orderDirection("ASC")
+                .pageSize(10)
+                .minAge(0)
+                .build()).getOffers();
+
+        assertAll(
+                () -> assertEquals(legacy, page.get(0)),
+                () -> assertEquals(offers.get("summarized"), page.get(1)),
+                () -> assertEquals(List.of(offers.get("summarized")), byAge)
+        );
+    }
+
+    @Test
+    public void shouldRejectCursorsOfTheOtherOrder() {
+        put(buildOffer("offer"));
+        SearchCursor cursor = new SearchCursor();
+        cursor.setAfter(new KeyResource(null, null, "discount", "100", "offer"));
+
+        assertThrows(BadRequestException.class, () -> offerIndex.search(SearchOffersRequest.builder()
+                .orderBy("price")
+                .orderDirection("ASC")
+                .pageSize(10)
+                .exclusiveStartKey(cursor)
+                .build()));
+    }
+
+    @Test
+    public void shouldEndWithoutCursorWhenTheLastPageIsFull() {
+        IntStream.range(0, 4).forEach(i -> put(buildOffer("offer-" + i)));
+
+        OffersQueryResponse page = offerIndex.search(SearchOffersRequest.builder()
+                .orderBy("discount")
+                .orderDirection("DESC")
+                .pageSize(4)
+                .build());
+
+        assertAll(
+                () -> assertEquals(4, page.getOffers().size()),
+                () -> assertNull(page.getLastEvaluatedKey())
+        );
+    }
+
+    private void put(Offer offer) {
+        offers.put(offer.getId(), offer);
+        offerIndex.put(offer);
+    }
+
+    /* Few distinct prices and discounts, so orders have plenty of ties */
+    private Offer buildOffer(String id) {
+        return Offer.builder()
+                .id(id)
+                .price(100000 + random.nextInt(200) * 5000L)
+                .discount(random.nextInt(100) * 50 - 1000)
+                .country(COUNTRIES.get(random.nextInt(COUNTRIES.size())))
+                .position(PlayerPosition.values()[random.nextInt(PlayerPosition.values().length)])
+                .firstName("Jay")
+                .lastName("Cutler")
+                .age(18 + random.nextInt(23))
+                .value(Money.ofCents(50000000L + random.nextInt(100) * 1000000L))
+                .build();
+    }
+
+    private SearchOffersRequest buildRandomRequest() {
+        String orderBy = random.nextBoolean() ? "price" : "discount";
+        SearchOffersRequest.SearchOffersRequestBuilder request = SearchOffersRequest.builder()
+                .orderBy(orderBy)
+                .orderDirection(random.nextBoolean() ? "ASC" : "DESC")
+                .pageSize(1 + random.nextInt(40));
+        if (random.nextBoolean()) {
+            request.countries(COUNTRIES.stream().filter(country -> random.nextInt(3) == 0).sorted().collect(Collectors.toList()));
+        }
+        if (random.nextBoolean()) {
+            request.positions(List.of(PlayerPosition.values()[random.nextInt(PlayerPosition.values().length)]));
+        }
+        if (random.nextBoolean()) {
+            long minPrice = 100000 + random.nextInt(200) * 5000L;
+            request.minPrice(minPrice).maxPrice(minPrice + random.nextInt(100) * 5000L);
+        }
+        if (random.nextBoolean()) request.minDiscount(random.nextInt(100) * 50 - 1000);
+        if (random.nextBoolean()) request.maxAge(18 + random.nextInt(23));
+        if (random.nextBoolean()) request.minValue(50000000L + random.nextInt(100) * 1000000L);
+        return request.build();
+    }
+
+    private List<String> bruteForce(SearchOffersRequest request) {
+        Predicate<Offer> matches = offer -> (request.getCountries().isEmpty() || request.getCountries().contains(offer.getCountry()))
+                && (request.getPositions().isEmpty() || request.getPositions().contains(offer.getPosition()))
+                && (request.getMinPrice() == null || offer.getPrice() >= request.getMinPrice())
+                && (request.getMaxPrice() == null || offer.getPrice() <= request.getMaxPrice())
+                && (request.getMinDiscount() == null || offer.getDiscount() >= request.getMinDiscount())
+                && (request.getMaxAge() == null || offer.getAge() <= request.getMaxAge())
+                && (request.getMinValue() == null || offer.getValue().getCents() >= request.getMinValue());
+        Comparator<Offer> order = Comparator.<Offer>comparingLong(offer -> "price".equals(request.getOrderBy()) ? offer.getPrice() : offer.getDiscount())
+                .thenComparing(Offer::getId);
+        return offers.values().stream()
+                .filter(matches)
+                .sorted("ASC".equals(request.getOrderDirection()) ? order : order.reversed())
+                .map(Offer::getId)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.luisguadagnin.soccermanager.dto.KeyResource;
+import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.SearchCursor;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.OfferHydrator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class OfferSearchEngineTest {
+
+    private static final long TAKEN_AT = 1651363200000L;
+
+    private final AtomicLong nanoClock = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong(TAKEN_AT);
+    private final SnapshotStore snapshotStore = new InMemorySnapshotStore();
+    private final SnapshotStore deltaStore = new InMemorySnapshotStore();
+    private final OfferSearchEngine offerSearchEngine = new OfferSearchEngine(snapshotStore, deltaStore,
+            new OfferHydrator(mock(AmazonDynamoDB.class), Executors.newSingleThreadExecutor()),
+            Duration.ofSeconds(1), Duration.ofSeconds(10), nanoClock::get, clock::get);
+
+    @Test
+    public void shouldLoadTheSnapshotAndApplyItsDeltaOncePerPollInterval() {
+        writeSnapshot(TAKEN_AT, buildOffer("offer-1", 300), buildOffer("offer-2", 200));
+        writeDelta(TAKEN_AT, 1, Set.of());
+
+        List<String> loaded = searchIds();
+        writeDelta(TAKEN_AT, 3, Set.of("offer-2"), buildOffer("offer-1", 100), buildOffer("offer-3", 250));
+        nanoClock.addAndGet(Duration.ofMillis(999).toNanos());
+        List<String> beforePoll = searchIds();
+        nanoClock.addAndGet(Duration.ofMillis(1).toNanos());
+        List<String> afterPoll = searchIds();
+
+        assertAll(
+                () -> assertEquals(List.of("offer-2", "offer-1"), loaded),
+                () -> assertEquals(loaded, beforePoll),
+                () -> assertEquals(List.of("offer-1", "offer-3"), afterPoll)
+        );
+    }
+
+    @Test
+    public void shouldLoadTheNewerSnapshotADeltaFollows() {
+        writeSnapshot(TAKEN_AT, buildOffer("offer-1", 300));
+        writeDelta(TAKEN_AT, 1, Set.of(), buildOffer("offer-2", 200));
+        List<String> loaded = searchIds();
+
+        writeSnapshot(TAKEN_AT + 60000, buildOffer("offer-3", 100));
+        writeDelta(TAKEN_AT + 60000, 0, Set.of());
+        nanoClock.addAndGet(Duration.ofSeconds(1).toNanos());
+        List<String> reloaded = searchIds();
+
+        assertAll(
+                () -> assertEquals(List.of("offer-2", "offer-1"), loaded),
+                () -> assertEquals(List.of("offer-3"), reloaded)
+        );
+    }
+
+    @Test
+    public void shouldOnlyContinueSearchesOnceTheIndexLagsMoreThanTheMaxLag() {
+        writeSnapshot(TAKEN_AT, buildOffer("offer-1", 300), buildOffer("offer-2", 200));
+        writeDelta(TAKEN_AT, 0, Set.of());
+        OffersQueryResponse firstPage = offerSearchEngine.search(buildRequest(1)).orElseThrow();
+
+        clock.addAndGet(Duration.ofSeconds(11).toMillis());
+        nanoClock.addAndGet(Duration.ofSeconds(11).toNanos());
+        SearchOffersRequest nextPage = buildRequest(1);
+        nextPage.setExclusiveStartKey(firstPage.getLastEvaluatedKey());
+
+        assertAll(
+                () -> assertTrue(offerSearchEngine.search(buildRequest(1)).isEmpty()),
+                () -> assertEquals(List.of("offer-1"), offerSearchEngine.search(nextPage).orElseThrow().getOffers().stream()
+                        .map(Offer::getId)
+                        .collect(Collectors.toList())),
+                () -> assertEquals(11000, offerSearchEngine.lagMillis())
+        );
+    }
+
+    @Test
+    public void shouldNotAnswerBeforeTheFeedWroteASnapshot() {
+        Optional<OffersQueryResponse> page = offerSearchEngine.search(buildRequest(10));
+
+        writeSnapshot(TAKEN_AT, buildOffer("offer-1", 300));
+        List<String> beforePoll = searchIds();
+        nanoClock.addAndGet(Duration.ofSeconds(1).toNanos());
+        List<String> afterPoll = searchIds();
+
+        assertAll(
+                () -> assertTrue(page.isEmpty()),
+                () -> assertEquals(List.of(), beforePoll),
+                () -> assertEquals(List.of("offer-1"), afterPoll)
+        );
+    }
+
+    @Test
+    public void shouldLoadTheSnapshotRightAwayToContinueASearch() {
+        Optional<OffersQueryResponse> beforeSnapshot = offerSearchEngine.search(buildRequest(10));
+        writeSnapshot(TAKEN_AT, buildOffer("offer-1", 300), buildOffer("offer-2", 200));
+
+        SearchCursor cursor = new SearchCursor();
+        cursor.setAfter(new KeyResource(null, null, "price", "200", "offer-2"));
+        SearchOffersRequest nextPage = buildRequest(10);
+        nextPage.setExclusiveStartKey(cursor);
+
+        assertAll(
+                () -> assertTrue(beforeSnapshot.isEmpty()),
+                () -> assertEquals(List.of("offer-1"), offerSearchEngine.search(nextPage).orElseThrow().getOffers().stream()
+                        .map(Offer::getId)
+                        .collect(Collectors.toList()))
+        );
+    }
+
+    private void writeSnapshot(long takenAt, Offer... offers) {
+        OfferIndex offerIndex = new OfferIndex();
+        offerIndex.putAll(List.of(offers));
+        snapshotStore.write(new MarketSnapshot(takenAt, takenAt, Map.of(), offerIndex).encode());
+    }
+
+    private void writeDelta(long snapshotTakenAt, long records, Set<String> removedIds, Offer... putOffers) {
+        OfferIndex offerIndex = new OfferIndex();
+        offerIndex.putAll(List.of(putOffers));
+        deltaStore.write(new MarketDelta(snapshotTakenAt, clock.get(), records, removedIds, offerIndex).encode());
+    }
+
+    private List<String> searchIds() {
+        return offerSearchEngine.search(buildRequest(10))
+                .map(page -> page.getOffers().stream()
+                        .map(Offer::getId)
+                        .collect(Collectors.toList()))
+                .orElse(List.of());
+    }
+
+    private static SearchOffersRequest buildRequest(int pageSize) {
+        return SearchOffersRequest.builder()
+                .orderBy("price")
+                .orderDirection("ASC")
+                .pageSize(pageSize)
+                .build();
+    }
+
+    private static Offer buildOffer(String id, long price) {
+        return Offer.builder()
+                .id(id)
+                .price(price)
+                .discount(1000)
+                .country("Brazil")
+                .position(PlayerPosition.DEFENDER)
+                .firstName("Jay")
+                .lastName("Cutler")
+                .age(30)
+                .value(Money.parse("1000000.00"))
+                .build();
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.luisguadagnin.soccermanager.engine;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamResult;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.StreamDescription;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.model.Money;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.OfferHydrator;
+import com.luisguadagnin.soccermanager.repository.OfferRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the time a new container takes to answer the first page of the unfiltered market: with a cold index query, by
+ * scanning the Offer table into a new feed's snapshot first (as the feed does when there's none) and by loading the engine
+ * from the snapshot. Each run builds a new client, in the same
+ * JVM, so classes are only loaded by the first run. Runs against DynamoDB Local, e.g. DYNAMODB_LOCAL_ENDPOINT=http://localhost:8000
+ */
+@EnabledIfEnvironmentVariable(named = "DYNAMODB_LOCAL_ENDPOINT", matches = ".+")
+public class TimeToFirstQueryBenchmarkTest {
+
+    private static final List<Integer> MARKET_SIZES = List.of(10_000, 100_000);
+    private static final int RUNS = 5;
+    private static final int MAX_ITEMS_PER_BATCH = 25;
+
+    private final Random random = new Random(42);
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    /* No changes are made while measuring, so the feeds read a stream without shards */
+    private final AmazonDynamoDBStreams amazonDynamoDBStreams = mock(AmazonDynamoDBStreams.class);
+
+    @TempDir
+    Path directory;
+
+    public TimeToFirstQueryBenchmarkTest() {
+        when(amazonDynamoDBStreams.describeStream(any(DescribeStreamRequest.class)))
+                .thenReturn(new DescribeStreamResult().withStreamDescription(new StreamDescription().withShards(List.of())));
+    }
+
+    @Test
+    public void reportTimeToFirstQuery() {
+        AmazonDynamoDB amazonDynamoDB = buildClient();
+        createOfferTable(amazonDynamoDB);
+        FileSnapshotStore snapshotStore = new FileSnapshotStore(directory.resolve("market.snapshot"));
+
+        System.out.printf("First page over %d runs (ms)        p50     max%n", RUNS);
+        int listed = 0;
+        for (int marketSize : MARKET_SIZES) {
+            for (; listed < marketSize; listed += MAX_ITEMS_PER_BATCH) {
+                list(amazonDynamoDB, listed, Math.min(marketSize, listed + MAX_ITEMS_PER_BATCH));
+            }
+            buildFeed(amazonDynamoDB, snapshotStore, snapshotStore.deltaStore()).poll();
+
+            long[] query = measure(() -> {
+                AmazonDynamoDB client = buildClient();
+                return new OfferRepository(client, new OfferHydrator(client, executorService), executorService).findByQuery(firstPage());
+            });
+            long[] scan = measure(() -> {
+                AmazonDynamoDB client = buildClient();
+                SnapshotStore scannedSnapshot = new InMemorySnapshotStore();
+                SnapshotStore scannedDelta = new InMemorySnapshotStore();
+                buildFeed(client, scannedSnapshot, scannedDelta).poll();
+                return buildEngine(client, scannedSnapshot, scannedDelta).search(firstPage()).orElseThrow();
+            });
+            long[] snapshot = measure(() -> buildEngine(buildClient(), snapshotStore, snapshotStore.deltaStore())
+                    .search(firstPage()).orElseThrow());
+
+            System.out.printf("  %7d offers, cold index query %7.1f %7.1f%n", marketSize, percentile(query, 50), percentile(query, 100));
+            System.out.printf("  %7d offers, scan             %7.1f %7.1f%n", marketSize, percentile(scan, 50), percentile(scan, 100));
+            System.out.printf("  %7d offers, snapshot         %7.1f %7.1f%n", marketSize, percentile(snapshot, 50), percentile(snapshot, 100));
+        }
+        executorService.shutdown();
+    }
+
+    private long[] measure(Supplier<OffersQueryResponse> firstQuery) {
+        long[] nanos = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            OffersQueryResponse page = firstQuery.get();
+            nanos[run] = System.nanoTime() - start;
+            assertEquals(10, page.getOffers().size());
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int index = Math.max(0, (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1);
+        return sortedNanos[index] / 1_000_000.0;
+    }
+
+    private static SearchOffersRequest firstPage() {
+        return SearchOffersRequest.builder()
+                .orderBy("discount")
+                .orderDirection("DESC")
+                .pageSize(10)
+                .build();
+    }
+
+    private MarketFeed buildFeed(AmazonDynamoDB amazonDynamoDB, SnapshotStore snapshotStore, SnapshotStore deltaStore) {
+        return new MarketFeed(amazonDynamoDB, new OfferStream(amazonDynamoDBStreams, "local"), snapshotStore, deltaStore);
+    }
+
+    private OfferSearchEngine buildEngine(AmazonDynamoDB amazonDynamoDB, SnapshotStore snapshotStore, SnapshotStore deltaStore) {
+        return new OfferSearchEngine(snapshotStore, deltaStore, new OfferHydrator(amazonDynamoDB, executorService));
+    }
+
+    private static AmazonDynamoDB buildClient() {
+        return AmazonDynamoDBClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(System.getenv("DYNAMODB_LOCAL_ENDPOINT"), "us-east-1"))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("local", "local")))
+                .build();
+    }
+
+    private void list(AmazonDynamoDB amazonDynamoDB, int from, int to) {
+        List<WriteRequest> writes = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Offer offer = Offer.builder()
+                    .id("offer-" + i)
+                    .price(50000000L + random.nextInt(1000) * 500000L)
+                    .discount(random.nextInt(10000))
+                    .country("Country-" + random.nextInt(20))
+                    .position(PlayerPosition.values()[random.nextInt(PlayerPosition.values().length)])
+                    .firstName("Luis")
+                    .lastName("Guadagnin")
+                    .age(18 + random.nextInt(23))
+                    .value(Money.ofCents(100000000L + random.nextInt(100) * 1000000L))
+                    .build();
+            writes.add(new WriteRequest(new PutRequest(OfferSchema.toItem(offer))));
+        }
+        Map<String, List<WriteRequest>> requestItems = Map.of(OfferSchema.TABLE_NAME, writes);
+        while (!requestItems.isEmpty()) {
+            requestItems = amazonDynamoDB.batchWriteItem(new BatchWriteItemRequest().withRequestItems(requestItems)).getUnprocessedItems();
+        }
+    }
+
+    /* Offers of a previous run are deleted with the table, so the market holds exactly the offers listed by this one */
+    private static void createOfferTable(AmazonDynamoDB amazonDynamoDB) {
+        try {
+            amazonDynamoDB.deleteTable(OfferSchema.TABLE_NAME);
+        } catch (ResourceNotFoundException ex) {
+            // first run
+        }
+        amazonDynamoDB.createTable(new CreateTableRequest()
+                .withTableName(OfferSchema.TABLE_NAME)
+                .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+                .withAttributeDefinitions(
+                        new AttributeDefinition("id", ScalarAttributeType.S),
+                        new AttributeDefinition("sort_partition", ScalarAttributeType.N),
+                        new AttributeDefinition("discount", ScalarAttributeType.N))
+                .withGlobalSecondaryIndexes(new GlobalSecondaryIndex()
+                        .withIndexName("Sort-Discount-index")
+                        .withKeySchema(new KeySchemaElement("sort_partition", KeyType.HASH), new KeySchemaElement("discount", KeyType.RANGE))
+                        .withProjection(new Projection().withProjectionType(ProjectionType.ALL)))
+                .withBillingMode(BillingMode.PAY_PER_REQUEST));
+    }
+
+}
@@ -0,0 +1,451 @@
+package com.luisguadagnin.soccermanager.repository;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.luisguadagnin.soccermanager.dto.OffersQueryResponse;
+import com.luisguadagnin.soccermanager.dto.PartitionCursor;
+import com.luisguadagnin.soccermanager.dto.SearchCursor;
+import com.luisguadagnin.soccermanager.dto.SearchOffersRequest;
+import com.luisguadagnin.soccermanager.exception.BadRequestException;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OfferRepositoryTest {
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final OfferRepository offerRepository;
+
+    public OfferRepositoryTest() {
+        this.amazonDynamoDB = mock(AmazonDynamoDB.class);
+        OfferHydrator offerHydrator = new OfferHydrator(amazonDynamoDB, Executors.newFixedThreadPool(4));
+        this.offerRepository = new OfferRepository(amazonDynamoDB, offerHydrator, Executors.newFixedThreadPool(4));
+    }
+
+    @Test
+    public void shouldAnswerAPageFromASingleQueryWhenOffersCarryThePlayerSummary() {
+        List<String> ids = buildIds(50);
+        mockIndex(buildCountryItems(ids, true));
+
+        OffersQueryResponse response = offerRepository.findByQuery(buildCountryRequest(50));
+
+        assertAll(
+                () -> assertEquals(ids, response.getOffers().stream().map(Offer::getId).collect(Collectors.toList())),
+                () -> assertEquals("Jay", response.getOffers().get(0).getFirstName()),
+                () -> assertNull(response.getLastEvaluatedKey()),
+                () -> verify(amazonDynamoDB, times(1)).query(any(QueryRequest.class)),
+                () -> verify(amazonDynamoDB, never()).batchGetItem(any(BatchGetItemRequest.class)),
+                () -> verify(amazonDynamoDB, never()).getItem(any())
+        );
+    }
+
+    @Test
+    public void shouldHydrateLegacyOffersWithOneBatchGet() {
+        List<String> ids = buildIds(50);
+        mockIndex(buildCountryItems(ids, false));
+        when(amazonDynamoDB.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenAnswer(invocation -> buildBatchGetResult(invocation.getArgument(0), false));
+
+        OffersQueryResponse response = offerRepository.findByQuery(buildCountryRequest(50));
+
+        assertAll(
+                () -> assertEquals(ids, response.getOffers().stream().map(Offer::getId).collect(Collectors.toList())),
+                () -> assertEquals("Cutler", response.getOffers().get(0).getLastName()),
+                () -> verify(amazonDynamoDB, times(1)).query(any(QueryRequest.class)),
+                () -> verify(amazonDynamoDB, times(1)).batchGetItem(any(BatchGetItemRequest.class)),
+                () -> verify(amazonDynamoDB, never()).getItem(any())
+        );
+    }
+
+    @Test
+    public void shouldSplitLargePagesIntoBatchesAndKeepIndexOrder() {
+        List<String> ids = buildIds(120);
+        mockIndex(buildCountryItems(ids, false));
+        when(amazonDynamoDB.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenAnswer(invocation -> buildBatchGetResult(invocation.getArgument(0), false));
+
+        OffersQueryResponse response = offerRepository.findByQuery(buildCountryRequest(120));
+
+        assertAll(
+                () -> assertEquals(ids, response.getOffers().stream().map(Offer::getId).collect(Collectors.toList())),
+                () -> verify(amazonDynamoDB, times(3)).batchGetItem(any(BatchGetItemRequest.class))
+        );
+    }
+
+    @Test
+    public void shouldRetryUnprocessedKeys() {
+        List<String> ids = buildIds(10);
+        AtomicBoolean throttled = new AtomicBoolean(false);
+        mockIndex(buildCountryItems(ids, false));
+        when(amazonDynamoDB.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenAnswer(invocation -> buildBatchGetResult(invocation.getArgument(0), !throttled.getAndSet(true)));
+
+        OffersQueryResponse response = offerRepository.findByQuery(buildCountryRequest(10));
+
+        assertAll(
+                () -> assertEquals(ids, response.getOffers().stream().map(Offer::getId).collect(Collectors.toList())),
+                () -> verify(amazonDynamoDB, times(2)).batchGetItem(any(BatchGetItemRequest.class))
+        );
+    }
+
+    @Test
+    public void shouldMergeEveryShardInPriceOrderAcrossPages() {
+        Random random = new Random(42);
+        List<Map<String, AttributeValue>> items = IntStream.range(0, 97)
+                .mapToObj(i -> buildShardedItem("offer-" + i, 1000 + random.nextInt(50) * 100, random.nextInt(3000)))
+                .collect(Collectors.toList());
+        AtomicInteger queries = mockIndex(items);
+
+        for (String orderDirection : List.of("ASC", "DESC")) {
+            Comparator<Map<String, AttributeValue>> byPrice = Comparator.comparingLong(item -> Long.parseLong(item.get("price").getN()));
+            List<String> expectedPrices = items.stream()
+                    .sorted("ASC".equals(orderDirection) ? byPrice : byPrice.reversed())
+                    .map(item -> item.get("price").getN())
+                    .collect(Collectors.toList());
+
+            List<Offer> offers = new ArrayList<>();
+            SearchCursor cursor = null;
+            int pages = 0;
+            do {
+                queries.set(0);
+                OffersQueryResponse response = offerRepository.findByQuery(SearchOffersRequest.builder()
+                        .orderBy("price")
+                        .orderDirection(orderDirection)
+                        .pageSize(10)
+                        .exclusiveStartKey(cursor)
+                        .build());
+                offers.addAll(response.getOffers());
+                cursor = response.getLastEvaluatedKey();
+                assertTrue(queries.get() <= Offer.SORT_PARTITIONS);
+                assertTrue(++pages < 50);
+            } while (cursor != null);
+
+            assertEquals(expectedPrices, offers.stream().map(offer -> String.valueOf(offer.getPrice())).collect(Collectors.toList()));
+            assertEquals(items.size(), offers.stream().map(Offer::getId).distinct().count());
+        }
+    }
+
+    @Test
+    public void shouldMergeEveryCountryAndPositionPairInDiscountOrderAcrossPages() {
+        Random random = new Random(7);
+        List<String> countries = List.of("Argentina", "Brazil", "Chile");
+        List<Map<String, AttributeValue>> items = IntStream.range(0, 120)
+                .mapToObj(i -> {
+                    String country = countries.get(random.nextInt(countries.size()));
+                    PlayerPosition position = PlayerPosition.values()[random.nextInt(PlayerPosition.values().length)];
+                    Map<String, AttributeValue> item = new HashMap<>(buildItem("Offer", "offer-" + i));
+                    item.put("discount", new AttributeValue().withN(String.valueOf(random.nextInt(3000))));
+                    item.put("country", new AttributeValue().withS(country));
+                    item.put("position", new AttributeValue().withS(position.toString()));
+                    item.put("country_position", new AttributeValue().withS(Offer.buildCountryPosition(country, position)));
+                    return item;
+                })
+                .collect(Collectors.toList());
+        Set<String> pairs = Set.of("Argentina::DEFENDER", "Argentina::MIDFIELDER", "Brazil::DEFENDER", "Brazil::MIDFIELDER");
+        List<String> expectedDiscounts = items.stream()
+                .filter(item -> pairs.contains(item.get("country_position").getS()))
+                .map(item -> Integer.parseInt(item.get("discount").getN()))
+                .sorted(Comparator.reverseOrder())
+                .map(String::valueOf)
+                .collect(Collectors.toList());
+        AtomicInteger queries = mockIndex(items);
+
+        List<Offer> offers = new ArrayList<>();
+        SearchCursor cursor = null;
+        int pages = 0;
+        do {
+            queries.set(0);
+            OffersQueryResponse response = offerRepository.findByQuery(SearchOffersRequest.builder()
+                    .countries(List.of("Argentina", "Brazil"))
+                    .positions(List.of(PlayerPosition.DEFENDER, PlayerPosition.MIDFIELDER))
+                    .orderBy("discount")
+                    .orderDirection("DESC")
+                    .pageSize(7)
+                    .exclusiveStartKey(cursor)
+                    .build());
+            offers.addAll(response.getOffers());
+            cursor = response.getLastEvaluatedKey();
+            if (cursor != null) {
+                assertTrue(cursor.getPartitions().stream().allMatch(partition -> pairs.contains(partition.getPartitionKeyValue())));
+            }
+            assertTrue(queries.get() <= pairs.size());
+            assertTrue(++pages < 50);
+        } while (cursor != null);
+
+        ArgumentCaptor<QueryRequest> query = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(amazonDynamoDB, Mockito.atLeastOnce()).query(query.capture());
+        assertAll(
+                () -> assertEquals(expectedDiscounts, offers.stream().map(offer -> String.valueOf(offer.getDiscount())).collect(Collectors.toList())),
+                () -> assertEquals(expectedDiscounts.size(), offers.stream().map(Offer::getId).distinct().count()),
+                () -> assertTrue(query.getAllValues().stream().allMatch(request -> "CountryPosition-Discount-index".equals(request.getIndexName())))
+        );
+    }
+
+    @Test
+    public void shouldRejectCursorsOfOtherIndexes() {
+        SearchCursor cursor = new SearchCursor(List.of(new PartitionCursor("Argentina", null)));
+
+        assertThrows(BadRequestException.class, () -> offerRepository.findByQuery(SearchOffersRequest.builder()
+                .orderBy("price")
+                .orderDirection("ASC")
+                .pageSize(10)
+                .exclusiveStartKey(cursor)
+                .build()));
+    }
+
+    @Test
+    public void shouldFilterRangesOnTheFieldTheIndexIsNotSortedBy() {
+        mockIndex(buildCountryItems(buildIds(5), true));
+
+        offerRepository.findByQuery(SearchOffersRequest.builder()
+                .countries(List.of("Brazil"))
+                .orderBy("discount")
+                .orderDirection("DESC")
+                .pageSize(10)
+                .minDiscount(1000)
+                .maxPrice(200000000L)
+                .build());
+
+        ArgumentCaptor<QueryRequest> query = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(amazonDynamoDB).query(query.capture());
+        assertAll(
+                () -> assertEquals("Country-Discount-index", query.getValue().getIndexName()),
+                () -> assertEquals("#attr = :val AND #sk >= :skMin", query.getValue().getKeyConditionExpression()),
+                () -> assertEquals("#fk <= :fkMax", query.getValue().getFilterExpression()),
+                () -> assertEquals(Map.of("#attr", "country", "#sk", "discount", "#fk", "price"), query.getValue().getExpressionAttributeNames()),
+                () -> assertEquals("200000000", query.getValue().getExpressionAttributeValues().get(":fkMax").getN())
+        );
+    }
+
+    @Test
+    public void shouldReadFurtherUntilThePageIsFullOfMatches() {
+        List<Map<String, AttributeValue>> items = buildAgedItems(40, 5);
+        List<String> youngIds = items.stream()
+                .filter(item -> "20".equals(item.get("age").getN()))
+                .map(item -> item.get("id").getS())
+                .collect(Collectors.toList());
+        AtomicInteger queries = mockIndex(items);
+
+        OffersQueryResponse first = offerRepository.findByQuery(buildYoungPlayersRequest(null));
+        int firstPageQueries = queries.get();
+        OffersQueryResponse second = offerRepository.findByQuery(buildYoungPlayersRequest(first.getLastEvaluatedKey()));
+
+        ArgumentCaptor<QueryRequest> query = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(amazonDynamoDB, times(queries.get())).query(query.capture());
+        assertAll(
+                () -> assertEquals(youngIds.subList(0, 5), first.getOffers().stream().map(Offer::getId).collect(Collectors.toList())),
+                () -> assertEquals(youngIds.subList(5, 8), second.getOffers().stream().map(Offer::getId).collect(Collectors.toList())),
+                () -> assertNull(second.getLastEvaluatedKey()),
+                () -> assertEquals(3, firstPageQueries),
+                () -> assertEquals(3, first.getQueries()),
+                () -> assertEquals(1.5, first.getConsumedCapacity()),
+                () -> assertEquals(List.of(5, 10, 20), query.getAllValues().subList(0, 3).stream().map(QueryRequest::getLimit).collect(Collectors.toList())),
+                () -> assertEquals("#age <= :ageMax", query.getValue().getFilterExpression())
+        );
+    }
+
+    @Test
+    public void shouldStopAtTheReadBudgetAndResumeWhereFilteringStopped() {
+        OfferRepository budgetedRepository = new OfferRepository(amazonDynamoDB,
+                new OfferHydrator(amazonDynamoDB, Executors.newFixedThreadPool(4)), Executors.newFixedThreadPool(4), 1.0);
+        List<Map<String, AttributeValue>> items = buildAgedItems(40, 20);
+        mockIndex(items);
+
+        OffersQueryResponse first = budgetedRepository.findByQuery(buildYoungPlayersRequest(null));
+        OffersQueryResponse second = budgetedRepository.findByQuery(buildYoungPlayersRequest(first.getLastEvaluatedKey()));
+
+        ArgumentCaptor<QueryRequest> query = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(amazonDynamoDB, times(4)).query(query.capture());
+        assertAll(
+                () -> assertEquals(List.of(), first.getOffers()),
+                () -> assertEquals(1.0, first.getConsumedCapacity()),
+                () -> assertEquals(items.get(14).get("id").getS(), first.getLastEvaluatedKey().getPartitions().get(0).getKey().getOfferId()),
+                () -> assertEquals(items.get(14).get("id"), query.getAllValues().get(2).getExclusiveStartKey().get("id")),
+                () -> assertEquals(List.of(items.get(19).get("id").getS()), second.getOffers().stream().map(Offer::getId).collect(Collectors.toList()))
+        );
+    }
+
+    private SearchOffersRequest buildYoungPlayersRequest(SearchCursor cursor) {
+        return SearchOffersRequest.builder()
+                .countries(List.of("Brazil"))
+                .orderBy("price")
+                .orderDirection("ASC")
+                .pageSize(5)
+                .maxAge(25)
+                .exclusiveStartKey(cursor)
+                .build();
+    }
+
+    /* Brazilian offers in price order, every one-in-youngEvery of them listing a 20-year-old player and the others 30-year-old ones */
+    private List<Map<String, AttributeValue>> buildAgedItems(int amount, int youngEvery) {
+        return IntStream.range(0, amount)
+                .mapToObj(i -> {
+                    Map<String, AttributeValue> item = new HashMap<>(buildItem("Offer", String.format("offer-%02d", i)));
+                    item.put("price", new AttributeValue().withN(String.valueOf(100000 + i * 100)));
+                    item.put("age", new AttributeValue().withN((i + 1) % youngEvery == 0 ? "20" : "30"));
+                    return item;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private SearchOffersRequest buildCountryRequest(int pageSize) {
+        return SearchOffersRequest.builder()
+                .countries(List.of("Brazil"))
+                .orderBy("price")
+                .orderDirection("ASC")
+                .pageSize(pageSize)
+                .build();
+    }
+
+    private List<String> buildIds(int amount) {
+        return IntStream.range(0, amount)
+                .mapToObj(i -> "offer-" + (amount - i))
+                .collect(Collectors.toList());
+    }
+
+    private List<Map<String, AttributeValue>> buildCountryItems(List<String> ids, boolean withPlayerSummary) {
+        return IntStream.range(0, ids.size())
+                .mapToObj(i -> {
+                    Map<String, AttributeValue> item = new HashMap<>(withPlayerSummary ? buildItem("Offer", ids.get(i)) : Map.of(
+                            "id", new AttributeValue().withS(ids.get(i)),
+                            "country", new AttributeValue().withS("Brazil"),
+                            "discount", new AttributeValue().withN("1000")));
+                    item.put("price", new AttributeValue().withN(String.valueOf(i * 100)));
+                    return item;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, AttributeValue> buildShardedItem(String id, long price, int discount) {
+        Map<String, AttributeValue> item = new HashMap<>(buildItem("Offer", id));
+        item.put("price", new AttributeValue().withN(String.valueOf(price)));
+        item.put("discount", new AttributeValue().withN(String.valueOf(discount)));
+        item.put("sort_partition", new AttributeValue().withN(String.valueOf(Offer.buildSortPartition(id))));
+        return item;
+    }
+
+    /* Serves queries on any index from the given items, ordered by the index sort key and then by id */
+    private AtomicInteger mockIndex(List<Map<String, AttributeValue>> items) {
+        AtomicInteger queries = new AtomicInteger();
+        when(amazonDynamoDB.query(any(QueryRequest.class))).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            QueryRequest request = invocation.getArgument(0);
+            String partitionKeyName = request.getExpressionAttributeNames().get("#attr");
+            AttributeValue partitionKeyValue = request.getExpressionAttributeValues().get(":val");
+            String sortKeyName = request.getIndexName().contains("Price") ? "price" : "discount";
+
+            Comparator<Map<String, AttributeValue>> order = Comparator.<Map<String, AttributeValue>>comparingLong(item -> Long.parseLong(item.get(sortKeyName).getN()))
+                    .thenComparing(item -> item.get("id").getS());
+            List<Map<String, AttributeValue>> partition = items.stream()
+                    .filter(item -> partitionKeyValue.equals(item.get(partitionKeyName)))
+                    .sorted(Boolean.FALSE.equals(request.getScanIndexForward()) ? order.reversed() : order)
+                    .collect(Collectors.toList());
+
+            int start = 0;
+            if (request.getExclusiveStartKey() != null) {
+                String startId = request.getExclusiveStartKey().get("id").getS();
+                while (!partition.get(start).get("id").getS().equals(startId)) start++;
+                start++;
+            }
+            int end = Math.min(start + request.getLimit(), partition.size());
+            List<Map<String, AttributeValue>> evaluated = partition.subList(start, end);
+            List<Map<String, AttributeValue>> page = evaluated.stream()
+                    .filter(item -> matchesAge(request, item))
+                    .collect(Collectors.toList());
+
+            QueryResult result = new QueryResult().withItems(page).withCount(page.size())
+                    .withConsumedCapacity(new ConsumedCapacity().withCapacityUnits(0.5));
+            if (end < partition.size()) {
+                Map<String, AttributeValue> last = evaluated.get(evaluated.size() - 1);
+                result.setLastEvaluatedKey(Map.of(
+                        "id", last.get("id"),
+                        partitionKeyName, last.get(partitionKeyName),
+                        sortKeyName, last.get(sortKeyName)));
+            }
+            return result;
+        });
+        return queries;
+    }
+
+    /* The only filter served, as the age range of the filter expression */
+    private boolean matchesAge(QueryRequest request, Map<String, AttributeValue> item) {
+        if (request.getFilterExpression() == null) return true;
+        Map<String, AttributeValue> values = request.getExpressionAttributeValues();
+        int age = Integer.parseInt(item.get("age").getN());
+        return (!values.containsKey(":ageMin") || age >= Integer.parseInt(values.get(":ageMin").getN()))
+                && (!values.containsKey(":ageMax") || age <= Integer.parseInt(values.get(":ageMax").getN()));
+    }
+
+    private BatchGetItemResult buildBatchGetResult(BatchGetItemRequest request, boolean leaveHalfUnprocessed) {
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+        Map<String, KeysAndAttributes> unprocessed = new HashMap<>();
+        request.getRequestItems().forEach((table, keysAndAttributes) -> {
+            List<Map<String, AttributeValue>> keys = keysAndAttributes.getKeys();
+            int processed = leaveHalfUnprocessed ? keys.size() / 2 : keys.size();
+            responses.put(table, keys.subList(0, processed).stream()
+                    .map(key -> buildItem(table, key.get("id").getS()))
+                    .collect(Collectors.toList()));
+            if (processed < keys.size()) {
+                unprocessed.put(table, new KeysAndAttributes().withKeys(keys.subList(processed, keys.size())));
+            }
+        });
+        return new BatchGetItemResult().withResponses(responses).withUnprocessedKeys(unprocessed);
+    }
+
+    private Map<String, AttributeValue> buildItem(String table, String id) {
+        if ("Offer".equals(table)) {
+            return Map.of(
+                    "id", new AttributeValue().withS(id),
+                    "price", new AttributeValue().withN("100000"),
+                    "discount", new AttributeValue().withN("1000"),
+                    "country", new AttributeValue().withS("Brazil"),
+                    "position", new AttributeValue().withS("DEFENDER"),
+                    "sort_partition", new AttributeValue().withN("1"),
+                    "firstName", new AttributeValue().withS("Jay"),
+                    "lastName", new AttributeValue().withS("Cutler"),
+                    "age", new AttributeValue().withN("30"),
+                    "value", new AttributeValue().withS("1000000.00"));
+        }
+        return Map.of(
+                "id", new AttributeValue().withS(id),
+                "firstName", new AttributeValue().withS("Jay"),
+                "lastName", new AttributeValue().withS("Cutler"),
+                "country", new AttributeValue().withS("Brazil"),
+                "age", new AttributeValue().withN("30"),
+                "value", new AttributeValue().withS("1000000.00"),
+                "position", new AttributeValue().withS("DEFENDER"));
+    }
+}
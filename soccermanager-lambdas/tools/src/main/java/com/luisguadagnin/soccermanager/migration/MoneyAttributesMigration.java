@@ -0,0 +1,51 @@
+package com.luisguadagnin.soccermanager.migration;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+import java.util.Map;
+
+/**
+ * Rewrites every money attribute still stored as a decimal string as a number of cents (see {@link MoneyAttributes}).
+ * Purchases convert the items they touch on their own, so this only finishes the job for the rest.
+ * Safe to run while the API is up and to run more than once.
+ * <p>
+ * Usage: mvn -q compile exec:java -Dexec.mainClass=com.luisguadagnin.soccermanager.migration.MoneyAttributesMigration
+ */
+public class MoneyAttributesMigration {
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final MoneyAttributes moneyAttributes;
+
+    public MoneyAttributesMigration(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.moneyAttributes = new MoneyAttributes(amazonDynamoDB);
+    }
+
+    public static void main(String[] args) {
+        MoneyAttributesMigration migration = new MoneyAttributesMigration(AmazonDynamoDBClientBuilder.defaultClient());
+        MoneyAttributes.BY_TABLE.keySet().forEach(tableName -> {
+            int migrated = migration.migrate(tableName);
+            System.out.printf("%s: %d attributes migrated%n", tableName, migrated);
+        });
+    }
+
+    public int migrate(String tableName) {
+        int migrated = 0;
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            ScanResult result = amazonDynamoDB.scan(new ScanRequest()
+                    .withTableName(tableName)
+                    .withExclusiveStartKey(exclusiveStartKey));
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                migrated += moneyAttributes.convert(tableName, item);
+            }
+            exclusiveStartKey = result.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+        return migrated;
+    }
+
+}
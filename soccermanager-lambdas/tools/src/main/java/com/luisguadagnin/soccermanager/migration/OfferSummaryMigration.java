@@ -0,0 +1,92 @@
+package com.luisguadagnin.soccermanager.migration;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.luisguadagnin.soccermanager.cache.MarketVersion;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+
+import java.util.Map;
+
+/**
+ * Copies the listed player's summary (name, age and value) into every offer listed before offers kept it, so searches
+ * filtered by age or value match them too. The player is read consistently, names already written by a rename are kept,
+ * and an offer bought in the meantime isn't written again. Safe to run while the API is up and to run more than once.
+ * <p>
+ * Usage: mvn -q compile exec:java -Dexec.mainClass=com.luisguadagnin.soccermanager.migration.OfferSummaryMigration
+ */
+public class OfferSummaryMigration {
+
+    private final AmazonDynamoDB amazonDynamoDB;
+
+    public OfferSummaryMigration(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
+    }
+
+    public static void main(String[] args) {
+        int migrated = new OfferSummaryMigration(AmazonDynamoDBClientBuilder.defaultClient()).migrate();
+        System.out.printf("%s: %d offers migrated%n", OfferSchema.TABLE_NAME, migrated);
+    }
+
+    public int migrate() {
+        int migrated = 0;
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            ScanResult result = amazonDynamoDB.scan(new ScanRequest()
+                    .withTableName(OfferSchema.TABLE_NAME)
+                    .withProjectionExpression("id")
+                    .withFilterExpression("attribute_not_exists(age) OR attribute_not_exists(#value)")
+                    .withExpressionAttributeNames(Map.of("#value", "value"))
+                    .withExclusiveStartKey(exclusiveStartKey));
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                if (migrate(item.get("id").getS())) {
+                    migrated++;
+                }
+            }
+            exclusiveStartKey = result.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+
+        if (migrated > 0) {
+            new MarketVersion(amazonDynamoDB).bump(); // search pages cached without the migrated offers
+        }
+        return migrated;
+    }
+
+    private boolean migrate(String offerId) {
+        Map<String, AttributeValue> item = amazonDynamoDB.getItem(new GetItemRequest()
+                        .withTableName(PlayerSchema.TABLE_NAME)
+                        .withKey(PlayerSchema.key(offerId))
+                        .withConsistentRead(true))
+                .getItem();
+        if (item == null) {
+            return false;
+        }
+        Player player = PlayerSchema.fromItem(item);
+        try {
+            amazonDynamoDB.updateItem(new UpdateItemRequest()
+                    .withTableName(OfferSchema.TABLE_NAME)
+                    .withKey(OfferSchema.key(offerId))
+                    .withUpdateExpression("SET firstName = if_not_exists(firstName, :firstName), "
+                            + "lastName = if_not_exists(lastName, :lastName), age = :age, #value = :value")
+                    .withConditionExpression("attribute_exists(id)")
+                    .withExpressionAttributeNames(Map.of("#value", "value"))
+                    .withExpressionAttributeValues(Map.of(
+                            ":firstName", new AttributeValue().withS(player.getFirstName()),
+                            ":lastName", new AttributeValue().withS(player.getLastName()),
+                            ":age", new AttributeValue().withN(Integer.toString(player.getAge())),
+                            ":value", new AttributeValue().withN(Long.toString(player.getValue().getCents())))));
+            return true;
+        } catch (ConditionalCheckFailedException ex) {
+            // bought in the meantime
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.luisguadagnin.soccermanager.migration;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+import com.luisguadagnin.soccermanager.model.TeamSchema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Replaces the playersId set of every team by its playerCount, once rosters are read from Player's TeamId-index.
+ * To be run after that index is created, which DynamoDB fills from the players' teamId on its own.
+ * <p>
+ * Players bought after the new purchase code is deployed are no longer in the sets, so each team's players are counted from
+ * the players themselves, read consistently among the ones in its set or in the index. The count is only saved if the team's
+ * version is still the one read before counting, otherwise the team is counted again. Safe to run more than once.
+ * <p>
+ * Usage: mvn -q compile exec:java -Dexec.mainClass=com.luisguadagnin.soccermanager.migration.RosterMigration
+ */
+public class RosterMigration {
+
+    private static final String TEAM_INDEX = "TeamId-index";
+    private static final int MAX_KEYS_PER_BATCH = 100;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final AmazonDynamoDB amazonDynamoDB;
+
+    public RosterMigration(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
+    }
+
+    public static void main(String[] args) {
+        int migrated = new RosterMigration(AmazonDynamoDBClientBuilder.defaultClient()).migrate();
+        System.out.printf("%s: %d rosters migrated%n", TeamSchema.TABLE_NAME, migrated);
+    }
+
+    public int migrate() {
+        int migrated = 0;
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            ScanResult result = amazonDynamoDB.scan(new ScanRequest()
+                    .withTableName(TeamSchema.TABLE_NAME)
+                    .withProjectionExpression("id")
+                    .withFilterExpression("attribute_exists(playersId)")
+                    .withExclusiveStartKey(exclusiveStartKey));
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                if (migrate(item.get("id").getS())) {
+                    migrated++;
+                }
+            }
+            exclusiveStartKey = result.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+        return migrated;
+    }
+
+    private boolean migrate(String teamId) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Map<String, AttributeValue> team = amazonDynamoDB.getItem(new GetItemRequest()
+                    .withTableName(TeamSchema.TABLE_NAME)
+                    .withKey(TeamSchema.key(teamId))
+                    .withProjectionExpression("playersId, #version")
+                    .withExpressionAttributeNames(Map.of("#version", "version"))
+                    .withConsistentRead(true)).getItem();
+            if (team == null || !team.containsKey("playersId")) {
+                return false; // migrated by a previous run
+            }
+
+            Set<String> candidates = new LinkedHashSet<>(team.get("playersId").getSS());
+            candidates.addAll(queryRoster(teamId));
+            int playerCount = countPlayers(teamId, candidates);
+
+            if (save(teamId, Optional.ofNullable(team.get("version")), playerCount)) {
+                return true;
+            }
+        }
+        throw new IllegalStateException("Team " + teamId + " kept changing while its roster was counted, run the migration again");
+    }
+
+    private List<String> queryRoster(String teamId) {
+        List<String> playersId = new ArrayList<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResult result = amazonDynamoDB.query(new QueryRequest()
+                    .withTableName(PlayerSchema.TABLE_NAME)
+                    .withIndexName(TEAM_INDEX)
+                    .withKeyConditionExpression("teamId = :teamId")
+                    .withExpressionAttributeValues(Map.of(":teamId", new AttributeValue().withS(teamId)))
+                    .withProjectionExpression("id")
+                    .withExclusiveStartKey(exclusiveStartKey));
+            result.getItems().forEach(item -> playersId.add(item.get("id").getS()));
+            exclusiveStartKey = result.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+        return playersId;
+    }
+
+    private int countPlayers(String teamId, Set<String> candidates) {
+        List<Map<String, AttributeValue>> keys = candidates.stream()
+                .map(PlayerSchema::key)
+                .collect(Collectors.toList());
+        int count = 0;
+        for (int i = 0; i < keys.size(); i += MAX_KEYS_PER_BATCH) {
+            Map<String, KeysAndAttributes> requestItems = Map.of(PlayerSchema.TABLE_NAME, new KeysAndAttributes()
+                    .withKeys(keys.subList(i, Math.min(i + MAX_KEYS_PER_BATCH, keys.size())))
+                    .withProjectionExpression("id, teamId")
+                    .withConsistentRead(true));
+            while (requestItems != null && !requestItems.isEmpty()) {
+                BatchGetItemResult result = amazonDynamoDB.batchGetItem(new BatchGetItemRequest().withRequestItems(requestItems));
+                count += (int) result.getResponses().getOrDefault(PlayerSchema.TABLE_NAME, List.of()).stream()
+                        .filter(player -> player.containsKey("teamId") && teamId.equals(player.get("teamId").getS()))
+                        .count();
+                requestItems = result.getUnprocessedKeys();
+            }
+        }
+        return count;
+    }
+
+    private boolean save(String teamId, Optional<AttributeValue> version, int playerCount) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":playerCount", new AttributeValue().withN(Integer.toString(playerCount)));
+        version.ifPresent(value -> values.put(":version", value));
+        try {
+            amazonDynamoDB.updateItem(new UpdateItemRequest()
+                    .withTableName(TeamSchema.TABLE_NAME)
+                    .withKey(TeamSchema.key(teamId))
+                    .withUpdateExpression("SET playerCount = :playerCount REMOVE playersId")
+                    .withConditionExpression(version.isPresent() ? "#version = :version" : "attribute_not_exists(#version)")
+                    .withExpressionAttributeNames(Map.of("#version", "version"))
+                    .withExpressionAttributeValues(values));
+            return true;
+        } catch (ConditionalCheckFailedException ex) {
+            // changed while counting, e.g. by a purchase
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.luisguadagnin.soccermanager.view;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.luisguadagnin.soccermanager.model.TeamSchema;
+import com.luisguadagnin.soccermanager.model.TeamView;
+import com.luisguadagnin.soccermanager.repository.PlayerRepository;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.repository.TeamViewRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders every team again and rewrites the views that drifted from it: missing ones, e.g. for teams created before the
+ * views or whose stream records expired unprocessed, and ones left behind by a change to the response format.
+ * Safe to run while the API is up and to run more than once: a view is never replaced by one of an older team version.
+ * Teams whose roster is still behind their player count are skipped and reported, to be rebuilt by another run.
+ * <p>
+ * Usage: mvn -q compile exec:java -Dexec.mainClass=com.luisguadagnin.soccermanager.view.TeamViewRebuild
+ */
+public class TeamViewRebuild {
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final TeamViewProjector teamViewProjector;
+    private final TeamViewRepository teamViewRepository;
+    private final List<String> skipped = new ArrayList<>();
+
+    public TeamViewRebuild(AmazonDynamoDB amazonDynamoDB) {
+        this(amazonDynamoDB,
+                new TeamViewProjector(new TeamRepository(amazonDynamoDB), new PlayerRepository(amazonDynamoDB), new TeamViewRepository(amazonDynamoDB)),
+                new TeamViewRepository(amazonDynamoDB));
+    }
+
+    TeamViewRebuild(AmazonDynamoDB amazonDynamoDB, TeamViewProjector teamViewProjector, TeamViewRepository teamViewRepository) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.teamViewProjector = teamViewProjector;
+        this.teamViewRepository = teamViewRepository;
+    }
+
+    public static void main(String[] args) throws IOException {
+        TeamViewRebuild teamViewRebuild = new TeamViewRebuild(AmazonDynamoDBClientBuilder.defaultClient());
+        int rebuilt = teamViewRebuild.rebuild();
+        System.out.printf("TeamView: %d views rebuilt%n", rebuilt);
+        if (!teamViewRebuild.getSkipped().isEmpty()) {
+            System.out.printf("TeamView: %d teams skipped, run again for %s%n", teamViewRebuild.getSkipped().size(), teamViewRebuild.getSkipped());
+        }
+    }
+
+    public int rebuild() throws IOException {
+        skipped.clear();
+        int rebuilt = 0;
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            ScanResult result = amazonDynamoDB.scan(new ScanRequest()
+                    .withTableName(TeamSchema.TABLE_NAME)
+                    .withProjectionExpression("id")
+                    .withExclusiveStartKey(exclusiveStartKey));
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                if (rebuild(item.get("id").getS())) {
+                    rebuilt++;
+                }
+            }
+            exclusiveStartKey = result.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+        return rebuilt;
+    }
+
+    /**
+     * The teams skipped by the last rebuild because their roster was behind their player count
+     */
+    public List<String> getSkipped() {
+        return skipped;
+    }
+
+    private boolean rebuild(String teamId) throws IOException {
+        TeamView rendered;
+        try {
+            rendered = teamViewProjector.render(teamId);
+        } catch (IllegalStateException ex) {
+            skipped.add(teamId);
+            return false;
+        }
+        if (rendered == null || rendered.equals(teamViewRepository.findById(teamId))) {
+            return false;
+        }
+        return teamViewRepository.save(rendered);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.luisguadagnin.soccermanager.view;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.luisguadagnin.soccermanager.model.TeamView;
+import com.luisguadagnin.soccermanager.repository.TeamViewRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TeamViewRebuildTest {
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final TeamViewProjector teamViewProjector;
+    private final TeamViewRepository teamViewRepository;
+    private final TeamViewRebuild teamViewRebuild;
+
+    public TeamViewRebuildTest() {
+        this.amazonDynamoDB = mock(AmazonDynamoDB.class);
+        this.teamViewProjector = mock(TeamViewProjector.class);
+        this.teamViewRepository = mock(TeamViewRepository.class);
+        this.teamViewRebuild = new TeamViewRebuild(amazonDynamoDB, teamViewProjector, teamViewRepository);
+    }
+
+    @Test
+    public void shouldRewriteOnlyMissingAndDriftedViews() throws IOException {
+        TeamView current = new TeamView("team-current", 2, "{\"name\":\"Current\"}");
+        TeamView missing = new TeamView("team-missing", 0, "{\"name\":\"Missing\"}");
+        TeamView drifted = new TeamView("team-drifted", 5, "{\"name\":\"Renamed\"}");
+
+        when(amazonDynamoDB.scan(any(ScanRequest.class)))
+                .thenReturn(new ScanResult()
+                        .withItems(List.of(idItem("team-current"), idItem("team-missing")))
+                        .withLastEvaluatedKey(idItem("team-missing")))
+                .thenReturn(new ScanResult()
+                        .withItems(List.of(idItem("team-drifted"))));
+        when(teamViewProjector.render("team-current")).thenReturn(current);
+        when(teamViewProjector.render("team-missing")).thenReturn(missing);
+        when(teamViewProjector.render("team-drifted")).thenReturn(drifted);
+        when(teamViewRepository.findById("team-current")).thenReturn(new TeamView("team-current", 2, "{\"name\":\"Current\"}"));
+        when(teamViewRepository.findById("team-drifted")).thenReturn(new TeamView("team-drifted", 4, "{\"name\":\"Former\"}"));
+        when(teamViewRepository.save(any())).thenReturn(true);
+
+        int rebuilt = teamViewRebuild.rebuild();
+
+        assertAll(
+                () -> assertEquals(2, rebuilt),
+                () -> verify(teamViewRepository, never()).save(current),
+                () -> verify(teamViewRepository).save(missing),
+                () -> verify(teamViewRepository).save(drifted)
+        );
+    }
+
+    @Test
+    public void shouldSkipTeamWithRosterBehindAndKeepScanning() throws IOException {
+        TeamView rendered = new TeamView("team-after", 1, "{\"name\":\"After\"}");
+
+        when(amazonDynamoDB.scan(any(ScanRequest.class)))
+                .thenReturn(new ScanResult()
+                        .withItems(List.of(idItem("team-behind"), idItem("team-after"))));
+        when(teamViewProjector.render("team-behind"))
+                .thenThrow(new IllegalStateException("Roster of team-behind is behind its player count, to be rendered again"));
+        when(teamViewProjector.render("team-after")).thenReturn(rendered);
+        when(teamViewRepository.save(any())).thenReturn(true);
+
+        int rebuilt = teamViewRebuild.rebuild();
+
+        assertAll(
+                () -> assertEquals(1, rebuilt),
+                () -> assertEquals(List.of("team-behind"), teamViewRebuild.getSkipped()),
+                () -> verify(teamViewRepository).save(rendered)
+        );
+    }
+
+    private Map<String, AttributeValue> idItem(String id) {
+        return Map.of("id", new AttributeValue().withS(id));
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.luisguadagnin.soccermanager;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import com.luisguadagnin.soccermanager.cache.MarketVersion;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.priming.Priming;
+import com.luisguadagnin.soccermanager.priming.PrimingDynamoDB;
+import com.luisguadagnin.soccermanager.repository.OfferRepository;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Consumes the Player table's stream, bringing what copies a player's details up to date after PUT /player changed them:
+ * the summary kept by the player's offer, if it's listed, and the team's version, so its view is rendered again.
+ * <p>
+ * A failed record is reported back with its sequence number, so the batch is retried from there and a later change of the
+ * same player isn't overwritten by an earlier one.
+ */
+public class PlayerDetailsHandler implements RequestHandler<DynamodbEvent, StreamsEventResponse> {
+
+    private static final List<String> DETAILS = List.of("firstName", "lastName", "country");
+
+    private final OfferRepository offerRepository;
+    private final TeamRepository teamRepository;
+    private final MarketVersion marketVersion;
+
+    public PlayerDetailsHandler() {
+        offerRepository = new OfferRepository();
+        teamRepository = new TeamRepository();
+        marketVersion = new MarketVersion(AWSConfiguration.getAmazonDynamoDB());
+        Priming.register(this::prime, AWSConfiguration::refresh);
+    }
+
+    PlayerDetailsHandler(OfferRepository offerRepository, TeamRepository teamRepository, MarketVersion marketVersion) {
+        this.offerRepository = offerRepository;
+        this.teamRepository = teamRepository;
+        this.marketVersion = marketVersion;
+    }
+
+    /* Renames the stub listed player in a stub table, so the repositories' code paths are loaded in the snapshot too */
+    void prime() {
+        PrimingDynamoDB primingDynamoDB = new PrimingDynamoDB();
+        PlayerDetailsHandler primingHandler = new PlayerDetailsHandler(new OfferRepository(primingDynamoDB),
+                new TeamRepository(primingDynamoDB), new MarketVersion(primingDynamoDB));
+
+        DynamodbEvent.DynamodbStreamRecord record = new DynamodbEvent.DynamodbStreamRecord();
+        record.setEventName("MODIFY");
+        record.setDynamodb(new StreamRecord()
+                .withKeys(Map.of("id", new AttributeValue().withS(PrimingDynamoDB.LISTED_PLAYER_ID)))
+                .withOldImage(Map.of("firstName", new AttributeValue().withS("Priming")))
+                .withNewImage(Map.of(
+                        "id", new AttributeValue().withS(PrimingDynamoDB.LISTED_PLAYER_ID),
+                        "teamId", new AttributeValue().withS(PrimingDynamoDB.SELLER_ID),
+                        "firstName", new AttributeValue().withS("Primed"),
+                        "lastName", new AttributeValue().withS("Player"),
+                        "country", new AttributeValue().withS("Brazil"),
+                        "position", new AttributeValue().withS(PlayerPosition.DEFENDER.name())))
+                .withSequenceNumber("priming"));
+        DynamodbEvent dynamodbEvent = new DynamodbEvent();
+        dynamodbEvent.setRecords(List.of(record));
+
+        if (!primingHandler.handleRequest(dynamodbEvent, null).getBatchItemFailures().isEmpty()) {
+            throw new IllegalStateException("Priming player failed to be synced");
+        }
+    }
+
+    @Override
+    public StreamsEventResponse handleRequest(DynamodbEvent dynamodbEvent, Context context) {
+        for (DynamodbEvent.DynamodbStreamRecord record : dynamodbEvent.getRecords()) {
+            if (!"MODIFY".equals(record.getEventName()) || !detailsChanged(record.getDynamodb())) continue;
+            try {
+                sync(record.getDynamodb().getNewImage());
+            } catch (Exception ex) {
+                return new StreamsEventResponse(List.of(new StreamsEventResponse.BatchItemFailure(record.getDynamodb().getSequenceNumber())));
+            }
+        }
+        return new StreamsEventResponse(List.of());
+    }
+
+    /* Purchases and value changes write players too, only renames are copied elsewhere */
+    private static boolean detailsChanged(StreamRecord streamRecord) {
+        return DETAILS.stream().anyMatch(attribute -> !Objects.equals(
+                stringOf(streamRecord.getOldImage(), attribute), stringOf(streamRecord.getNewImage(), attribute)));
+    }
+
+    private void sync(Map<String, AttributeValue> newImage) {
+        Player player = Player.builder()
+                .id(stringOf(newImage, "id"))
+                .teamId(stringOf(newImage, "teamId"))
+                .firstName(stringOf(newImage, "firstName"))
+                .lastName(stringOf(newImage, "lastName"))
+                .country(stringOf(newImage, "country"))
+                .position(PlayerPosition.valueOf(stringOf(newImage, "position")))
+                .build();
+        if (offerRepository.updatePlayerSummary(player)) marketVersion.bump();
+        teamRepository.bumpVersion(player.getTeamId());
+    }
+
+    private static String stringOf(Map<String, AttributeValue> image, String attribute) {
+        AttributeValue value = image == null ? null : image.get(attribute);
+        return value == null ? null : value.getS();
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.luisguadagnin.soccermanager.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PlayerDetailsUpdate {
+
+    private String playerId;
+    private String teamId;
+    private String firstName;
+    private String lastName;
+    private String country;
+
+}
@@ -0,0 +1,48 @@
+package com.luisguadagnin.soccermanager.repository;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.model.Offer;
+import com.luisguadagnin.soccermanager.model.OfferSchema;
+import com.luisguadagnin.soccermanager.model.Player;
+
+import java.util.Map;
+
+public class OfferRepository {
+
+    private final AmazonDynamoDB amazonDynamoDB;
+
+    public OfferRepository() {
+        amazonDynamoDB = AWSConfiguration.getAmazonDynamoDB();
+    }
+
+    public OfferRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
+    }
+
+    /**
+     * Rewrites the summary of the player kept by its offer, returning false when the player isn't listed
+     */
+    public boolean updatePlayerSummary(Player player) {
+        try {
+            amazonDynamoDB.updateItem(new UpdateItemRequest()
+                    .withTableName(OfferSchema.TABLE_NAME)
+                    .withKey(OfferSchema.key(player.getId()))
+                    .withUpdateExpression("SET firstName = :firstName, lastName = :lastName, country = :country, country_position = :countryPosition")
+                    .withConditionExpression("attribute_exists(id)")
+                    .withExpressionAttributeValues(Map.of(
+                            ":firstName", new AttributeValue().withS(player.getFirstName()),
+                            ":lastName", new AttributeValue().withS(player.getLastName()),
+                            ":country", new AttributeValue().withS(player.getCountry()),
+                            ":countryPosition", new AttributeValue().withS(Offer.buildCountryPosition(player.getCountry(), player.getPosition()))
+                    )));
+            return true;
+        } catch (ConditionalCheckFailedException ex) {
+            return false;
+        }
+    }
+
+}
@@ -1,23 +1,54 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.dto.PlayerDetailsUpdate;
 import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.PlayerSchema;
+
+import java.util.Map;
 
 public class PlayerRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    private final AmazonDynamoDB amazonDynamoDB;
 
     public PlayerRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        this(AWSConfiguration.getAmazonDynamoDB());
+    }
+
+    public PlayerRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
     }
 
     public Player findById(String playerId) {
-        return dynamoDBMapper.load(Player.class, playerId);
+        return PlayerSchema.fromItem(amazonDynamoDB.getItem(PlayerSchema.TABLE_NAME, PlayerSchema.key(playerId)).getItem());
     }
 
-    public void save(Player player) {
-        dynamoDBMapper.save(player);
+    /**
+     * Updates the player only if it belongs to the given team, returning false when it doesn't. The listed player's summary
+     * and the team's version, the ETag of GET /team, are brought up to date from the Player table's stream
+     * (see {@link com.luisguadagnin.soccermanager.PlayerDetailsHandler}).
+     */
+    public boolean updateDetails(PlayerDetailsUpdate update) {
+        try {
+            amazonDynamoDB.updateItem(new UpdateItemRequest()
+                    .withTableName(PlayerSchema.TABLE_NAME)
+                    .withKey(PlayerSchema.key(update.getPlayerId()))
+                    .withUpdateExpression("SET firstName = :firstName, lastName = :lastName, country = :country")
+                    .withConditionExpression("attribute_exists(id) AND teamId = :teamId")
+                    .withExpressionAttributeValues(Map.of(
+                            ":firstName", new AttributeValue().withS(update.getFirstName()),
+                            ":lastName", new AttributeValue().withS(update.getLastName()),
+                            ":country", new AttributeValue().withS(update.getCountry()),
+                            ":teamId", new AttributeValue().withS(update.getTeamId())
+                    )));
+            return true;
+        } catch (ConditionalCheckFailedException ex) {
+            return false;
+        }
     }
 
 }
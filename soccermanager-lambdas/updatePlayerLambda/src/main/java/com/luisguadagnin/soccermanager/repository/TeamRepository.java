@@ -1,19 +1,41 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
-import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.model.TeamSchema;
+
+import java.util.Map;
 
 public class TeamRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    private final AmazonDynamoDB amazonDynamoDB;
 
     public TeamRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        amazonDynamoDB = AWSConfiguration.getAmazonDynamoDB();
+    }
+
+    public TeamRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
     }
 
-    public Team findById(String id) {
-        return dynamoDBMapper.load(Team.class, id);
+    /**
+     * Bumps the team's version, the ETag of GET /team, so its view is rendered again. Nothing is written for a missing team.
+     */
+    public void bumpVersion(String id) {
+        try {
+            amazonDynamoDB.updateItem(new UpdateItemRequest()
+                    .withTableName(TeamSchema.TABLE_NAME)
+                    .withKey(TeamSchema.key(id))
+                    .withUpdateExpression("ADD #version :one")
+                    .withConditionExpression("attribute_exists(id)")
+                    .withExpressionAttributeNames(Map.of("#version", "version"))
+                    .withExpressionAttributeValues(Map.of(":one", new AttributeValue().withN("1"))));
+        } catch (ConditionalCheckFailedException ex) {
+            // no team to render a view of
+        }
     }
 
 }
@@ -0,0 +1,71 @@
+package com.luisguadagnin.soccermanager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.luisguadagnin.soccermanager.repository.PlayerRepository;
+import com.luisguadagnin.soccermanager.runtime.BootstrapHarness;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serves HTTP API events through {@link BootstrapHarness}, on the JVM and, under mvn -Pnative verify,
+ * from the native executable.
+ */
+public class BootstrapTest {
+
+    private final BootstrapHarness bootstrapHarness;
+    private final PlayerRepository playerRepository;
+
+    public BootstrapTest() throws IOException {
+        this.bootstrapHarness = new BootstrapHarness();
+        this.playerRepository = mock(PlayerRepository.class);
+    }
+
+    @AfterEach
+    public void closeHarness() {
+        bootstrapHarness.close();
+    }
+
+    @Test
+    public void shouldUpdatePlayerThroughRuntimeApi() throws Exception {
+        String username = "luis@guadagnin.com";
+        String playerId = "player-uuid";
+        when(playerRepository.updateDetails(any()))
+                .thenReturn(true);
+
+        JsonNode response = bootstrapHarness.serve(new UpdatePlayerHandler(playerRepository),
+                LambdaEvents.httpApi("PUT", "/player/" + playerId, username,
+                        Map.of("playerId", playerId), null, "{\"firstName\": \"Louis\", \"lastName\": \"Lane\", \"country\": \"Nigeria\"}"));
+
+        assertAll(
+                () -> assertEquals(200, response.get("statusCode").asInt()),
+                () -> verify(playerRepository).updateDetails(any())
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.executable", matches = ".+")
+    public void shouldAnswerFromNativeExecutable() throws Exception {
+        // the body is read into UpdatePlayerRequest, then rejected before reaching DynamoDB
+        JsonNode response = bootstrapHarness.serveNative(UpdatePlayerHandler.class,
+                LambdaEvents.httpApi("PUT", "/player/player-uuid", "luis@guadagnin.com",
+                        Map.of("playerId", "player-uuid"), null, "{\"firstName\": \"Louis\", \"lastName\": \"Lane\"}"));
+
+        assertAll(
+                () -> assertEquals(400, response.get("statusCode").asInt()),
+                () -> assertEquals("{ \"message\": \"\"country\" field is empty\" }", response.get("body").asText())
+        );
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.luisguadagnin.soccermanager;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import com.luisguadagnin.soccermanager.cache.MarketVersion;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.model.Player;
+import com.luisguadagnin.soccermanager.model.enums.PlayerPosition;
+import com.luisguadagnin.soccermanager.repository.OfferRepository;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class PlayerDetailsHandlerTest {
+
+    private final OfferRepository offerRepository;
+    private final TeamRepository teamRepository;
+    private final MarketVersion marketVersion;
+    private final PlayerDetailsHandler playerDetailsHandler;
+
+    public PlayerDetailsHandlerTest() {
+        this.offerRepository = mock(OfferRepository.class);
+        this.teamRepository = mock(TeamRepository.class);
+        this.marketVersion = mock(MarketVersion.class);
+        this.playerDetailsHandler = new PlayerDetailsHandler(offerRepository, teamRepository, marketVersion);
+    }
+
+    @Test
+    public void shouldRewriteListedPlayerSummaryAndBumpTeamVersion() {
+        when(offerRepository.updatePlayerSummary(any())).thenReturn(true);
+
+        StreamsEventResponse response = playerDetailsHandler.handleRequest(createEvent(
+                createRecord("MODIFY", "1", "Clark", "Louis")), null);
+
+        ArgumentCaptor<Player> playerCaptor = ArgumentCaptor.forClass(Player.class);
+        verify(offerRepository).updatePlayerSummary(playerCaptor.capture());
+        assertAll(
+                () -> assertTrue(response.getBatchItemFailures().isEmpty()),
+                () -> assertEquals("Louis", playerCaptor.getValue().getFirstName()),
+                () -> assertEquals(PlayerPosition.DEFENDER, playerCaptor.getValue().getPosition()),
+                () -> verify(marketVersion).bump(),
+                () -> verify(teamRepository).bumpVersion("team-uuid")
+        );
+    }
+
+    @Test
+    public void shouldOnlyBumpTeamVersionOfUnlistedPlayer() {
+        when(offerRepository.updatePlayerSummary(any())).thenReturn(false);
+
+        StreamsEventResponse response = playerDetailsHandler.handleRequest(createEvent(
+                createRecord("MODIFY", "1", "Clark", "Louis")), null);
+
+        assertAll(
+                () -> assertTrue(response.getBatchItemFailures().isEmpty()),
+                () -> verify(marketVersion, never()).bump(),
+                () -> verify(teamRepository).bumpVersion("team-uuid")
+        );
+    }
+
+    @Test
+    public void shouldSkipRecordsThatDontChangeThePlayersDetails() {
+        StreamsEventResponse response = playerDetailsHandler.handleRequest(createEvent(
+                createRecord("INSERT", "1", null, "Louis"),
+                createRecord("MODIFY", "2", "Louis", "Louis")), null);
+
+        assertAll(
+                () -> assertTrue(response.getBatchItemFailures().isEmpty()),
+                () -> verifyNoInteractions(offerRepository, teamRepository, marketVersion)
+        );
+    }
+
+    @Test
+    public void shouldReportFailedRecordAndStopThere() {
+        when(offerRepository.updatePlayerSummary(any()))
+                .thenReturn(false)
+                .thenThrow(new RuntimeException("Throttled"));
+
+        StreamsEventResponse response = playerDetailsHandler.handleRequest(createEvent(
+                createRecord("MODIFY", "1", "Clark", "Louis"),
+                createRecord("MODIFY", "2", "Louis", "Lex"),
+                createRecord("MODIFY", "3", "Lex", "Bruce")), null);
+
+        assertAll(
+                () -> assertEquals(1, response.getBatchItemFailures().size()),
+                () -> assertEquals("2", response.getBatchItemFailures().get(0).getItemIdentifier()),
+                () -> verify(offerRepository, times(2)).updatePlayerSummary(any()),
+                () -> verify(teamRepository, times(1)).bumpVersion("team-uuid")
+        );
+    }
+
+    @Test
+    public void shouldSyncPlayerThroughItsOwnRepositoriesAfterPrimingAndRestore() {
+        playerDetailsHandler.prime();
+        AWSConfiguration.refresh();
+        StreamsEventResponse response = playerDetailsHandler.handleRequest(createEvent(
+                createRecord("MODIFY", "1", "Clark", "Louis")), null);
+
+        assertAll(
+                () -> assertTrue(response.getBatchItemFailures().isEmpty()),
+                () -> verify(teamRepository).bumpVersion("team-uuid")
+        );
+    }
+
+    private DynamodbEvent createEvent(DynamodbEvent.DynamodbStreamRecord... records) {
+        DynamodbEvent dynamodbEvent = new DynamodbEvent();
+        dynamodbEvent.setRecords(List.of(records));
+        return dynamodbEvent;
+    }
+
+    private DynamodbEvent.DynamodbStreamRecord createRecord(String eventName, String sequenceNumber, String oldFirstName, String newFirstName) {
+        DynamodbEvent.DynamodbStreamRecord record = new DynamodbEvent.DynamodbStreamRecord();
+        record.setEventName(eventName);
+        record.setDynamodb(new StreamRecord()
+                .withKeys(Map.of("id", new AttributeValue().withS("player-uuid")))
+                .withOldImage(oldFirstName == null ? null : buildImage(oldFirstName))
+                .withNewImage(buildImage(newFirstName))
+                .withSequenceNumber(sequenceNumber));
+        return record;
+    }
+
+    private static Map<String, AttributeValue> buildImage(String firstName) {
+        return Map.of(
+                "id", new AttributeValue().withS("player-uuid"),
+                "teamId", new AttributeValue().withS("team-uuid"),
+                "firstName", new AttributeValue().withS(firstName),
+                "lastName", new AttributeValue().withS("Lane"),
+                "country", new AttributeValue().withS("Nigeria"),
+                "position", new AttributeValue().withS(PlayerPosition.DEFENDER.name()));
+    }
+
+}
@@ -1,15 +1,14 @@
 package com.luisguadagnin.soccermanager;
 
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.dto.PlayerDetailsUpdate;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
 import com.luisguadagnin.soccermanager.model.Player;
-import com.luisguadagnin.soccermanager.model.Team;
 import com.luisguadagnin.soccermanager.repository.PlayerRepository;
-import com.luisguadagnin.soccermanager.repository.TeamRepository;
 import org.junit.jupiter.api.Test;
 
 import java.util.Map;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -22,13 +21,11 @@ import static org.mockito.Mockito.when;
 public class UpdatePlayerHandlerTest {
 
     private final PlayerRepository playerRepository;
-    private final TeamRepository teamRepository;
     private final UpdatePlayerHandler updatePlayerHandler;
 
     public UpdatePlayerHandlerTest() {
         this.playerRepository = mock(PlayerRepository.class);
-        this.teamRepository = mock(TeamRepository.class);
-        this.updatePlayerHandler = new UpdatePlayerHandler(teamRepository, playerRepository);
+        this.updatePlayerHandler = new UpdatePlayerHandler(playerRepository);
     }
 
     @Test
@@ -41,32 +38,23 @@ public class UpdatePlayerHandlerTest {
                 "  \"country\": \"Nigeria\"" +
                 "}";
 
-        Player player = Player.builder()
-                .id(playerId)
-                .firstName("Clark")
-                .lastName("Kent")
-                .country("Germany")
-                .build();
-        Team team = Team.builder()
-                .id(username)
-                .playersId(Set.of(playerId))
-                .build();
+        when(playerRepository.updateDetails(any()))
+                .thenReturn(true);
 
-        when(playerRepository.findById(playerId))
-                .thenReturn(player);
-        when(teamRepository.findById(username))
-                .thenReturn(team);
-
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody, playerId);
+        HttpApiRequest input = createInput(username, requestBody, playerId);
 
-        APIGatewayProxyResponseEvent output = updatePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = updatePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(200, output.getStatusCode()),
-                () -> assertEquals("Louis", player.getFirstName()),
-                () -> assertEquals("Lane", player.getLastName()),
-                () -> assertEquals("Nigeria", player.getCountry()),
-                () -> verify(playerRepository).save(player)
+                () -> verify(playerRepository).updateDetails(PlayerDetailsUpdate.builder()
+                        .playerId(playerId)
+                        .teamId(username)
+                        .firstName("Louis")
+                        .lastName("Lane")
+                        .country("Nigeria")
+                        .build()),
+                () -> verify(playerRepository, never()).findById(any())
         );
     }
 
@@ -85,24 +73,21 @@ public class UpdatePlayerHandlerTest {
                 .firstName("Clark")
                 .lastName("Kent")
                 .country("Germany")
-                .build();
-        Team team = Team.builder()
-                .id(username)
-                .playersId(Set.of("other-player-uuid"))
+                .teamId("other-team")
                 .build();
 
+        when(playerRepository.updateDetails(any()))
+                .thenReturn(false);
         when(playerRepository.findById(playerId))
                 .thenReturn(player);
-        when(teamRepository.findById(username))
-                .thenReturn(team);
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody, playerId);
+        HttpApiRequest input = createInput(username, requestBody, playerId);
 
-        APIGatewayProxyResponseEvent output = updatePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = updatePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(403, output.getStatusCode()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(playerRepository).updateDetails(any())
         );
     }
 
@@ -116,16 +101,18 @@ public class UpdatePlayerHandlerTest {
                 "  \"country\": \"Nigeria\"" +
                 "}";
 
+        when(playerRepository.updateDetails(any()))
+                .thenReturn(false);
         when(playerRepository.findById(playerId))
                 .thenReturn(null);
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody, playerId);
+        HttpApiRequest input = createInput(username, requestBody, playerId);
 
-        APIGatewayProxyResponseEvent output = updatePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = updatePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(404, output.getStatusCode()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(playerRepository).updateDetails(any())
         );
     }
 
@@ -138,24 +125,43 @@ public class UpdatePlayerHandlerTest {
                 "  \"anyAttribute2\": \"anyValue\"" +
                 "}";
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody, playerId);
+        HttpApiRequest input = createInput(username, requestBody, playerId);
 
-        APIGatewayProxyResponseEvent output = updatePlayerHandler.handleRequest(input, null);
+        HttpApiResponse output = updatePlayerHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(playerRepository, never()).save(any())
+                () -> verify(playerRepository, never()).updateDetails(any())
         );
     }
 
-    private APIGatewayProxyRequestEvent createInput(String username, String body, String playerId) {
-        APIGatewayProxyRequestEvent.ProxyRequestContext context = new APIGatewayProxyRequestEvent.ProxyRequestContext();
-        context.setAuthorizer(Map.of("jwt", Map.of("claims", Map.of("username", username))));
+    @Test
+    public void shouldUpdatePlayerThroughItsOwnRepositoriesAfterPrimingAndRestore() {
+        String username = "username-test";
+        String playerId = "player-uuid";
+        String requestBody = "{" +
+                "  \"firstName\": \"Louis\"," +
+                "  \"lastName\": \"Lane\"," +
+                "  \"country\": \"Nigeria\"" +
+                "}";
+        when(playerRepository.updateDetails(any()))
+                .thenReturn(true);
+
+        updatePlayerHandler.prime();
+        AWSConfiguration.refresh();
+        HttpApiResponse output = updatePlayerHandler.handleRequest(createInput(username, requestBody, playerId), null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> verify(playerRepository).updateDetails(any())
+        );
+    }
 
-        return new APIGatewayProxyRequestEvent()
+    private HttpApiRequest createInput(String username, String body, String playerId) {
+        return new HttpApiRequest()
                 .withBody(body)
                 .withPathParameters(Map.of("playerId", playerId))
-                .withRequestContext(context);
+                .withUsername(username);
     }
 
 }
@@ -0,0 +1,63 @@
+package com.luisguadagnin.soccermanager.repository;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.luisguadagnin.soccermanager.dto.PlayerDetailsUpdate;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class PlayerRepositoryTest {
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final PlayerRepository playerRepository;
+
+    public PlayerRepositoryTest() {
+        this.amazonDynamoDB = mock(AmazonDynamoDB.class);
+        this.playerRepository = new PlayerRepository(amazonDynamoDB);
+    }
+
+    @Test
+    public void shouldUpdatePlayerWithASingleConditionalUpdate() {
+        boolean updated = playerRepository.updateDetails(buildUpdate());
+
+        ArgumentCaptor<UpdateItemRequest> requestCaptor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(amazonDynamoDB).updateItem(requestCaptor.capture());
+        verifyNoMoreInteractions(amazonDynamoDB);
+        assertAll(
+                () -> assertTrue(updated),
+                () -> assertEquals("Player", requestCaptor.getValue().getTableName()),
+                () -> assertEquals("attribute_exists(id) AND teamId = :teamId", requestCaptor.getValue().getConditionExpression()),
+                () -> assertEquals(new AttributeValue().withS("team-uuid"), requestCaptor.getValue().getExpressionAttributeValues().get(":teamId"))
+        );
+    }
+
+    @Test
+    public void shouldNotUpdatePlayerOfAnotherTeam() {
+        when(amazonDynamoDB.updateItem(any(UpdateItemRequest.class))).thenThrow(new ConditionalCheckFailedException("The conditional request failed"));
+
+        assertFalse(playerRepository.updateDetails(buildUpdate()));
+    }
+
+    private static PlayerDetailsUpdate buildUpdate() {
+        return PlayerDetailsUpdate.builder()
+                .playerId("player-uuid")
+                .teamId("team-uuid")
+                .firstName("Louis")
+                .lastName("Lane")
+                .country("Nigeria")
+                .build();
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.luisguadagnin.soccermanager.exception;
+
+public class NotFoundException extends RuntimeException {
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+
+}
@@ -1,23 +1,48 @@
 package com.luisguadagnin.soccermanager.repository;
 
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
-import com.luisguadagnin.soccermanager.model.Team;
+
+import java.util.Map;
 
 public class TeamRepository {
 
-    private final DynamoDBMapper dynamoDBMapper;
+    private static final String TABLE_NAME = "Team";
+
+    private final AmazonDynamoDB amazonDynamoDB;
 
     public TeamRepository() {
-        dynamoDBMapper = AWSConfiguration.getDynamoDBMapper();
+        amazonDynamoDB = AWSConfiguration.getAmazonDynamoDB();
     }
 
-    public Team findById(String id) {
-        return dynamoDBMapper.load(Team.class, id);
+    public TeamRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
     }
 
-    public void save(Team team) {
-        dynamoDBMapper.save(team);
+    /**
+     * Updates an existing team, returning false when there's no team with the given id
+     */
+    public boolean updateDetails(String id, String name, String country) {
+        UpdateItemRequest updateItemRequest = new UpdateItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(Map.of("id", new AttributeValue().withS(id)))
+                .withUpdateExpression("SET #name = :name, country = :country ADD #version :one")
+                .withConditionExpression("attribute_exists(id)")
+                .withExpressionAttributeNames(Map.of("#name", "name", "#version", "version"))
+                .withExpressionAttributeValues(Map.of(
+                        ":name", new AttributeValue().withS(name),
+                        ":country", new AttributeValue().withS(country),
+                        ":one", new AttributeValue().withN("1")
+                ));
+        try {
+            amazonDynamoDB.updateItem(updateItemRequest);
+            return true;
+        } catch (ConditionalCheckFailedException ex) {
+            return false;
+        }
     }
 
 }
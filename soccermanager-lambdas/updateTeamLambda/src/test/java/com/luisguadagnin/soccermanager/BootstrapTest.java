@@ -0,0 +1,69 @@
+package com.luisguadagnin.soccermanager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.luisguadagnin.soccermanager.repository.TeamRepository;
+import com.luisguadagnin.soccermanager.runtime.BootstrapHarness;
+import com.luisguadagnin.soccermanager.runtime.LambdaEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serves HTTP API events through {@link BootstrapHarness}, on the JVM and, under mvn -Pnative verify,
+ * from the native executable.
+ */
+public class BootstrapTest {
+
+    private final BootstrapHarness bootstrapHarness;
+    private final TeamRepository teamRepository;
+
+    public BootstrapTest() throws IOException {
+        this.bootstrapHarness = new BootstrapHarness();
+        this.teamRepository = mock(TeamRepository.class);
+    }
+
+    @AfterEach
+    public void closeHarness() {
+        bootstrapHarness.close();
+    }
+
+    @Test
+    public void shouldUpdateTeamThroughRuntimeApi() throws Exception {
+        String username = "luis@guadagnin.com";
+
+        when(teamRepository.updateDetails(username, "Nova Era", "Madagascar"))
+                .thenReturn(true);
+
+        JsonNode response = bootstrapHarness.serve(new UpdateTeamHandler(teamRepository),
+                LambdaEvents.httpApi("PUT", "/team", username, null, null,
+                        "{\"name\": \"Nova Era\", \"country\": \"Madagascar\"}"));
+
+        assertAll(
+                () -> assertEquals(200, response.get("statusCode").asInt()),
+                () -> verify(teamRepository).updateDetails(username, "Nova Era", "Madagascar")
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.executable", matches = ".+")
+    public void shouldAnswerFromNativeExecutable() throws Exception {
+        // the body is read into UpdateTeamRequest, then rejected before reaching DynamoDB
+        JsonNode response = bootstrapHarness.serveNative(UpdateTeamHandler.class,
+                LambdaEvents.httpApi("PUT", "/team", "luis@guadagnin.com", null, null,
+                        "{\"name\": \"Nova Era\"}"));
+
+        assertAll(
+                () -> assertEquals(400, response.get("statusCode").asInt()),
+                () -> assertEquals("{ \"message\": \"\"country\" field is empty\" }", response.get("body").asText())
+        );
+    }
+
+}
@@ -1,16 +1,14 @@
 package com.luisguadagnin.soccermanager;
 
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
-import com.luisguadagnin.soccermanager.model.Team;
+import com.luisguadagnin.soccermanager.configuration.AWSConfiguration;
+import com.luisguadagnin.soccermanager.http.HttpApiRequest;
+import com.luisguadagnin.soccermanager.http.HttpApiResponse;
 import com.luisguadagnin.soccermanager.repository.TeamRepository;
 import org.junit.jupiter.api.Test;
 
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -35,27 +33,37 @@ public class UpdateTeamHandlerTest {
                 "  \"country\": \"Madagascar\"" +
                 "}";
 
-        Team team = Team.builder()
-                .id(username)
-                .name("New Kids On The Block")
-                .country("Argentina")
-                .build();
+        when(teamRepository.updateDetails(username, "Nova Era", "Madagascar"))
+                .thenReturn(true);
 
-        when(teamRepository.findById(username))
-                .thenReturn(team);
+        HttpApiRequest input = createInput(username, requestBody);
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody);
-
-        APIGatewayProxyResponseEvent output = updateTeamHandler.handleRequest(input, null);
+        HttpApiResponse output = updateTeamHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(200, output.getStatusCode()),
-                () -> verify(teamRepository).save(team),
-                () -> assertEquals("Nova Era", team.getName()),
-                () -> assertEquals("Madagascar", team.getCountry())
+                () -> verify(teamRepository).updateDetails(username, "Nova Era", "Madagascar")
         );
     }
 
+    @Test
+    public void shouldNotUpdateTeamWhenTeamDoesNotExist() {
+        String username = "username-test";
+        String requestBody = "{" +
+                "  \"name\": \"Nova Era\"," +
+                "  \"country\": \"Madagascar\"" +
+                "}";
+
+        when(teamRepository.updateDetails(username, "Nova Era", "Madagascar"))
+                .thenReturn(false);
+
+        HttpApiRequest input = createInput(username, requestBody);
+
+        HttpApiResponse output = updateTeamHandler.handleRequest(input, null);
+
+        assertEquals(404, output.getStatusCode());
+    }
+
     @Test
     public void shouldNotUpdateTeamWhenRequestIsInvalid() {
         String username = "username-test";
@@ -63,22 +71,40 @@ public class UpdateTeamHandlerTest {
                 "  \"anyAttribute\": \"anyValue\"" +
                 "}";
 
-        APIGatewayProxyRequestEvent input = createInput(username, requestBody);
+        HttpApiRequest input = createInput(username, requestBody);
 
-        APIGatewayProxyResponseEvent output = updateTeamHandler.handleRequest(input, null);
+        HttpApiResponse output = updateTeamHandler.handleRequest(input, null);
 
         assertAll(
                 () -> assertEquals(400, output.getStatusCode()),
-                () -> verify(teamRepository, never()).save(any())
+                () -> verify(teamRepository, never()).updateDetails(any(), any(), any())
         );
     }
 
-    private APIGatewayProxyRequestEvent createInput(String username, String body) {
-        APIGatewayProxyRequestEvent.ProxyRequestContext context = new APIGatewayProxyRequestEvent.ProxyRequestContext();
-        context.setAuthorizer(Map.of("jwt", Map.of("claims", Map.of("username", username))));
+    @Test
+    public void shouldUpdateTeamThroughItsOwnRepositoryAfterPrimingAndRestore() {
+        String username = "username-test";
+        String requestBody = "{" +
+                "  \"name\": \"Nova Era\"," +
+                "  \"country\": \"Madagascar\"" +
+                "}";
+
+        when(teamRepository.updateDetails(username, "Nova Era", "Madagascar"))
+                .thenReturn(true);
+
+        updateTeamHandler.prime();
+        AWSConfiguration.refresh();
+        HttpApiResponse output = updateTeamHandler.handleRequest(createInput(username, requestBody), null);
+
+        assertAll(
+                () -> assertEquals(200, output.getStatusCode()),
+                () -> verify(teamRepository).updateDetails(username, "Nova Era", "Madagascar")
+        );
+    }
 
-        return new APIGatewayProxyRequestEvent()
+    private HttpApiRequest createInput(String username, String body) {
+        return new HttpApiRequest()
                 .withBody(body)
-                .withRequestContext(context);
+                .withUsername(username);
     }
 }